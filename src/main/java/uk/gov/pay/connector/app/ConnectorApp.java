@@ -21,10 +21,15 @@ import io.dropwizard.jersey.jackson.JsonProcessingExceptionMapper;
 import io.dropwizard.migrations.MigrationsBundle;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.dropwizard.DropwizardExports;
+import io.prometheus.client.dropwizard.samplebuilder.CustomMappingSampleBuilder;
+import io.prometheus.client.exporter.MetricsServlet;
 import org.glassfish.jersey.server.filter.RolesAllowedDynamicFeature;
 import uk.gov.pay.commons.utils.healthchecks.DatabaseHealthCheck;
 import uk.gov.pay.commons.utils.metrics.DatabaseMetricsService;
 import uk.gov.pay.commons.utils.xray.Xray;
+import uk.gov.pay.connector.app.config.PrometheusConfig;
 import uk.gov.pay.connector.cardtype.resource.CardTypesResource;
 import uk.gov.pay.connector.charge.exception.ConflictWebApplicationExceptionMapper;
 import uk.gov.pay.connector.charge.exception.MotoPaymentNotAllowedForGatewayAccountExceptionMapper;
@@ -33,6 +38,7 @@ import uk.gov.pay.connector.charge.resource.ChargesApiResource;
 import uk.gov.pay.connector.charge.resource.ChargesFrontendResource;
 import uk.gov.pay.connector.charge.resource.GatewayCleanupResource;
 import uk.gov.pay.connector.chargeevent.resource.ChargeEventsResource;
+import uk.gov.pay.connector.client.ledger.exception.LedgerExceptionMapper;
 import uk.gov.pay.connector.command.RenderStateTransitionGraphCommand;
 import uk.gov.pay.connector.common.exception.ConstraintViolationExceptionMapper;
 import uk.gov.pay.connector.common.exception.UnsupportedOperationExceptionMapper;
@@ -52,6 +58,8 @@ import uk.gov.pay.connector.healthcheck.CardExecutorServiceHealthCheck;
 import uk.gov.pay.connector.healthcheck.Ping;
 import uk.gov.pay.connector.healthcheck.SQSHealthCheck;
 import uk.gov.pay.connector.healthcheck.resource.HealthCheckResource;
+import uk.gov.pay.connector.metrics.GatewayAccountActivityReporter;
+import uk.gov.pay.connector.metrics.prometheus.LatencyHistograms;
 import uk.gov.pay.connector.paymentprocessor.resource.CardResource;
 import uk.gov.pay.connector.paymentprocessor.resource.DiscrepancyResource;
 import uk.gov.pay.connector.queue.managed.CaptureMessageReceiver;
@@ -63,9 +71,11 @@ import uk.gov.pay.connector.tasks.HistoricalEventEmitterByDateRangeTask;
 import uk.gov.pay.connector.tasks.HistoricalEventEmitterTask;
 import uk.gov.pay.connector.tasks.ParityCheckTask;
 import uk.gov.pay.connector.token.resource.SecurityTokensResource;
+import uk.gov.pay.connector.usernotification.managed.EmailOutboxProcessor;
 import uk.gov.pay.connector.usernotification.resource.EmailNotificationResource;
 import uk.gov.pay.connector.util.DependentResourceWaitCommand;
 import uk.gov.pay.connector.util.JsonMappingExceptionMapper;
+import uk.gov.pay.connector.webhook.managed.NotificationInboxProcessor;
 import uk.gov.pay.connector.webhook.resource.NotificationResource;
 import uk.gov.pay.logging.GovUkPayDropwizardRequestJsonLogLayoutFactory;
 import uk.gov.pay.logging.LoggingFilter;
@@ -111,7 +121,7 @@ public class ConnectorApp extends Application<ConnectorConfiguration> {
 
         injector.getInstance(PersistenceServiceInitialiser.class);
 
-        initialiseMetrics(configuration, environment);
+        initialiseMetrics(configuration, environment, injector);
 
         environment.jersey().register(new ConstraintViolationExceptionMapper());
         environment.jersey().register(new ValidationExceptionMapper());
@@ -124,6 +134,7 @@ public class ConnectorApp extends Application<ConnectorConfiguration> {
         environment.jersey().register(new ZeroAmountNotAllowedForGatewayAccountExceptionMapper());
         environment.jersey().register(new ConflictWebApplicationExceptionMapper());
         environment.jersey().register(new MotoPaymentNotAllowedForGatewayAccountExceptionMapper());
+        environment.jersey().register(new LedgerExceptionMapper());
 
         environment.jersey().register(injector.getInstance(GatewayAccountResource.class));
         environment.jersey().register(injector.getInstance(StripeAccountSetupResource.class));
@@ -152,6 +163,9 @@ public class ConnectorApp extends Application<ConnectorConfiguration> {
             setupSchedulers(environment, injector);
         }
         environment.lifecycle().manage(injector.getInstance(PayoutReconcileMessageReceiver.class));
+        environment.lifecycle().manage(injector.getInstance(NotificationInboxProcessor.class));
+        environment.lifecycle().manage(injector.getInstance(EmailOutboxProcessor.class));
+        environment.lifecycle().manage(injector.getInstance(GatewayAccountActivityReporter.class));
 
         setupSmartpayBasicAuth(environment, injector.getInstance(SmartpayAccountSpecificAuthenticator.class));
 
@@ -192,7 +206,7 @@ public class ConnectorApp extends Application<ConnectorConfiguration> {
         environment.jersey().register(new AuthValueFactoryProvider.Binder<>(BasicAuthUser.class));
     }
 
-    private void initialiseMetrics(ConnectorConfiguration configuration, Environment environment) {
+    private void initialiseMetrics(ConnectorConfiguration configuration, Environment environment, Injector injector) {
         DatabaseMetricsService metricsService = new DatabaseMetricsService(configuration.getDataSourceFactory(), environment.metrics(), "connector");
 
         environment
@@ -210,6 +224,15 @@ public class ConnectorApp extends Application<ConnectorConfiguration> {
                 .build(graphiteUDP)
                 .start(GRAPHITE_SENDING_PERIOD_SECONDS, TimeUnit.SECONDS);
 
+        PrometheusConfig prometheusConfig = configuration.getPrometheusConfig();
+        if (prometheusConfig.isEnabled()) {
+            CollectorRegistry collectorRegistry = injector.getInstance(LatencyHistograms.class).getCollectorRegistry();
+            collectorRegistry.register(new DropwizardExports(environment.metrics(),
+                    new CustomMappingSampleBuilder(prometheusConfig.getMappings())));
+            environment.admin()
+                    .addServlet("prometheus-metrics", new MetricsServlet(collectorRegistry))
+                    .addMapping(prometheusConfig.getPath());
+        }
     }
 
     public static void main(String[] args) throws Exception {
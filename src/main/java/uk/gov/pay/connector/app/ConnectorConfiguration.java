@@ -5,11 +5,19 @@ import io.dropwizard.Configuration;
 import io.dropwizard.client.JerseyClientConfiguration;
 import io.dropwizard.db.DataSourceFactory;
 import uk.gov.pay.connector.app.config.Authorisation3dsConfig;
+import uk.gov.pay.connector.app.config.AuthorisationStageTimingConfig;
+import uk.gov.pay.connector.app.config.EmailOutboxConfig;
 import uk.gov.pay.connector.app.config.EmittedEventSweepConfig;
 import uk.gov.pay.connector.app.config.EventEmitterConfig;
 import uk.gov.pay.connector.app.config.ExpungeConfig;
+import uk.gov.pay.connector.app.config.GatewayAccountActivityConfig;
+import uk.gov.pay.connector.app.config.LedgerChargeLookupConfig;
+import uk.gov.pay.connector.app.config.LedgerClientConfig;
+import uk.gov.pay.connector.app.config.NotificationInboxConfig;
 import uk.gov.pay.connector.app.config.PayoutReconcileProcessConfig;
+import uk.gov.pay.connector.app.config.PrometheusConfig;
 import uk.gov.pay.connector.app.config.RestClientConfig;
+import uk.gov.pay.connector.app.config.SandboxConfig;
 import uk.gov.pay.connector.gateway.PaymentGatewayName;
 
 import javax.validation.Valid;
@@ -33,6 +41,46 @@ public class ConnectorConfiguration extends Configuration {
     @NotNull
     private PayoutReconcileProcessConfig payoutReconcileProcessConfig;
 
+    @Valid
+    @NotNull
+    @JsonProperty("notificationInbox")
+    private NotificationInboxConfig notificationInboxConfig = new NotificationInboxConfig();
+
+    @Valid
+    @NotNull
+    @JsonProperty("ledgerChargeLookup")
+    private LedgerChargeLookupConfig ledgerChargeLookupConfig = new LedgerChargeLookupConfig();
+
+    @Valid
+    @NotNull
+    @JsonProperty("ledgerClient")
+    private LedgerClientConfig ledgerClientConfig = new LedgerClientConfig();
+
+    @Valid
+    @NotNull
+    @JsonProperty("emailOutbox")
+    private EmailOutboxConfig emailOutboxConfig = new EmailOutboxConfig();
+
+    @Valid
+    @NotNull
+    @JsonProperty("gatewayAccountActivity")
+    private GatewayAccountActivityConfig gatewayAccountActivityConfig = new GatewayAccountActivityConfig();
+
+    @Valid
+    @NotNull
+    @JsonProperty("authorisationStageTiming")
+    private AuthorisationStageTimingConfig authorisationStageTimingConfig = new AuthorisationStageTimingConfig();
+
+    @Valid
+    @NotNull
+    @JsonProperty("prometheus")
+    private PrometheusConfig prometheusConfig = new PrometheusConfig();
+
+    @Valid
+    @NotNull
+    @JsonProperty("sandbox")
+    private SandboxConfig sandboxConfig = new SandboxConfig();
+
     @Valid
     @NotNull
     @JsonProperty("notifyConfig")
@@ -251,4 +299,36 @@ public class ConnectorConfiguration extends Configuration {
     public PayoutReconcileProcessConfig getPayoutReconcileProcessConfig() {
         return payoutReconcileProcessConfig;
     }
+
+    public NotificationInboxConfig getNotificationInboxConfig() {
+        return notificationInboxConfig;
+    }
+
+    public LedgerChargeLookupConfig getLedgerChargeLookupConfig() {
+        return ledgerChargeLookupConfig;
+    }
+
+    public LedgerClientConfig getLedgerClientConfig() {
+        return ledgerClientConfig;
+    }
+
+    public EmailOutboxConfig getEmailOutboxConfig() {
+        return emailOutboxConfig;
+    }
+
+    public GatewayAccountActivityConfig getGatewayAccountActivityConfig() {
+        return gatewayAccountActivityConfig;
+    }
+
+    public AuthorisationStageTimingConfig getAuthorisationStageTimingConfig() {
+        return authorisationStageTimingConfig;
+    }
+
+    public PrometheusConfig getPrometheusConfig() {
+        return prometheusConfig;
+    }
+
+    public SandboxConfig getSandboxConfig() {
+        return sandboxConfig;
+    }
 }
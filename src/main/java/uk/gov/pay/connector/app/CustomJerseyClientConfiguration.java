@@ -4,11 +4,28 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import io.dropwizard.Configuration;
 import io.dropwizard.util.Duration;
 
+import javax.validation.constraints.Min;
+
 public class CustomJerseyClientConfiguration extends Configuration {
     private Duration readTimeout;
 
+    private Duration idleConnectionTimeout = Duration.seconds(30);
+
+    @Min(0)
+    private int warmUpConnectionsPerHost = 0;
+
     @JsonProperty
     public Duration getReadTimeout() {
         return this.readTimeout;
     }
+
+    @JsonProperty
+    public Duration getIdleConnectionTimeout() {
+        return idleConnectionTimeout;
+    }
+
+    @JsonProperty
+    public int getWarmUpConnectionsPerHost() {
+        return warmUpConnectionsPerHost;
+    }
 }
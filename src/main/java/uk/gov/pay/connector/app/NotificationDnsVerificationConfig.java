@@ -0,0 +1,32 @@
+package uk.gov.pay.connector.app;
+
+import io.dropwizard.Configuration;
+
+public class NotificationDnsVerificationConfig extends Configuration {
+
+    private int verifiedTtlInSeconds = 3600;
+    private int rejectedTtlInSeconds = 300;
+    private int lookupTimeoutInMillis = 2000;
+    private int maximumCacheSize = 1000;
+    private int lookupThreads = 2;
+
+    public int getVerifiedTtlInSeconds() {
+        return verifiedTtlInSeconds;
+    }
+
+    public int getRejectedTtlInSeconds() {
+        return rejectedTtlInSeconds;
+    }
+
+    public int getLookupTimeoutInMillis() {
+        return lookupTimeoutInMillis;
+    }
+
+    public int getMaximumCacheSize() {
+        return maximumCacheSize;
+    }
+
+    public int getLookupThreads() {
+        return lookupThreads;
+    }
+}
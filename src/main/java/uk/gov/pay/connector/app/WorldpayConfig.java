@@ -7,6 +7,7 @@ public class WorldpayConfig extends GatewayConfig {
     private boolean secureNotificationEnabled;
     private String notificationDomain;
     private ApplePayConfig applePayConfig;
+    private NotificationDnsVerificationConfig notificationDnsVerificationConfig = new NotificationDnsVerificationConfig();
 
     public String getNotificationDomain() {
         return notificationDomain;
@@ -16,6 +17,11 @@ public class WorldpayConfig extends GatewayConfig {
         return secureNotificationEnabled;
     }
 
+    @JsonProperty("notificationDnsVerification")
+    public NotificationDnsVerificationConfig getNotificationDnsVerificationConfig() {
+        return notificationDnsVerificationConfig;
+    }
+
     @JsonProperty("applePay")
     public ApplePayConfig getApplePayConfig() {
         return applePayConfig;
@@ -0,0 +1,20 @@
+package uk.gov.pay.connector.app.config;
+
+import io.dropwizard.Configuration;
+
+import javax.validation.constraints.Min;
+
+public class AuthorisationStageTimingConfig extends Configuration {
+
+    private boolean logStageTimings = false;
+    @Min(0)
+    private long logThresholdInMillis = 0;
+
+    public boolean isLogStageTimings() {
+        return logStageTimings;
+    }
+
+    public long getLogThresholdInMillis() {
+        return logThresholdInMillis;
+    }
+}
@@ -0,0 +1,74 @@
+package uk.gov.pay.connector.app.config;
+
+import io.dropwizard.Configuration;
+
+import javax.validation.constraints.Min;
+
+public class EmailOutboxConfig extends Configuration {
+
+    private boolean enabled = false;
+    @Min(1)
+    private int senderThreads = 4;
+    @Min(1)
+    private int directSendQueueSize = 1000;
+    @Min(1)
+    private int maximumSendsPerSecond = 25;
+    @Min(1)
+    private int batchSize = 20;
+    @Min(1)
+    private int pollIntervalInMillis = 1000;
+    @Min(1)
+    private int maximumAttempts = 8;
+    @Min(1)
+    private int initialRetryDelayInSeconds = 30;
+    @Min(1)
+    private int maximumRetryDelayInSeconds = 3600;
+    @Min(1)
+    private int leaseInSeconds = 120;
+    @Min(1)
+    private int metricsRefreshIntervalInSeconds = 15;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getSenderThreads() {
+        return senderThreads;
+    }
+
+    public int getDirectSendQueueSize() {
+        return directSendQueueSize;
+    }
+
+    public int getMaximumSendsPerSecond() {
+        return maximumSendsPerSecond;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getPollIntervalInMillis() {
+        return pollIntervalInMillis;
+    }
+
+    public int getMaximumAttempts() {
+        return maximumAttempts;
+    }
+
+    public int getInitialRetryDelayInSeconds() {
+        return initialRetryDelayInSeconds;
+    }
+
+    public int getMaximumRetryDelayInSeconds() {
+        return maximumRetryDelayInSeconds;
+    }
+
+    public int getLeaseInSeconds() {
+        return leaseInSeconds;
+    }
+
+    public int getMetricsRefreshIntervalInSeconds() {
+        return metricsRefreshIntervalInSeconds;
+    }
+}
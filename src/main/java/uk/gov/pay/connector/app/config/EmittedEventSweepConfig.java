@@ -2,11 +2,20 @@ package uk.gov.pay.connector.app.config;
 
 import io.dropwizard.Configuration;
 
+import javax.validation.constraints.Min;
+
 public class EmittedEventSweepConfig extends Configuration {
     
     private int notEmittedEventMaxAgeInSeconds;
 
+    @Min(1)
+    private int backfillThreads = 4;
+
     public int getNotEmittedEventMaxAgeInSeconds() {
         return notEmittedEventMaxAgeInSeconds;
     }
+
+    public int getBackfillThreads() {
+        return backfillThreads;
+    }
 }
@@ -0,0 +1,32 @@
+package uk.gov.pay.connector.app.config;
+
+import io.dropwizard.Configuration;
+
+import javax.validation.constraints.Min;
+
+public class GatewayAccountActivityConfig extends Configuration {
+
+    private boolean enabled = false;
+    @Min(1)
+    private int topAccounts = 10;
+    @Min(1)
+    private int maximumTrackedAccounts = 5000;
+    @Min(1)
+    private int reportingIntervalInSeconds = 60;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getTopAccounts() {
+        return topAccounts;
+    }
+
+    public int getMaximumTrackedAccounts() {
+        return maximumTrackedAccounts;
+    }
+
+    public int getReportingIntervalInSeconds() {
+        return reportingIntervalInSeconds;
+    }
+}
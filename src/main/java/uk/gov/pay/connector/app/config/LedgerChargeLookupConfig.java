@@ -0,0 +1,39 @@
+package uk.gov.pay.connector.app.config;
+
+import io.dropwizard.Configuration;
+
+import javax.validation.constraints.Min;
+
+public class LedgerChargeLookupConfig extends Configuration {
+
+    @Min(1)
+    private int lookupThreads = 4;
+    @Min(1)
+    private int lookupTimeoutInMillis = 3000;
+    @Min(1)
+    private int notFoundTtlInSeconds = 30;
+    @Min(1)
+    private int historicChargeTtlInSeconds = 300;
+    @Min(1)
+    private int maximumHistoricCharges = 10000;
+
+    public int getLookupThreads() {
+        return lookupThreads;
+    }
+
+    public int getLookupTimeoutInMillis() {
+        return lookupTimeoutInMillis;
+    }
+
+    public int getNotFoundTtlInSeconds() {
+        return notFoundTtlInSeconds;
+    }
+
+    public int getHistoricChargeTtlInSeconds() {
+        return historicChargeTtlInSeconds;
+    }
+
+    public int getMaximumHistoricCharges() {
+        return maximumHistoricCharges;
+    }
+}
@@ -0,0 +1,42 @@
+package uk.gov.pay.connector.app.config;
+
+import io.dropwizard.client.JerseyClientConfiguration;
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Connection pool and timeouts for the client connector uses to talk to ledger, which are kept separate from the
+ * gateway clients so that a slow ledger cannot use up their connections (or the other way round).
+ */
+public class LedgerClientConfig extends JerseyClientConfiguration {
+
+    @Min(1)
+    private int deadlineInMillis = 3000;
+    @Min(1)
+    private int maximumGetAttempts = 3;
+    @Min(0)
+    private int retryDelayInMillis = 100;
+
+    public LedgerClientConfig() {
+        setTimeout(Duration.seconds(2));
+        setConnectionTimeout(Duration.milliseconds(500));
+        setConnectionRequestTimeout(Duration.milliseconds(500));
+        setMaxConnections(64);
+        setMaxConnectionsPerRoute(64);
+        setRetries(0);
+        setGzipEnabledForRequests(false);
+    }
+
+    public int getDeadlineInMillis() {
+        return deadlineInMillis;
+    }
+
+    public int getMaximumGetAttempts() {
+        return maximumGetAttempts;
+    }
+
+    public int getRetryDelayInMillis() {
+        return retryDelayInMillis;
+    }
+}
@@ -0,0 +1,62 @@
+package uk.gov.pay.connector.app.config;
+
+import io.dropwizard.Configuration;
+
+import javax.validation.constraints.Min;
+
+public class NotificationInboxConfig extends Configuration {
+
+    private boolean enabled = false;
+    @Min(1)
+    private int workerThreads = 2;
+    @Min(1)
+    private int batchSize = 10;
+    @Min(1)
+    private int pollIntervalInMillis = 1000;
+    @Min(1)
+    private int maximumAttempts = 10;
+    @Min(1)
+    private int initialRetryDelayInSeconds = 30;
+    @Min(1)
+    private int maximumRetryDelayInSeconds = 3600;
+    @Min(1)
+    private int leaseInSeconds = 300;
+    @Min(1)
+    private int metricsRefreshIntervalInSeconds = 15;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getPollIntervalInMillis() {
+        return pollIntervalInMillis;
+    }
+
+    public int getMaximumAttempts() {
+        return maximumAttempts;
+    }
+
+    public int getInitialRetryDelayInSeconds() {
+        return initialRetryDelayInSeconds;
+    }
+
+    public int getMaximumRetryDelayInSeconds() {
+        return maximumRetryDelayInSeconds;
+    }
+
+    public int getLeaseInSeconds() {
+        return leaseInSeconds;
+    }
+
+    public int getMetricsRefreshIntervalInSeconds() {
+        return metricsRefreshIntervalInSeconds;
+    }
+}
@@ -1,5 +1,6 @@
 package uk.gov.pay.connector.app.config;
 
+import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
@@ -13,6 +14,13 @@ public class PayoutReconcileProcessConfig {
     private int queueSchedulerThreadDelayInSeconds;
     @Min(1)
     private int queueSchedulerNumberOfThreads;
+    @Min(1)
+    private int maximumConcurrentPayouts = 4;
+    @Min(1)
+    @Max(100)
+    private int balanceTransactionPageSize = 100;
+    @Min(1)
+    private int inFlightPayoutVisibilityTimeoutInSeconds = 300;
 
     public Boolean getPayoutReconcileQueueEnabled() {
         return payoutReconcileQueueEnabled;
@@ -29,4 +37,16 @@ public class PayoutReconcileProcessConfig {
     public int getQueueSchedulerNumberOfThreads() {
         return queueSchedulerNumberOfThreads;
     }
+
+    public int getMaximumConcurrentPayouts() {
+        return maximumConcurrentPayouts;
+    }
+
+    public int getBalanceTransactionPageSize() {
+        return balanceTransactionPageSize;
+    }
+
+    public int getInFlightPayoutVisibilityTimeoutInSeconds() {
+        return inFlightPayoutVisibilityTimeoutInSeconds;
+    }
 }
@@ -0,0 +1,52 @@
+package uk.gov.pay.connector.app.config;
+
+import io.dropwizard.Configuration;
+import io.prometheus.client.dropwizard.samplebuilder.MapperConfig;
+import org.hibernate.validator.constraints.NotEmpty;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dropwizard metrics are exported with names and labels from the first of {@code mappings} whose {@code match} glob
+ * they match, where {@code *} matches one dot-separated segment and label values refer to the segments matched as
+ * {@code ${0}}, {@code ${1}} and so on. Metrics no mapping matches are exported under their sanitised dotted name.
+ * Gateway response times and authorisation stages are also exported as histograms with
+ * {@code latencyBucketsInMillis}.
+ */
+public class PrometheusConfig extends Configuration {
+
+    private boolean enabled = false;
+
+    @NotEmpty
+    private String path = "/prometheus";
+
+    @NotEmpty
+    private List<Long> latencyBucketsInMillis = List.of(5L, 10L, 25L, 50L, 100L, 250L, 500L, 1000L, 2500L, 5000L, 10000L, 30000L);
+
+    private List<MapperConfig> mappings = List.of(
+            new MapperConfig("gateway-operations.*.*.*.failures", "gateway_operation_failures",
+                    Map.of("gateway", "${0}", "account_type", "${1}", "operation", "${2}")),
+            new MapperConfig("gateway-operations.*.*.*.result.*", "gateway_operation_results",
+                    Map.of("gateway", "${0}", "account_type", "${1}", "operation", "${2}", "outcome", "${3}")),
+            new MapperConfig("state-transition.*.*.to.*.rate", "state_transition_events",
+                    Map.of("account_type", "${0}", "gateway", "${1}", "status", "${2}")),
+            new MapperConfig("state-transition.*.*.to.*", "state_transitions",
+                    Map.of("account_type", "${0}", "gateway", "${1}", "status", "${2}")));
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public List<Long> getLatencyBucketsInMillis() {
+        return latencyBucketsInMillis;
+    }
+
+    public List<MapperConfig> getMappings() {
+        return mappings;
+    }
+}
@@ -0,0 +1,18 @@
+package uk.gov.pay.connector.app.config;
+
+import io.dropwizard.Configuration;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import java.util.Map;
+
+public class SandboxConfig extends Configuration {
+
+    @Valid
+    @NotNull
+    private Map<String, SandboxProfile> profiles = Map.of();
+
+    public Map<String, SandboxProfile> getProfiles() {
+        return profiles;
+    }
+}
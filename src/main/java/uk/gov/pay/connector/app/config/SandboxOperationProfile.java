@@ -0,0 +1,51 @@
+package uk.gov.pay.connector.app.config;
+
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.NotNull;
+
+/**
+ * How a sandbox operation behaves: its latency follows a log-normal distribution with the given median and 99th
+ * percentile, a share of requests fail with a 5xx from the "gateway" and a share hang for the timeout and then fail
+ * as a connection timeout.
+ */
+public class SandboxOperationProfile {
+
+    @NotNull
+    private Duration medianLatency = Duration.milliseconds(0);
+
+    private Duration p99Latency;
+
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    private double errorRate = 0;
+
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    private double timeoutRate = 0;
+
+    @NotNull
+    private Duration timeout = Duration.seconds(50);
+
+    public Duration getMedianLatency() {
+        return medianLatency;
+    }
+
+    public Duration getP99Latency() {
+        return p99Latency == null ? medianLatency : p99Latency;
+    }
+
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    public double getTimeoutRate() {
+        return timeoutRate;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+}
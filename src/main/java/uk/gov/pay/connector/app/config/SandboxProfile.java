@@ -0,0 +1,51 @@
+package uk.gov.pay.connector.app.config;
+
+import uk.gov.pay.connector.gateway.GatewayOperation;
+
+import javax.validation.Valid;
+import java.util.EnumMap;
+import java.util.Map;
+
+public class SandboxProfile {
+    private Map<GatewayOperation, SandboxOperationProfile> operationProfiles = new EnumMap<>(GatewayOperation.class);
+
+    public SandboxOperationProfile getProfileFor(GatewayOperation operation) {
+        return operationProfiles.get(operation);
+    }
+
+    @Valid
+    public SandboxOperationProfile getAuth() {
+        return getProfileFor(GatewayOperation.AUTHORISE);
+    }
+
+    public void setAuth(SandboxOperationProfile auth) {
+        operationProfiles.put(GatewayOperation.AUTHORISE, auth);
+    }
+
+    @Valid
+    public SandboxOperationProfile getCancel() {
+        return getProfileFor(GatewayOperation.CANCEL);
+    }
+
+    public void setCancel(SandboxOperationProfile cancel) {
+        operationProfiles.put(GatewayOperation.CANCEL, cancel);
+    }
+
+    @Valid
+    public SandboxOperationProfile getRefund() {
+        return getProfileFor(GatewayOperation.REFUND);
+    }
+
+    public void setRefund(SandboxOperationProfile refund) {
+        operationProfiles.put(GatewayOperation.REFUND, refund);
+    }
+
+    @Valid
+    public SandboxOperationProfile getCapture() {
+        return getProfileFor(GatewayOperation.CAPTURE);
+    }
+
+    public void setCapture(SandboxOperationProfile capture) {
+        operationProfiles.put(GatewayOperation.CAPTURE, capture);
+    }
+}
@@ -2,31 +2,35 @@ package uk.gov.pay.connector.cardtype.resource;
 
 import com.google.common.collect.ImmutableMap;
 import uk.gov.pay.connector.cardtype.dao.CardTypeDao;
+import uk.gov.pay.connector.util.ConditionalResponses;
 
 import javax.inject.Inject;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
-import static uk.gov.pay.connector.util.ResponseUtil.successResponseWithEntity;
 
 @Path("/")
 public class CardTypesResource {
     private static final String CARD_TYPES_FIELD_NAME = "card_types";
 
     private final CardTypeDao cardTypeDao;
+    private final ConditionalResponses conditionalResponses;
 
     @Inject
-    public CardTypesResource(CardTypeDao cardTypeDao) {
+    public CardTypesResource(CardTypeDao cardTypeDao, ConditionalResponses conditionalResponses) {
         this.cardTypeDao = cardTypeDao;
+        this.conditionalResponses = conditionalResponses;
     }
 
     @GET
     @Path("/v1/api/card-types")
     @Produces(APPLICATION_JSON)
-    public Response getCardTypes() {
-        return successResponseWithEntity(ImmutableMap.of(CARD_TYPES_FIELD_NAME, cardTypeDao.findAll()));
+    public Response getCardTypes(@Context Request request) {
+        return conditionalResponses.okWithContentTag(request, ImmutableMap.of(CARD_TYPES_FIELD_NAME, cardTypeDao.findAll()));
     }
 }
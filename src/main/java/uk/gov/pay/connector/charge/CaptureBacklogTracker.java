@@ -0,0 +1,102 @@
+package uk.gov.pay.connector.charge;
+
+import uk.gov.pay.connector.charge.model.domain.ChargeAwaitingCapture;
+import uk.gov.pay.connector.charge.model.domain.ChargeStatus;
+import uk.gov.pay.connector.common.dao.AfterCommitActions;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * Keeps an in-memory view of the charges waiting to be captured, so that the capture backlog metrics do not need to
+ * query the database on every metric tick. It is updated once the capture state transitions made by this node have
+ * committed and periodically replaced wholesale by {@link #reconcile(Collection)} to pick up transitions made by other
+ * nodes.
+ */
+@Singleton
+public class CaptureBacklogTracker {
+
+    private final Clock clock;
+    private final AfterCommitActions afterCommitActions;
+    private final Map<String, ChargeAwaitingCapture> backlog = new ConcurrentHashMap<>();
+
+    @Inject
+    public CaptureBacklogTracker(Clock clock, AfterCommitActions afterCommitActions) {
+        this.clock = clock;
+        this.afterCommitActions = afterCommitActions;
+    }
+
+    public void chargeStatusChanged(String chargeExternalId, ChargeStatus status) {
+        afterCommitActions.run(() -> applyStatusChange(chargeExternalId, status));
+    }
+
+    private void applyStatusChange(String chargeExternalId, ChargeStatus status) {
+        Instant now = clock.instant();
+        switch (status) {
+            case CAPTURE_APPROVED:
+                backlog.putIfAbsent(chargeExternalId, new ChargeAwaitingCapture(chargeExternalId, now, null));
+                break;
+            case CAPTURE_APPROVED_RETRY:
+                backlog.compute(chargeExternalId, (externalId, existing) -> existing == null ?
+                        new ChargeAwaitingCapture(externalId, now, now) :
+                        existing.withLastCaptureAttempt(now));
+                break;
+            case CAPTURE_READY:
+                // capture in progress; the charge stays in the backlog until the outcome is known
+                break;
+            default:
+                backlog.remove(chargeExternalId);
+        }
+    }
+
+    public void reconcile(Collection<ChargeAwaitingCapture> chargesAwaitingCapture) {
+        Map<String, ChargeAwaitingCapture> reconciled = chargesAwaitingCapture.stream()
+                .collect(toMap(ChargeAwaitingCapture::getExternalId, charge -> charge, (first, second) -> first));
+        backlog.keySet().retainAll(reconciled.keySet());
+        backlog.putAll(reconciled);
+    }
+
+    public int size() {
+        return backlog.size();
+    }
+
+    public int countReadyForCapture(Duration notAttemptedWithin) {
+        Instant cutoff = clock.instant().minus(notAttemptedWithin);
+        return (int) backlog.values().stream()
+                .filter(charge -> charge.getLastCaptureAttempt().map(cutoff::isAfter).orElse(true))
+                .count();
+    }
+
+    public Optional<Duration> oldestWait() {
+        Instant now = clock.instant();
+        return backlog.values().stream()
+                .map(charge -> Duration.between(charge.getWaitingSince(), now))
+                .max(Duration::compareTo);
+    }
+
+    public Optional<Duration> waitPercentile(double percentile) {
+        Instant now = clock.instant();
+        List<Duration> waits = backlog.values().stream()
+                .map(charge -> Duration.between(charge.getWaitingSince(), now))
+                .sorted()
+                .collect(toList());
+
+        if (waits.isEmpty()) {
+            return Optional.empty();
+        }
+
+        int index = (int) Math.ceil(percentile * waits.size()) - 1;
+        return Optional.of(waits.get(Math.max(0, Math.min(index, waits.size() - 1))));
+    }
+}
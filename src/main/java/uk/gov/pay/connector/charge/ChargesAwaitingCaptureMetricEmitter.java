@@ -1,6 +1,6 @@
 package uk.gov.pay.connector.charge;
 
-import com.codahale.metrics.CachedGauge;
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.MetricRegistry;
 import io.dropwizard.setup.Environment;
 import org.slf4j.Logger;
@@ -11,44 +11,66 @@ import uk.gov.pay.connector.charge.service.ChargeService;
 
 import javax.inject.Inject;
 import java.time.Duration;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
 public class ChargesAwaitingCaptureMetricEmitter {
 
     private static final Logger logger = LoggerFactory.getLogger(ChargesAwaitingCaptureMetricEmitter.class);
+    private static final String METRIC_PREFIX = "gateway-operations.capture-process";
     private final CaptureProcessConfig captureConfig;
     private final MetricRegistry metricRegistry;
-    private final int CAPTURE_METRIC_UPDATE_DELAY_MINUTES = 20;
-    private ChargeService chargeService;
+    private final Environment environment;
+    private final int CAPTURE_BACKLOG_RECONCILE_DELAY_MINUTES = 20;
+    private final ChargeService chargeService;
+    private final CaptureBacklogTracker captureBacklogTracker;
 
     @Inject
     public ChargesAwaitingCaptureMetricEmitter(
             Environment environment,
             ConnectorConfiguration connectorConfiguration,
-            ChargeService chargeService) {
+            ChargeService chargeService,
+            CaptureBacklogTracker captureBacklogTracker) {
 
         this.chargeService = chargeService;
+        this.captureBacklogTracker = captureBacklogTracker;
         this.captureConfig = connectorConfiguration.getCaptureProcessConfig();
+        this.environment = environment;
 
         metricRegistry = environment.metrics();
     }
 
     public void register() {
-        final CachedGauge<Integer> cachedGauge = new CachedGauge<>(CAPTURE_METRIC_UPDATE_DELAY_MINUTES, TimeUnit.MINUTES) {
-            @Override
-            protected Integer loadValue() {
-                try {
-                    Duration notAttemptedWithinDuration = Duration.ofMinutes(captureConfig.getChargesConsideredOverdueForCaptureAfter());
-                    return chargeService.getNumberOfChargesAwaitingCapture(notAttemptedWithinDuration);
-                } catch (Exception e) {
-                    logger.warn(
-                            "An exception has been caught while retrieving the number of charges to capture metric [{}]",
-                            e.getMessage());
-                }
-                return null;
-            }
-        };
-
-        metricRegistry.register("gateway-operations.capture-process.queue-size.ready_capture_queue_size", cachedGauge);
+        environment
+                .lifecycle()
+                .scheduledExecutorService("capture-backlog-reconciler")
+                .threads(1)
+                .build()
+                .scheduleWithFixedDelay(this::reconcileCaptureBacklog, 0, CAPTURE_BACKLOG_RECONCILE_DELAY_MINUTES, TimeUnit.MINUTES);
+
+        Duration notAttemptedWithinDuration = Duration.ofMinutes(captureConfig.getChargesConsideredOverdueForCaptureAfter());
+        metricRegistry.register(METRIC_PREFIX + ".queue-size.ready_capture_queue_size",
+                (Gauge<Integer>) () -> captureBacklogTracker.countReadyForCapture(notAttemptedWithinDuration));
+        metricRegistry.register(METRIC_PREFIX + ".backlog.size", (Gauge<Integer>) captureBacklogTracker::size);
+        metricRegistry.register(METRIC_PREFIX + ".backlog.oldest_wait_seconds",
+                (Gauge<Long>) () -> toSeconds(captureBacklogTracker.oldestWait()));
+        metricRegistry.register(METRIC_PREFIX + ".backlog.p50_wait_seconds",
+                (Gauge<Long>) () -> toSeconds(captureBacklogTracker.waitPercentile(0.5)));
+        metricRegistry.register(METRIC_PREFIX + ".backlog.p99_wait_seconds",
+                (Gauge<Long>) () -> toSeconds(captureBacklogTracker.waitPercentile(0.99)));
+    }
+
+    void reconcileCaptureBacklog() {
+        try {
+            captureBacklogTracker.reconcile(chargeService.findChargesAwaitingCapture());
+        } catch (Exception e) {
+            logger.warn(
+                    "An exception has been caught while reconciling the charges awaiting capture [{}]",
+                    e.getMessage());
+        }
+    }
+
+    private static Long toSeconds(Optional<Duration> duration) {
+        return duration.map(Duration::getSeconds).orElse(0L);
     }
 }
@@ -2,6 +2,11 @@ package uk.gov.pay.connector.charge.dao;
 
 import com.google.inject.Provider;
 import com.google.inject.persist.Transactional;
+import org.eclipse.persistence.config.PessimisticLock;
+import org.eclipse.persistence.config.QueryHints;
+import uk.gov.pay.connector.charge.exception.ChargeLockedRuntimeException;
+import uk.gov.pay.connector.charge.model.FrontendChargeVersion;
+import uk.gov.pay.connector.charge.model.domain.ChargeAwaitingCapture;
 import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
 import uk.gov.pay.connector.charge.model.domain.ChargeStatus;
 import uk.gov.pay.connector.charge.model.domain.ParityCheckStatus;
@@ -10,17 +15,25 @@ import uk.gov.pay.connector.events.model.ResourceType;
 
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
+import javax.persistence.LockTimeoutException;
+import javax.persistence.PersistenceException;
+import javax.persistence.PessimisticLockException;
 import javax.persistence.Query;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.time.Duration;
-import java.time.ZoneId;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_3DS_REQUIRED;
 import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.CAPTURE_APPROVED;
@@ -31,14 +44,25 @@ public class ChargeDao extends JpaDao<ChargeEntity> {
 
     private static final String STATUS = "status";
     private static final String CREATED_DATE = "createdDate";
-    private static final String FIND_CAPTURE_CHARGES_WHERE_CLAUSE =
-            "WHERE (c.status=:captureApprovedStatus OR c.status=:captureApprovedRetryStatus)" +
-                    "AND NOT EXISTS (" +
-                    "  SELECT ce FROM ChargeEventEntity ce WHERE " +
-                    "    ce.chargeEntity = c AND " +
-                    "    ce.status = :eventStatus AND " +
-                    "    ce.updated >= :cutoffDate " +
-                    ") ";
+    private static final String LOCK_NOT_AVAILABLE = "55P03";
+    // Status literals are inlined rather than bound so that the planner can match the
+    // idx_charges_awaiting_capture partial index
+    public static final String FIND_CHARGES_AWAITING_CAPTURE = String.format(
+            "SELECT c.external_id, " +
+                    "  coalesce(min(ce.updated), min(c.created_date)), " +
+                    "  max(ce.updated) FILTER (WHERE ce.status = '%2$s') " +
+                    "FROM charges c " +
+                    "LEFT JOIN charge_events ce ON ce.charge_id = c.id AND ce.status IN ('%1$s', '%2$s') " +
+                    "WHERE c.status IN ('%1$s', '%2$s') " +
+                    "GROUP BY c.external_id",
+            CAPTURE_APPROVED.getValue(), CAPTURE_APPROVED_RETRY.getValue());
+
+    // Walks idx_charges_created_date_parity_check_date in created_date order, checking the parity date in the index
+    public static final String FIND_CHARGE_TO_EXPUNGE =
+            "SELECT c.* FROM charges c " +
+                    "WHERE c.created_date < ?1 " +
+                    "AND (c.parity_check_date IS NULL OR c.parity_check_date < ?2) " +
+                    "ORDER BY c.created_date LIMIT 1";
 
     @Inject
     public ChargeDao(final Provider<EntityManager> entityManager) {
@@ -60,6 +84,54 @@ public class ChargeDao extends JpaDao<ChargeEntity> {
                 .getResultList().stream().findFirst();
     }
 
+    public Optional<FrontendChargeVersion> findFrontendChargeVersion(String externalId) {
+        String query = "SELECT NEW uk.gov.pay.connector.charge.model.FrontendChargeVersion(" +
+                "c.version, ga.version, w.version, SUM(en.version), COUNT(en), f.id, " +
+                "c.status, c.auth3dsRequiredDetails.worldpayChallengeTransactionId) " +
+                "FROM ChargeEntity c JOIN c.gatewayAccount ga " +
+                "LEFT JOIN ga.worldpay3dsFlexCredentialsEntity w " +
+                "LEFT JOIN ga.emailNotifications en " +
+                "LEFT JOIN c.fee f " +
+                "WHERE c.externalId = :externalId " +
+                "GROUP BY c.version, ga.version, w.version, f.id, " +
+                "c.status, c.auth3dsRequiredDetails.worldpayChallengeTransactionId";
+
+        // the accepted card types are read separately, as joining them above would multiply the email notifications
+        String cardTypesQuery = "SELECT ct.id FROM ChargeEntity c JOIN c.gatewayAccount ga JOIN ga.cardTypes ct " +
+                "WHERE c.externalId = :externalId";
+
+        return entityManager.get()
+                .createQuery(query, FrontendChargeVersion.class)
+                .setParameter("externalId", externalId)
+                .getResultList().stream().findFirst()
+                .map(version -> version.withAcceptedCardTypeIds(entityManager.get()
+                        .createQuery(cardTypesQuery, UUID.class)
+                        .setParameter("externalId", externalId)
+                        .getResultList()));
+    }
+
+    /**
+     * Finds the charge and takes a row lock on it for the rest of the current transaction, failing fast with a
+     * {@link ChargeLockedRuntimeException} rather than waiting if another transaction already holds the lock.
+     */
+    public Optional<ChargeEntity> findByExternalIdForUpdate(String externalId) {
+        String query = "SELECT c FROM ChargeEntity c " +
+                "WHERE c.externalId = :externalId";
+
+        try {
+            return entityManager.get()
+                    .createQuery(query, ChargeEntity.class)
+                    .setParameter("externalId", externalId)
+                    .setHint(QueryHints.PESSIMISTIC_LOCK, PessimisticLock.LockNoWait)
+                    .getResultList().stream().findFirst();
+        } catch (PersistenceException e) {
+            if (isLockNotAvailable(e)) {
+                throw new ChargeLockedRuntimeException(externalId);
+            }
+            throw e;
+        }
+    }
+
     public Optional<ChargeEntity> findByTokenId(String tokenId) {
         String query = "SELECT te.chargeEntity FROM TokenEntity te WHERE te.token=:tokenId AND te.used=false";
 
@@ -148,21 +220,18 @@ public class ChargeDao extends JpaDao<ChargeEntity> {
         return predicates;
     }
 
-    public int countChargesForImmediateCapture(Duration notAttemptedWithin) {
-        String query = "SELECT count(c) FROM ChargeEntity c " + FIND_CAPTURE_CHARGES_WHERE_CLAUSE;
+    public List<ChargeAwaitingCapture> findChargesAwaitingCapture() {
+        List<Object[]> rows = entityManager.get()
+                .createNativeQuery(FIND_CHARGES_AWAITING_CAPTURE)
+                .getResultList();
 
-        ZonedDateTime utcCutoffThreshold = ZonedDateTime.now()
-                .minus(notAttemptedWithin)
-                .withZoneSameInstant(ZoneId.of("UTC"));
+        return rows.stream()
+                .map(row -> new ChargeAwaitingCapture((String) row[0], toUtcInstant(row[1]), toUtcInstant(row[2])))
+                .collect(Collectors.toList());
+    }
 
-        var count = (Number) entityManager.get()
-                .createQuery(query)
-                .setParameter("captureApprovedStatus", CAPTURE_APPROVED.getValue())
-                .setParameter("captureApprovedRetryStatus", CAPTURE_APPROVED_RETRY.getValue())
-                .setParameter("eventStatus", CAPTURE_APPROVED_RETRY)
-                .setParameter("cutoffDate", utcCutoffThreshold)
-                .getSingleResult();
-        return count.intValue();
+    private static Instant toUtcInstant(Object timestamp) {
+        return timestamp == null ? null : ((Timestamp) timestamp).toLocalDateTime().toInstant(ZoneOffset.UTC);
     }
 
     public int countCaptureRetriesForChargeExternalId(String externalId) {
@@ -218,24 +287,16 @@ public class ChargeDao extends JpaDao<ChargeEntity> {
 
     public Optional<ChargeEntity> findChargeToExpunge(int minimumAgeOfChargeInDays,
                                                       int excludeChargesParityCheckedWithInDays) {
-        String query = "SELECT c FROM ChargeEntity c " +
-                "WHERE (c.parityCheckDate is null or c.parityCheckDate < :parityCheckedBeforeDate)" +
-                " AND c.createdDate < :createdBeforeDate " +
-                " ORDER BY c.createdDate asc";
-
         ZonedDateTime parityCheckedBeforeDate = ZonedDateTime.now()
-                .minus(Duration.ofDays(excludeChargesParityCheckedWithInDays))
-                .withZoneSameInstant(ZoneId.of("UTC"));
+                .minus(Duration.ofDays(excludeChargesParityCheckedWithInDays));
 
         ZonedDateTime createdBeforeDate = ZonedDateTime.now()
-                .minus(Duration.ofDays(minimumAgeOfChargeInDays))
-                .withZoneSameInstant(ZoneId.of("UTC"));
+                .minus(Duration.ofDays(minimumAgeOfChargeInDays));
 
         return entityManager.get()
-                .createQuery(query, ChargeEntity.class)
-                .setParameter("parityCheckedBeforeDate", parityCheckedBeforeDate)
-                .setParameter("createdBeforeDate", createdBeforeDate)
-                .setMaxResults(1)
+                .createNativeQuery(FIND_CHARGE_TO_EXPUNGE, ChargeEntity.class)
+                .setParameter(1, Timestamp.from(createdBeforeDate.toInstant()))
+                .setParameter(2, Timestamp.from(parityCheckedBeforeDate.toInstant()))
                 .getResultList().stream().findFirst();
     }
 
@@ -268,12 +329,38 @@ public class ChargeDao extends JpaDao<ChargeEntity> {
                 .executeUpdate();
     }
 
+    /**
+     * Charges currently row-locked by another transaction (for example one being captured or cleaned up) are skipped
+     * rather than waited for, so concurrent sweeps do not pick up charges that are already being worked on. The lock
+     * taken here only lasts as long as the caller's transaction; callers that work on the charges afterwards must lock
+     * each one again, for example with {@link #findByExternalIdForUpdate(String)}.
+     */
     public List<ChargeEntity> findWithPaymentProviderAndStatusIn(String provider, List<ChargeStatus> statuses, int limit) {
+        String statusValues = statuses.stream()
+                .map(status -> "'" + status.getValue() + "'")
+                .collect(Collectors.joining(", "));
+        String query = "SELECT c.* FROM charges c " +
+                "JOIN gateway_accounts ga ON ga.id = c.gateway_account_id " +
+                "WHERE ga.payment_provider = ?1 AND c.status IN (" + statusValues + ") " +
+                "LIMIT ?2 " +
+                "FOR UPDATE OF c SKIP LOCKED";
+
         return entityManager.get()
-                .createQuery("SELECT c FROM ChargeEntity c WHERE c.gatewayAccount.gatewayName = :provider AND c.status in :statuses", ChargeEntity.class)
-                .setParameter("provider", provider)
-                .setParameter("statuses", statuses)
-                .setMaxResults(limit)
+                .createNativeQuery(query, ChargeEntity.class)
+                .setParameter(1, provider)
+                .setParameter(2, limit)
                 .getResultList();
     }
+
+    private static boolean isLockNotAvailable(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof PessimisticLockException || cause instanceof LockTimeoutException) {
+                return true;
+            }
+            if (cause instanceof SQLException && LOCK_NOT_AVAILABLE.equals(((SQLException) cause).getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
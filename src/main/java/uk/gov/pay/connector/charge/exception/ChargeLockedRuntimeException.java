@@ -0,0 +1,9 @@
+package uk.gov.pay.connector.charge.exception;
+
+import uk.gov.pay.connector.common.exception.ConflictRuntimeException;
+
+public class ChargeLockedRuntimeException extends ConflictRuntimeException {
+    public ChargeLockedRuntimeException(String externalId) {
+        super(externalId, "charge is locked by another operation");
+    }
+}
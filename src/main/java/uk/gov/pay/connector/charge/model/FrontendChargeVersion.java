@@ -0,0 +1,75 @@
+package uk.gov.pay.connector.charge.model;
+
+import com.google.common.hash.Hashing;
+
+import javax.ws.rs.core.EntityTag;
+import java.util.List;
+import java.util.UUID;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.joining;
+import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_3DS_REQUIRED;
+import static uk.gov.pay.connector.util.ConditionalResponses.versionTag;
+
+/**
+ * The versions of everything the frontend charge response is built from: the charge (including its card and 3DS
+ * details), its gateway account, the account's Worldpay 3DS Flex credentials and email notifications, whether a fee has
+ * been recorded and the ids of the card types the account accepts. The accepted card types are a join table that does
+ * not bump the gateway account's version, so their ids are hashed into the tag. Read without loading the charge so an
+ * unchanged charge can be answered without it.
+ */
+public class FrontendChargeVersion {
+
+    private final Long chargeVersion;
+    private final Long gatewayAccountVersion;
+    private final Long worldpay3dsFlexCredentialsVersion;
+    private final Long emailNotificationsVersionTotal;
+    private final Long emailNotificationsCount;
+    private final Long feeId;
+    private final String chargeStatus;
+    private final String worldpayChallengeTransactionId;
+    private final List<UUID> acceptedCardTypeIds;
+
+    public FrontendChargeVersion(Long chargeVersion, Long gatewayAccountVersion, Long worldpay3dsFlexCredentialsVersion,
+                                 Long emailNotificationsVersionTotal, Long emailNotificationsCount, Long feeId,
+                                 String chargeStatus, String worldpayChallengeTransactionId) {
+        this(chargeVersion, gatewayAccountVersion, worldpay3dsFlexCredentialsVersion, emailNotificationsVersionTotal,
+                emailNotificationsCount, feeId, chargeStatus, worldpayChallengeTransactionId, List.of());
+    }
+
+    private FrontendChargeVersion(Long chargeVersion, Long gatewayAccountVersion, Long worldpay3dsFlexCredentialsVersion,
+                                  Long emailNotificationsVersionTotal, Long emailNotificationsCount, Long feeId,
+                                  String chargeStatus, String worldpayChallengeTransactionId,
+                                  List<UUID> acceptedCardTypeIds) {
+        this.chargeVersion = chargeVersion;
+        this.gatewayAccountVersion = gatewayAccountVersion;
+        this.worldpay3dsFlexCredentialsVersion = worldpay3dsFlexCredentialsVersion;
+        this.emailNotificationsVersionTotal = emailNotificationsVersionTotal;
+        this.emailNotificationsCount = emailNotificationsCount;
+        this.feeId = feeId;
+        this.chargeStatus = chargeStatus;
+        this.worldpayChallengeTransactionId = worldpayChallengeTransactionId;
+        this.acceptedCardTypeIds = List.copyOf(acceptedCardTypeIds);
+    }
+
+    public FrontendChargeVersion withAcceptedCardTypeIds(List<UUID> acceptedCardTypeIds) {
+        return new FrontendChargeVersion(chargeVersion, gatewayAccountVersion, worldpay3dsFlexCredentialsVersion,
+                emailNotificationsVersionTotal, emailNotificationsCount, feeId, chargeStatus,
+                worldpayChallengeTransactionId, acceptedCardTypeIds);
+    }
+
+    /**
+     * Whether the response carries a Worldpay 3DS Flex challenge JWT. A new one, with its own expiry, is made for each
+     * response, so such a charge must not be answered with 304 Not Modified.
+     */
+    public boolean hasWorldpayChallenge() {
+        return AUTHORISATION_3DS_REQUIRED.toString().equals(chargeStatus) && worldpayChallengeTransactionId != null;
+    }
+
+    public EntityTag toEntityTag() {
+        String acceptedCardTypes = acceptedCardTypeIds.stream().map(UUID::toString).sorted().collect(joining(","));
+        return versionTag("charge", chargeVersion, gatewayAccountVersion, worldpay3dsFlexCredentialsVersion,
+                emailNotificationsVersionTotal, emailNotificationsCount, feeId,
+                Hashing.murmur3_32().hashString(acceptedCardTypes, UTF_8));
+    }
+}
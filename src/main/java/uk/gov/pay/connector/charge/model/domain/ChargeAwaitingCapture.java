@@ -0,0 +1,33 @@
+package uk.gov.pay.connector.charge.model.domain;
+
+import java.time.Instant;
+import java.util.Optional;
+
+public class ChargeAwaitingCapture {
+
+    private final String externalId;
+    private final Instant waitingSince;
+    private final Instant lastCaptureAttempt;
+
+    public ChargeAwaitingCapture(String externalId, Instant waitingSince, Instant lastCaptureAttempt) {
+        this.externalId = externalId;
+        this.waitingSince = waitingSince;
+        this.lastCaptureAttempt = lastCaptureAttempt;
+    }
+
+    public ChargeAwaitingCapture withLastCaptureAttempt(Instant lastCaptureAttempt) {
+        return new ChargeAwaitingCapture(externalId, waitingSince, lastCaptureAttempt);
+    }
+
+    public String getExternalId() {
+        return externalId;
+    }
+
+    public Instant getWaitingSince() {
+        return waitingSince;
+    }
+
+    public Optional<Instant> getLastCaptureAttempt() {
+        return Optional.ofNullable(lastCaptureAttempt);
+    }
+}
@@ -60,6 +60,7 @@ public enum ChargeStatus implements Status {
     // Below statuses exist to facilitate cancellation on the gateway for charges that entered the various authorisation
     // error states. A recurring cleanup job moves charges into these states when it has handled them. This job is only
     // run for ePDQ charges, so only ePDQ charges will enter these states.
+    AUTHORISATION_ERROR_CLEANUP_READY("AUTHORISATION ERROR CLEANUP READY", EXTERNAL_ERROR_GATEWAY, false),
     AUTHORISATION_ERROR_CANCELLED("AUTHORISATION ERROR CANCELLED", EXTERNAL_ERROR_GATEWAY, true),
     AUTHORISATION_ERROR_REJECTED("AUTHORISATION ERROR REJECTED", EXTERNAL_ERROR_GATEWAY, true),
     AUTHORISATION_ERROR_CHARGE_MISSING("AUTHORISATION ERROR CHARGE MISSING", EXTERNAL_ERROR_GATEWAY, true);
@@ -16,6 +16,7 @@ import uk.gov.pay.connector.charge.model.domain.ChargeStatus;
 import uk.gov.pay.connector.charge.service.ChargeService;
 import uk.gov.pay.connector.charge.service.Worldpay3dsFlexJwtService;
 import uk.gov.pay.connector.charge.util.CorporateCardSurchargeCalculator;
+import uk.gov.pay.connector.common.model.api.LinkTemplates;
 import uk.gov.pay.connector.common.service.PatchRequestBuilder;
 import uk.gov.pay.connector.gatewayaccount.model.GatewayAccount;
 import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
@@ -30,9 +31,10 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
-import java.net.URI;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Optional;
@@ -45,6 +47,7 @@ import static uk.gov.pay.connector.charge.resource.ChargesApiResource.EMAIL_KEY;
 import static uk.gov.pay.connector.common.service.PatchRequestBuilder.aPatchRequestBuilder;
 import static uk.gov.pay.connector.common.validator.ApiValidators.validateChargePatchParams;
 import static uk.gov.pay.connector.gateway.PaymentGatewayName.WORLDPAY;
+import static uk.gov.pay.connector.util.ConditionalResponses.notModified;
 import static uk.gov.pay.connector.util.ResponseUtil.badRequestResponse;
 import static uk.gov.pay.connector.util.ResponseUtil.responseWithChargeNotFound;
 
@@ -69,10 +72,22 @@ public class ChargesFrontendResource {
     @Path("/v1/frontend/charges/{chargeId}")
     @Produces(APPLICATION_JSON)
     @JsonView(GatewayAccountEntity.Views.FrontendView.class)
-    public Response getCharge(@PathParam("chargeId") String chargeId, @Context UriInfo uriInfo) {
+    public Response getCharge(@PathParam("chargeId") String chargeId, @Context UriInfo uriInfo, @Context Request request) {
+
+        return chargeDao.findFrontendChargeVersion(chargeId)
+                .map(version -> {
+                    if (version.hasWorldpayChallenge()) {
+                        return chargeResponse(chargeId, uriInfo, null);
+                    }
+                    EntityTag tag = version.toEntityTag();
+                    return notModified(request, tag).orElseGet(() -> chargeResponse(chargeId, uriInfo, tag));
+                })
+                .orElseGet(() -> responseWithChargeNotFound(chargeId));
+    }
 
+    private Response chargeResponse(String chargeId, UriInfo uriInfo, EntityTag tag) {
         return chargeDao.findByExternalId(chargeId)
-                .map(charge -> Response.ok(buildChargeResponse(uriInfo, charge)).build())
+                .map(charge -> Response.ok(buildChargeResponse(uriInfo, charge)).tag(tag).build())
                 .orElseGet(() -> responseWithChargeNotFound(chargeId));
     }
 
@@ -170,9 +185,9 @@ public class ChargesFrontendResource {
                 .withGatewayAccount(charge.getGatewayAccount())
                 .withLanguage(charge.getLanguage())
                 .withDelayedCapture(charge.isDelayedCapture())
-                .withLink("self", GET, locationUriFor("/v1/frontend/charges/{chargeId}", uriInfo, chargeId))
-                .withLink("cardAuth", POST, locationUriFor("/v1/frontend/charges/{chargeId}/cards", uriInfo, chargeId))
-                .withLink("cardCapture", POST, locationUriFor("/v1/frontend/charges/{chargeId}/capture", uriInfo, chargeId))
+                .withLink("self", GET, LinkTemplates.FRONTEND_CHARGE.expand(uriInfo.getBaseUri(), chargeId))
+                .withLink("cardAuth", POST, LinkTemplates.FRONTEND_CHARGE_CARDS.expand(uriInfo.getBaseUri(), chargeId))
+                .withLink("cardCapture", POST, LinkTemplates.FRONTEND_CHARGE_CAPTURE.expand(uriInfo.getBaseUri(), chargeId))
                 .withWalletType(charge.getWalletType())
                 .withMoto(charge.isMoto());
 
@@ -208,10 +223,4 @@ public class ChargesFrontendResource {
         return responseBuilder
                 .build();
     }
-
-    private URI locationUriFor(String path, UriInfo uriInfo, String chargeId) {
-        return uriInfo.getBaseUriBuilder()
-                .path(path)
-                .build(chargeId);
-    }
 }
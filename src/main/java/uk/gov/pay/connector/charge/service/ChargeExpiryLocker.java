@@ -0,0 +1,88 @@
+package uk.gov.pay.connector.charge.service;
+
+import com.google.inject.persist.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.charge.dao.ChargeDao;
+import uk.gov.pay.connector.charge.exception.ChargeNotFoundRuntimeException;
+import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
+import uk.gov.pay.connector.charge.model.domain.ChargeStatus;
+import uk.gov.pay.connector.common.exception.ConflictRuntimeException;
+import uk.gov.pay.connector.common.exception.IllegalStateRuntimeException;
+import uk.gov.pay.connector.common.exception.OperationAlreadyInProgressRuntimeException;
+import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
+import uk.gov.pay.connector.paymentprocessor.model.OperationType;
+
+import javax.inject.Inject;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_3DS_READY;
+import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_READY;
+import static uk.gov.pay.connector.charge.service.StatusFlow.EXPIRE_FLOW;
+
+/**
+ * Moves a charge that is being expired into the expiry locking state while holding a row lock on it. The lock is held
+ * only by this short transaction, so it is released once the locking state is committed and before
+ * {@link ChargeExpiryService} calls the gateway.
+ */
+public class ChargeExpiryLocker {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final ChargeDao chargeDao;
+    private final ChargeService chargeService;
+
+    @Inject
+    public ChargeExpiryLocker(ChargeDao chargeDao, ChargeService chargeService) {
+        this.chargeDao = chargeDao;
+        this.chargeService = chargeService;
+    }
+
+    /**
+     * @throws uk.gov.pay.connector.charge.exception.ChargeLockedRuntimeException if another transaction holds a row
+     *                                                                           lock on the charge
+     */
+    @Transactional
+    public ChargeEntity prepareForTermination(String chargeId) {
+        return chargeDao.findByExternalIdForUpdate(chargeId).map(chargeEntity -> {
+            ChargeStatus newStatus = EXPIRE_FLOW.getLockState();
+            final ChargeStatus chargeStatus = ChargeStatus.fromString(chargeEntity.getStatus());
+            if (!EXPIRE_FLOW.getTerminatableStatuses().contains(chargeStatus)) {
+                if (newStatus.equals(chargeStatus)) {
+                    throw new OperationAlreadyInProgressRuntimeException(EXPIRE_FLOW.getName(), chargeId);
+                } else if (Arrays.asList(AUTHORISATION_READY, AUTHORISATION_3DS_READY).contains(chargeStatus)) {
+                    throw new ConflictRuntimeException(chargeEntity.getExternalId());
+                }
+
+                logger.warn("Charge is not in one of the legal states. charge_external_id={}, status={}, legal_states={}",
+                        chargeId, chargeEntity.getStatus(), getLegalStatusNames(EXPIRE_FLOW.getTerminatableStatuses()));
+
+                throw new IllegalStateRuntimeException(chargeId);
+            }
+            chargeService.transitionChargeState(chargeEntity, newStatus);
+
+            GatewayAccountEntity gatewayAccount = chargeEntity.getGatewayAccount();
+
+            // Used by Sumo Logic saved search
+            logger.info("Card cancel request sent - charge_external_id={}, charge_status={}, account_id={}, transaction_id={}, amount={}, operation_type={}, provider={}, provider_type={}, locking_status={}",
+                    chargeEntity.getExternalId(),
+                    chargeStatus,
+                    gatewayAccount.getId(),
+                    chargeEntity.getGatewayTransactionId(),
+                    chargeEntity.getAmount(),
+                    OperationType.CANCELLATION.getValue(),
+                    gatewayAccount.getGatewayName(),
+                    gatewayAccount.getType(),
+                    newStatus);
+
+
+            return chargeEntity;
+        }).orElseThrow(() -> new ChargeNotFoundRuntimeException(chargeId));
+    }
+
+    private static String getLegalStatusNames(List<ChargeStatus> legalStatuses) {
+        return legalStatuses.stream().map(ChargeStatus::toString).collect(Collectors.joining(", "));
+    }
+}
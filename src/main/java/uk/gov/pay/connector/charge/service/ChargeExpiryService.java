@@ -1,31 +1,27 @@
 package uk.gov.pay.connector.charge.service;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import com.google.inject.persist.Transactional;
+import io.dropwizard.setup.Environment;
 import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.gov.pay.connector.app.ChargeSweepConfig;
 import uk.gov.pay.connector.app.ConnectorConfiguration;
 import uk.gov.pay.connector.charge.dao.ChargeDao;
-import uk.gov.pay.connector.charge.exception.ChargeNotFoundRuntimeException;
+import uk.gov.pay.connector.charge.exception.ChargeLockedRuntimeException;
 import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
 import uk.gov.pay.connector.charge.model.domain.ChargeStatus;
 import uk.gov.pay.connector.charge.model.domain.ExpirableChargeStatus;
 import uk.gov.pay.connector.charge.model.domain.ExpirableChargeStatus.AuthorisationStage;
-import uk.gov.pay.connector.common.exception.ConflictRuntimeException;
-import uk.gov.pay.connector.common.exception.IllegalStateRuntimeException;
 import uk.gov.pay.connector.common.exception.InvalidForceStateTransitionException;
 import uk.gov.pay.connector.common.exception.InvalidStateTransitionException;
-import uk.gov.pay.connector.common.exception.OperationAlreadyInProgressRuntimeException;
 import uk.gov.pay.connector.gateway.GatewayException;
 import uk.gov.pay.connector.gateway.PaymentProviders;
 import uk.gov.pay.connector.gateway.model.request.CancelGatewayRequest;
 import uk.gov.pay.connector.gateway.model.response.BaseCancelResponse;
 import uk.gov.pay.connector.gateway.model.response.GatewayResponse;
-import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
-import uk.gov.pay.connector.paymentprocessor.model.OperationType;
 import uk.gov.pay.connector.paymentprocessor.service.QueryService;
 import uk.gov.pay.connector.token.dao.TokenDao;
 
@@ -33,7 +29,6 @@ import javax.inject.Inject;
 import javax.ws.rs.WebApplicationException;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -43,8 +38,6 @@ import java.util.stream.Collectors;
 
 import static java.lang.String.format;
 import static net.logstash.logback.argument.StructuredArguments.kv;
-import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_3DS_READY;
-import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_READY;
 import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.EXPIRED;
 import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.EXPIRE_CANCEL_FAILED;
 import static uk.gov.pay.connector.charge.model.domain.ExpirableChargeStatus.AuthorisationStage.DURING_AUTHORISATION;
@@ -61,12 +54,15 @@ public class ChargeExpiryService {
     private static final String EXPIRY_SUCCESS = "expiry-success";
     private static final String EXPIRY_FAILED = "expiry-failed";
     private static final long TOKEN_EXPIRY_DAYS = 7;
+    private static final String ROW_LOCK_CONFLICTS_METRIC = "expiry.row-lock-conflicts";
 
     private final ChargeDao chargeDao;
     private final ChargeService chargeService;
     private final TokenDao tokenDao;
     private final PaymentProviders providers;
     private final QueryService queryService;
+    private final ChargeExpiryLocker chargeExpiryLocker;
+    private final MetricRegistry metricRegistry;
 
     private final ChargeSweepConfig chargeSweepConfig;
 
@@ -76,13 +72,17 @@ public class ChargeExpiryService {
                                TokenDao tokenDao,
                                PaymentProviders providers,
                                QueryService queryService,
-                               ConnectorConfiguration config) {
+                               ChargeExpiryLocker chargeExpiryLocker,
+                               ConnectorConfiguration config,
+                               Environment environment) {
         this.chargeDao = chargeDao;
         this.chargeService = chargeService;
         this.tokenDao = tokenDao;
         this.providers = providers;
         this.chargeSweepConfig = config.getChargeSweepConfig();
         this.queryService = queryService;
+        this.chargeExpiryLocker = chargeExpiryLocker;
+        this.metricRegistry = environment.metrics();
     }
 
     private enum expiryMethod {
@@ -163,11 +163,18 @@ public class ChargeExpiryService {
     }
 
     private int expireChargesWithoutGateway(List<ChargeEntity> nonAuthSuccessCharges) {
-        List<ChargeEntity> processedEntities = nonAuthSuccessCharges
-                .stream().map(chargeEntity -> chargeService.transitionChargeState(chargeEntity.getExternalId(), EXPIRED))
-                .collect(Collectors.toList());
+        AtomicInteger expired = new AtomicInteger();
+
+        nonAuthSuccessCharges.forEach(chargeEntity -> {
+            try {
+                chargeService.transitionChargeStateWithRowLock(chargeEntity.getExternalId(), EXPIRED);
+                expired.getAndIncrement();
+            } catch (ChargeLockedRuntimeException e) {
+                skipLockedCharge(chargeEntity);
+            }
+        });
 
-        return processedEntities.size();
+        return expired.intValue();
     }
 
     private Pair<Integer, Integer> expireChargesWithGateway(List<ChargeEntity> gatewayAuthorizedCharges) {
@@ -175,16 +182,14 @@ public class ChargeExpiryService {
         AtomicInteger expireCancelled = new AtomicInteger();
         AtomicInteger expireCancelFailed = new AtomicInteger();
 
-        gatewayAuthorizedCharges.forEach(chargeEntity -> {
-
-            ChargeEntity expiredCharge = expireChargeWithGatewayCleanup(chargeEntity);
-
-            if (EXPIRED.getValue().equals(expiredCharge.getStatus())) {
-                expireCancelled.getAndIncrement();
-            } else if (EXPIRE_CANCEL_FAILED.getValue().equals(expiredCharge.getStatus())) {
-                expireCancelFailed.getAndIncrement();
-            }
-        });
+        gatewayAuthorizedCharges.forEach(chargeEntity ->
+                expireChargeWithGatewayCleanup(chargeEntity).ifPresent(expiredCharge -> {
+                    if (EXPIRED.getValue().equals(expiredCharge.getStatus())) {
+                        expireCancelled.getAndIncrement();
+                    } else if (EXPIRE_CANCEL_FAILED.getValue().equals(expiredCharge.getStatus())) {
+                        expireCancelFailed.getAndIncrement();
+                    }
+                }));
 
         return Pair.of(
                 expireCancelled.intValue(),
@@ -220,13 +225,13 @@ public class ChargeExpiryService {
                                 }
                             }
                         } else {
-                            ChargeEntity expiredCharge = expireChargeWithGatewayCleanup(chargeEntity);
-
-                            if (EXPIRED.getValue().equals(expiredCharge.getStatus())) {
-                                expireCancelled.getAndIncrement();
-                            } else if (EXPIRE_CANCEL_FAILED.getValue().equals(expiredCharge.getStatus())) {
-                                expireCancelFailed.getAndIncrement();
-                            }
+                            expireChargeWithGatewayCleanup(chargeEntity).ifPresent(expiredCharge -> {
+                                if (EXPIRED.getValue().equals(expiredCharge.getStatus())) {
+                                    expireCancelled.getAndIncrement();
+                                } else if (EXPIRE_CANCEL_FAILED.getValue().equals(expiredCharge.getStatus())) {
+                                    expireCancelFailed.getAndIncrement();
+                                }
+                            });
                         }
                     },
                     () -> {
@@ -245,6 +250,16 @@ public class ChargeExpiryService {
         );
     }
     
+    /**
+     * A charge that is row-locked is being worked on by another operation (for example a capture or a concurrent
+     * sweep), so it is left alone and will be picked up by a later sweep if it still needs expiring.
+     */
+    private void skipLockedCharge(ChargeEntity chargeEntity) {
+        metricRegistry.counter(ROW_LOCK_CONFLICTS_METRIC).inc();
+        logger.info("Expiring charge skipped as it is locked by another operation",
+                kv(PAYMENT_EXTERNAL_ID, chargeEntity.getExternalId()));
+    }
+
     private boolean forceTransitionChargeState(ChargeEntity chargeEntity, ChargeStatus status) {
         try {
             chargeService.forceTransitionChargeState(chargeEntity.getExternalId(), status);
@@ -259,8 +274,14 @@ public class ChargeExpiryService {
         }
     }
 
-    private ChargeEntity expireChargeWithGatewayCleanup(ChargeEntity chargeEntity) {
-        ChargeEntity processedEntity = prepareForTermination(chargeEntity.getExternalId());
+    private Optional<ChargeEntity> expireChargeWithGatewayCleanup(ChargeEntity chargeEntity) {
+        ChargeEntity processedEntity;
+        try {
+            processedEntity = chargeExpiryLocker.prepareForTermination(chargeEntity.getExternalId());
+        } catch (ChargeLockedRuntimeException e) {
+            skipLockedCharge(chargeEntity);
+            return Optional.empty();
+        }
         ChargeStatus newStatus;
 
         try {
@@ -272,7 +293,7 @@ public class ChargeExpiryService {
                     chargeEntity.getExternalId(), e.getMessage());
         }
 
-        return chargeService.transitionChargeState(processedEntity.getExternalId(), newStatus);
+        return Optional.of(chargeService.transitionChargeState(processedEntity.getExternalId(), newStatus));
     }
 
     private ChargeStatus determineTerminalState(GatewayResponse<BaseCancelResponse> cancelResponse) {
@@ -329,50 +350,7 @@ public class ChargeExpiryService {
         return ZonedDateTime.now().minusSeconds(chargeExpiryWindowSeconds);
     }
 
-    private static String getLegalStatusNames(List<ChargeStatus> legalStatuses) {
-        return legalStatuses.stream().map(ChargeStatus::toString).collect(Collectors.joining(", "));
-    }
-
     private GatewayResponse<BaseCancelResponse> doGatewayCancel(ChargeEntity chargeEntity) throws GatewayException {
         return providers.byName(chargeEntity.getPaymentGatewayName()).cancel(CancelGatewayRequest.valueOf(chargeEntity));
     }
-
-    @Transactional
-    @SuppressWarnings("WeakerAccess")
-    public ChargeEntity prepareForTermination(String chargeId) {
-        return chargeDao.findByExternalId(chargeId).map(chargeEntity -> {
-            ChargeStatus newStatus = EXPIRE_FLOW.getLockState();
-            final ChargeStatus chargeStatus = ChargeStatus.fromString(chargeEntity.getStatus());
-            if (!EXPIRE_FLOW.getTerminatableStatuses().contains(chargeStatus)) {
-                if (newStatus.equals(chargeStatus)) {
-                    throw new OperationAlreadyInProgressRuntimeException(EXPIRE_FLOW.getName(), chargeId);
-                } else if (Arrays.asList(AUTHORISATION_READY, AUTHORISATION_3DS_READY).contains(chargeStatus)) {
-                    throw new ConflictRuntimeException(chargeEntity.getExternalId());
-                }
-
-                logger.warn("Charge is not in one of the legal states. charge_external_id={}, status={}, legal_states={}",
-                        chargeId, chargeEntity.getStatus(), getLegalStatusNames(EXPIRE_FLOW.getTerminatableStatuses()));
-
-                throw new IllegalStateRuntimeException(chargeId);
-            }
-            chargeService.transitionChargeState(chargeEntity, newStatus);
-
-            GatewayAccountEntity gatewayAccount = chargeEntity.getGatewayAccount();
-
-            // Used by Sumo Logic saved search
-            logger.info("Card cancel request sent - charge_external_id={}, charge_status={}, account_id={}, transaction_id={}, amount={}, operation_type={}, provider={}, provider_type={}, locking_status={}",
-                    chargeEntity.getExternalId(),
-                    chargeStatus,
-                    gatewayAccount.getId(),
-                    chargeEntity.getGatewayTransactionId(),
-                    chargeEntity.getAmount(),
-                    OperationType.CANCELLATION.getValue(),
-                    gatewayAccount.getGatewayName(),
-                    gatewayAccount.getType(),
-                    newStatus);
-
-
-            return chargeEntity;
-        }).orElseThrow(() -> new ChargeNotFoundRuntimeException(chargeId));
-    }
 }
@@ -11,6 +11,7 @@ import uk.gov.pay.connector.app.ConnectorConfiguration;
 import uk.gov.pay.connector.app.LinksConfig;
 import uk.gov.pay.connector.cardtype.dao.CardTypeDao;
 import uk.gov.pay.connector.cardtype.model.domain.CardTypeEntity;
+import uk.gov.pay.connector.charge.CaptureBacklogTracker;
 import uk.gov.pay.connector.charge.dao.ChargeDao;
 import uk.gov.pay.connector.charge.exception.ChargeNotFoundRuntimeException;
 import uk.gov.pay.connector.charge.exception.MotoPaymentNotAllowedForGatewayAccountException;
@@ -26,6 +27,7 @@ import uk.gov.pay.connector.charge.model.ServicePaymentReference;
 import uk.gov.pay.connector.charge.model.builder.AbstractChargeResponseBuilder;
 import uk.gov.pay.connector.charge.model.domain.Auth3dsRequiredEntity;
 import uk.gov.pay.connector.charge.model.domain.Charge;
+import uk.gov.pay.connector.charge.model.domain.ChargeAwaitingCapture;
 import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
 import uk.gov.pay.connector.charge.model.domain.ChargeStatus;
 import uk.gov.pay.connector.charge.model.domain.ParityCheckStatus;
@@ -38,7 +40,7 @@ import uk.gov.pay.connector.charge.util.CorporateCardSurchargeCalculator;
 import uk.gov.pay.connector.charge.util.RefundCalculator;
 import uk.gov.pay.connector.chargeevent.dao.ChargeEventDao;
 import uk.gov.pay.connector.chargeevent.model.domain.ChargeEventEntity;
-import uk.gov.pay.connector.client.ledger.service.LedgerService;
+import uk.gov.pay.connector.client.ledger.exception.LedgerException;
 import uk.gov.pay.connector.common.exception.ConflictRuntimeException;
 import uk.gov.pay.connector.common.exception.IllegalStateRuntimeException;
 import uk.gov.pay.connector.common.exception.InvalidForceStateTransitionException;
@@ -46,6 +48,7 @@ import uk.gov.pay.connector.common.exception.InvalidStateTransitionException;
 import uk.gov.pay.connector.common.exception.OperationAlreadyInProgressRuntimeException;
 import uk.gov.pay.connector.common.model.api.ExternalChargeState;
 import uk.gov.pay.connector.common.model.api.ExternalTransactionState;
+import uk.gov.pay.connector.common.model.api.LinkTemplates;
 import uk.gov.pay.connector.common.model.domain.PaymentGatewayStateTransitions;
 import uk.gov.pay.connector.common.model.domain.PrefilledAddress;
 import uk.gov.pay.connector.common.service.PatchRequestBuilder;
@@ -68,10 +71,8 @@ import uk.gov.pay.connector.token.model.domain.TokenEntity;
 import uk.gov.pay.connector.wallets.WalletType;
 
 import javax.inject.Inject;
-import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 import java.net.URI;
-import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.util.HashMap;
 import java.util.List;
@@ -115,11 +116,12 @@ public class ChargeService {
     private final PaymentProviders providers;
 
     private final StateTransitionService stateTransitionService;
-    private final LedgerService ledgerService;
+    private final LedgerChargeLookup ledgerChargeLookup;
     private final Boolean shouldEmitPaymentStateTransitionEvents;
     private final RefundService refundService;
     private final EventService eventService;
     private final NorthAmericanRegionMapper northAmericanRegionMapper;
+    private final CaptureBacklogTracker captureBacklogTracker;
 
     @Inject
     public ChargeService(TokenDao tokenDao,
@@ -130,10 +132,11 @@ public class ChargeService {
                          ConnectorConfiguration config,
                          PaymentProviders providers,
                          StateTransitionService stateTransitionService,
-                         LedgerService ledgerService,
+                         LedgerChargeLookup ledgerChargeLookup,
                          RefundService refundService,
                          EventService eventService,
-                         NorthAmericanRegionMapper northAmericanRegionMapper) {
+                         NorthAmericanRegionMapper northAmericanRegionMapper,
+                         CaptureBacklogTracker captureBacklogTracker) {
         this.tokenDao = tokenDao;
         this.chargeDao = chargeDao;
         this.chargeEventDao = chargeEventDao;
@@ -144,10 +147,11 @@ public class ChargeService {
         this.captureProcessConfig = config.getCaptureProcessConfig();
         this.stateTransitionService = stateTransitionService;
         this.shouldEmitPaymentStateTransitionEvents = config.getEmitPaymentStateTransitionEvents();
-        this.ledgerService = ledgerService;
+        this.ledgerChargeLookup = ledgerChargeLookup;
         this.refundService = refundService;
         this.eventService = eventService;
         this.northAmericanRegionMapper = northAmericanRegionMapper;
+        this.captureBacklogTracker = captureBacklogTracker;
     }
 
     @Transactional
@@ -290,7 +294,7 @@ public class ChargeService {
         if (maybeChargeEntity.isPresent()) {
             return maybeChargeEntity.map(Charge::from);
         } else {
-            return ledgerService.getTransaction(chargeExternalId).map(Charge::from);
+            return ledgerChargeLookup.findCharge(chargeExternalId);
         }
     }
 
@@ -300,18 +304,27 @@ public class ChargeService {
         if (maybeChargeEntity.isPresent()) {
             return maybeChargeEntity.map(Charge::from);
         } else {
-            return ledgerService.getTransactionForGatewayAccount(chargeExternalId, gatewayAccountId).map(Charge::from);
+            return ledgerChargeLookup.findCharge(chargeExternalId, gatewayAccountId);
         }
     }
 
+    /**
+     * Used by the gateway notification services, which treat a charge ledger could not be asked about the same as a
+     * charge that was not found rather than failing the notification.
+     */
     public Optional<Charge> findByProviderAndTransactionIdFromDbOrLedger(String paymentGatewayName, String gatewayTransactionId) {
         return Optional.ofNullable(chargeDao.findByProviderAndTransactionId(paymentGatewayName, gatewayTransactionId)
                 .map(Charge::from)
-                .orElseGet(() -> findChargeFromLedger(paymentGatewayName, gatewayTransactionId).orElse(null)));
+                .orElseGet(() -> findByProviderAndTransactionIdInLedger(paymentGatewayName, gatewayTransactionId).orElse(null)));
     }
 
-    private Optional<Charge> findChargeFromLedger(String paymentGatewayName, String gatewayTransactionId) {
-        return ledgerService.getTransactionForProviderAndGatewayTransactionId(paymentGatewayName, gatewayTransactionId).map(Charge::from);
+    private Optional<Charge> findByProviderAndTransactionIdInLedger(String paymentGatewayName, String gatewayTransactionId) {
+        try {
+            return ledgerChargeLookup.findByProviderAndTransactionId(paymentGatewayName, gatewayTransactionId);
+        } catch (LedgerException e) {
+            logger.warn("Could not look up {} transaction [{}] in ledger: {}", paymentGatewayName, gatewayTransactionId, e.getMessage());
+            return Optional.empty();
+        }
     }
 
     @Transactional
@@ -591,36 +604,54 @@ public class ChargeService {
 
     @Transactional
     public ChargeEntity lockChargeForProcessing(String chargeId, OperationType operationType) {
-        return chargeDao.findByExternalId(chargeId).map(chargeEntity -> {
-            try {
+        return chargeDao.findByExternalId(chargeId)
+                .map(chargeEntity -> lockChargeForOperation(chargeEntity, operationType))
+                .orElseThrow(() -> new ChargeNotFoundRuntimeException(chargeId));
+    }
 
-                GatewayAccountEntity gatewayAccount = chargeEntity.getGatewayAccount();
+    /**
+     * Like {@link #lockChargeForProcessing(String, OperationType)} but takes a row lock on the charge first, so
+     * background processors that race for the same charge fail fast with a
+     * {@link uk.gov.pay.connector.charge.exception.ChargeLockedRuntimeException} instead of only finding out through an
+     * optimistic lock failure after the work has been done.
+     */
+    @Transactional
+    public ChargeEntity lockChargeForBackgroundProcessing(String chargeId, OperationType operationType) {
+        return chargeDao.findByExternalIdForUpdate(chargeId)
+                .map(chargeEntity -> lockChargeForOperation(chargeEntity, operationType))
+                .orElseThrow(() -> new ChargeNotFoundRuntimeException(chargeId));
+    }
 
-                // Used by Splunk saved search
-                logger.info("Card pre-operation - charge_external_id={}, charge_status={}, account_id={}, amount={}, operation_type={}, provider={}, provider_type={}, locking_status={}",
-                        chargeEntity.getExternalId(),
-                        fromString(chargeEntity.getStatus()),
-                        gatewayAccount.getId(),
-                        chargeEntity.getAmount(),
-                        operationType.getValue(),
-                        gatewayAccount.getGatewayName(),
-                        gatewayAccount.getType(),
-                        operationType.getLockingStatus());
+    private ChargeEntity lockChargeForOperation(ChargeEntity chargeEntity, OperationType operationType) {
+        try {
 
-                chargeEntity.setStatus(operationType.getLockingStatus());
+            GatewayAccountEntity gatewayAccount = chargeEntity.getGatewayAccount();
 
-            } catch (InvalidStateTransitionException e) {
-                if (chargeIsInLockedStatus(operationType, chargeEntity)) {
-                    throw new OperationAlreadyInProgressRuntimeException(operationType.getValue(), chargeEntity.getExternalId());
-                }
-                throw new IllegalStateRuntimeException(chargeEntity.getExternalId());
+            // Used by Splunk saved search
+            logger.info("Card pre-operation - charge_external_id={}, charge_status={}, account_id={}, amount={}, operation_type={}, provider={}, provider_type={}, locking_status={}",
+                    chargeEntity.getExternalId(),
+                    fromString(chargeEntity.getStatus()),
+                    gatewayAccount.getId(),
+                    chargeEntity.getAmount(),
+                    operationType.getValue(),
+                    gatewayAccount.getGatewayName(),
+                    gatewayAccount.getType(),
+                    operationType.getLockingStatus());
+
+            chargeEntity.setStatus(operationType.getLockingStatus());
+            captureBacklogTracker.chargeStatusChanged(chargeEntity.getExternalId(), operationType.getLockingStatus());
+
+        } catch (InvalidStateTransitionException e) {
+            if (chargeIsInLockedStatus(operationType, chargeEntity)) {
+                throw new OperationAlreadyInProgressRuntimeException(operationType.getValue(), chargeEntity.getExternalId());
             }
-            return chargeEntity;
-        }).orElseThrow(() -> new ChargeNotFoundRuntimeException(chargeId));
+            throw new IllegalStateRuntimeException(chargeEntity.getExternalId());
+        }
+        return chargeEntity;
     }
 
-    public int getNumberOfChargesAwaitingCapture(Duration notAttemptedWithin) {
-        return chargeDao.countChargesForImmediateCapture(notAttemptedWithin);
+    public List<ChargeAwaitingCapture> findChargesAwaitingCapture() {
+        return chargeDao.findChargesAwaitingCapture();
     }
 
     public ChargeEntity findChargeByExternalId(String chargeId) {
@@ -641,6 +672,7 @@ public class ChargeService {
         ChargeStatus fromChargeState = ChargeStatus.fromString(charge.getStatus());
         charge.setStatus(targetChargeState);
         ChargeEventEntity chargeEventEntity = chargeEventDao.persistChargeEventOf(charge, gatewayEventTime);
+        captureBacklogTracker.chargeStatusChanged(charge.getExternalId(), targetChargeState);
 
         if (shouldEmitPaymentStateTransitionEvents) {
             stateTransitionService.offerPaymentStateTransition(charge.getExternalId(), fromChargeState, targetChargeState, chargeEventEntity);
@@ -656,6 +688,13 @@ public class ChargeService {
         ).orElseThrow(() -> new ChargeNotFoundRuntimeException(chargeExternalId));
     }
 
+    @Transactional
+    public ChargeEntity transitionChargeStateWithRowLock(String chargeExternalId, ChargeStatus targetChargeState) {
+        return chargeDao.findByExternalIdForUpdate(chargeExternalId).map(chargeEntity ->
+                transitionChargeState(chargeEntity, targetChargeState)
+        ).orElseThrow(() -> new ChargeNotFoundRuntimeException(chargeExternalId));
+    }
+
     @Transactional
     public ChargeEntity forceTransitionChargeState(String chargeExternalId, ChargeStatus targetChargeState) {
         return chargeDao.findByExternalId(chargeExternalId).map(chargeEntity ->
@@ -670,6 +709,7 @@ public class ChargeService {
         return PaymentGatewayStateTransitions.getEventForForceUpdate(targetChargeState).map(eventClass -> {
             charge.setStatusIgnoringValidTransitions(targetChargeState);
             ChargeEventEntity chargeEventEntity = chargeEventDao.persistChargeEventOf(charge);
+            captureBacklogTracker.chargeStatusChanged(charge.getExternalId(), targetChargeState);
 
             if (shouldEmitPaymentStateTransitionEvents) {
                 stateTransitionService.offerPaymentStateTransition(
@@ -818,34 +858,23 @@ public class ChargeService {
     }
 
     private URI selfUriFor(UriInfo uriInfo, Long accountId, String chargeId) {
-        return uriInfo.getBaseUriBuilder()
-                .path("/v1/api/accounts/{accountId}/charges/{chargeId}")
-                .build(accountId, chargeId);
+        return LinkTemplates.CHARGE.expand(uriInfo.getBaseUri(), accountId, chargeId);
     }
 
     private URI refundsUriFor(UriInfo uriInfo, Long accountId, String chargeId) {
-        return uriInfo.getBaseUriBuilder()
-                .path("/v1/api/accounts/{accountId}/charges/{chargeId}/refunds")
-                .build(accountId, chargeId);
+        return LinkTemplates.CHARGE_REFUNDS.expand(uriInfo.getBaseUri(), accountId, chargeId);
     }
 
     private URI captureUriFor(UriInfo uriInfo, Long accountId, String chargeId) {
-        return uriInfo.getBaseUriBuilder()
-                .path("/v1/api/accounts/{accountId}/charges/{chargeId}/capture")
-                .build(accountId, chargeId);
+        return LinkTemplates.CHARGE_CAPTURE.expand(uriInfo.getBaseUri(), accountId, chargeId);
     }
 
     private URI nextUrl(String tokenId) {
-        return UriBuilder.fromUri(linksConfig.getFrontendUrl())
-                .path("secure")
-                .path(tokenId)
-                .build();
+        return LinkTemplates.SECURE_TOKEN.expand(linksConfig.getFrontendUrl(), tokenId);
     }
 
     private URI nextUrl() {
-        return UriBuilder.fromUri(linksConfig.getFrontendUrl())
-                .path("secure")
-                .build();
+        return LinkTemplates.SECURE.expand(linksConfig.getFrontendUrl());
     }
 
     private boolean chargeIsInLockedStatus(OperationType operationType, ChargeEntity chargeEntity) {
@@ -0,0 +1,187 @@
+package uk.gov.pay.connector.charge.service;
+
+import com.google.inject.persist.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.charge.dao.ChargeDao;
+import uk.gov.pay.connector.charge.exception.ChargeNotFoundRuntimeException;
+import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
+import uk.gov.pay.connector.charge.model.domain.ChargeStatus;
+import uk.gov.pay.connector.common.exception.OperationAlreadyInProgressRuntimeException;
+import uk.gov.pay.connector.gateway.ChargeQueryResponse;
+import uk.gov.pay.connector.gateway.GatewayException;
+import uk.gov.pay.connector.gateway.PaymentProviders;
+import uk.gov.pay.connector.gateway.model.request.CancelGatewayRequest;
+import uk.gov.pay.connector.gateway.model.response.BaseCancelResponse;
+import uk.gov.pay.connector.gateway.model.response.GatewayResponse;
+import uk.gov.pay.connector.paymentprocessor.service.QueryService;
+
+import javax.inject.Inject;
+import java.util.List;
+import java.util.Optional;
+
+import static java.lang.String.format;
+import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_ERROR;
+import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_ERROR_CANCELLED;
+import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_ERROR_CHARGE_MISSING;
+import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_ERROR_CLEANUP_READY;
+import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_ERROR_REJECTED;
+import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_REJECTED;
+import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_TIMEOUT;
+import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_UNEXPECTED_ERROR;
+import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.USER_CANCELLED;
+
+/**
+ * Cleans up a single ePDQ charge that is in an authorisation error state. The charge is row-locked only while it is
+ * re-checked and moved into {@link ChargeStatus#AUTHORISATION_ERROR_CLEANUP_READY}, so no lock or database connection
+ * is held while the gateway is queried and the charge cancelled. The locking state stops another sweep from picking
+ * the charge up until it is moved to its final state, or back to the state it came from if it could not be cleaned up.
+ */
+public class EpdqAuthorisationErrorChargeCleaner {
+
+    static final List<ChargeStatus> AUTHORISATION_ERROR_STATUSES = List.of(
+            AUTHORISATION_ERROR,
+            AUTHORISATION_TIMEOUT,
+            AUTHORISATION_UNEXPECTED_ERROR
+    );
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final ChargeDao chargeDao;
+    private final ChargeService chargeService;
+    private final QueryService queryService;
+    private final PaymentProviders providers;
+
+    @Inject
+    public EpdqAuthorisationErrorChargeCleaner(ChargeDao chargeDao,
+                                               ChargeService chargeService,
+                                               QueryService queryService,
+                                               PaymentProviders providers) {
+        this.chargeDao = chargeDao;
+        this.chargeService = chargeService;
+        this.queryService = queryService;
+        this.providers = providers;
+    }
+
+    /**
+     * @return whether the charge was cleaned up, or empty if it was no longer in an authorisation error state by the
+     * time it was locked
+     * @throws uk.gov.pay.connector.charge.exception.ChargeLockedRuntimeException if another transaction holds a row
+     *                                                                           lock on the charge
+     * @throws OperationAlreadyInProgressRuntimeException if another sweep is already cleaning up the charge
+     */
+    public Optional<Boolean> cleanUp(String chargeExternalId) throws GatewayException {
+        Optional<ChargeStatus> authorisationErrorStatus = lockForCleanUp(chargeExternalId);
+        if (authorisationErrorStatus.isEmpty()) {
+            return Optional.empty();
+        }
+
+        ChargeEntity chargeEntity = chargeService.findChargeByExternalId(chargeExternalId);
+        boolean cleanedUp = false;
+        try {
+            ChargeQueryResponse chargeQueryResponse = queryService.getChargeGatewayStatus(chargeEntity);
+            cleanedUp = cleanUpChargeWithGateway(chargeEntity, chargeQueryResponse);
+        } finally {
+            if (!cleanedUp) {
+                chargeService.transitionChargeState(chargeExternalId, authorisationErrorStatus.get());
+            }
+        }
+        return Optional.of(cleanedUp);
+    }
+
+    /**
+     * Moves the charge into the cleanup locking state if it is still in an authorisation error state.
+     *
+     * @return the authorisation error state the charge was in, or empty if it no longer needs cleaning up
+     */
+    @Transactional
+    public Optional<ChargeStatus> lockForCleanUp(String chargeExternalId) {
+        ChargeEntity chargeEntity = chargeDao.findByExternalIdForUpdate(chargeExternalId)
+                .orElseThrow(() -> new ChargeNotFoundRuntimeException(chargeExternalId));
+        ChargeStatus chargeStatus = ChargeStatus.fromString(chargeEntity.getStatus());
+
+        if (chargeStatus == AUTHORISATION_ERROR_CLEANUP_READY) {
+            throw new OperationAlreadyInProgressRuntimeException("Authorisation error cleanup", chargeExternalId);
+        }
+
+        if (!AUTHORISATION_ERROR_STATUSES.contains(chargeStatus)) {
+            logger.info(format("Charge no longer needs cleaning up as it is now in status [%s]", chargeEntity.getStatus()),
+                    chargeEntity.getStructuredLoggingArgs());
+            return Optional.empty();
+        }
+
+        chargeService.transitionChargeState(chargeEntity, AUTHORISATION_ERROR_CLEANUP_READY);
+        return Optional.of(chargeStatus);
+    }
+
+    private boolean cleanUpChargeWithGateway(ChargeEntity chargeEntity, ChargeQueryResponse chargeQueryResponse) {
+        if (!chargeQueryResponse.foundCharge()) {
+            // The charge might not be found with the gateway when the authorisation failed due to an error with ePDQ
+            // before they tried to process the payment. One example of this is when the card type is not enabled in ePDQ.
+            logger.info("Charge was not found on the gateway. Gateway response was: " +
+                            chargeQueryResponse.getRawGatewayResponseString(),
+                    chargeEntity.getStructuredLoggingArgs());
+            chargeService.transitionChargeState(chargeEntity.getExternalId(), AUTHORISATION_ERROR_CHARGE_MISSING);
+            return true;
+        }
+
+        return chargeQueryResponse.getMappedStatus().map(mappedStatus -> {
+            // Attempt to cancel the charge with the gateway if it is not in a terminal state with them
+            if (!mappedStatus.toExternal().isFinished()) {
+                if (attemptCancelWithGateway(chargeEntity)) {
+                    chargeService.transitionChargeState(chargeEntity.getExternalId(), AUTHORISATION_ERROR_CANCELLED);
+                    return true;
+                }
+                return false;
+            }
+
+            // These are terminal states with the gateway for which no cleanup is required
+            if (mappedStatus == AUTHORISATION_REJECTED || mappedStatus == AUTHORISATION_ERROR) {
+                chargeService.transitionChargeState(chargeEntity.getExternalId(), AUTHORISATION_ERROR_REJECTED);
+                return true;
+            }
+            
+            if (mappedStatus == USER_CANCELLED) {
+                // The charge has already been cancelled with the gateway, probably manually
+                chargeService.transitionChargeState(chargeEntity.getExternalId(), AUTHORISATION_ERROR_CANCELLED);
+                return true;
+            }
+
+            logger.error(format("Charge is in a mapped status of [%s] with the gateway, which is " +
+                            "unexpected and we do not handle. If the gateway status is CAPTURED, it " +
+                            "suggests the service has incorrect gateway settings.",
+                    mappedStatus.getValue()),
+                    chargeEntity.getStructuredLoggingArgs());
+            return false;
+        }).orElseGet(() -> {
+            logger.error("Charge does not map to an internal charge state. Raw query response was: " +
+                            chargeQueryResponse.getRawGatewayResponseString(),
+                    chargeEntity.getStructuredLoggingArgs());
+            return false;
+        });
+    }
+
+    private boolean attemptCancelWithGateway(ChargeEntity chargeEntity) {
+        try {
+            logger.info("Attempting gateway cleanup for charge.", chargeEntity.getStructuredLoggingArgs());
+            GatewayResponse<BaseCancelResponse> cancelResponse = providers.byName(chargeEntity.getPaymentGatewayName()).cancel(CancelGatewayRequest.valueOf(chargeEntity));
+            return cancelResponse.getBaseResponse().map(baseCancelResponse -> {
+                if (baseCancelResponse.cancelStatus() == BaseCancelResponse.CancelStatus.ERROR) {
+                    logger.info("Could not cancel charge, gateway returned an error.", chargeEntity.getStructuredLoggingArgs());
+                    return false;
+                }
+                return true;
+            }).orElseGet(() -> {
+                cancelResponse.getGatewayError().ifPresent(
+                        e -> logger.info(format("Could not cancel charge. Gateway error: %s", e.getMessage()),
+                                chargeEntity.getStructuredLoggingArgs()));
+                return false;
+            });
+        } catch (GatewayException e) {
+            logger.info(format("Gateway error when attempting to cancel charge with the gateway: %s",
+                    e.getMessage()),
+                    chargeEntity.getStructuredLoggingArgs());
+            return false;
+        }
+    }
+}
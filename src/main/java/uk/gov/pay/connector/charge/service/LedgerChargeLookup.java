@@ -0,0 +1,146 @@
+package uk.gov.pay.connector.charge.service;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.dropwizard.setup.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.config.LedgerChargeLookupConfig;
+import uk.gov.pay.connector.charge.model.domain.Charge;
+import uk.gov.pay.connector.client.ledger.exception.LedgerException;
+import uk.gov.pay.connector.client.ledger.model.LedgerTransaction;
+import uk.gov.pay.connector.client.ledger.service.LedgerService;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Looks up charges that are not in the connector database in ledger. Historic charges found in ledger do not change
+ * in ways that matter to connector, so a bounded number of them are remembered. Charges ledger answers 404 for are
+ * remembered briefly, so that a gateway retrying a notification for a telephone payment that does not exist yet does
+ * not cost a ledger round trip each time. Ledger calls run on a dedicated executor and callers wait for at most the
+ * configured timeout, which by default matches the ledger client's deadline so that retries are not cut short; a late
+ * answer is still cached for the next caller. Failed lookups, whether ledger errored or the
+ * call timed out without an answer, are never cached.
+ */
+@Singleton
+public class LedgerChargeLookup {
+
+    private static final Logger logger = LoggerFactory.getLogger(LedgerChargeLookup.class);
+    private static final String METRIC_PREFIX = "ledger.charge-lookup";
+
+    private final LedgerService ledgerService;
+    private final Executor executor;
+    private final long lookupTimeoutInMillis;
+    private final Cache<String, Charge> historicCharges;
+    private final Cache<String, Boolean> notFound;
+    private final Counter historicChargeHits;
+    private final Counter notFoundHits;
+    private final Counter misses;
+    private final Counter timeouts;
+    private final Timer ledgerTimer;
+
+    @Inject
+    public LedgerChargeLookup(LedgerService ledgerService, ConnectorConfiguration configuration, Environment environment) {
+        this(ledgerService,
+                configuration.getLedgerChargeLookupConfig(),
+                environment.lifecycle().executorService("ledger-charge-lookup-%d")
+                        .minThreads(configuration.getLedgerChargeLookupConfig().getLookupThreads())
+                        .maxThreads(configuration.getLedgerChargeLookupConfig().getLookupThreads())
+                        .build(),
+                environment.metrics());
+    }
+
+    LedgerChargeLookup(LedgerService ledgerService,
+                       LedgerChargeLookupConfig config,
+                       Executor executor,
+                       MetricRegistry metricRegistry) {
+        this.ledgerService = ledgerService;
+        this.executor = executor;
+        this.lookupTimeoutInMillis = config.getLookupTimeoutInMillis();
+        this.historicCharges = CacheBuilder.newBuilder()
+                .maximumSize(config.getMaximumHistoricCharges())
+                .expireAfterWrite(config.getHistoricChargeTtlInSeconds(), TimeUnit.SECONDS)
+                .build();
+        this.notFound = CacheBuilder.newBuilder()
+                .maximumSize(config.getMaximumHistoricCharges())
+                .expireAfterWrite(config.getNotFoundTtlInSeconds(), TimeUnit.SECONDS)
+                .build();
+
+        this.historicChargeHits = metricRegistry.counter(METRIC_PREFIX + ".historic-charge-cache.hits");
+        this.notFoundHits = metricRegistry.counter(METRIC_PREFIX + ".not-found-cache.hits");
+        this.misses = metricRegistry.counter(METRIC_PREFIX + ".misses");
+        this.timeouts = metricRegistry.counter(METRIC_PREFIX + ".timeouts");
+        this.ledgerTimer = metricRegistry.timer(METRIC_PREFIX + ".ledger-call");
+        metricRegistry.register(METRIC_PREFIX + ".historic-charge-cache.size", (Gauge<Long>) historicCharges::size);
+        metricRegistry.register(METRIC_PREFIX + ".not-found-cache.size", (Gauge<Long>) notFound::size);
+    }
+
+    public Optional<Charge> findCharge(String chargeExternalId) {
+        return lookUp("charge|" + chargeExternalId, () -> ledgerService.getTransaction(chargeExternalId));
+    }
+
+    public Optional<Charge> findCharge(String chargeExternalId, Long gatewayAccountId) {
+        return lookUp("charge|" + chargeExternalId + "|" + gatewayAccountId,
+                () -> ledgerService.getTransactionForGatewayAccount(chargeExternalId, gatewayAccountId));
+    }
+
+    public Optional<Charge> findByProviderAndTransactionId(String paymentGatewayName, String gatewayTransactionId) {
+        return lookUp("gateway-transaction|" + paymentGatewayName + "|" + gatewayTransactionId,
+                () -> ledgerService.getTransactionForProviderAndGatewayTransactionId(paymentGatewayName, gatewayTransactionId));
+    }
+
+    private Optional<Charge> lookUp(String key, Supplier<Optional<LedgerTransaction>> ledgerCall) {
+        Charge historicCharge = historicCharges.getIfPresent(key);
+        if (historicCharge != null) {
+            historicChargeHits.inc();
+            return Optional.of(historicCharge);
+        }
+        if (notFound.getIfPresent(key) != null) {
+            notFoundHits.inc();
+            return Optional.empty();
+        }
+
+        misses.inc();
+        CompletableFuture<Optional<Charge>> result = CompletableFuture.supplyAsync(() -> {
+            Optional<Charge> charge;
+            try (Timer.Context ignored = ledgerTimer.time()) {
+                charge = ledgerCall.get().map(Charge::from);
+            }
+            charge.ifPresentOrElse(found -> historicCharges.put(key, found), () -> notFound.put(key, Boolean.TRUE));
+            return charge;
+        }, executor);
+
+        return awaitResult(key, result);
+    }
+
+    private Optional<Charge> awaitResult(String key, CompletableFuture<Optional<Charge>> result) {
+        try {
+            return result.get(lookupTimeoutInMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timeouts.inc();
+            logger.warn("Ledger lookup for [{}] did not complete within {}ms", key, lookupTimeoutInMillis);
+            throw new LedgerException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LedgerException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new LedgerException(e);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package uk.gov.pay.connector.client.ledger.exception;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.common.model.api.ErrorResponse;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ExceptionMapper;
+
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static uk.gov.pay.commons.model.ErrorIdentifier.GENERIC;
+
+/**
+ * Ledger being unavailable is a temporary condition, so requests that needed it are answered with a 503 that callers
+ * can retry rather than a 500.
+ */
+public class LedgerExceptionMapper implements ExceptionMapper<LedgerException> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LedgerExceptionMapper.class);
+
+    @Override
+    public Response toResponse(LedgerException exception) {
+        LOGGER.error("Ledger request failed: {}", exception.getMessage());
+
+        ErrorResponse errorResponse = new ErrorResponse(GENERIC, "Ledger is unavailable, try again later");
+
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .entity(errorResponse)
+                .type(APPLICATION_JSON)
+                .build();
+    }
+}
@@ -1,38 +1,92 @@
 package uk.gov.pay.connector.client.ledger.service;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.dropwizard.client.JerseyClientBuilder;
+import io.dropwizard.setup.Environment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.pay.commons.utils.xray.XRayHttpClientFilter;
 import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.config.LedgerClientConfig;
 import uk.gov.pay.connector.client.ledger.exception.GetRefundsForPaymentException;
 import uk.gov.pay.connector.client.ledger.exception.LedgerException;
 import uk.gov.pay.connector.client.ledger.model.LedgerTransaction;
 import uk.gov.pay.connector.client.ledger.model.RefundTransactionsForPayment;
+import uk.gov.pay.connector.filters.RestClientLoggingFilter;
 
 import javax.inject.Inject;
+import javax.inject.Singleton;
 import javax.ws.rs.ProcessingException;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import static java.lang.String.format;
 import static net.logstash.logback.argument.StructuredArguments.kv;
+import static org.apache.http.HttpStatus.SC_NOT_FOUND;
 import static org.apache.http.HttpStatus.SC_OK;
+import static org.glassfish.jersey.client.ClientProperties.READ_TIMEOUT;
 import static uk.gov.pay.logging.LoggingKeys.GATEWAY_ACCOUNT_ID;
 import static uk.gov.pay.logging.LoggingKeys.PAYMENT_EXTERNAL_ID;
 
+/**
+ * Client for ledger, with its own connection pool. Every call has a deadline covering all of its attempts; GETs that
+ * fail with a connection problem or a 5xx response are retried while the deadline allows, after which a
+ * {@link LedgerException} is thrown rather than the transaction being reported as missing. Only a 404 reports a
+ * transaction as missing.
+ */
+@Singleton
 public class LedgerService {
 
+    private static final String CLIENT_NAME = "ledger";
+    private static final String METRIC_PREFIX = "ledger-client";
+
     private final Logger logger = LoggerFactory.getLogger(LedgerService.class);
 
     private final Client client;
     private final String ledgerUrl;
+    private final long deadlineInMillis;
+    private final int maximumGetAttempts;
+    private final long retryDelayInMillis;
+    private final int readTimeoutInMillis;
+    private final MetricRegistry metricRegistry;
+    private final Map<String, EndpointMetrics> endpointMetrics = new ConcurrentHashMap<>();
 
     @Inject
-    public LedgerService(Client client, ConnectorConfiguration configuration) {
+    public LedgerService(ConnectorConfiguration configuration, Environment environment) {
+        this(buildClient(configuration, environment),
+                configuration.getLedgerBaseUrl(),
+                configuration.getLedgerClientConfig(),
+                environment.metrics());
+    }
+
+    LedgerService(Client client, String ledgerUrl, LedgerClientConfig config, MetricRegistry metricRegistry) {
         this.client = client;
-        this.ledgerUrl = configuration.getLedgerBaseUrl();
+        this.ledgerUrl = ledgerUrl;
+        this.deadlineInMillis = config.getDeadlineInMillis();
+        this.maximumGetAttempts = config.getMaximumGetAttempts();
+        this.retryDelayInMillis = config.getRetryDelayInMillis();
+        this.readTimeoutInMillis = (int) config.getTimeout().toMilliseconds();
+        this.metricRegistry = metricRegistry;
+    }
+
+    private static Client buildClient(ConnectorConfiguration configuration, Environment environment) {
+        Client client = new JerseyClientBuilder(environment)
+                .using(configuration.getLedgerClientConfig())
+                .build(CLIENT_NAME);
+        client.register(RestClientLoggingFilter.class);
+        if (configuration.isXrayEnabled()) {
+            client.register(XRayHttpClientFilter.class);
+        }
+        return client;
     }
 
     public Optional<LedgerTransaction> getTransaction(String id) {
@@ -41,7 +95,7 @@ public class LedgerService {
                 .path(format("/v1/transaction/%s", id))
                 .queryParam("override_account_id_restriction", "true");
 
-        return getTransactionFromLedger(uri);
+        return getTransactionFromLedger("get-transaction", uri);
     }
 
     public Optional<LedgerTransaction> getTransactionForProviderAndGatewayTransactionId(String paymentGatewayName,
@@ -51,7 +105,7 @@ public class LedgerService {
                 .path(format("/v1/transaction/gateway-transaction/%s", gatewayTransactionId))
                 .queryParam("payment_provider", paymentGatewayName);
 
-        return getTransactionFromLedger(uri);
+        return getTransactionFromLedger("get-transaction-for-gateway-transaction", uri);
     }
 
     public Optional<LedgerTransaction> getTransactionForGatewayAccount(String id, Long gatewayAccountId) {
@@ -60,7 +114,7 @@ public class LedgerService {
                 .path(format("/v1/transaction/%s", id))
                 .queryParam("account_id", gatewayAccountId);
 
-        return getTransactionFromLedger(uri);
+        return getTransactionFromLedger("get-transaction-for-gateway-account", uri);
     }
 
     public RefundTransactionsForPayment getRefundsForPayment(Long gatewayAccountId, String paymentExternalId) {
@@ -69,41 +123,109 @@ public class LedgerService {
                 .path(format("/v1/transaction/%s/transaction", paymentExternalId))
                 .queryParam("gateway_account_id", gatewayAccountId);
 
-        Response response = getResponse(uri);
-
-        if (response.getStatus() == SC_OK) {
-            try {
-                return response.readEntity(RefundTransactionsForPayment.class);
-            } catch (ProcessingException exception) {
-                logger.error("Error processing response from ledger for payment refunds: {} {}",
+        return get("get-refunds-for-payment", uri, response -> {
+            if (response.getStatus() == SC_OK) {
+                try {
+                    return response.readEntity(RefundTransactionsForPayment.class);
+                } catch (ProcessingException exception) {
+                    logger.error("Error processing response from ledger for payment refunds: {} {}",
+                            kv(GATEWAY_ACCOUNT_ID, gatewayAccountId),
+                            kv(PAYMENT_EXTERNAL_ID, paymentExternalId));
+                    throw new LedgerException(exception);
+                }
+            } else {
+                logger.error("Received non-success status code for get refunds for payment from Ledger: {}, {}",
                         kv(GATEWAY_ACCOUNT_ID, gatewayAccountId),
                         kv(PAYMENT_EXTERNAL_ID, paymentExternalId));
-                throw new LedgerException(exception);
+                throw new GetRefundsForPaymentException(response);
             }
-        } else {
-            logger.error("Received non-success status code for get refunds for payment from Ledger: {}, {}",
-                    kv(GATEWAY_ACCOUNT_ID, gatewayAccountId),
-                    kv(PAYMENT_EXTERNAL_ID, paymentExternalId));
-            throw new GetRefundsForPaymentException(response);
-        }
+        });
+    }
+
+    private Optional<LedgerTransaction> getTransactionFromLedger(String endpoint, UriBuilder uri) {
+        return get(endpoint, uri, response -> {
+            if (response.getStatus() == SC_OK) {
+                return Optional.of(response.readEntity(LedgerTransaction.class));
+            }
+            if (response.getStatus() == SC_NOT_FOUND) {
+                return Optional.empty();
+            }
+            if (isServerError(response)) {
+                logger.error("Received server error status code {} from ledger for {} after retrying", response.getStatus(), endpoint);
+            } else {
+                logger.error("Received unexpected status code {} from ledger for {}", response.getStatus(), endpoint);
+            }
+            throw new LedgerException(response);
+        });
     }
 
-    private Optional<LedgerTransaction> getTransactionFromLedger(UriBuilder uri) {
-        Response response = getResponse(uri);
+    private <T> T get(String endpoint, UriBuilder uri, Function<Response, T> responseHandler) {
+        EndpointMetrics metrics = endpointMetrics.computeIfAbsent(endpoint, EndpointMetrics::new);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineInMillis);
+
+        for (int attempt = 1; ; attempt++) {
+            long remainingInMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            Response response;
+            try (Timer.Context ignored = metrics.responseTime.time()) {
+                response = client
+                        .target(uri)
+                        .request()
+                        .accept(MediaType.APPLICATION_JSON)
+                        .property(READ_TIMEOUT, (int) Math.max(1, Math.min(readTimeoutInMillis, remainingInMillis)))
+                        .get();
+            } catch (ProcessingException e) {
+                if (shouldRetry(attempt, deadline)) {
+                    retry(endpoint, metrics, attempt, e.getMessage());
+                    continue;
+                }
+                metrics.failures.inc();
+                throw new LedgerException(e);
+            }
 
-        if (response.getStatus() == SC_OK) {
-            return Optional.of(response.readEntity(LedgerTransaction.class));
+            try {
+                if (isServerError(response) && shouldRetry(attempt, deadline)) {
+                    retry(endpoint, metrics, attempt, "status " + response.getStatus());
+                    continue;
+                }
+                if (isServerError(response)) {
+                    metrics.failures.inc();
+                }
+                return responseHandler.apply(response);
+            } finally {
+                response.close();
+            }
         }
+    }
 
-        return Optional.empty();
+    private boolean shouldRetry(int attempt, long deadline) {
+        return attempt < maximumGetAttempts
+                && System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryDelayInMillis * attempt) < deadline;
     }
 
-    private Response getResponse(UriBuilder uri) {
-        return client
-                .target(uri)
-                .request()
-                .accept(MediaType.APPLICATION_JSON)
-                .get();
+    private void retry(String endpoint, EndpointMetrics metrics, int attempt, String reason) {
+        metrics.retries.inc();
+        logger.info("Retrying ledger {} call after attempt {} failed: {}", endpoint, attempt, reason);
+        try {
+            Thread.sleep(retryDelayInMillis * attempt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LedgerException(e);
+        }
+    }
+
+    private static boolean isServerError(Response response) {
+        return response.getStatusInfo().getFamily() == Response.Status.Family.SERVER_ERROR;
     }
 
+    private class EndpointMetrics {
+        private final Timer responseTime;
+        private final Counter retries;
+        private final Counter failures;
+
+        private EndpointMetrics(String endpoint) {
+            this.responseTime = metricRegistry.timer(format("%s.%s.response-time", METRIC_PREFIX, endpoint));
+            this.retries = metricRegistry.counter(format("%s.%s.retries", METRIC_PREFIX, endpoint));
+            this.failures = metricRegistry.counter(format("%s.%s.failures", METRIC_PREFIX, endpoint));
+        }
+    }
 }
@@ -0,0 +1,74 @@
+package uk.gov.pay.connector.common.dao;
+
+import com.google.inject.Provider;
+import org.eclipse.persistence.sessions.SessionEvent;
+import org.eclipse.persistence.sessions.SessionEventAdapter;
+import org.eclipse.persistence.sessions.SessionEventListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Defers in-memory side effects of a database write, such as cache updates, until the transaction that made the write
+ * has committed, so that a rollback does not leave them describing a state that never existed. Outside a transaction
+ * an action runs straight away. Actions are kept per thread and are run, or dropped on rollback, by
+ * {@link #SESSION_LISTENER}, which ConnectorSessionCustomiser registers on the EclipseLink session.
+ */
+@Singleton
+public class AfterCommitActions {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AfterCommitActions.class);
+    private static final ThreadLocal<List<Runnable>> PENDING = ThreadLocal.withInitial(ArrayList::new);
+
+    public static final SessionEventListener SESSION_LISTENER = new SessionEventAdapter() {
+        @Override
+        public void postCommitTransaction(SessionEvent event) {
+            runPending();
+        }
+
+        @Override
+        public void postRollbackTransaction(SessionEvent event) {
+            PENDING.remove();
+        }
+
+        @Override
+        public void postReleaseClientSession(SessionEvent event) {
+            PENDING.remove();
+        }
+    };
+
+    private final Provider<EntityManager> entityManager;
+
+    @Inject
+    public AfterCommitActions(Provider<EntityManager> entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    public void run(Runnable action) {
+        if (entityManager.get().getTransaction().isActive()) {
+            PENDING.get().add(action);
+        } else {
+            action.run();
+        }
+    }
+
+    static void runPending() {
+        List<Runnable> actions = PENDING.get();
+        if (actions.isEmpty()) {
+            return;
+        }
+        PENDING.remove();
+        for (Runnable action : actions) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                LOGGER.error("After commit action failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+}
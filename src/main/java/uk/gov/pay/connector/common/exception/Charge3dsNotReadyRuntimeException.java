@@ -0,0 +1,26 @@
+package uk.gov.pay.connector.common.exception;
+
+import javax.ws.rs.WebApplicationException;
+import java.time.ZonedDateTime;
+
+import static java.lang.String.format;
+import static uk.gov.pay.connector.util.ResponseUtil.conflictErrorResponse;
+
+/**
+ * Thrown when a gateway notification reports a 3DS result for a charge that frontend has not moved to
+ * AUTHORISATION 3DS READY yet. The notification is answered with a conflict so that the gateway sends it again, or
+ * the notification inbox schedules it again for {@link #getRetryDate()}.
+ */
+public class Charge3dsNotReadyRuntimeException extends WebApplicationException {
+
+    private final ZonedDateTime retryDate;
+
+    public Charge3dsNotReadyRuntimeException(String chargeId, ZonedDateTime retryDate) {
+        super(conflictErrorResponse(format("Charge not ready for 3DS authorisation, %s", chargeId)));
+        this.retryDate = retryDate;
+    }
+
+    public ZonedDateTime getRetryDate() {
+        return retryDate;
+    }
+}
@@ -0,0 +1,104 @@
+package uk.gov.pay.connector.common.model.api;
+
+import org.glassfish.jersey.uri.UriComponent;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.lang.String.format;
+
+/**
+ * A path template such as {@code /v1/api/accounts/{accountId}/charges/{chargeId}}, parsed once so links can be built
+ * by appending the encoded parameter values to the literal parts, rather than by parsing the template with a
+ * {@link javax.ws.rs.core.UriBuilder} for every link. The base URI and the first literal part are joined once per base
+ * URI and kept. Parameter values are encoded as path segments, as {@code UriBuilder.build} does.
+ */
+public class LinkTemplate {
+
+    // base URIs come from the Host header, so stop remembering new ones after a few
+    private static final int MAX_REMEMBERED_BASE_URIS = 16;
+
+    private final String template;
+    private final String[] literals;
+    private final int estimatedLength;
+    private final ConcurrentMap<String, String> prefixesByBaseUri = new ConcurrentHashMap<>();
+
+    private LinkTemplate(String template, String[] literals) {
+        this.template = template;
+        this.literals = literals;
+        this.estimatedLength = template.length() + 64;
+    }
+
+    public static LinkTemplate compile(String template) {
+        List<String> literals = new ArrayList<>();
+        int start = 0;
+        int open;
+        while ((open = template.indexOf('{', start)) >= 0) {
+            int close = template.indexOf('}', open);
+            if (close < 0) {
+                throw new IllegalArgumentException(format("Unclosed parameter in link template %s", template));
+            }
+            literals.add(template.substring(start, open));
+            start = close + 1;
+        }
+        if (template.indexOf('}', start) >= 0) {
+            throw new IllegalArgumentException(format("Unopened parameter in link template %s", template));
+        }
+        literals.add(template.substring(start));
+        return new LinkTemplate(template, literals.toArray(new String[0]));
+    }
+
+    public URI expand(URI baseUri, Object... values) {
+        return expand(baseUri.toString(), values);
+    }
+
+    public URI expand(String baseUri, Object... values) {
+        if (values.length != literals.length - 1) {
+            throw new IllegalArgumentException(format("Link template %s takes %d values but was given %d",
+                    template, literals.length - 1, values.length));
+        }
+        StringBuilder link = new StringBuilder(estimatedLength).append(prefixFor(baseUri));
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) {
+                throw new IllegalArgumentException(format("Value %d for link template %s is null", i, template));
+            }
+            appendPathSegment(link, values[i].toString());
+            link.append(literals[i + 1]);
+        }
+        return URI.create(link.toString());
+    }
+
+    private String prefixFor(String baseUri) {
+        String prefix = prefixesByBaseUri.get(baseUri);
+        if (prefix == null) {
+            prefix = join(baseUri, literals[0]);
+            if (prefixesByBaseUri.size() < MAX_REMEMBERED_BASE_URIS) {
+                prefixesByBaseUri.putIfAbsent(baseUri, prefix);
+            }
+        }
+        return prefix;
+    }
+
+    private static String join(String baseUri, String path) {
+        String base = baseUri.endsWith("/") ? baseUri.substring(0, baseUri.length() - 1) : baseUri;
+        return path.startsWith("/") ? base + path : base + "/" + path;
+    }
+
+    private static void appendPathSegment(StringBuilder link, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (!isUnreserved(value.charAt(i))) {
+                link.append(UriComponent.encode(value, UriComponent.Type.PATH_SEGMENT));
+                return;
+            }
+        }
+        link.append(value);
+    }
+
+    private static boolean isUnreserved(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+}
@@ -0,0 +1,23 @@
+package uk.gov.pay.connector.common.model.api;
+
+/**
+ * The templates for the links in charge, refund and gateway account responses.
+ */
+public final class LinkTemplates {
+
+    public static final LinkTemplate GATEWAY_ACCOUNT = LinkTemplate.compile("/v1/api/accounts/{accountId}");
+    public static final LinkTemplate CHARGE = LinkTemplate.compile("/v1/api/accounts/{accountId}/charges/{chargeId}");
+    public static final LinkTemplate CHARGE_REFUNDS = LinkTemplate.compile("/v1/api/accounts/{accountId}/charges/{chargeId}/refunds");
+    public static final LinkTemplate CHARGE_REFUND = LinkTemplate.compile("/v1/api/accounts/{accountId}/charges/{chargeId}/refunds/{refundId}");
+    public static final LinkTemplate CHARGE_CAPTURE = LinkTemplate.compile("/v1/api/accounts/{accountId}/charges/{chargeId}/capture");
+
+    public static final LinkTemplate FRONTEND_CHARGE = LinkTemplate.compile("/v1/frontend/charges/{chargeId}");
+    public static final LinkTemplate FRONTEND_CHARGE_CARDS = LinkTemplate.compile("/v1/frontend/charges/{chargeId}/cards");
+    public static final LinkTemplate FRONTEND_CHARGE_CAPTURE = LinkTemplate.compile("/v1/frontend/charges/{chargeId}/capture");
+
+    public static final LinkTemplate SECURE = LinkTemplate.compile("secure");
+    public static final LinkTemplate SECURE_TOKEN = LinkTemplate.compile("secure/{tokenId}");
+
+    private LinkTemplates() {
+    }
+}
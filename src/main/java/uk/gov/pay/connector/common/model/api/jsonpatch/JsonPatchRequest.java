@@ -3,6 +3,7 @@ package uk.gov.pay.connector.common.model.api.jsonpatch;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 
 import java.io.IOException;
 import java.util.Map;
@@ -14,6 +15,8 @@ import static uk.gov.pay.connector.common.model.api.jsonpatch.JsonPatchKeys.FIEL
 
 public class JsonPatchRequest {
 
+    private static final ObjectReader MAP_READER = new ObjectMapper().readerFor(new TypeReference<Map<String, String>>() {});
+
     private JsonPatchOp op;
     private String path;
     private JsonNode value;
@@ -55,7 +58,7 @@ public class JsonPatchRequest {
         if (value != null) {
             if ((value.isTextual() && !isEmpty(value.asText())) || (!value.isNull() && value.isObject())) {
                 try {
-                    return new ObjectMapper().readValue(value.traverse(), new TypeReference<Map<String, String>>() {});
+                    return MAP_READER.readValue(value.traverse());
                 } catch (IOException e) {
                     throw new RuntimeException("Malformed JSON object in value", e);
                 }
@@ -55,6 +55,7 @@ import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATIO
 import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_ERROR;
 import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_ERROR_CANCELLED;
 import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_ERROR_CHARGE_MISSING;
+import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_ERROR_CLEANUP_READY;
 import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_ERROR_REJECTED;
 import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_READY;
 import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_REJECTED;
@@ -218,6 +219,16 @@ public class PaymentGatewayStateTransitions {
         graph.putEdgeValue(AUTHORISATION_TIMEOUT, AUTHORISATION_ERROR_REJECTED, ModelledEvent.of(AuthorisationErrorCheckedWithGatewayChargeWasRejected.class));
         graph.putEdgeValue(AUTHORISATION_TIMEOUT, AUTHORISATION_ERROR_CHARGE_MISSING, ModelledEvent.of(AuthorisationErrorCheckedWithGatewayChargeWasMissing.class));
 
+        graph.putEdgeValue(AUTHORISATION_ERROR, AUTHORISATION_ERROR_CLEANUP_READY, ModelledEvent.none());
+        graph.putEdgeValue(AUTHORISATION_UNEXPECTED_ERROR, AUTHORISATION_ERROR_CLEANUP_READY, ModelledEvent.none());
+        graph.putEdgeValue(AUTHORISATION_TIMEOUT, AUTHORISATION_ERROR_CLEANUP_READY, ModelledEvent.none());
+        graph.putEdgeValue(AUTHORISATION_ERROR_CLEANUP_READY, AUTHORISATION_ERROR_CANCELLED, ModelledEvent.of(CancelledWithGatewayAfterAuthorisationError.class));
+        graph.putEdgeValue(AUTHORISATION_ERROR_CLEANUP_READY, AUTHORISATION_ERROR_REJECTED, ModelledEvent.of(AuthorisationErrorCheckedWithGatewayChargeWasRejected.class));
+        graph.putEdgeValue(AUTHORISATION_ERROR_CLEANUP_READY, AUTHORISATION_ERROR_CHARGE_MISSING, ModelledEvent.of(AuthorisationErrorCheckedWithGatewayChargeWasMissing.class));
+        graph.putEdgeValue(AUTHORISATION_ERROR_CLEANUP_READY, AUTHORISATION_ERROR, ModelledEvent.none());
+        graph.putEdgeValue(AUTHORISATION_ERROR_CLEANUP_READY, AUTHORISATION_UNEXPECTED_ERROR, ModelledEvent.none());
+        graph.putEdgeValue(AUTHORISATION_ERROR_CLEANUP_READY, AUTHORISATION_TIMEOUT, ModelledEvent.none());
+
 
         return ImmutableValueGraph.copyOf(graph);
     }
@@ -0,0 +1,70 @@
+package uk.gov.pay.connector.events;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import uk.gov.pay.commons.api.json.ApiResponseDateTimeSerializer;
+
+import java.time.ZonedDateTime;
+
+@JsonNaming(PropertyNamingStrategy.SnakeCaseStrategy.class)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EmittedEventsBackfillProgress {
+
+    private final boolean running;
+    private final ZonedDateTime startedDate;
+    private final ZonedDateTime finishedDate;
+    private final Long lastProcessedId;
+    private final Long maxId;
+    private final long eventsProcessed;
+    private final long resourcesProcessed;
+    private final long resourcesFailed;
+
+    public EmittedEventsBackfillProgress(boolean running, ZonedDateTime startedDate, ZonedDateTime finishedDate,
+                                         Long lastProcessedId, Long maxId, long eventsProcessed,
+                                         long resourcesProcessed, long resourcesFailed) {
+        this.running = running;
+        this.startedDate = startedDate;
+        this.finishedDate = finishedDate;
+        this.lastProcessedId = lastProcessedId;
+        this.maxId = maxId;
+        this.eventsProcessed = eventsProcessed;
+        this.resourcesProcessed = resourcesProcessed;
+        this.resourcesFailed = resourcesFailed;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    @JsonSerialize(using = ApiResponseDateTimeSerializer.class)
+    public ZonedDateTime getStartedDate() {
+        return startedDate;
+    }
+
+    @JsonSerialize(using = ApiResponseDateTimeSerializer.class)
+    public ZonedDateTime getFinishedDate() {
+        return finishedDate;
+    }
+
+    public Long getLastProcessedId() {
+        return lastProcessedId;
+    }
+
+    public Long getMaxId() {
+        return maxId;
+    }
+
+    public long getEventsProcessed() {
+        return eventsProcessed;
+    }
+
+    public long getResourcesProcessed() {
+        return resourcesProcessed;
+    }
+
+    public long getResourcesFailed() {
+        return resourcesFailed;
+    }
+}
@@ -1,6 +1,6 @@
 package uk.gov.pay.connector.events;
 
-import com.google.inject.persist.Transactional;
+import io.dropwizard.setup.Environment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
@@ -15,13 +15,33 @@ import uk.gov.pay.connector.refund.model.domain.RefundEntity;
 import uk.gov.pay.connector.tasks.HistoricalEventEmitter;
 
 import javax.inject.Inject;
-import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
 import static java.time.ZoneOffset.UTC;
 import static java.time.ZonedDateTime.now;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
+import static java.util.stream.Collectors.toList;
 import static uk.gov.pay.logging.LoggingKeys.PAYMENT_EXTERNAL_ID;
 
+/**
+ * Re-emits the events for emitted_events rows that were never marked as emitted. Rows are read a page at a time and
+ * grouped by the payment or refund they belong to, as re-emitting a resource's history covers every row recorded for
+ * it. Each resource is processed once per sweep on a pool of backfill threads and all its rows in a page are updated
+ * in one statement. The sweep itself runs in the background, one at a time, and reports its progress.
+ */
 public class EmittedEventsBackfillService {
     private final Logger logger = LoggerFactory.getLogger(getClass());
     public static final int PAGE_SIZE = 100;
@@ -32,10 +52,39 @@ public class EmittedEventsBackfillService {
     private RefundDao refundDao;
     private final EmittedEventSweepConfig sweepConfig;
     private long doNotRetryEmittingEventUntilDurationInSeconds;
+    private final ExecutorService sweepExecutor;
+    private final ExecutorService backfillExecutor;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final LongAdder eventsProcessed = new LongAdder();
+    private final LongAdder resourcesProcessed = new LongAdder();
+    private final LongAdder resourcesFailed = new LongAdder();
+    private volatile ZonedDateTime startedDate;
+    private volatile ZonedDateTime finishedDate;
+    private volatile Long lastProcessedId;
+    private volatile Long maxId;
 
     @Inject
     public EmittedEventsBackfillService(EmittedEventDao emittedEventDao, ChargeService chargeService, RefundDao refundDao,
-                                        HistoricalEventEmitter historicalEventEmitter, ConnectorConfiguration configuration) {
+                                        HistoricalEventEmitter historicalEventEmitter, ConnectorConfiguration configuration,
+                                        Environment environment) {
+        this(emittedEventDao, chargeService, refundDao, historicalEventEmitter, configuration,
+                // a single thread and no queue, so only one sweep runs at a time
+                environment.lifecycle()
+                        .executorService("emitted-events-sweep-%d")
+                        .maxThreads(1)
+                        .workQueue(new SynchronousQueue<>())
+                        .build(),
+                environment.lifecycle()
+                        .executorService("emitted-events-backfill-%d")
+                        .minThreads(configuration.getEmittedEventSweepConfig().getBackfillThreads())
+                        .maxThreads(configuration.getEmittedEventSweepConfig().getBackfillThreads())
+                        .build());
+    }
+
+    EmittedEventsBackfillService(EmittedEventDao emittedEventDao, ChargeService chargeService, RefundDao refundDao,
+                                 HistoricalEventEmitter historicalEventEmitter, ConnectorConfiguration configuration,
+                                 ExecutorService sweepExecutor, ExecutorService backfillExecutor) {
         this.emittedEventDao = emittedEventDao;
         this.chargeService = chargeService;
         this.refundDao = refundDao;
@@ -43,10 +92,50 @@ public class EmittedEventsBackfillService {
         this.doNotRetryEmittingEventUntilDurationInSeconds = configuration.getEventEmitterConfig()
                 .getDefaultDoNotRetryEmittingEventUntilDurationInSeconds();
         this.historicalEventEmitter = historicalEventEmitter;
+        this.sweepExecutor = sweepExecutor;
+        this.backfillExecutor = backfillExecutor;
+    }
+
+    /**
+     * Starts a sweep in the background, returning false without starting one if a sweep is already running.
+     */
+    public boolean startBackfill() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            sweepExecutor.execute(() -> {
+                try {
+                    backfillNotEmittedEvents();
+                } catch (Exception e) {
+                    logger.error("Emitted events sweep failed [lastProcessedId={}] due to {}", lastProcessedId, e.getMessage());
+                } finally {
+                    running.set(false);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            running.set(false);
+            return false;
+        }
+    }
+
+    public EmittedEventsBackfillProgress getProgress() {
+        return new EmittedEventsBackfillProgress(running.get(), startedDate, finishedDate, lastProcessedId, maxId,
+                eventsProcessed.sum(), resourcesProcessed.sum(), resourcesFailed.sum());
     }
 
     public void backfillNotEmittedEvents() {
+        startedDate = now(UTC);
+        finishedDate = null;
+        eventsProcessed.reset();
+        resourcesProcessed.reset();
+        resourcesFailed.reset();
+
         EmittedEventBatchIterator emittedEventBatchIterator = new EmittedEventBatchIterator(emittedEventDao, sweepConfig, 0L, PAGE_SIZE, now());
+        lastProcessedId = emittedEventBatchIterator.getCurrentBatchStartId();
+        maxId = emittedEventBatchIterator.getMaximumIdOfEventsEligibleForReEmission().orElse(null);
+        Map<SweptResource, Boolean> outcomesOfSweptResources = new ConcurrentHashMap<>();
 
         emittedEventBatchIterator.forEachRemaining(batch -> {
             logger.info(
@@ -56,55 +145,112 @@ public class EmittedEventsBackfillService {
                     batch.oldestEventDate().map(ZonedDateTime::toString).orElse("none")
             );
 
-            batch.getEvents().forEach(this::backfillEvent);
+            backfillBatch(batch.getEvents(), outcomesOfSweptResources);
+            batch.getEndId().ifPresent(endId -> lastProcessedId = endId);
         });
 
+        finishedDate = now(UTC);
         logger.info("Finished processing not emitted events [lastProcessedId={}, maxId={}]",
                 emittedEventBatchIterator.getCurrentBatchStartId(), emittedEventBatchIterator
                         .getMaximumIdOfEventsEligibleForReEmission().map(Object::toString).orElse("none"));
     }
 
-    @Transactional
-    public void backfillEvent(EmittedEventEntity event) {
+    private void backfillBatch(List<EmittedEventEntity> events, Map<SweptResource, Boolean> outcomesOfSweptResources) {
+        Map<SweptResource, List<Long>> eventIdsByResource = events.stream()
+                .collect(groupingBy(SweptResource::new, LinkedHashMap::new, mapping(EmittedEventEntity::getId, toList())));
+
+        List<CompletableFuture<Void>> resourcesInBatch = new ArrayList<>();
+        eventIdsByResource.forEach((resource, eventIds) -> {
+            Boolean earlierOutcome = outcomesOfSweptResources.get(resource);
+            if (earlierOutcome == null) {
+                resourcesInBatch.add(CompletableFuture.runAsync(
+                        () -> outcomesOfSweptResources.put(resource, backfillResource(resource, eventIds)), backfillExecutor));
+            } else {
+                // re-emitting the resource earlier in this sweep covered these rows too
+                resourcesInBatch.add(CompletableFuture.runAsync(
+                        () -> recordOutcome(eventIds, earlierOutcome), backfillExecutor));
+            }
+        });
+        CompletableFuture.allOf(resourcesInBatch.toArray(new CompletableFuture[0])).join();
+    }
+
+    private boolean backfillResource(SweptResource resource, List<Long> eventIds) {
         try {
-            String chargeId = chargeIdForEvent(event);
+            String chargeId = chargeIdForResource(resource);
 
             MDC.put(PAYMENT_EXTERNAL_ID, chargeId);
-            if (isPaymentEvent(event)) {
+            if (resource.isPayment()) {
                 ChargeEntity chargeEntity = chargeService.findChargeByExternalId(chargeId);
                 historicalEventEmitter.processPaymentEvents(chargeEntity, true);
             } else {
-                historicalEventEmitter.emitEventsForRefund(event.getResourceExternalId(), true);
+                historicalEventEmitter.emitEventsForRefund(resource.externalId, true);
             }
-            event.setEmittedDate(now(ZoneId.of("UTC")));
+            resourcesProcessed.increment();
+            return recordOutcome(eventIds, true);
         } catch (Exception e) {
             logger.error(
-                    "Failed to process backfill for event {} due to {} [externalId={}] [event_type={}] [event_date={}]",
-                    event.getId(),
+                    "Failed to process backfill for events {} due to {} [externalId={}] [resource_type={}]",
+                    eventIds,
                     e.getMessage(),
-                    event.getResourceExternalId(),
-                    event.getEventType(),
-                    event.getEventDate()
+                    resource.externalId,
+                    resource.resourceType
             );
-            event.setDoNotRetryEmitUntil(ZonedDateTime.now(UTC).plusSeconds(doNotRetryEmittingEventUntilDurationInSeconds));
+            resourcesFailed.increment();
+            return recordOutcome(eventIds, false);
         } finally {
             MDC.remove(PAYMENT_EXTERNAL_ID);
         }
     }
 
-    private String chargeIdForEvent(EmittedEventEntity event) {
-        if (isPaymentEvent(event)) {
-            return event.getResourceExternalId();
+    private boolean recordOutcome(List<Long> eventIds, boolean emitted) {
+        if (emitted) {
+            emittedEventDao.markEventsAsEmitted(eventIds, now(UTC));
+        } else {
+            emittedEventDao.setDoNotRetryEmitUntil(eventIds, now(UTC).plusSeconds(doNotRetryEmittingEventUntilDurationInSeconds));
+        }
+        eventsProcessed.add(eventIds.size());
+        return emitted;
+    }
+
+    private String chargeIdForResource(SweptResource resource) {
+        if (resource.isPayment()) {
+            return resource.externalId;
         } else {
-            return refundDao.findByExternalId(event.getResourceExternalId())
+            return refundDao.findByExternalId(resource.externalId)
                     .stream().findFirst()
                     .map(RefundEntity::getChargeExternalId)
                     .orElse("");
         }
     }
 
-    private boolean isPaymentEvent(EmittedEventEntity event) {
-        return ResourceType.valueOf(event.getResourceType().toUpperCase()).equals(ResourceType.PAYMENT);
-    }
+    private static class SweptResource {
+        private final String resourceType;
+        private final String externalId;
+
+        private SweptResource(EmittedEventEntity event) {
+            this.resourceType = event.getResourceType();
+            this.externalId = event.getResourceExternalId();
+        }
 
+        private boolean isPayment() {
+            return ResourceType.valueOf(resourceType.toUpperCase()).equals(ResourceType.PAYMENT);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            SweptResource that = (SweptResource) o;
+            return Objects.equals(resourceType, that.resourceType) && Objects.equals(externalId, that.externalId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(resourceType, externalId);
+        }
+    }
 }
@@ -7,6 +7,8 @@ import uk.gov.pay.connector.queue.QueueException;
 import uk.gov.pay.connector.queue.sqs.SqsQueueService;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
 
 public class EventQueue {
 
@@ -33,4 +35,18 @@ public class EventQueue {
             }
         }
     }
+
+    public void emitEvents(List<? extends Event> events) throws QueueException {
+        if (eventQueueEnabled && !events.isEmpty()) {
+            List<String> messages = new ArrayList<>(events.size());
+            for (Event event : events) {
+                try {
+                    messages.add(event.toJsonString());
+                } catch (JsonProcessingException e) {
+                    throw new QueueException(String.format("Error serialising event to json: %s", e.getMessage()));
+                }
+            }
+            sqsQueueService.sendMessages(eventQueueUrl, messages);
+        }
+    }
 }
@@ -5,10 +5,15 @@ import org.slf4j.LoggerFactory;
 import uk.gov.pay.connector.events.dao.EmittedEventDao;
 import uk.gov.pay.connector.events.model.Event;
 import uk.gov.pay.connector.events.model.ResourceType;
+import uk.gov.pay.connector.metrics.AuthorisationStageTimings;
+import uk.gov.pay.connector.metrics.StageTiming;
 import uk.gov.pay.connector.queue.QueueException;
 
 import javax.inject.Inject;
 import java.time.ZonedDateTime;
+import java.util.List;
+
+import static uk.gov.pay.connector.metrics.AuthorisationStage.EVENT_OFFER;
 
 public class EventService {
     private static final Logger logger = LoggerFactory.getLogger(EventService.class);
@@ -60,8 +65,21 @@ public class EventService {
         }
     }
 
-    public void emitAndRecordEvent(Event event, ZonedDateTime doNotRetryEmitUntilDate) {
+    /**
+     * Emits events in as few queue requests as possible, without recording them in EmittedEventDao. Unlike
+     * {@link #emitEvent(Event, boolean)} a failure is always thrown, as some of the events may not have been sent.
+     */
+    public void emitEvents(List<? extends Event> events) throws QueueException {
         try {
+            eventQueue.emitEvents(events);
+        } catch (QueueException e) {
+            logger.error("Failed to emit batch of {} events due to {}", events.size(), e.getMessage());
+            throw e;
+        }
+    }
+
+    public void emitAndRecordEvent(Event event, ZonedDateTime doNotRetryEmitUntilDate) {
+        try (StageTiming ignored = AuthorisationStageTimings.time(EVENT_OFFER)) {
             eventQueue.emitEvent(event);
             emittedEventDao.recordEmission(event, doNotRetryEmitUntilDate);
         } catch (QueueException e) {
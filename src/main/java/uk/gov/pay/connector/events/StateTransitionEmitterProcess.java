@@ -3,33 +3,40 @@ package uk.gov.pay.connector.events;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.gov.pay.connector.events.exception.EventCreationException;
+import uk.gov.pay.connector.events.model.Event;
 import uk.gov.pay.connector.events.model.EventFactory;
 import uk.gov.pay.connector.queue.QueueException;
 import uk.gov.pay.connector.queue.statetransition.StateTransition;
 import uk.gov.pay.connector.queue.statetransition.StateTransitionQueue;
+import uk.gov.pay.connector.refund.service.LedgerRefundCache;
 
 import javax.inject.Inject;
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 public class StateTransitionEmitterProcess {
     private static final Logger LOGGER = LoggerFactory.getLogger(StateTransitionEmitterProcess.class);
 
     private final long STATE_TRANSITION_PROCESS_DELAY_IN_MILLISECONDS = 1000;
+    private static final int MAXIMUM_STATE_TRANSITIONS_PER_BATCH = 50;
     private final StateTransitionQueue stateTransitionQueue;
     private final EventFactory eventFactory;
     private EventService eventService;
+    private final LedgerRefundCache ledgerRefundCache;
 
     @Inject
     public StateTransitionEmitterProcess(
             StateTransitionQueue stateTransitionQueue,
             EventFactory eventFactory,
             StateTransitionQueueMetricEmitter stateTransitionQueueMetricEmitter,
-            EventService eventService
+            EventService eventService,
+            LedgerRefundCache ledgerRefundCache
     ) {
         this.stateTransitionQueue = stateTransitionQueue;
         this.eventFactory = eventFactory;
         this.eventService = eventService;
+        this.ledgerRefundCache = ledgerRefundCache;
 
         stateTransitionQueueMetricEmitter.register();
     }
@@ -43,27 +50,42 @@ public class StateTransitionEmitterProcess {
     }
 
     public void handleStateTransitionMessages() throws InterruptedException {
-        Optional.ofNullable(stateTransitionQueue.poll(STATE_TRANSITION_PROCESS_DELAY_IN_MILLISECONDS, TimeUnit.MILLISECONDS))
-                .ifPresent(this::emitEvents);
+        StateTransition first = stateTransitionQueue.poll(STATE_TRANSITION_PROCESS_DELAY_IN_MILLISECONDS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+
+        // take whatever else is ready before emitting anything, so transitions put back on the queue after failing
+        // are not picked up again in the same batch
+        List<StateTransition> batch = new ArrayList<>();
+        batch.add(first);
+        StateTransition next;
+        while (batch.size() < MAXIMUM_STATE_TRANSITIONS_PER_BATCH && (next = stateTransitionQueue.poll()) != null) {
+            batch.add(next);
+        }
+
+        // the transitions for one refund usually arrive together, so they can share a single ledger lookup
+        try (LedgerRefundCache.Scope ignored = ledgerRefundCache.openScope()) {
+            batch.forEach(this::emitEvents);
+        }
     }
 
+    /**
+     * Any failure, including runtime exceptions such as a ledger lookup failing while the events are created, puts
+     * the transition back on the queue for another attempt without affecting the rest of the batch.
+     */
     private void emitEvents(StateTransition stateTransition) {
         if (stateTransition.shouldAttempt()) {
             try {
-                eventFactory.createEvents(stateTransition)
-                        .forEach(event -> {
-                            try {
-                                eventService.emitAndMarkEventAsEmitted(event);
-                            } catch (QueueException e) {
-                                handleException(e, stateTransition);
-                            }
-                        });
+                for (Event event : eventFactory.createEvents(stateTransition)) {
+                    eventService.emitAndMarkEventAsEmitted(event);
+                }
                 LOGGER.info(
                         "Emitted new state transition event for [eventId={}] [eventType={}]",
                         stateTransition.getIdentifier(),
                         stateTransition.getStateTransitionEventClass().getSimpleName()
                 );
-            } catch (EventCreationException e) {
+            } catch (EventCreationException | QueueException | RuntimeException e) {
                 handleException(e, stateTransition);
             }
         } else {
@@ -10,6 +10,7 @@ import uk.gov.pay.connector.events.model.ResourceType;
 
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
+import java.sql.Timestamp;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.List;
@@ -20,6 +21,22 @@ import static java.time.ZonedDateTime.now;
 @Transactional
 public class EmittedEventDao extends JpaDao<EmittedEventEntity> {
 
+    // Both queries restate the predicate of the idx_emitted_events_not_emitted_id partial covering index, so the
+    // sweep reads only not-yet-emitted events. BackgroundQueryPlanIT checks their plans.
+    public static final String FIND_NOT_EMITTED_EVENT_MAX_ID_OLDER_THAN =
+            "SELECT max(e.id) FROM emitted_events e " +
+                    "WHERE e.emitted_date IS NULL " +
+                    "AND e.event_date < ?1 " +
+                    "AND (e.do_not_retry_emit_until IS NULL OR e.do_not_retry_emit_until < ?2)";
+
+    public static final String FIND_NOT_EMITTED_EVENTS_OLDER_THAN =
+            "SELECT e.* FROM emitted_events e " +
+                    "WHERE e.id > ?1 AND e.id <= ?2 " +
+                    "AND e.emitted_date IS NULL " +
+                    "AND e.event_date < ?3 " +
+                    "AND (e.do_not_retry_emit_until IS NULL OR e.do_not_retry_emit_until < ?4) " +
+                    "ORDER BY e.id LIMIT ?5";
+
     @Inject
     protected EmittedEventDao(Provider<EntityManager> entityManager) {
         super(entityManager);
@@ -85,35 +102,41 @@ public class EmittedEventDao extends JpaDao<EmittedEventEntity> {
         query.executeUpdate();
     }
 
+    public int markEventsAsEmitted(List<Long> ids, ZonedDateTime emittedDate) {
+        return entityManager.get()
+                .createQuery("UPDATE EmittedEventEntity e SET e.emittedDate = :emittedDate WHERE e.id IN :ids")
+                .setParameter("emittedDate", emittedDate)
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+
+    public int setDoNotRetryEmitUntil(List<Long> ids, ZonedDateTime doNotRetryEmitUntil) {
+        return entityManager.get()
+                .createQuery("UPDATE EmittedEventEntity e SET e.doNotRetryEmitUntil = :doNotRetryEmitUntil WHERE e.id IN :ids")
+                .setParameter("doNotRetryEmitUntil", doNotRetryEmitUntil)
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+
     public Optional<Long> findNotEmittedEventMaxIdOlderThan(ZonedDateTime cutOffDate, ZonedDateTime now) {
-        String query = "SELECT MAX(e.id) from EmittedEventEntity e " +
-                "WHERE e.eventDate < :cutOffDate " +
-                "AND e.emittedDate is null " +
-                "AND (e.doNotRetryEmitUntil is null or e.doNotRetryEmitUntil < :currentDate)";
-
-        return Optional.ofNullable(entityManager.get()
-                .createQuery(query, Long.class)
-                .setParameter("cutOffDate", cutOffDate)
-                .setParameter("currentDate", now)
-                .getSingleResult());
+        var maxId = (Number) entityManager.get()
+                .createNativeQuery(FIND_NOT_EMITTED_EVENT_MAX_ID_OLDER_THAN)
+                .setParameter(1, Timestamp.from(cutOffDate.toInstant()))
+                .setParameter(2, Timestamp.from(now.toInstant()))
+                .getSingleResult();
+        return Optional.ofNullable(maxId).map(Number::longValue);
     }
 
     public List<EmittedEventEntity> findNotEmittedEventsOlderThan(ZonedDateTime cutOffDate, int size,
                                                                   Long lastProcessedId, Long maxId,
                                                                   ZonedDateTime now) {
-        String query = "SELECT e from EmittedEventEntity e " +
-                "WHERE e.id > :lastProcessedId AND e.id <= :maxId AND e.eventDate < :cutOffDate " +
-                "AND e.emittedDate is null " +
-                "AND (e.doNotRetryEmitUntil is null or e.doNotRetryEmitUntil < :currentDate) " +
-                "ORDER BY e.id";
-
         return entityManager.get()
-                .createQuery(query, EmittedEventEntity.class)
-                .setParameter("cutOffDate", cutOffDate)
-                .setParameter("currentDate", now)
-                .setParameter("lastProcessedId", lastProcessedId)
-                .setParameter("maxId", maxId)
-                .setMaxResults(size)
+                .createNativeQuery(FIND_NOT_EMITTED_EVENTS_OLDER_THAN, EmittedEventEntity.class)
+                .setParameter(1, lastProcessedId)
+                .setParameter(2, maxId)
+                .setParameter(3, Timestamp.from(cutOffDate.toInstant()))
+                .setParameter(4, Timestamp.from(now.toInstant()))
+                .setParameter(5, size)
                 .getResultList();
     }
 }
@@ -3,6 +3,7 @@ package uk.gov.pay.connector.events.model;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
 import com.fasterxml.jackson.databind.annotation.JsonNaming;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
@@ -18,6 +19,13 @@ import java.util.Objects;
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public abstract class Event {
     private static final ObjectMapper MAPPER = Jackson.newObjectMapper();
+    // a writer per event class resolves its serializer once, rather than looking it up on every write
+    private static final ClassValue<ObjectWriter> WRITERS = new ClassValue<>() {
+        @Override
+        protected ObjectWriter computeValue(Class<?> eventClass) {
+            return MAPPER.writerFor(eventClass);
+        }
+    };
     private String resourceExternalId;
     private EventDetails eventDetails;
     private ZonedDateTime timestamp;
@@ -50,7 +58,7 @@ public abstract class Event {
     }
 
     public String toJsonString() throws JsonProcessingException {
-        return MAPPER.writeValueAsString(this);
+        return WRITERS.get(getClass()).writeValueAsString(this);
     }
 
     public String getEventType() {
@@ -3,12 +3,15 @@ package uk.gov.pay.connector.events.resource;
 import uk.gov.pay.connector.events.EmittedEventsBackfillService;
 
 import javax.inject.Inject;
+import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Response;
 
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static javax.ws.rs.core.Response.Status.ACCEPTED;
+import static javax.ws.rs.core.Response.Status.CONFLICT;
 import static javax.ws.rs.core.Response.Status.OK;
 import static javax.ws.rs.core.Response.status;
 
@@ -25,8 +28,15 @@ public class EmittedEventResource {
     @POST
     @Path("/v1/tasks/emitted-events-sweep")
     @Produces(APPLICATION_JSON)
-    public Response expireCharges() {
-        emittedEventsBackfillService.backfillNotEmittedEvents();
-        return status(OK).build();
+    public Response startEmittedEventsSweep() {
+        boolean started = emittedEventsBackfillService.startBackfill();
+        return status(started ? ACCEPTED : CONFLICT).entity(emittedEventsBackfillService.getProgress()).build();
+    }
+
+    @GET
+    @Path("/v1/tasks/emitted-events-sweep")
+    @Produces(APPLICATION_JSON)
+    public Response getSweepProgress() {
+        return status(OK).entity(emittedEventsBackfillService.getProgress()).build();
     }
 }
@@ -2,6 +2,7 @@ package uk.gov.pay.connector.expunge.service;
 
 import uk.gov.pay.connector.app.ConnectorConfiguration;
 import uk.gov.pay.connector.app.config.ExpungeConfig;
+import uk.gov.pay.connector.webhook.service.NotificationDeduplicationService;
 
 import javax.inject.Inject;
 
@@ -9,13 +10,16 @@ public class ExpungeService {
 
     private ChargeExpungeService chargeExpungeService;
     private RefundExpungeService refundExpungeService;
+    private NotificationDeduplicationService notificationDeduplicationService;
     private ExpungeConfig expungeConfig;
 
     @Inject
     public ExpungeService(ChargeExpungeService chargeExpungeService, RefundExpungeService refundExpungeService,
+                          NotificationDeduplicationService notificationDeduplicationService,
                           ConnectorConfiguration connectorConfiguration) {
         this.chargeExpungeService = chargeExpungeService;
         this.refundExpungeService = refundExpungeService;
+        this.notificationDeduplicationService = notificationDeduplicationService;
         expungeConfig = connectorConfiguration.getExpungeConfig();
     }
 
@@ -23,6 +27,7 @@ public class ExpungeService {
         int noOfRecordsToExpunge = getNumberOfRecordsToExpunge(noOfChargesOrRefundsToExpungeQueryParam);
         chargeExpungeService.expunge(noOfRecordsToExpunge);
         refundExpungeService.expunge(noOfRecordsToExpunge);
+        notificationDeduplicationService.expungeProcessedNotifications();
     }
 
     private int getNumberOfRecordsToExpunge(Integer noOfChargesToExpungeQueryParam) {
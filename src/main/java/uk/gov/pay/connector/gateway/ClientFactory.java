@@ -1,17 +1,17 @@
 package uk.gov.pay.connector.gateway;
 
 import com.codahale.metrics.MetricRegistry;
-import com.codahale.metrics.httpclient.InstrumentedHttpClientConnectionManager;
 import io.dropwizard.client.JerseyClientBuilder;
+import io.dropwizard.client.JerseyClientConfiguration;
+import io.dropwizard.lifecycle.Managed;
 import io.dropwizard.setup.Environment;
 import io.dropwizard.util.Duration;
+import org.apache.http.config.Registry;
 import org.apache.http.config.RegistryBuilder;
-import org.apache.http.conn.HttpClientConnectionManager;
 import org.apache.http.conn.socket.ConnectionSocketFactory;
 import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
-import org.apache.http.impl.conn.ManagedHttpClientConnectionFactory;
-import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.apache.http.impl.client.IdleConnectionEvictor;
 import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
 import org.glassfish.jersey.client.ClientProperties;
 import uk.gov.pay.commons.utils.xray.XRayHttpClientFilter;
@@ -20,20 +20,37 @@ import uk.gov.pay.connector.app.OperationOverrides;
 import uk.gov.pay.connector.filters.RestClientLoggingFilter;
 
 import javax.inject.Inject;
+import javax.inject.Singleton;
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLContext;
 import javax.ws.rs.client.Client;
 import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import static java.lang.String.format;
 import static org.glassfish.jersey.apache.connector.ApacheClientProperties.CONNECTION_MANAGER;
+import static org.glassfish.jersey.apache.connector.ApacheClientProperties.CONNECTION_MANAGER_SHARED;
 import static org.glassfish.jersey.client.ClientProperties.READ_TIMEOUT;
 
+/**
+ * Builds the Jersey clients used to talk to payment gateways. All clients for a gateway share one connection pool,
+ * and all pools share one TLS socket factory so TLS sessions are resumed, whichever operation is being performed.
+ * The read timeout of each operation is set on its client and applied by the connector to every request it sends.
+ */
+@Singleton
 public class ClientFactory {
     private final Environment environment;
     private final ConnectorConfiguration conf;
+    private final Registry<ConnectionSocketFactory> socketFactoryRegistry;
+    private final Map<PaymentGatewayName, GatewayConnectionManager> connectionManagers = new ConcurrentHashMap<>();
+    private final ExecutorService warmUpExecutor;
 
     private final static String PROXY_HOST_PROPERTY = "https.proxyHost";
     private final static String PROXY_PORT_PROPERTY = "https.proxyPort";
@@ -42,22 +59,29 @@ public class ClientFactory {
     public ClientFactory(Environment environment, ConnectorConfiguration conf) {
         this.environment = environment;
         this.conf = conf;
+        this.socketFactoryRegistry = createSocketFactoryRegistry();
+        this.warmUpExecutor = environment.lifecycle().executorService("gateway-connection-warm-up-%d")
+                .minThreads(1)
+                .maxThreads(1)
+                .build();
     }
 
     public Client createWithDropwizardClient(PaymentGatewayName gateway, GatewayOperation operation, MetricRegistry metricRegistry) {
-        return createWithDropwizardClient(gateway, getReadTimeout(operation, gateway), operation.getConfigKey(), metricRegistry);
+        return createWithDropwizardClient(gateway, getReadTimeout(operation, gateway), metricRegistry);
     }
 
     public Client createWithDropwizardClient(PaymentGatewayName gateway, MetricRegistry metricRegistry) {
-        return createWithDropwizardClient(gateway, conf.getCustomJerseyClient().getReadTimeout(), "all", metricRegistry);
+        return createWithDropwizardClient(gateway, conf.getCustomJerseyClient().getReadTimeout(), metricRegistry);
     }
 
-    private Client createWithDropwizardClient(PaymentGatewayName gateway, Duration readTimeout, String metricName, MetricRegistry metricRegistry) {
+    private Client createWithDropwizardClient(PaymentGatewayName gateway, Duration readTimeout, MetricRegistry metricRegistry) {
         JerseyClientBuilder defaultClientBuilder = new JerseyClientBuilder(environment)
                 .using(new ApacheConnectorProvider())
                 .using(conf.getClientConfiguration())
                 .withProperty(READ_TIMEOUT, (int) readTimeout.toMilliseconds())
-                .withProperty(CONNECTION_MANAGER, createConnectionManager(gateway.getName(), metricName, metricRegistry));
+                .withProperty(CONNECTION_MANAGER, connectionManagers.computeIfAbsent(gateway,
+                        paymentGatewayName -> createConnectionManager(paymentGatewayName, metricRegistry)))
+                .withProperty(CONNECTION_MANAGER_SHARED, true);
 
         if (System.getProperty(PROXY_HOST_PROPERTY) != null && System.getProperty(PROXY_PORT_PROPERTY) != null) {
             defaultClientBuilder.withProperty(ClientProperties.PROXY_URI, format("http://%s:%s",
@@ -86,8 +110,45 @@ public class ClientFactory {
                 .map(jerseyClientOverrides -> jerseyClientOverrides.getOverridesFor(operation));
     }
 
-    private HttpClientConnectionManager createConnectionManager(String gatewayName, String operation, MetricRegistry metricRegistry) {
+    private GatewayConnectionManager createConnectionManager(PaymentGatewayName gateway, MetricRegistry metricRegistry) {
+        JerseyClientConfiguration clientConfiguration = conf.getClientConfiguration();
+        long idleConnectionTimeoutMillis = conf.getCustomJerseyClient().getIdleConnectionTimeout().toMilliseconds();
+
+        var connectionManager = new GatewayConnectionManager(metricRegistry, socketFactoryRegistry,
+                clientConfiguration.getTimeToLive().toMilliseconds(), gateway.getName());
+        connectionManager.setMaxTotal(clientConfiguration.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(clientConfiguration.getMaxConnectionsPerRoute());
+        connectionManager.setValidateAfterInactivity((int) clientConfiguration.getValidateAfterInactivityPeriod().toMilliseconds());
+
+        var idleConnectionEvictor = new IdleConnectionEvictor(connectionManager, idleConnectionTimeoutMillis, TimeUnit.MILLISECONDS);
+        idleConnectionEvictor.start();
+        environment.lifecycle().manage(new Managed() {
+            @Override
+            public void start() {
+            }
+
+            @Override
+            public void stop() {
+                idleConnectionEvictor.shutdown();
+                connectionManager.shutdown();
+            }
+        });
+
+        int warmUpConnectionsPerHost = conf.getCustomJerseyClient().getWarmUpConnectionsPerHost();
+        if (warmUpConnectionsPerHost > 0 && System.getProperty(PROXY_HOST_PROPERTY) == null) {
+            CompletableFuture.runAsync(() -> connectionManager.warmUp(getUrls(gateway), warmUpConnectionsPerHost,
+                    (int) clientConfiguration.getConnectionTimeout().toMilliseconds(), idleConnectionTimeoutMillis), warmUpExecutor);
+        }
+
+        return connectionManager;
+    }
 
+    private Collection<String> getUrls(PaymentGatewayName gateway) {
+        if (gateway.equals(PaymentGatewayName.STRIPE)) return List.of(conf.getStripeConfig().getUrl());
+        return conf.getGatewayConfigFor(gateway).getUrls().values();
+    }
+
+    private static Registry<ConnectionSocketFactory> createSocketFactoryRegistry() {
         SSLConnectionSocketFactory sslConnectionSocketFactory;
         try {
             sslConnectionSocketFactory = new SSLConnectionSocketFactory(
@@ -100,19 +161,9 @@ public class ClientFactory {
             throw new RuntimeException("Unable to create SSL connection socket factory", e);
         }
 
-        return new InstrumentedHttpClientConnectionManager(
-                metricRegistry,
-                RegistryBuilder.<ConnectionSocketFactory>create()
-                        .register("http", PlainConnectionSocketFactory.getSocketFactory())
-                        .register("https", sslConnectionSocketFactory)
-                        .build(),
-                new ManagedHttpClientConnectionFactory(),
-                null,
-                SystemDefaultDnsResolver.INSTANCE,
-                -1,
-                TimeUnit.MILLISECONDS,
-                format("%s.%s", gatewayName, operation)
-        );
+        return RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", sslConnectionSocketFactory)
+                .build();
     }
 }
-
@@ -1,6 +1,5 @@
 package uk.gov.pay.connector.gateway;
 
-import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Stopwatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,6 +8,9 @@ import uk.gov.pay.connector.gateway.GatewayException.GatewayErrorException;
 import uk.gov.pay.connector.gateway.GatewayException.GenericGatewayException;
 import uk.gov.pay.connector.gateway.model.request.GatewayClientRequest;
 import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
+import uk.gov.pay.connector.metrics.AuthorisationStageTimings;
+import uk.gov.pay.connector.metrics.ConnectorMetrics;
+import uk.gov.pay.connector.metrics.StageTiming;
 
 import javax.ws.rs.ProcessingException;
 import javax.ws.rs.client.Client;
@@ -28,16 +30,17 @@ import static javax.ws.rs.core.Response.Status.Family.SUCCESSFUL;
 import static javax.ws.rs.core.Response.Status.Family.familyOf;
 import static javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR;
 import static javax.ws.rs.core.Response.Status.OK;
+import static uk.gov.pay.connector.metrics.AuthorisationStage.GATEWAY_CALL;
 
 public class GatewayClient {
     private static final Logger logger = LoggerFactory.getLogger(GatewayClient.class);
 
     private final Client client;
-    private final MetricRegistry metricRegistry;
+    private final ConnectorMetrics connectorMetrics;
 
-    public GatewayClient(Client client, MetricRegistry metricRegistry) {
+    public GatewayClient(Client client, ConnectorMetrics connectorMetrics) {
         this.client = client;
-        this.metricRegistry = metricRegistry;
+        this.connectorMetrics = connectorMetrics;
     }
 
     public GatewayClient.Response postRequestFor(URI url, GatewayAccountEntity account, GatewayOrder request, Map<String, String> headers)
@@ -57,7 +60,6 @@ public class GatewayClient {
                                                  Map<String, String> headers)
             throws GatewayException.GenericGatewayException, GatewayConnectionTimeoutException, GatewayErrorException {
 
-        String metricsPrefix = format("gateway-operations.%s.%s.%s", account.getGatewayName(), account.getType(), request.getOrderRequestType());
         javax.ws.rs.core.Response response = null;
 
         Stopwatch responseTimeStopwatch = Stopwatch.createStarted();
@@ -67,7 +69,9 @@ public class GatewayClient {
             Builder requestBuilder = client.target(url).request();
             headers.keySet().forEach(headerKey -> requestBuilder.header(headerKey, headers.get(headerKey)));
             cookies.forEach(cookie -> requestBuilder.header("Cookie", cookie.getName() + "=" + cookie.getValue()));
-            response = requestBuilder.post(Entity.entity(request.getPayload(), request.getMediaType()));
+            try (StageTiming ignored = AuthorisationStageTimings.time(GATEWAY_CALL)) {
+                response = requestBuilder.post(Entity.entity(request.getPayload(), request.getMediaType()));
+            }
             int statusCode = response.getStatus();
             Response gatewayResponse = new Response(response);
             if (familyOf(statusCode) == SUCCESSFUL) {
@@ -76,7 +80,7 @@ public class GatewayClient {
                 if (statusCode >= INTERNAL_SERVER_ERROR.getStatusCode()) {
                     logger.error("Gateway returned unexpected status code: {}, for gateway url={} with type {} with order request type {}",
                             statusCode, url, account.getType(), request.getOrderRequestType());
-                    incrementFailureCounter(metricRegistry, metricsPrefix);
+                    incrementFailureCounter(account, request);
                 } else {
                     logger.info("Gateway returned non-success status code: {}, for gateway url={} with type {} with order request type {}",
                             statusCode, url, account.getType(), request.getOrderRequestType());
@@ -84,7 +88,7 @@ public class GatewayClient {
                 throw new GatewayErrorException("Non-success HTTP status code " + statusCode + " from gateway", gatewayResponse.getEntity(), statusCode);
             }
         } catch (ProcessingException pe) {
-            incrementFailureCounter(metricRegistry, metricsPrefix);
+            incrementFailureCounter(account, request);
             if (pe.getCause() != null) {
                 if (pe.getCause() instanceof SocketTimeoutException) {
                     logger.error(format("Connection timed out error for gateway url=%s", url), pe);
@@ -96,20 +100,20 @@ public class GatewayClient {
         } catch (GatewayErrorException e) {
             throw e;
         } catch (Exception e) {
-            incrementFailureCounter(metricRegistry, metricsPrefix);
+            incrementFailureCounter(account, request);
             logger.error(format("Exception for gateway url=%s", url), e);
             throw new GatewayException.GenericGatewayException(e.getMessage());
         } finally {
             responseTimeStopwatch.stop();
-            metricRegistry.histogram(metricsPrefix + ".response_time").update(responseTimeStopwatch.elapsed(TimeUnit.MILLISECONDS));
+            connectorMetrics.gatewayResponseTime(account, request.getOrderRequestType(), responseTimeStopwatch.elapsed(TimeUnit.MILLISECONDS));
             if (response != null) {
                 response.close();
             }
         }
     }
 
-    private void incrementFailureCounter(MetricRegistry metricRegistry, String metricsPrefix) {
-        metricRegistry.counter(metricsPrefix + ".failures").inc();
+    private void incrementFailureCounter(GatewayAccountEntity account, GatewayOrder request) {
+        connectorMetrics.gatewayFailures(account, request.getOrderRequestType()).inc();
     }
 
     public static class Response {
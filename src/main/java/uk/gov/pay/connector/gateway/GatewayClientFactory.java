@@ -1,6 +1,7 @@
 package uk.gov.pay.connector.gateway;
 
 import com.codahale.metrics.MetricRegistry;
+import uk.gov.pay.connector.metrics.ConnectorMetrics;
 
 import javax.inject.Inject;
 import javax.ws.rs.client.Client;
@@ -8,22 +9,24 @@ import javax.ws.rs.client.Client;
 public class GatewayClientFactory {
 
     private final ClientFactory clientFactory;
+    private final ConnectorMetrics connectorMetrics;
 
     @Inject
-    public GatewayClientFactory(ClientFactory clientFactory) {
+    public GatewayClientFactory(ClientFactory clientFactory, ConnectorMetrics connectorMetrics) {
         this.clientFactory = clientFactory;
+        this.connectorMetrics = connectorMetrics;
     }
 
     public GatewayClient createGatewayClient(PaymentGatewayName gateway,
                                              GatewayOperation operation,
                                              MetricRegistry metricRegistry) {
         Client client = clientFactory.createWithDropwizardClient(gateway, operation, metricRegistry);
-        return new GatewayClient(client, metricRegistry);
+        return new GatewayClient(client, connectorMetrics);
     }
 
     public GatewayClient createGatewayClient(PaymentGatewayName gateway,
                                              MetricRegistry metricRegistry) {
         Client client = clientFactory.createWithDropwizardClient(gateway, metricRegistry);
-        return new GatewayClient(client, metricRegistry);
+        return new GatewayClient(client, connectorMetrics);
     }
 }
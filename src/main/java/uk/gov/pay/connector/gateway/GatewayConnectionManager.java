@@ -0,0 +1,138 @@
+package uk.gov.pay.connector.gateway;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.httpclient.InstrumentedHttpClientConnectionManager;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.config.Registry;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.UnsupportedSchemeException;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.impl.conn.DefaultSchemePortResolver;
+import org.apache.http.impl.conn.ManagedHttpClientConnectionFactory;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.apache.http.pool.PoolStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * A connection pool shared by every operation against one gateway. On top of the gauges of the instrumented
+ * connection manager it times how long requests wait to lease a connection and reports the leased share of the pool.
+ */
+class GatewayConnectionManager extends InstrumentedHttpClientConnectionManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GatewayConnectionManager.class);
+
+    private final MetricRegistry metricRegistry;
+    private final String poolName;
+    private final Timer leaseWaitTimer = new Timer();
+
+    GatewayConnectionManager(MetricRegistry metricRegistry,
+                             Registry<ConnectionSocketFactory> socketFactoryRegistry,
+                             long connectionTimeToLiveMillis,
+                             String name) {
+        super(metricRegistry,
+                socketFactoryRegistry,
+                new ManagedHttpClientConnectionFactory(),
+                null,
+                SystemDefaultDnsResolver.INSTANCE,
+                connectionTimeToLiveMillis,
+                TimeUnit.MILLISECONDS,
+                name);
+        this.metricRegistry = metricRegistry;
+        this.poolName = name;
+        metricRegistry.register(name(HttpClientConnectionManager.class, name, "lease-wait"), leaseWaitTimer);
+        metricRegistry.register(name(HttpClientConnectionManager.class, name, "utilisation"), new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                PoolStats totalStats = getTotalStats();
+                return Ratio.of(totalStats.getLeased(), totalStats.getMax());
+            }
+        });
+    }
+
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+        ConnectionRequest connectionRequest = super.requestConnection(route, state);
+        return new ConnectionRequest() {
+            @Override
+            public HttpClientConnection get(long timeout, TimeUnit timeUnit)
+                    throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                try (Timer.Context ignored = leaseWaitTimer.time()) {
+                    return connectionRequest.get(timeout, timeUnit);
+                }
+            }
+
+            @Override
+            public boolean cancel() {
+                return connectionRequest.cancel();
+            }
+        };
+    }
+
+    /**
+     * Opens, and hands back to the pool, up to the given number of connections to each url, so the first requests
+     * after startup do not pay for the TCP and TLS handshakes. A url that cannot be reached is logged and skipped.
+     * <p>
+     * The port is resolved from the scheme when the url has none, as the client does when it plans a request's
+     * route, so the warmed connections are pooled under the same route as the requests that will reuse them.
+     */
+    void warmUp(Collection<String> urls, int connectionsPerHost, int connectTimeoutMillis, long keepAliveMillis) {
+        for (String url : urls) {
+            HttpHost host = url == null || url.isBlank() ? null : URIUtils.extractHost(URI.create(url));
+            if (host == null) {
+                continue;
+            }
+            List<HttpClientConnection> connections = new ArrayList<>(connectionsPerHost);
+            try {
+                HttpRoute route = routeTo(host);
+                for (int i = 0; i < connectionsPerHost; i++) {
+                    HttpClientConnection connection = requestConnection(route, null).get(connectTimeoutMillis, TimeUnit.MILLISECONDS);
+                    connections.add(connection);
+                    if (!connection.isOpen()) {
+                        HttpClientContext context = HttpClientContext.create();
+                        connect(connection, route, connectTimeoutMillis, context);
+                        routeComplete(connection, route, context);
+                    }
+                }
+                LOGGER.info("Warmed up {} connections to {} for {}", connections.size(), host, poolName);
+            } catch (IOException | ExecutionException e) {
+                LOGGER.warn("Could not warm up connections to {} for {}: {}", host, poolName, e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                connections.forEach(connection -> releaseConnection(connection, null, keepAliveMillis, TimeUnit.MILLISECONDS));
+            }
+        }
+    }
+
+    private static HttpRoute routeTo(HttpHost host) throws UnsupportedSchemeException {
+        HttpHost target = new HttpHost(host.getHostName(), DefaultSchemePortResolver.INSTANCE.resolve(host),
+                host.getSchemeName());
+        return new HttpRoute(target, null, "https".equalsIgnoreCase(target.getSchemeName()));
+    }
+
+    @Override
+    public void shutdown() {
+        super.shutdown();
+        metricRegistry.remove(name(HttpClientConnectionManager.class, poolName, "lease-wait"));
+        metricRegistry.remove(name(HttpClientConnectionManager.class, poolName, "utilisation"));
+    }
+}
@@ -4,8 +4,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.gov.pay.connector.gateway.util.XMLUnmarshaller;
 import uk.gov.pay.connector.gateway.util.XMLUnmarshallerException;
+import uk.gov.pay.connector.metrics.AuthorisationStageTimings;
+import uk.gov.pay.connector.metrics.StageTiming;
 
 import static java.lang.String.format;
+import static uk.gov.pay.connector.metrics.AuthorisationStage.RESPONSE_UNMARSHAL;
 
 public class GatewayResponseUnmarshaller {
 
@@ -14,7 +17,7 @@ public class GatewayResponseUnmarshaller {
     public static <T> T unmarshallResponse(GatewayClient.Response response, Class<T> unmarshallingTarget) throws GatewayException.GatewayErrorException {
         String payload = response.getEntity();
         logger.debug("response payload={}", payload);
-        try {
+        try (StageTiming ignored = AuthorisationStageTimings.time(RESPONSE_UNMARSHAL)) {
             return XMLUnmarshaller.unmarshall(payload, unmarshallingTarget);
         } catch (XMLUnmarshallerException e) {
             String error = format("Could not unmarshall response %s.", payload);
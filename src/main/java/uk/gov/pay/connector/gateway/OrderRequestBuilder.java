@@ -3,11 +3,14 @@ package uk.gov.pay.connector.gateway;
 import uk.gov.pay.connector.gateway.model.AuthCardDetails;
 import uk.gov.pay.connector.gateway.model.OrderRequestType;
 import uk.gov.pay.connector.gateway.templates.PayloadBuilder;
+import uk.gov.pay.connector.metrics.AuthorisationStageTimings;
+import uk.gov.pay.connector.metrics.StageTiming;
 import uk.gov.pay.connector.wallets.model.WalletAuthorisationData;
 
 import javax.ws.rs.core.MediaType;
 
 import static org.apache.commons.lang3.StringUtils.defaultString;
+import static uk.gov.pay.connector.metrics.AuthorisationStage.PAYLOAD_BUILD;
 
 public abstract class OrderRequestBuilder {
     public static class TemplateData {
@@ -121,8 +124,10 @@ public abstract class OrderRequestBuilder {
     }
 
     public GatewayOrder build() {
-        return new GatewayOrder(
-                orderRequestType,
-                payloadBuilder.buildWith(templateData), getMediaType());
+        try (StageTiming ignored = AuthorisationStageTimings.time(PAYLOAD_BUILD)) {
+            return new GatewayOrder(
+                    orderRequestType,
+                    payloadBuilder.buildWith(templateData), getMediaType());
+        }
     }
 }
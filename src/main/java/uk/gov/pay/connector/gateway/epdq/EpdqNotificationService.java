@@ -15,6 +15,8 @@ import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
 import uk.gov.pay.connector.gatewayaccount.service.GatewayAccountService;
 import uk.gov.pay.connector.queue.QueueException;
 import uk.gov.pay.connector.refund.model.domain.RefundStatus;
+import uk.gov.pay.connector.webhook.model.NotificationKey;
+import uk.gov.pay.connector.webhook.service.NotificationDeduplicationService;
 
 import java.time.ZonedDateTime;
 import java.util.List;
@@ -47,18 +49,21 @@ public class EpdqNotificationService {
     private final ChargeNotificationProcessor chargeNotificationProcessor;
     private final RefundNotificationProcessor refundNotificationProcessor;
     private final GatewayAccountService gatewayAccountService;
+    private final NotificationDeduplicationService notificationDeduplicationService;
 
     @Inject
     public EpdqNotificationService(ChargeService chargeService,
                                    SignatureGenerator signatureGenerator,
                                    ChargeNotificationProcessor chargeNotificationProcessor,
                                    RefundNotificationProcessor refundNotificationProcessor,
-                                   GatewayAccountService gatewayAccountService) {
+                                   GatewayAccountService gatewayAccountService,
+                                   NotificationDeduplicationService notificationDeduplicationService) {
         this.chargeService = chargeService;
         this.signatureGenerator = signatureGenerator;
         this.chargeNotificationProcessor = chargeNotificationProcessor;
         this.refundNotificationProcessor = refundNotificationProcessor;
         this.gatewayAccountService = gatewayAccountService;
+        this.notificationDeduplicationService = notificationDeduplicationService;
     }
 
     @Transactional
@@ -81,6 +86,12 @@ public class EpdqNotificationService {
             return;
         }
 
+        NotificationKey notificationKey = NotificationKey.of(PaymentGatewayName.EPDQ, notification.getTransactionId(),
+                notification.getReference(), notification.getStatus(), null);
+        if (notificationDeduplicationService.isDuplicate(notificationKey)) {
+            return;
+        }
+
         Optional<Charge> maybeCharge = chargeService.findByProviderAndTransactionIdFromDbOrLedger(
                 PAYMENT_GATEWAY_NAME, notification.getTransactionId());
 
@@ -120,6 +131,7 @@ public class EpdqNotificationService {
             if(charge.isHistoric()){
                 if (CAPTURED.equals(newChargeStatus.get())) {
                     chargeNotificationProcessor.processCaptureNotificationForExpungedCharge(gatewayAccountEntity, notification.getTransactionId(), charge, newChargeStatus.get());
+                    notificationDeduplicationService.recordProcessed(notificationKey);
                     return;
                 }
                 
@@ -133,11 +145,14 @@ public class EpdqNotificationService {
                 return;
             }
             chargeNotificationProcessor.invoke(notification.getTransactionId(), charge, newChargeStatus.get(), null);
+            notificationDeduplicationService.recordProcessed(notificationKey);
         } else {
             final Optional<RefundStatus> newRefundStatus = newRefundStateForRefundNotification(notification.getStatus());
-            newRefundStatus.ifPresent(refundStatus -> refundNotificationProcessor.invoke(
-                    PaymentGatewayName.EPDQ, refundStatus, gatewayAccountEntity,
-                    notification.getReference(), notification.getTransactionId(), charge));
+            newRefundStatus.ifPresent(refundStatus -> {
+                refundNotificationProcessor.invoke(PaymentGatewayName.EPDQ, refundStatus, gatewayAccountEntity,
+                        notification.getReference(), notification.getTransactionId(), charge);
+                notificationDeduplicationService.recordProcessed(notificationKey);
+            });
         }
     }
 
@@ -7,12 +7,16 @@ import uk.gov.pay.connector.gateway.GatewayOrder;
 import uk.gov.pay.connector.gateway.epdq.EpdqSha512SignatureGenerator;
 import uk.gov.pay.connector.gateway.epdq.SignatureGenerator;
 import uk.gov.pay.connector.gateway.model.OrderRequestType;
+import uk.gov.pay.connector.metrics.AuthorisationStageTimings;
+import uk.gov.pay.connector.metrics.StageTiming;
 
 import javax.ws.rs.core.MediaType;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 
+import static uk.gov.pay.connector.metrics.AuthorisationStage.PAYLOAD_BUILD;
+
 public abstract class EpdqPayloadDefinition {
 
     private static final SignatureGenerator SIGNATURE_GENERATOR = new EpdqSha512SignatureGenerator();
@@ -32,15 +36,17 @@ public abstract class EpdqPayloadDefinition {
     protected abstract List<NameValuePair> extract();
 
     public GatewayOrder createGatewayOrder() {
-        ArrayList<NameValuePair> params = new ArrayList<>(extract());
-        String signature = SIGNATURE_GENERATOR.sign(params, getShaInPassphrase());
-        params.add(new BasicNameValuePair("SHASIGN", signature));
-        String payload = URLEncodedUtils.format(params, EPDQ_APPLICATION_X_WWW_FORM_URLENCODED_CHARSET);
-        return new GatewayOrder(
-                getOrderRequestType(),
-                payload,
-                MediaType.APPLICATION_FORM_URLENCODED_TYPE
-        );
+        try (StageTiming ignored = AuthorisationStageTimings.time(PAYLOAD_BUILD)) {
+            ArrayList<NameValuePair> params = new ArrayList<>(extract());
+            String signature = SIGNATURE_GENERATOR.sign(params, getShaInPassphrase());
+            params.add(new BasicNameValuePair("SHASIGN", signature));
+            String payload = URLEncodedUtils.format(params, EPDQ_APPLICATION_X_WWW_FORM_URLENCODED_CHARSET);
+            return new GatewayOrder(
+                    getOrderRequestType(),
+                    payload,
+                    MediaType.APPLICATION_FORM_URLENCODED_TYPE
+            );
+        }
     }
 
     protected abstract OrderRequestType getOrderRequestType();
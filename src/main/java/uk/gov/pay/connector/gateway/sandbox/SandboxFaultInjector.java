@@ -0,0 +1,109 @@
+package uk.gov.pay.connector.gateway.sandbox;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.config.SandboxConfig;
+import uk.gov.pay.connector.app.config.SandboxOperationProfile;
+import uk.gov.pay.connector.app.config.SandboxProfile;
+import uk.gov.pay.connector.gateway.GatewayException;
+import uk.gov.pay.connector.gateway.GatewayException.GatewayConnectionTimeoutException;
+import uk.gov.pay.connector.gateway.GatewayException.GatewayErrorException;
+import uk.gov.pay.connector.gateway.GatewayOperation;
+import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import static javax.ws.rs.core.Response.Status.SERVICE_UNAVAILABLE;
+
+/**
+ * Makes sandbox operations behave like a real gateway for accounts whose sandbox_profile credential names one of the
+ * configured profiles: it waits for a latency drawn from the profile and then either returns, or fails the way the
+ * gateway client does on a 5xx response or a read timeout.
+ */
+@Singleton
+public class SandboxFaultInjector {
+
+    public static final String SANDBOX_PROFILE_KEY = "sandbox_profile";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SandboxFaultInjector.class);
+    private static final double Z_SCORE_OF_P99 = 2.3263;
+
+    private final Map<String, SandboxProfile> profiles;
+    private final Supplier<Random> random;
+
+    @Inject
+    public SandboxFaultInjector(ConnectorConfiguration connectorConfiguration) {
+        this(connectorConfiguration.getSandboxConfig(), ThreadLocalRandom::current);
+    }
+
+    SandboxFaultInjector(SandboxConfig sandboxConfig, Supplier<Random> random) {
+        this.profiles = sandboxConfig.getProfiles();
+        this.random = random;
+    }
+
+    public void apply(GatewayOperation operation, GatewayAccountEntity gatewayAccount) throws GatewayException {
+        Optional<SandboxOperationProfile> maybeOperationProfile = getOperationProfile(operation, gatewayAccount);
+        if (maybeOperationProfile.isEmpty()) {
+            return;
+        }
+        SandboxOperationProfile operationProfile = maybeOperationProfile.get();
+
+        double outcome = random.get().nextDouble();
+        if (outcome < operationProfile.getTimeoutRate()) {
+            sleep(operationProfile.getTimeout().toMilliseconds());
+            throw new GatewayConnectionTimeoutException("Gateway connection timeout error");
+        }
+
+        sleep(sampleLatencyMillis(operationProfile));
+
+        if (outcome < operationProfile.getTimeoutRate() + operationProfile.getErrorRate()) {
+            throw new GatewayErrorException("Non-success HTTP status code " + SERVICE_UNAVAILABLE.getStatusCode() + " from gateway",
+                    SERVICE_UNAVAILABLE.getReasonPhrase(), SERVICE_UNAVAILABLE.getStatusCode());
+        }
+    }
+
+    private Optional<SandboxOperationProfile> getOperationProfile(GatewayOperation operation, GatewayAccountEntity gatewayAccount) {
+        String profileName = Optional.ofNullable(gatewayAccount)
+                .map(GatewayAccountEntity::getCredentials)
+                .map(credentials -> credentials.get(SANDBOX_PROFILE_KEY))
+                .orElse(null);
+        if (profileName == null) {
+            return Optional.empty();
+        }
+
+        SandboxProfile profile = profiles.get(profileName);
+        if (profile == null) {
+            LOGGER.warn("Sandbox gateway account {} uses unknown sandbox profile [{}]", gatewayAccount.getId(), profileName);
+            return Optional.empty();
+        }
+        return Optional.ofNullable(profile.getProfileFor(operation));
+    }
+
+    private long sampleLatencyMillis(SandboxOperationProfile operationProfile) {
+        long medianMillis = operationProfile.getMedianLatency().toMilliseconds();
+        long p99Millis = operationProfile.getP99Latency().toMilliseconds();
+        if (medianMillis <= 0) {
+            return 0;
+        }
+        double sigma = p99Millis > medianMillis ? Math.log((double) p99Millis / medianMillis) / Z_SCORE_OF_P99 : 0;
+        return Math.round(medianMillis * Math.exp(sigma * random.get().nextGaussian()));
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -3,7 +3,9 @@ package uk.gov.pay.connector.gateway.sandbox;
 import uk.gov.pay.connector.charge.model.domain.Charge;
 import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
 import uk.gov.pay.connector.common.model.api.ExternalChargeRefundAvailability;
+import uk.gov.pay.connector.app.config.SandboxConfig;
 import uk.gov.pay.connector.gateway.CaptureResponse;
+import uk.gov.pay.connector.gateway.GatewayException;
 import uk.gov.pay.connector.gateway.PaymentGatewayName;
 import uk.gov.pay.connector.gateway.PaymentProvider;
 import uk.gov.pay.connector.gateway.ChargeQueryResponse;
@@ -27,12 +29,18 @@ import uk.gov.pay.connector.refund.model.domain.Refund;
 import uk.gov.pay.connector.refund.model.domain.RefundEntity;
 import uk.gov.pay.connector.wallets.WalletAuthorisationGatewayRequest;
 
+import javax.inject.Inject;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
 
 import static java.util.UUID.randomUUID;
 import static uk.gov.pay.connector.gateway.CaptureResponse.ChargeState.COMPLETE;
 import static uk.gov.pay.connector.gateway.CaptureResponse.fromBaseCaptureResponse;
+import static uk.gov.pay.connector.gateway.GatewayOperation.AUTHORISE;
+import static uk.gov.pay.connector.gateway.GatewayOperation.CANCEL;
+import static uk.gov.pay.connector.gateway.GatewayOperation.CAPTURE;
+import static uk.gov.pay.connector.gateway.GatewayOperation.REFUND;
 import static uk.gov.pay.connector.gateway.PaymentGatewayName.SANDBOX;
 import static uk.gov.pay.connector.gateway.model.response.GatewayResponse.GatewayResponseBuilder.responseBuilder;
 
@@ -42,9 +50,17 @@ public class SandboxPaymentProvider implements PaymentProvider, SandboxGatewayRe
 
     private SandboxWalletAuthorisationHandler sandboxWalletAuthorisationHandler;
 
+    private final SandboxFaultInjector sandboxFaultInjector;
+
     public SandboxPaymentProvider() {
+        this(new SandboxFaultInjector(new SandboxConfig(), ThreadLocalRandom::current));
+    }
+
+    @Inject
+    public SandboxPaymentProvider(SandboxFaultInjector sandboxFaultInjector) {
         this.externalRefundAvailabilityCalculator = new DefaultExternalRefundAvailabilityCalculator();
         this.sandboxWalletAuthorisationHandler = new SandboxWalletAuthorisationHandler();
+        this.sandboxFaultInjector = sandboxFaultInjector;
     }
 
     @Override
@@ -54,6 +70,11 @@ public class SandboxPaymentProvider implements PaymentProvider, SandboxGatewayRe
     
     @Override
     public GatewayResponse<BaseAuthoriseResponse> authorise(CardAuthorisationGatewayRequest request) {
+        try {
+            sandboxFaultInjector.apply(AUTHORISE, request.getGatewayAccount());
+        } catch (GatewayException e) {
+            return GatewayResponseBuilder.<BaseAuthoriseResponse>responseBuilder().withGatewayError(e.toGatewayError()).build();
+        }
         String cardNumber = request.getAuthCardDetails().getCardNo();
         return getSandboxGatewayResponse(cardNumber);
     }
@@ -70,11 +91,21 @@ public class SandboxPaymentProvider implements PaymentProvider, SandboxGatewayRe
 
     @Override
     public GatewayResponse<BaseAuthoriseResponse> authoriseWallet(WalletAuthorisationGatewayRequest request) {
+        try {
+            sandboxFaultInjector.apply(AUTHORISE, request.getGatewayAccount());
+        } catch (GatewayException e) {
+            return GatewayResponseBuilder.<BaseAuthoriseResponse>responseBuilder().withGatewayError(e.toGatewayError()).build();
+        }
         return sandboxWalletAuthorisationHandler.authorise(request);
     }
 
     @Override
     public CaptureResponse capture(CaptureGatewayRequest request) {
+        try {
+            sandboxFaultInjector.apply(CAPTURE, request.getGatewayAccount());
+        } catch (GatewayException e) {
+            return CaptureResponse.fromGatewayError(e.toGatewayError());
+        }
         return fromBaseCaptureResponse(BaseCaptureResponse.fromTransactionId(randomUUID().toString(), SANDBOX), COMPLETE);
     }
 
@@ -90,11 +121,21 @@ public class SandboxPaymentProvider implements PaymentProvider, SandboxGatewayRe
 
     @Override
     public GatewayResponse<BaseCancelResponse> cancel(CancelGatewayRequest request) {
+        try {
+            sandboxFaultInjector.apply(CANCEL, request.getGatewayAccount());
+        } catch (GatewayException e) {
+            return GatewayResponseBuilder.<BaseCancelResponse>responseBuilder().withGatewayError(e.toGatewayError()).build();
+        }
         return createGatewayBaseCancelResponse();
     }
 
     @Override
     public GatewayRefundResponse refund(RefundGatewayRequest request) {
+        try {
+            sandboxFaultInjector.apply(REFUND, request.getGatewayAccount());
+        } catch (GatewayException e) {
+            return GatewayRefundResponse.fromGatewayError(e.toGatewayError());
+        }
         return GatewayRefundResponse.fromBaseRefundResponse(BaseRefundResponse.fromReference(randomUUID().toString(), SANDBOX),
                 GatewayRefundResponse.RefundState.COMPLETE);
     }
@@ -1,6 +1,7 @@
 package uk.gov.pay.connector.gateway.smartpay;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.google.inject.persist.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,6 +14,8 @@ import uk.gov.pay.connector.gateway.processor.ChargeNotificationProcessor;
 import uk.gov.pay.connector.gateway.processor.RefundNotificationProcessor;
 import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
 import uk.gov.pay.connector.gatewayaccount.service.GatewayAccountService;
+import uk.gov.pay.connector.webhook.model.NotificationKey;
+import uk.gov.pay.connector.webhook.service.NotificationDeduplicationService;
 
 import javax.inject.Inject;
 import java.util.Collections;
@@ -33,18 +36,22 @@ public class SmartpayNotificationService {
     private final GatewayAccountService gatewayAccountService;
     private final ChargeNotificationProcessor chargeNotificationProcessor;
     private final RefundNotificationProcessor refundNotificationProcessor;
+    private final NotificationDeduplicationService notificationDeduplicationService;
 
     private static final String PAYMENT_GATEWAY_NAME = SMARTPAY.getName();
+    private static final ObjectReader NOTIFICATION_LIST_READER = new ObjectMapper().readerFor(SmartpayNotificationList.class);
 
     @Inject
     public SmartpayNotificationService(ChargeService chargeService,
                                        ChargeNotificationProcessor chargeNotificationProcessor,
                                        RefundNotificationProcessor refundNotificationProcessor,
-                                       GatewayAccountService gatewayAccountService) {
+                                       GatewayAccountService gatewayAccountService,
+                                       NotificationDeduplicationService notificationDeduplicationService) {
         this.chargeService = chargeService;
         this.chargeNotificationProcessor = chargeNotificationProcessor;
         this.refundNotificationProcessor = refundNotificationProcessor;
         this.gatewayAccountService = gatewayAccountService;
+        this.notificationDeduplicationService = notificationDeduplicationService;
     }
 
     @Transactional
@@ -69,6 +76,13 @@ public class SmartpayNotificationService {
             return;
         }
 
+        NotificationKey notificationKey = NotificationKey.of(SMARTPAY, notification.getOriginalReference(),
+                notification.getPspReference(), notification.getEventCode() + ":" + notification.isSuccessFul(),
+                notification.getEventDate());
+        if (notificationDeduplicationService.isDuplicate(notificationKey)) {
+            return;
+        }
+
         logger.info("Evaluating {} notification {}", PAYMENT_GATEWAY_NAME, notification);
 
         Optional<Charge> maybeCharge = chargeService.findByProviderAndTransactionIdFromDbOrLedger(PAYMENT_GATEWAY_NAME,
@@ -113,6 +127,7 @@ public class SmartpayNotificationService {
                     interpretedStatus.getChargeStatus(),
                     notification.getEventDate()
             );
+            notificationDeduplicationService.recordProcessed(notificationKey);
         } else if (interpretedStatus instanceof MappedRefundStatus) {
             refundNotificationProcessor.invoke(
                     SMARTPAY,
@@ -122,6 +137,7 @@ public class SmartpayNotificationService {
                     notification.getOriginalReference(),
                     charge
             );
+            notificationDeduplicationService.recordProcessed(notificationKey);
         } else {
             logger.error("{} notification {} unknown", PAYMENT_GATEWAY_NAME, notification);
         }
@@ -156,13 +172,12 @@ public class SmartpayNotificationService {
 
     private List<SmartpayNotification> parseNotification(String payload) throws SmartpayParseException {
         try {
-            ObjectMapper objectMapper = new ObjectMapper();
             // TODO for authorisation notifications, this does the wrong thing
             // Transaction ID is pspReference, not originalReference as the code below assumes
             // https://www.barclaycard.co.uk/business/files/SmartPay_Notifications_Guide.pdf
             // We will set the transaction ID to blank, which makes the notification effectively useless
             // This is OK at the moment because we ignore authorisation notifications for Smartpay
-            return objectMapper.readValue(payload, SmartpayNotificationList.class)
+            return NOTIFICATION_LIST_READER.<SmartpayNotificationList>readValue(payload)
                     .getNotifications();
         } catch (Exception e) {
             throw new SmartpayParseException(e);
@@ -16,21 +16,31 @@ import static java.lang.String.format;
 public class SmartpayAccountSpecificAuthenticator implements Authenticator<BasicCredentials, BasicAuthUser> {
     private GatewayAccountDao gatewayAccountDao;
     private HashUtil hashUtil;
+    private VerifiedNotificationCredentialsCache verifiedCredentialsCache;
     private static final Logger logger = LoggerFactory.getLogger(SmartpayAccountSpecificAuthenticator.class);
 
     @Inject
-    public SmartpayAccountSpecificAuthenticator(GatewayAccountDao gatewayAccountDao, HashUtil hashUtil) {
+    public SmartpayAccountSpecificAuthenticator(GatewayAccountDao gatewayAccountDao, HashUtil hashUtil,
+                                                VerifiedNotificationCredentialsCache verifiedCredentialsCache) {
         this.gatewayAccountDao = gatewayAccountDao;
         this.hashUtil = hashUtil;
-
+        this.verifiedCredentialsCache = verifiedCredentialsCache;
     }
 
     @Override
     public Optional<BasicAuthUser> authenticate(BasicCredentials basicCredentials) {
+        Optional<BasicAuthUser> verifiedUser = verifiedCredentialsCache.getIfVerified(basicCredentials);
+        if (verifiedUser.isPresent()) {
+            return verifiedUser;
+        }
 
         return gatewayAccountDao.findByNotificationCredentialsUsername(basicCredentials.getUsername())
                 .filter((gatewayAccountEntity) -> matchCredentials(basicCredentials, gatewayAccountEntity))
-                .map(gatewayAccountEntity -> Optional.ofNullable(gatewayAccountEntity.getNotificationCredentials().toBasicAuthUser()))
+                .map(gatewayAccountEntity -> {
+                    BasicAuthUser user = gatewayAccountEntity.getNotificationCredentials().toBasicAuthUser();
+                    verifiedCredentialsCache.putVerified(basicCredentials, user);
+                    return Optional.ofNullable(user);
+                })
                 .orElseGet(() -> {
                     logger.error(format("Authentication failure: failed for smartpay username %s", basicCredentials));
                     return Optional.empty();
@@ -0,0 +1,80 @@
+package uk.gov.pay.connector.gateway.smartpay.auth;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.dropwizard.auth.basic.BasicCredentials;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.inject.Singleton;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Remembers notification credentials that have recently passed the (deliberately slow) BCrypt check, so bursts of
+ * notifications do not repeat it for every request. Only a keyed digest of the password is held, with a key that never
+ * leaves the process. Entries are short-lived so a credential change made on another node is picked up quickly, and
+ * are dropped straight away when the credentials are changed on this node.
+ */
+@Singleton
+public class VerifiedNotificationCredentialsCache {
+
+    private static final long VERIFIED_CREDENTIALS_TTL_SECONDS = 60;
+    private static final long MAXIMUM_CACHED_CREDENTIALS = 1000;
+    private static final String DIGEST_ALGORITHM = "HmacSHA256";
+
+    private final Cache<String, VerifiedCredentials> verifiedCredentials = CacheBuilder.newBuilder()
+            .expireAfterWrite(VERIFIED_CREDENTIALS_TTL_SECONDS, TimeUnit.SECONDS)
+            .maximumSize(MAXIMUM_CACHED_CREDENTIALS)
+            .build();
+    private final SecretKey digestKey;
+
+    public VerifiedNotificationCredentialsCache() {
+        try {
+            digestKey = KeyGenerator.getInstance(DIGEST_ALGORITHM).generateKey();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to create key for notification credentials digest", e);
+        }
+    }
+
+    public Optional<BasicAuthUser> getIfVerified(BasicCredentials credentials) {
+        return Optional.ofNullable(verifiedCredentials.getIfPresent(credentials.getUsername()))
+                .filter(verified -> MessageDigest.isEqual(verified.passwordDigest, digest(credentials.getPassword())))
+                .map(verified -> verified.user);
+    }
+
+    public void putVerified(BasicCredentials credentials, BasicAuthUser user) {
+        verifiedCredentials.put(credentials.getUsername(), new VerifiedCredentials(digest(credentials.getPassword()), user));
+    }
+
+    public void invalidate(String username) {
+        if (username != null) {
+            verifiedCredentials.invalidate(username);
+        }
+    }
+
+    private byte[] digest(String password) {
+        try {
+            Mac mac = Mac.getInstance(DIGEST_ALGORITHM);
+            mac.init(digestKey);
+            return mac.doFinal(password.getBytes(UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to digest notification credentials", e);
+        }
+    }
+
+    private static class VerifiedCredentials {
+        private final byte[] passwordDigest;
+        private final BasicAuthUser user;
+
+        private VerifiedCredentials(byte[] passwordDigest, BasicAuthUser user) {
+            this.passwordDigest = passwordDigest;
+            this.user = user;
+        }
+    }
+}
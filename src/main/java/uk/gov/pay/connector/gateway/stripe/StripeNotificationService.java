@@ -11,7 +11,6 @@ import uk.gov.pay.connector.app.StripeGatewayConfig;
 import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
 import uk.gov.pay.connector.charge.model.domain.ChargeStatus;
 import uk.gov.pay.connector.charge.service.ChargeService;
-import uk.gov.pay.connector.common.exception.OperationAlreadyInProgressRuntimeException;
 import uk.gov.pay.connector.events.model.payout.PayoutEvent;
 import uk.gov.pay.connector.gateway.PaymentGatewayName;
 import uk.gov.pay.connector.gateway.model.Auth3dsResult;
@@ -19,13 +18,14 @@ import uk.gov.pay.connector.gateway.stripe.json.StripePaymentIntent;
 import uk.gov.pay.connector.gateway.stripe.json.StripePayout;
 import uk.gov.pay.connector.gateway.stripe.json.StripeSourcesResponse;
 import uk.gov.pay.connector.gateway.stripe.response.StripeNotification;
-import uk.gov.pay.connector.paymentprocessor.service.Card3dsResponseAuthService;
+import uk.gov.pay.connector.paymentprocessor.service.Deferred3dsAuthorisationService;
 import uk.gov.pay.connector.payout.PayoutEmitterService;
 import uk.gov.pay.connector.queue.QueueException;
 import uk.gov.pay.connector.queue.payout.Payout;
 import uk.gov.pay.connector.queue.payout.PayoutReconcileQueue;
 
 import javax.ws.rs.WebApplicationException;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
@@ -71,7 +71,7 @@ public class StripeNotificationService {
     private final List<ChargeStatus> threeDSAuthorisableStates = List.of(AUTHORISATION_3DS_REQUIRED, AUTHORISATION_3DS_READY);
 
     private final ChargeService chargeService;
-    private final Card3dsResponseAuthService card3dsResponseAuthService;
+    private final Deferred3dsAuthorisationService deferred3dsAuthorisationService;
     private final ObjectMapper objectMapper;
     private final StripeGatewayConfig stripeGatewayConfig;
     private final StripeAccountUpdatedHandler stripeAccountUpdatedHandler;
@@ -82,13 +82,13 @@ public class StripeNotificationService {
     private static final long DEFAULT_TOLERANCE = 300L;
 
     @Inject
-    public StripeNotificationService(Card3dsResponseAuthService card3dsResponseAuthService,
+    public StripeNotificationService(Deferred3dsAuthorisationService deferred3dsAuthorisationService,
                                      ChargeService chargeService,
                                      StripeGatewayConfig stripeGatewayConfig,
                                      StripeAccountUpdatedHandler stripeAccountUpdatedHandler,
                                      PayoutReconcileQueue payoutReconcileQueue,
                                      PayoutEmitterService payoutEmitterService) {
-        this.card3dsResponseAuthService = card3dsResponseAuthService;
+        this.deferred3dsAuthorisationService = deferred3dsAuthorisationService;
         this.chargeService = chargeService;
         this.stripeAccountUpdatedHandler = stripeAccountUpdatedHandler;
         this.payoutReconcileQueue = payoutReconcileQueue;
@@ -98,11 +98,22 @@ public class StripeNotificationService {
     }
 
     public void handleNotificationFor(String payload, String signatureHeader) {
-        logger.info("Parsing {} notification", PAYMENT_GATEWAY_NAME);
+        verifySignature(payload, signatureHeader);
+        processNotification(payload);
+    }
 
+    public void verifySignature(String payload, String signatureHeader) {
         if (!isValidNotificationSignature(payload, signatureHeader)) {
             throw new WebApplicationException(format("Invalid notification signature from %s [%s]", PAYMENT_GATEWAY_NAME, signatureHeader));
         }
+    }
+
+    /**
+     * Processes a notification whose signature has already been verified. Signatures are only valid for a few minutes,
+     * so notifications processed later from the notification inbox are verified when they are received instead.
+     */
+    public void processNotification(String payload) {
+        logger.info("Parsing {} notification", PAYMENT_GATEWAY_NAME);
 
         StripeNotification notification;
         try {
@@ -196,7 +207,7 @@ public class StripeNotificationService {
             }
 
             if (isChargeIn3DSRequiredOrReadyState(ChargeStatus.fromString(charge.getStatus()))) {
-                executePost3DSAuthorisation(charge, notification.getType());
+                executePost3DSAuthorisation(charge, notification);
             }
 
         } catch (StripeParseException e) {
@@ -246,7 +257,7 @@ public class StripeNotificationService {
             ChargeEntity charge = maybeCharge.get();
 
             if (isChargeIn3DSRequiredOrReadyState(ChargeStatus.fromString(charge.getStatus()))) {
-                executePost3DSAuthorisation(charge, notification.getType());
+                executePost3DSAuthorisation(charge, notification);
             }
 
         } catch (StripeParseException e) {
@@ -254,39 +265,16 @@ public class StripeNotificationService {
         }
     }
 
-    private void executePost3DSAuthorisation(ChargeEntity charge, String notificationEventType) {
-        try {
-            final StripeNotificationType type = byType(notificationEventType);
-
-            Auth3dsResult auth3DsResult = new Auth3dsResult();
-            auth3DsResult.setAuth3dsResult(getMappedAuth3dsResult(type));
+    private void executePost3DSAuthorisation(ChargeEntity charge, StripeNotification notification) {
+        final StripeNotificationType type = byType(notification.getType());
 
-            delayFor3dsReady(charge);
-            card3dsResponseAuthService.process3DSecureAuthorisationWithoutLocking(charge.getExternalId(), auth3DsResult);
-        } catch (OperationAlreadyInProgressRuntimeException e) {
-            // CardExecutorService is asynchronous and sends back 'OperationAlreadyInProgressRuntimeException' 
-            // exception while the charge is being authorised. Catch this exception to send a response with 
-            // http status 200 instead of depending on the status returned by Exception 
-        }
-    }
+        Auth3dsResult auth3DsResult = new Auth3dsResult();
+        auth3DsResult.setAuth3dsResult(getMappedAuth3dsResult(type));
 
-    private void delayFor3dsReady(ChargeEntity charge) {
-        int totalTimeDelayedInMillis = 0;
-        int delayInMillis = 200;
-        while (totalTimeDelayedInMillis < stripeGatewayConfig.getNotification3dsWaitDelay()) {
-            ChargeEntity chargeEntity = chargeService.findChargeByExternalId(charge.getExternalId());
-            if (ChargeStatus.fromString(chargeEntity.getStatus()) == AUTHORISATION_3DS_READY) {
-                break;
-            }
-            try {
-                Thread.sleep(delayInMillis);
-            } catch (InterruptedException e) {
-                logger.error("Waiting for 3ds ready locking state failed, {}", kv("error", e.getMessage()));
-            }
-            totalTimeDelayedInMillis += delayInMillis;
-        }
-        logger.info("Total time waited for Frontend to update charge [{}] to 3ds ready - {} milliseconds,"
-                , kv(PAYMENT_EXTERNAL_ID, charge.getExternalId()), totalTimeDelayedInMillis);
+        // frontend may not have moved the charge to 3DS ready yet, in which case the notification is turned away to be
+        // retried (until the wait runs out), and any failure propagates so that the notification is retried
+        deferred3dsAuthorisationService.authoriseWhen3dsReady(charge, auth3DsResult, notification.getCreated(),
+                Duration.ofMillis(stripeGatewayConfig.getNotification3dsWaitDelay()));
     }
 
     private boolean isASourceNotification(StripeNotification notification) {
@@ -9,6 +9,8 @@ import uk.gov.pay.connector.gateway.model.OrderRequestType;
 import uk.gov.pay.connector.gateway.model.request.GatewayClientRequest;
 import uk.gov.pay.connector.gateway.util.AuthUtil;
 import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
+import uk.gov.pay.connector.metrics.AuthorisationStageTimings;
+import uk.gov.pay.connector.metrics.StageTiming;
 
 import java.net.URI;
 import java.util.Collections;
@@ -20,6 +22,7 @@ import java.util.stream.Collectors;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static javax.ws.rs.core.MediaType.APPLICATION_FORM_URLENCODED_TYPE;
+import static uk.gov.pay.connector.metrics.AuthorisationStage.PAYLOAD_BUILD;
 
 public abstract class StripeRequest implements GatewayClientRequest {
 
@@ -62,23 +65,25 @@ public abstract class StripeRequest implements GatewayClientRequest {
     }
 
     public final GatewayOrder getGatewayOrder() {
-        Map<String, String> params = params();
-        List<BasicNameValuePair> paramsList = params.keySet().stream()
-                .map(key -> new BasicNameValuePair(key, params.get(key)))
-                .collect(Collectors.toUnmodifiableList());
-        
-        List<BasicNameValuePair> expansionList = expansionFields().stream()
-                .map(fieldName -> new BasicNameValuePair("expand[]", fieldName))
-                .collect(Collectors.toUnmodifiableList());
-
-        List<BasicNameValuePair> result = new ImmutableList.Builder<BasicNameValuePair>()
-                .addAll(paramsList)
-                .addAll(expansionList)
-                .build();
-        
-        String payload = URLEncodedUtils.format(result, UTF_8);
+        try (StageTiming ignored = AuthorisationStageTimings.time(PAYLOAD_BUILD)) {
+            Map<String, String> params = params();
+            List<BasicNameValuePair> paramsList = params.keySet().stream()
+                    .map(key -> new BasicNameValuePair(key, params.get(key)))
+                    .collect(Collectors.toUnmodifiableList());
+
+            List<BasicNameValuePair> expansionList = expansionFields().stream()
+                    .map(fieldName -> new BasicNameValuePair("expand[]", fieldName))
+                    .collect(Collectors.toUnmodifiableList());
 
-        return new GatewayOrder(orderRequestType(), payload, APPLICATION_FORM_URLENCODED_TYPE);
+            List<BasicNameValuePair> result = new ImmutableList.Builder<BasicNameValuePair>()
+                    .addAll(paramsList)
+                    .addAll(expansionList)
+                    .build();
+
+            String payload = URLEncodedUtils.format(result, UTF_8);
+
+            return new GatewayOrder(orderRequestType(), payload, APPLICATION_FORM_URLENCODED_TYPE);
+        }
     }
     
     protected Map<String, String> headers() {
@@ -14,7 +14,9 @@ import uk.gov.pay.connector.gateway.util.XMLUnmarshallerException;
 import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
 import uk.gov.pay.connector.gatewayaccount.service.GatewayAccountService;
 import uk.gov.pay.connector.refund.model.domain.RefundStatus;
-import uk.gov.pay.connector.util.DnsUtils;
+import uk.gov.pay.connector.util.IpDomainVerificationCache;
+import uk.gov.pay.connector.webhook.model.NotificationKey;
+import uk.gov.pay.connector.webhook.service.NotificationDeduplicationService;
 
 import javax.inject.Inject;
 import java.util.List;
@@ -45,36 +47,46 @@ public class WorldpayNotificationService {
 
     private final ChargeService chargeService;
     private final WorldpayNotificationConfiguration config;
-    private final DnsUtils dnsUtils;
+    private final IpDomainVerificationCache ipDomainVerificationCache;
     private final ChargeNotificationProcessor chargeNotificationProcessor;
     private final RefundNotificationProcessor refundNotificationProcessor;
     private GatewayAccountService gatewayAccountService;
+    private final NotificationDeduplicationService notificationDeduplicationService;
 
     @Inject
     public WorldpayNotificationService(
             ChargeService chargeService,
             WorldpayNotificationConfiguration config,
-            DnsUtils dnsUtils,
+            IpDomainVerificationCache ipDomainVerificationCache,
             ChargeNotificationProcessor chargeNotificationProcessor,
             RefundNotificationProcessor refundNotificationProcessor,
-            GatewayAccountService gatewayAccountService) {
+            GatewayAccountService gatewayAccountService,
+            NotificationDeduplicationService notificationDeduplicationService) {
         this.chargeService = chargeService;
         this.config = config;
-        this.dnsUtils = dnsUtils;
+        this.ipDomainVerificationCache = ipDomainVerificationCache;
 
         this.chargeNotificationProcessor = chargeNotificationProcessor;
         this.refundNotificationProcessor = refundNotificationProcessor;
         this.gatewayAccountService = gatewayAccountService;
+        this.notificationDeduplicationService = notificationDeduplicationService;
     }
 
-    @Transactional
-    public boolean handleNotificationFor(String ipAddress, String payload) {
+    /**
+     * Checked before {@link #handleNotificationFor(String)} rather than inside it, so that the DNS lookups do not
+     * hold a database transaction open.
+     */
+    public boolean isNotificationFromPermittedSource(String ipAddress) {
         if (isNotificationRejectedFromIpAddress(ipAddress)) {
             logger.error("{} notification received from ip '{}' which is not in domain '{}'", PAYMENT_GATEWAY_NAME,
                     ipAddress, notificationDomain());
             return false;
         }
+        return true;
+    }
 
+    @Transactional
+    public boolean handleNotificationFor(String payload) {
         WorldpayNotification notification;
         try {
             logger.info("Parsing {} notification", PAYMENT_GATEWAY_NAME);
@@ -97,6 +109,12 @@ public class WorldpayNotificationService {
             return true;
         }
 
+        NotificationKey notificationKey = NotificationKey.of(PaymentGatewayName.WORLDPAY, notification.getTransactionId(),
+                notification.getReference(), notification.getStatus(), notification.getGatewayEventDate());
+        if (notificationDeduplicationService.isDuplicate(notificationKey)) {
+            return true;
+        }
+
         Optional<Charge> maybeCharge = chargeService.findByProviderAndTransactionIdFromDbOrLedger(
                 PAYMENT_GATEWAY_NAME, notification.getTransactionId());
 
@@ -135,9 +153,11 @@ public class WorldpayNotificationService {
                 return false;
             }
             chargeNotificationProcessor.invoke(notification.getTransactionId(), charge, CAPTURED, notification.getGatewayEventDate());
+            notificationDeduplicationService.recordProcessed(notificationKey);
         } else if (isRefundNotification(notification)) {
             refundNotificationProcessor.invoke(PaymentGatewayName.WORLDPAY, newRefundStatus(notification), gatewayAccountEntity,
                     notification.getReference(), notification.getTransactionId(), charge);
+            notificationDeduplicationService.recordProcessed(notificationKey);
         } else {
             logger.error("{} notification {} unknown", PAYMENT_GATEWAY_NAME, notification);
         }
@@ -157,7 +177,7 @@ public class WorldpayNotificationService {
     }
 
     private boolean isNotificationRejectedFromIpAddress(String ipAddress) {
-        return isNotificationEndpointSecured() && !dnsUtils.ipMatchesDomain(ipAddress, notificationDomain());
+        return isNotificationEndpointSecured() && !ipDomainVerificationCache.ipMatchesDomain(ipAddress, notificationDomain());
     }
 
     private boolean isTransactionIdBlank(WorldpayNotification notification) {
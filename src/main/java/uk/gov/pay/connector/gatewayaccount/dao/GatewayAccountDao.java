@@ -1,19 +1,31 @@
 package uk.gov.pay.connector.gatewayaccount.dao;
 
+import com.google.common.collect.Iterables;
 import com.google.inject.Provider;
 import com.google.inject.persist.Transactional;
 import uk.gov.pay.connector.common.dao.JpaDao;
 import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
+import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountResourceDTO;
 import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountSearchParams;
+import uk.gov.pay.connector.usernotification.model.domain.EmailNotificationEntity;
+import uk.gov.pay.connector.usernotification.model.domain.EmailNotificationType;
 
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Transactional
 public class GatewayAccountDao extends JpaDao<GatewayAccountEntity> {
 
+    private static final String AFTER_ID_SQL_FIELD = "afterId";
+    private static final int EMAIL_NOTIFICATIONS_BATCH_SIZE = 1000;
+
     @Inject
     public GatewayAccountDao(final Provider<EntityManager> entityManager) {
         super(entityManager);
@@ -34,33 +46,106 @@ public class GatewayAccountDao extends JpaDao<GatewayAccountEntity> {
                 .getResultList().stream().findFirst();
     }
 
-    public Optional<GatewayAccountEntity> findByCredentialsKeyValue(String key, String value) {
-        String query = "SELECT * FROM gateway_accounts where credentials->>?1 = ?2";
+    /**
+     * Matches the expression index on the credentials' stripe_account_id.
+     */
+    public Optional<Long> findIdByStripeAccountId(String stripeAccountId) {
+        String query = "SELECT id FROM gateway_accounts" +
+                " WHERE payment_provider = 'stripe' AND credentials->>'stripe_account_id' = ?1";
 
-        return entityManager.get()
-                .createNativeQuery(query, GatewayAccountEntity.class)
-                .setParameter(1, key)
-                .setParameter(2, value)
-                .getResultList().stream().findFirst();
+        List<?> ids = entityManager.get()
+                .createNativeQuery(query)
+                .setParameter(1, stripeAccountId)
+                .getResultList();
+
+        return ids.stream()
+                .findFirst()
+                .map(id -> ((Number) id).longValue());
     }
 
-    public List<GatewayAccountEntity> search(GatewayAccountSearchParams params) {
-        List<String> filterTemplates = params.getFilterTemplates();
-        String whereClause = filterTemplates.isEmpty() ?
-                "" :
-                " WHERE " + String.join(" AND ", filterTemplates);
+    /**
+     * Selects the listed columns of the matching accounts into {@link GatewayAccountResourceDTO}s, in id order,
+     * without loading the accounts or any of their relations. When the params have a page size only that many accounts
+     * with an id greater than the params' after id are returned.
+     */
+    public List<GatewayAccountResourceDTO> search(GatewayAccountSearchParams params) {
+        List<String> filterTemplates = new ArrayList<>(params.getFilterTemplates());
+        params.getAfterId().ifPresent(afterId -> filterTemplates.add(" gae.id > :" + AFTER_ID_SQL_FIELD));
 
-        String queryTemplate = "SELECT gae" +
+        String queryTemplate = "SELECT NEW uk.gov.pay.connector.gatewayaccount.model.GatewayAccountResourceDTO(" +
+                "gae.id, gae.gatewayName, gae.type, gae.description, gae.serviceName, gae.analyticsId," +
+                " gae.corporateCreditCardSurchargeAmount, gae.corporateDebitCardSurchargeAmount," +
+                " gae.allowApplePay, gae.allowGooglePay, gae.blockPrepaidCards," +
+                " gae.corporatePrepaidCreditCardSurchargeAmount, gae.corporatePrepaidDebitCardSurchargeAmount," +
+                " gae.emailCollectionMode, gae.requires3ds, gae.allowZeroAmount, gae.integrationVersion3ds," +
+                " gae.allowMoto, gae.motoMaskCardNumberInput, gae.motoMaskCardSecurityCodeInput)" +
                 " FROM GatewayAccountEntity gae" +
-                whereClause +
+                whereClause(filterTemplates) +
                 " ORDER BY gae.id";
 
         var query = entityManager
                 .get()
-                .createQuery(queryTemplate, GatewayAccountEntity.class);
-        
+                .createQuery(queryTemplate, GatewayAccountResourceDTO.class);
+
         params.getQueryMap().forEach(query::setParameter);
-        
+        params.getAfterId().ifPresent(afterId -> query.setParameter(AFTER_ID_SQL_FIELD, afterId));
+        params.getPageSize().ifPresent(query::setMaxResults);
+
         return query.getResultList();
     }
+
+    /**
+     * Counts all the accounts matching the params' filters, ignoring paging.
+     */
+    public long count(GatewayAccountSearchParams params) {
+        String queryTemplate = "SELECT COUNT(gae)" +
+                " FROM GatewayAccountEntity gae" +
+                whereClause(params.getFilterTemplates());
+
+        var query = entityManager
+                .get()
+                .createQuery(queryTemplate, Long.class);
+
+        params.getQueryMap().forEach(query::setParameter);
+
+        return query.getSingleResult();
+    }
+
+    /**
+     * Loads the email notifications of the given accounts, keyed by account id. The ids are bound in batches of
+     * {@value #EMAIL_NOTIFICATIONS_BATCH_SIZE}, one query each, to stay well within the number of parameters a
+     * statement can have.
+     */
+    public Map<Long, Map<EmailNotificationType, EmailNotificationEntity>> findEmailNotificationsByAccountIds(Collection<Long> accountIds) {
+        if (accountIds.isEmpty()) {
+            return Map.of();
+        }
+
+        String query = "SELECT en.accountEntity.id, en.type, en.templateBody, en.enabled, en.version" +
+                " FROM EmailNotificationEntity en" +
+                " WHERE en.accountEntity.id IN :accountIds";
+
+        Map<Long, Map<EmailNotificationType, EmailNotificationEntity>> notificationsByAccountId = new HashMap<>();
+        for (List<Long> batch : Iterables.partition(accountIds, EMAIL_NOTIFICATIONS_BATCH_SIZE)) {
+            List<Object[]> rows = entityManager.get()
+                    .createQuery(query, Object[].class)
+                    .setParameter("accountIds", batch)
+                    .getResultList();
+
+            for (Object[] row : rows) {
+                var notification = new EmailNotificationEntity(null, (String) row[2], (Boolean) row[3]);
+                notification.setVersion((Long) row[4]);
+                notificationsByAccountId
+                        .computeIfAbsent((Long) row[0], accountId -> new EnumMap<>(EmailNotificationType.class))
+                        .put((EmailNotificationType) row[1], notification);
+            }
+        }
+        return notificationsByAccountId;
+    }
+
+    private static String whereClause(List<String> filterTemplates) {
+        return filterTemplates.isEmpty() ?
+                "" :
+                " WHERE " + String.join(" AND ", filterTemplates);
+    }
 }
@@ -126,6 +126,37 @@ public class GatewayAccountResourceDTO {
         this.motoMaskCardSecurityCodeInput = motoMaskCardSecurityCodeInput;
     }
 
+    /**
+     * Used by the account search's JPQL constructor expression, which selects only these columns rather than loading
+     * each {@link GatewayAccountEntity}. Email notifications are added afterwards for the whole page at once.
+     */
+    public GatewayAccountResourceDTO(Long accountId,
+                                     String paymentProvider,
+                                     GatewayAccountEntity.Type type,
+                                     String description,
+                                     String serviceName,
+                                     String analyticsId,
+                                     long corporateCreditCardSurchargeAmount,
+                                     long corporateDebitCardSurchargeAmount,
+                                     boolean allowApplePay,
+                                     boolean allowGooglePay,
+                                     boolean blockPrepaidCards,
+                                     long corporatePrepaidCreditCardSurchargeAmount,
+                                     long corporatePrepaidDebitCardSurchargeAmount,
+                                     EmailCollectionMode emailCollectionMode,
+                                     boolean requires3ds,
+                                     boolean allowZeroAmount,
+                                     int integrationVersion3ds,
+                                     boolean allowMoto,
+                                     boolean motoMaskCardNumberInput,
+                                     boolean motoMaskCardSecurityCodeInput) {
+        this(accountId, paymentProvider, type, description, serviceName, analyticsId,
+                corporateCreditCardSurchargeAmount, corporateDebitCardSurchargeAmount, allowApplePay, allowGooglePay,
+                blockPrepaidCards, corporatePrepaidCreditCardSurchargeAmount, corporatePrepaidDebitCardSurchargeAmount,
+                new HashMap<>(), emailCollectionMode, requires3ds, allowZeroAmount, integrationVersion3ds, allowMoto,
+                motoMaskCardNumberInput, motoMaskCardSecurityCodeInput);
+    }
+
     public static GatewayAccountResourceDTO fromEntity(GatewayAccountEntity gatewayAccountEntity) {
         return new GatewayAccountResourceDTO(
                 gatewayAccountEntity.getId(),
@@ -216,6 +247,10 @@ public class GatewayAccountResourceDTO {
         return emailNotifications;
     }
 
+    public void setEmailNotifications(Map<EmailNotificationType, EmailNotificationEntity> emailNotifications) {
+        this.emailNotifications = emailNotifications;
+    }
+
     public EmailCollectionMode getEmailCollectionMode() {
         return emailCollectionMode;
     }
@@ -3,12 +3,15 @@ package uk.gov.pay.connector.gatewayaccount.model;
 import org.apache.commons.lang3.StringUtils;
 import uk.gov.pay.connector.common.model.api.CommaDelimitedSetParameter;
 
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.Pattern;
 import javax.ws.rs.QueryParam;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 public class GatewayAccountSearchParams {
 
@@ -55,6 +58,17 @@ public class GatewayAccountSearchParams {
             message = "Parameter [payment_provider] must be one of 'sandbox', 'worldpay', 'smartpay', 'epdq' or 'stripe'")
     private String paymentProvider;
 
+    // Paging is keyset based: a page holds the accounts with an id greater than after_id, so fetching a later page
+    // costs the same as fetching the first. Without page_size every matching account is returned.
+    @QueryParam("page_size")
+    @Min(value = 1, message = "Parameter [page_size] must be at least 1")
+    @Max(value = 500, message = "Parameter [page_size] must be at most 500")
+    private Integer pageSize;
+
+    @QueryParam("after_id")
+    @Min(value = 0, message = "Parameter [after_id] must not be negative")
+    private Long afterId;
+
     public void setAccountIds(CommaDelimitedSetParameter accountIds) {
         this.accountIds = accountIds;
     }
@@ -83,6 +97,22 @@ public class GatewayAccountSearchParams {
         this.paymentProvider = paymentProvider;
     }
 
+    public void setPageSize(Integer pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public void setAfterId(Long afterId) {
+        this.afterId = afterId;
+    }
+
+    public Optional<Integer> getPageSize() {
+        return Optional.ofNullable(pageSize);
+    }
+
+    public Optional<Long> getAfterId() {
+        return Optional.ofNullable(afterId);
+    }
+
     public List<String> getFilterTemplates() {
         List<String> filters = new ArrayList<>();
 
@@ -149,6 +179,8 @@ public class GatewayAccountSearchParams {
                 ", requires3ds='" + requires3ds + '\'' +
                 ", type='" + type + '\'' +
                 ", paymentProvider='" + paymentProvider + '\'' +
+                ", pageSize=" + pageSize +
+                ", afterId=" + afterId +
                 '}';
     }
 }
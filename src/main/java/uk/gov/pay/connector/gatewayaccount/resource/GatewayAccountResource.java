@@ -1,7 +1,10 @@
 package uk.gov.pay.connector.gatewayaccount.resource;
 
 import com.fasterxml.jackson.annotation.JsonView;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -13,6 +16,7 @@ import uk.gov.pay.connector.app.ConnectorConfiguration;
 import uk.gov.pay.connector.cardtype.dao.CardTypeDao;
 import uk.gov.pay.connector.cardtype.model.domain.CardTypeEntity;
 import uk.gov.pay.connector.common.exception.CredentialsException;
+import uk.gov.pay.connector.common.model.api.LinkTemplates;
 import uk.gov.pay.connector.common.model.api.jsonpatch.JsonPatchRequest;
 import uk.gov.pay.connector.common.model.domain.UuidAbstractEntity;
 import uk.gov.pay.connector.gatewayaccount.dao.GatewayAccountDao;
@@ -23,7 +27,9 @@ import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountResponse;
 import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountSearchParams;
 import uk.gov.pay.connector.gatewayaccount.service.GatewayAccountService;
 import uk.gov.pay.connector.gatewayaccount.service.GatewayAccountServicesFactory;
+import uk.gov.pay.connector.gatewayaccount.service.StripeAccountIdCache;
 import uk.gov.pay.connector.usernotification.service.GatewayAccountNotificationCredentialsService;
+import uk.gov.pay.connector.util.ConditionalResponses;
 
 import javax.inject.Inject;
 import javax.validation.Valid;
@@ -36,8 +42,10 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 import java.net.URI;
 import java.util.Arrays;
@@ -45,6 +53,8 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -52,6 +62,9 @@ import static com.google.common.collect.Maps.newHashMap;
 import static java.lang.String.format;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 import static javax.ws.rs.core.Response.Status.NOT_FOUND;
+import static uk.gov.pay.connector.gateway.PaymentGatewayName.SANDBOX;
+import static uk.gov.pay.connector.gateway.sandbox.SandboxFaultInjector.SANDBOX_PROFILE_KEY;
+import static uk.gov.pay.connector.gatewayaccount.model.StripeCredentials.STRIPE_ACCOUNT_ID_KEY;
 import static uk.gov.pay.connector.util.ResponseUtil.badRequestResponse;
 import static uk.gov.pay.connector.util.ResponseUtil.fieldsInvalidSizeResponse;
 import static uk.gov.pay.connector.util.ResponseUtil.fieldsMissingResponse;
@@ -73,18 +86,28 @@ public class GatewayAccountResource {
     private static final int SERVICE_NAME_FIELD_LENGTH = 50;
     private static final String USERNAME_KEY = "username";
     private static final String PASSWORD_KEY = "password";
+    private static final String TOTAL_COUNT_HEADER = "X-Total-Count";
     private final GatewayAccountService gatewayAccountService;
     private final CardTypeDao cardTypeDao;
     private final Map<String, List<String>> providerCredentialFields;
     private final GatewayAccountNotificationCredentialsService gatewayAccountNotificationCredentialsService;
     private final GatewayAccountRequestValidator validator;
     private final GatewayAccountServicesFactory gatewayAccountServicesFactory;
+    private final ConditionalResponses conditionalResponses;
+    private final ObjectWriter gatewayAccountWriter;
+    private final StripeAccountIdCache stripeAccountIdCache;
+    private final Set<String> sandboxProfileNames;
 
     @Inject
     public GatewayAccountResource(GatewayAccountService gatewayAccountService, GatewayAccountDao gatewayDao, CardTypeDao cardTypeDao, ConnectorConfiguration conf,
                                   GatewayAccountNotificationCredentialsService gatewayAccountNotificationCredentialsService,
-                                  GatewayAccountRequestValidator validator, GatewayAccountServicesFactory gatewayAccountServicesFactory) {
+                                  GatewayAccountRequestValidator validator, GatewayAccountServicesFactory gatewayAccountServicesFactory,
+                                  ConditionalResponses conditionalResponses, ObjectMapper objectMapper,
+                                  StripeAccountIdCache stripeAccountIdCache) {
         this.gatewayAccountService = gatewayAccountService;
+        this.conditionalResponses = conditionalResponses;
+        this.gatewayAccountWriter = objectMapper.writerFor(GatewayAccountResourceDTO.class);
+        this.stripeAccountIdCache = stripeAccountIdCache;
         this.cardTypeDao = cardTypeDao;
         this.gatewayAccountNotificationCredentialsService = gatewayAccountNotificationCredentialsService;
         this.validator = validator;
@@ -93,6 +116,8 @@ public class GatewayAccountResource {
         providerCredentialFields.put("worldpay", conf.getWorldpayConfig().getCredentials());
         providerCredentialFields.put("smartpay", conf.getSmartpayConfig().getCredentials());
         providerCredentialFields.put("epdq", conf.getEpdqConfig().getCredentials());
+        providerCredentialFields.put("sandbox", List.of());
+        sandboxProfileNames = conf.getSandboxConfig().getProfiles().keySet();
     }
 
     @GET
@@ -128,34 +153,53 @@ public class GatewayAccountResource {
         return getGatewayAccounts(gatewayAccountSearchParams, uriInfo);
     }
 
-    private Response getGatewayAccounts(@BeanParam GatewayAccountSearchParams gatewayAccountSearchParams, @Context UriInfo uriInfo) {
+    private Response getGatewayAccounts(GatewayAccountSearchParams gatewayAccountSearchParams, UriInfo uriInfo) {
         logger.info("Searching gateway accounts by parameters " + gatewayAccountSearchParams.toString());
-        
-        List<GatewayAccountResourceDTO> gatewayAccounts = gatewayAccountService.searchGatewayAccounts(gatewayAccountSearchParams);
-        gatewayAccounts.forEach(account -> account.addLink("self", buildUri(uriInfo, account.getAccountId())));
 
-        return Response
-                .ok(ImmutableMap.of("accounts", gatewayAccounts))
-                .build();
+        List<GatewayAccountResourceDTO> gatewayAccounts = gatewayAccountService.searchGatewayAccounts(gatewayAccountSearchParams);
+        URI baseUri = uriInfo.getBaseUri();
+
+        // Written account by account, so the response body is never held as a whole alongside the accounts
+        StreamingOutput accounts = output -> {
+            try (JsonGenerator generator = gatewayAccountWriter.getFactory().createGenerator(output)) {
+                generator.writeStartObject();
+                generator.writeArrayFieldStart("accounts");
+                for (GatewayAccountResourceDTO account : gatewayAccounts) {
+                    account.addLink("self", buildUri(baseUri, account.getAccountId()));
+                    gatewayAccountWriter.writeValue(generator, account);
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+        };
+
+        Response.ResponseBuilder response = Response.ok(accounts, APPLICATION_JSON);
+        gatewayAccountSearchParams.getPageSize().ifPresentOrElse(pageSize -> {
+            response.header(TOTAL_COUNT_HEADER, gatewayAccountService.countGatewayAccounts(gatewayAccountSearchParams));
+            if (gatewayAccounts.size() == pageSize) {
+                long lastAccountId = gatewayAccounts.get(gatewayAccounts.size() - 1).getAccountId();
+                response.link(uriInfo.getRequestUriBuilder().replaceQueryParam("after_id", lastAccountId).build(), "next");
+            }
+        }, () -> response.header(TOTAL_COUNT_HEADER, gatewayAccounts.size()));
+
+        return response.build();
     }
 
-    private URI buildUri(UriInfo uriInfo, long accountId) {
-        return uriInfo.getBaseUriBuilder()
-                .path("/v1/api/accounts/{accountId}")
-                .build(accountId);
+    private URI buildUri(URI baseUri, long accountId) {
+        return LinkTemplates.GATEWAY_ACCOUNT.expand(baseUri, accountId);
     }
 
     @GET
     @Path("/v1/frontend/accounts/{accountId}")
     @Produces(APPLICATION_JSON)
     @JsonView(GatewayAccountEntity.Views.ApiView.class)
-    public Response getGatewayAccountWithCredentials(@PathParam("accountId") Long gatewayAccountId) {
+    public Response getGatewayAccountWithCredentials(@PathParam("accountId") Long gatewayAccountId, @Context Request request) {
 
         return gatewayAccountService.getGatewayAccount(gatewayAccountId)
                 .map(gatewayAccount ->
                 {
                     gatewayAccount.getCredentials().remove("password");
-                    return Response.ok(gatewayAccount).build();
+                    return conditionalResponses.okWithContentTag(request, gatewayAccount, GatewayAccountEntity.Views.ApiView.class);
                 })
                 .orElseGet(() -> notFoundResponse(format("Account with id '%s' not found", gatewayAccountId)));
     }
@@ -223,8 +267,15 @@ public class GatewayAccountResource {
                             if (!missingCredentialsFields.isEmpty()) {
                                 return fieldsMissingResponse(missingCredentialsFields);
                             }
+                            Optional<String> sandboxProfileError = checkSandboxProfile(credentialsPayload, gatewayAccount.getGatewayName());
+                            if (sandboxProfileError.isPresent()) {
+                                return badRequestResponse(sandboxProfileError.get());
+                            }
 
+                            String previousStripeAccountId = gatewayAccount.getCredentials().get(STRIPE_ACCOUNT_ID_KEY);
                             gatewayAccount.setCredentials(credentialsPayload);
+                            stripeAccountIdCache.invalidate(previousStripeAccountId);
+                            stripeAccountIdCache.invalidate(credentialsPayload.get(STRIPE_ACCOUNT_ID_KEY));
                             return Response.ok().build();
                         }
                 )
@@ -391,6 +442,21 @@ public class GatewayAccountResource {
         return charge;
     }
 
+    private Optional<String> checkSandboxProfile(Map<String, String> credentialsPayload, String provider) {
+        String sandboxProfile = credentialsPayload.get(SANDBOX_PROFILE_KEY);
+        if (sandboxProfile == null) {
+            return Optional.empty();
+        }
+        if (!SANDBOX.getName().equals(provider)) {
+            return Optional.of(format("Field [%s] can only be set for sandbox accounts", SANDBOX_PROFILE_KEY));
+        }
+        if (!sandboxProfileNames.contains(sandboxProfile)) {
+            return Optional.of(format("Field [%s] must be one of the configured sandbox profiles %s",
+                    SANDBOX_PROFILE_KEY, new TreeSet<>(sandboxProfileNames)));
+        }
+        return Optional.empty();
+    }
+
     private List<String> checkMissingCredentialsFields(Map<String, String> credentialsPayload, String provider) {
         return providerCredentialFields.get(provider).stream()
                 .filter(requiredField -> !credentialsPayload.containsKey(requiredField))
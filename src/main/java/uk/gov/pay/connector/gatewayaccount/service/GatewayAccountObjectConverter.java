@@ -1,5 +1,6 @@
 package uk.gov.pay.connector.gatewayaccount.service;
 
+import uk.gov.pay.connector.common.model.api.LinkTemplates;
 import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
 import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountRequest;
 import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountResponse;
@@ -37,9 +38,7 @@ public class GatewayAccountObjectConverter {
 
     public static GatewayAccountResponse createResponseFrom(GatewayAccountEntity entity, UriInfo uriInfo) {
         
-        URI uri = uriInfo.
-                getBaseUriBuilder().
-                path("/v1/api/accounts/{accountId}").build(entity.getId());
+        URI uri = LinkTemplates.GATEWAY_ACCOUNT.expand(uriInfo.getBaseUri(), entity.getId());
 
         return new GatewayAccountResponse.GatewayAccountResponseBuilder()
                 .gatewayAccountId(entity.getId().toString())
@@ -16,6 +16,8 @@ import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountRequest;
 import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountResourceDTO;
 import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountResponse;
 import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountSearchParams;
+import uk.gov.pay.connector.usernotification.model.domain.EmailNotificationEntity;
+import uk.gov.pay.connector.usernotification.model.domain.EmailNotificationType;
 
 import javax.inject.Inject;
 import javax.ws.rs.core.UriInfo;
@@ -61,9 +63,18 @@ public class GatewayAccountService {
     }
     
     public List<GatewayAccountResourceDTO> searchGatewayAccounts(GatewayAccountSearchParams params) {
-        return gatewayAccountDao.search(params).stream()
-                .map(GatewayAccountResourceDTO::fromEntity)
-                .collect(Collectors.toList());
+        List<GatewayAccountResourceDTO> gatewayAccounts = gatewayAccountDao.search(params);
+        Map<Long, Map<EmailNotificationType, EmailNotificationEntity>> emailNotifications = gatewayAccountDao
+                .findEmailNotificationsByAccountIds(gatewayAccounts.stream()
+                        .map(GatewayAccountResourceDTO::getAccountId)
+                        .collect(Collectors.toList()));
+        gatewayAccounts.forEach(account -> account.setEmailNotifications(
+                emailNotifications.getOrDefault(account.getAccountId(), new HashMap<>())));
+        return gatewayAccounts;
+    }
+
+    public long countGatewayAccounts(GatewayAccountSearchParams params) {
+        return gatewayAccountDao.count(params);
     }
 
     @Transactional
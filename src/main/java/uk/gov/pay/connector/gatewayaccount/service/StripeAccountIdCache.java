@@ -0,0 +1,55 @@
+package uk.gov.pay.connector.gatewayaccount.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import uk.gov.pay.connector.common.dao.AfterCommitActions;
+import uk.gov.pay.connector.gatewayaccount.dao.GatewayAccountDao;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers which gateway account each Stripe connect account belongs to, so payout messages and notifications for
+ * the same connect account do not look it up in the credentials every time. Unknown connect accounts are not
+ * remembered, so an account is found as soon as it is set up. When credentials are changed on this node their entries
+ * are dropped once the change has committed, so a lookup made before the commit cannot put the old id back. Other nodes
+ * are not told about the change, so entries expire after a minute.
+ */
+@Singleton
+public class StripeAccountIdCache {
+
+    private static final long GATEWAY_ACCOUNT_ID_TTL_MINUTES = 1;
+    private static final long MAXIMUM_CACHED_STRIPE_ACCOUNTS = 10000;
+
+    private final GatewayAccountDao gatewayAccountDao;
+    private final AfterCommitActions afterCommitActions;
+    private final Cache<String, Long> gatewayAccountIds = CacheBuilder.newBuilder()
+            .expireAfterWrite(GATEWAY_ACCOUNT_ID_TTL_MINUTES, TimeUnit.MINUTES)
+            .maximumSize(MAXIMUM_CACHED_STRIPE_ACCOUNTS)
+            .build();
+
+    @Inject
+    public StripeAccountIdCache(GatewayAccountDao gatewayAccountDao, AfterCommitActions afterCommitActions) {
+        this.gatewayAccountDao = gatewayAccountDao;
+        this.afterCommitActions = afterCommitActions;
+    }
+
+    public Optional<Long> getGatewayAccountId(String stripeAccountId) {
+        Long cachedGatewayAccountId = gatewayAccountIds.getIfPresent(stripeAccountId);
+        if (cachedGatewayAccountId != null) {
+            return Optional.of(cachedGatewayAccountId);
+        }
+
+        Optional<Long> gatewayAccountId = gatewayAccountDao.findIdByStripeAccountId(stripeAccountId);
+        gatewayAccountId.ifPresent(id -> gatewayAccountIds.put(stripeAccountId, id));
+        return gatewayAccountId;
+    }
+
+    public void invalidate(String stripeAccountId) {
+        if (stripeAccountId != null) {
+            afterCommitActions.run(() -> gatewayAccountIds.invalidate(stripeAccountId));
+        }
+    }
+}
@@ -3,6 +3,8 @@ package uk.gov.pay.connector.gatewayaccount.util;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.postgresql.util.PGobject;
 
 import javax.persistence.AttributeConverter;
@@ -13,12 +15,16 @@ import java.util.Map;
 
 @Converter
 public class CredentialsConverter implements AttributeConverter<Map<String,String>, PGobject> {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final ObjectReader CREDENTIALS_READER = OBJECT_MAPPER.readerFor(new TypeReference<Map<String, String>>() {});
+    private static final ObjectWriter CREDENTIALS_WRITER = OBJECT_MAPPER.writerFor(new TypeReference<Map<String, String>>() {});
+
     @Override
     public PGobject convertToDatabaseColumn(Map<String,String> credentials) {
         PGobject pgCredentials = new PGobject();
         pgCredentials.setType("json");
         try {
-            pgCredentials.setValue(new ObjectMapper().writeValueAsString(credentials));
+            pgCredentials.setValue(CREDENTIALS_WRITER.writeValueAsString(credentials));
         } catch (SQLException | JsonProcessingException e) {
             throw new RuntimeException(e);
         }
@@ -28,7 +34,7 @@ public class CredentialsConverter implements AttributeConverter<Map<String,Strin
     @Override
     public Map<String,String> convertToEntityAttribute(PGobject dbCredentials) {
         try {
-            return new ObjectMapper().readValue(dbCredentials.toString(), new TypeReference<Map<String, String>>() {});
+            return CREDENTIALS_READER.readValue(dbCredentials.toString());
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -0,0 +1,21 @@
+package uk.gov.pay.connector.metrics;
+
+public enum AuthorisationStage {
+    LOCK_CHARGE("lock-charge"),
+    CARD_BRAND_3DS_CHECK("3ds-brand-check"),
+    PAYLOAD_BUILD("payload-build"),
+    GATEWAY_CALL("gateway-call"),
+    RESPONSE_UNMARSHAL("response-unmarshal"),
+    CHARGE_UPDATE("charge-update"),
+    EVENT_OFFER("event-offer");
+
+    private final String metricName;
+
+    AuthorisationStage(String metricName) {
+        this.metricName = metricName;
+    }
+
+    public String getMetricName() {
+        return metricName;
+    }
+}
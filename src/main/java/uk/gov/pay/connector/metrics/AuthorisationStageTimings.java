@@ -0,0 +1,223 @@
+package uk.gov.pay.connector.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.dropwizard.setup.Environment;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.config.AuthorisationStageTimingConfig;
+import uk.gov.pay.connector.app.config.PrometheusConfig;
+import uk.gov.pay.connector.metrics.prometheus.LatencyHistograms;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static net.logstash.logback.argument.StructuredArguments.kv;
+import static uk.gov.pay.connector.metrics.AuthorisationStage.GATEWAY_CALL;
+import static uk.gov.pay.logging.LoggingKeys.PAYMENT_EXTERNAL_ID;
+
+/**
+ * Breaks the time taken to authorise a card payment down by stage. The authorisation opens a {@link Recording} on the
+ * thread doing the work, and the code for each stage, wherever it lives, wraps itself in
+ * {@link #time(AuthorisationStage)}. Outside a recording that does nothing, so the same code can run for other
+ * operations without being counted.
+ * <p>
+ * Stages can be nested (updating the charge offers events, for example) and each is timed exclusive of the stages
+ * nested in it, so the stages of an authorisation never add up to more than its total. When the recording is closed,
+ * every stage it went through is added to the timer {@code authorisation-stages.<gateway>.<stage>}, alongside
+ * {@code authorisation-stages.<gateway>.total} and {@code authorisation-stages.<gateway>.connector-owned}, the total
+ * less the time spent waiting for the gateway. Each is also recorded in {@link LatencyHistograms}, so the Prometheus
+ * endpoint can export them as histograms. If enabled, the stages are also logged as one line per authorisation.
+ */
+@Singleton
+public class AuthorisationStageTimings {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AuthorisationStageTimings.class);
+    private static final String METRIC_PREFIX = "authorisation-stages";
+    private static final String UNKNOWN_GATEWAY = "unknown";
+    private static final AuthorisationStage[] STAGES = AuthorisationStage.values();
+    private static final ThreadLocal<Recording> CURRENT_RECORDING = new ThreadLocal<>();
+    private static final StageTiming NOT_RECORDING = () -> { };
+    private static final double NANOSECONDS_PER_SECOND = SECONDS.toNanos(1);
+
+    private final AuthorisationStageTimingConfig config;
+    private final MetricRegistry metricRegistry;
+    private final LongSupplier nanoTime;
+    private final LatencyHistograms latencyHistograms;
+    private final ConcurrentMap<String, GatewayTimers> timersByGateway = new ConcurrentHashMap<>();
+
+    @Inject
+    public AuthorisationStageTimings(ConnectorConfiguration configuration, Environment environment,
+                                     LatencyHistograms latencyHistograms) {
+        this(configuration.getAuthorisationStageTimingConfig(), environment.metrics(), System::nanoTime, latencyHistograms);
+    }
+
+    public AuthorisationStageTimings(AuthorisationStageTimingConfig config, MetricRegistry metricRegistry) {
+        this(config, metricRegistry, System::nanoTime);
+    }
+
+    AuthorisationStageTimings(AuthorisationStageTimingConfig config, MetricRegistry metricRegistry, LongSupplier nanoTime) {
+        this(config, metricRegistry, nanoTime,
+                new LatencyHistograms(new CollectorRegistry(), new PrometheusConfig().getLatencyBucketsInMillis()));
+    }
+
+    AuthorisationStageTimings(AuthorisationStageTimingConfig config, MetricRegistry metricRegistry, LongSupplier nanoTime,
+                              LatencyHistograms latencyHistograms) {
+        this.config = config;
+        this.metricRegistry = metricRegistry;
+        this.nanoTime = nanoTime;
+        this.latencyHistograms = latencyHistograms;
+    }
+
+    public Recording startRecording(String chargeExternalId) {
+        Recording recording = new Recording(chargeExternalId, CURRENT_RECORDING.get());
+        CURRENT_RECORDING.set(recording);
+        return recording;
+    }
+
+    public static StageTiming time(AuthorisationStage stage) {
+        Recording recording = CURRENT_RECORDING.get();
+        return recording == null ? NOT_RECORDING : recording.enter(stage);
+    }
+
+    private GatewayTimers timersFor(String gatewayName) {
+        GatewayTimers timers = timersByGateway.get(gatewayName);
+        return timers != null ? timers : timersByGateway.computeIfAbsent(gatewayName, GatewayTimers::new);
+    }
+
+    public class Recording implements AutoCloseable {
+        private final String chargeExternalId;
+        private final Recording enclosingRecording;
+        private final long startNanos;
+        private final long[] stageNanos = new long[STAGES.length];
+        private final boolean[] stageEntered = new boolean[STAGES.length];
+        private final Deque<Stage> openStages = new ArrayDeque<>();
+        private String gatewayName = UNKNOWN_GATEWAY;
+
+        private Recording(String chargeExternalId, Recording enclosingRecording) {
+            this.chargeExternalId = chargeExternalId;
+            this.enclosingRecording = enclosingRecording;
+            this.startNanos = nanoTime.getAsLong();
+        }
+
+        public void setGatewayName(String gatewayName) {
+            this.gatewayName = gatewayName;
+        }
+
+        private StageTiming enter(AuthorisationStage stage) {
+            Stage openStage = new Stage(stage, nanoTime.getAsLong());
+            openStages.push(openStage);
+            return openStage;
+        }
+
+        @Override
+        public void close() {
+            if (enclosingRecording == null) {
+                CURRENT_RECORDING.remove();
+            } else {
+                CURRENT_RECORDING.set(enclosingRecording);
+            }
+
+            long totalNanos = nanoTime.getAsLong() - startNanos;
+            GatewayTimers timers = timersFor(gatewayName);
+            for (int i = 0; i < STAGES.length; i++) {
+                if (stageEntered[i]) {
+                    update(timers.stages[i], timers.stageDurations[i], stageNanos[i]);
+                }
+            }
+            update(timers.total, timers.totalDuration, totalNanos);
+            update(timers.connectorOwned, timers.connectorOwnedDuration, totalNanos - stageNanos[GATEWAY_CALL.ordinal()]);
+
+            if (config.isLogStageTimings() && NANOSECONDS.toMillis(totalNanos) >= config.getLogThresholdInMillis()) {
+                log(totalNanos);
+            }
+        }
+
+        long getStageNanos(AuthorisationStage stage) {
+            return stageNanos[stage.ordinal()];
+        }
+
+        private void log(long totalNanos) {
+            StringBuilder stages = new StringBuilder();
+            for (int i = 0; i < STAGES.length; i++) {
+                if (stageEntered[i]) {
+                    stages.append(", ").append(STAGES[i].getMetricName()).append('=').append(millis(stageNanos[i]));
+                }
+            }
+            LOGGER.info("Authorisation stage timings in ms for {} on {}: total={}, connector-owned={}{}",
+                    chargeExternalId, gatewayName, millis(totalNanos),
+                    millis(totalNanos - stageNanos[GATEWAY_CALL.ordinal()]), stages,
+                    kv(PAYMENT_EXTERNAL_ID, chargeExternalId));
+        }
+
+        private String millis(long nanos) {
+            return String.format(Locale.ROOT, "%.1f", nanos / 1_000_000.0);
+        }
+
+        private class Stage implements StageTiming {
+            private final AuthorisationStage stage;
+            private final long startNanos;
+            private long nestedNanos;
+            private boolean closed;
+
+            private Stage(AuthorisationStage stage, long startNanos) {
+                this.stage = stage;
+                this.startNanos = startNanos;
+            }
+
+            @Override
+            public void close() {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                long elapsedNanos = nanoTime.getAsLong() - startNanos;
+                stageNanos[stage.ordinal()] += elapsedNanos - nestedNanos;
+                stageEntered[stage.ordinal()] = true;
+
+                openStages.remove(this);
+                Stage enclosingStage = openStages.peek();
+                if (enclosingStage != null) {
+                    enclosingStage.nestedNanos += elapsedNanos;
+                }
+            }
+        }
+    }
+
+    private static void update(Timer timer, Histogram.Child duration, long nanos) {
+        timer.update(nanos, NANOSECONDS);
+        duration.observe(nanos / NANOSECONDS_PER_SECOND);
+    }
+
+    private class GatewayTimers {
+        private final Timer[] stages = new Timer[STAGES.length];
+        private final Histogram.Child[] stageDurations = new Histogram.Child[STAGES.length];
+        private final Timer total;
+        private final Histogram.Child totalDuration;
+        private final Timer connectorOwned;
+        private final Histogram.Child connectorOwnedDuration;
+
+        private GatewayTimers(String gatewayName) {
+            String prefix = METRIC_PREFIX + "." + gatewayName;
+            for (int i = 0; i < STAGES.length; i++) {
+                stages[i] = metricRegistry.timer(prefix + "." + STAGES[i].getMetricName());
+                stageDurations[i] = latencyHistograms.authorisationStageDuration(gatewayName, STAGES[i].getMetricName());
+            }
+            this.total = metricRegistry.timer(prefix + ".total");
+            this.totalDuration = latencyHistograms.authorisationStageDuration(gatewayName, "total");
+            this.connectorOwned = metricRegistry.timer(prefix + ".connector-owned");
+            this.connectorOwnedDuration = latencyHistograms.authorisationStageDuration(gatewayName, "connector-owned");
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package uk.gov.pay.connector.metrics;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.setup.Environment;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Histogram.Child;
+import uk.gov.pay.connector.app.config.PrometheusConfig;
+import uk.gov.pay.connector.gateway.model.OrderRequestType;
+import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
+import uk.gov.pay.connector.metrics.prometheus.LatencyHistograms;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Metrics for the gateway and state transition hot paths. Handles are registered the first time a (gateway, account
+ * type, operation, outcome) combination is seen and looked up afterwards without building the metric name again, so
+ * recording a metric does not allocate. Metric names never include the gateway account id; per account breakdowns are
+ * left to the opt-in {@link GatewayAccountActivityReporter}. Response times are also recorded in
+ * {@link LatencyHistograms} so the Prometheus endpoint can export them with latency buckets.
+ */
+@Singleton
+public class ConnectorMetrics {
+
+    private static final String CAPTURE_ROW_LOCK_CONFLICTS = "gateway-operations.capture.row-lock-conflicts";
+    private static final double MILLISECONDS_PER_SECOND = 1000;
+
+    private final MetricRegistry metricRegistry;
+    private final GatewayAccountActivityReporter activityReporter;
+    private final LatencyHistograms latencyHistograms;
+    private final ConcurrentMap<String, ConcurrentMap<String, GatewayHandles>> handlesByGatewayAndType = new ConcurrentHashMap<>();
+
+    @Inject
+    public ConnectorMetrics(Environment environment, GatewayAccountActivityReporter activityReporter,
+                            LatencyHistograms latencyHistograms) {
+        this(environment.metrics(), activityReporter, latencyHistograms);
+    }
+
+    /**
+     * Metrics without per account activity reporting.
+     */
+    public ConnectorMetrics(MetricRegistry metricRegistry) {
+        this(metricRegistry, null);
+    }
+
+    ConnectorMetrics(MetricRegistry metricRegistry, GatewayAccountActivityReporter activityReporter) {
+        this(metricRegistry, activityReporter,
+                new LatencyHistograms(new CollectorRegistry(), new PrometheusConfig().getLatencyBucketsInMillis()));
+    }
+
+    ConnectorMetrics(MetricRegistry metricRegistry, GatewayAccountActivityReporter activityReporter,
+                     LatencyHistograms latencyHistograms) {
+        this.metricRegistry = metricRegistry;
+        this.activityReporter = activityReporter;
+        this.latencyHistograms = latencyHistograms;
+    }
+
+    /**
+     * Records a gateway response time in the histogram
+     * {@code gateway-operations.<gateway>.<account type>.<order request type>.response_time} and in the Prometheus
+     * histogram {@code gateway_operation_duration_seconds}.
+     */
+    public void gatewayResponseTime(GatewayAccountEntity account, OrderRequestType orderRequestType,
+                                    long responseTimeInMillis) {
+        GatewayHandles handles = handlesFor(account);
+        lookUp(handles.responseTimes, orderRequestType, handles.newResponseTime).update(responseTimeInMillis);
+        lookUp(handles.responseTimeDurations, orderRequestType, handles.newResponseTimeDuration)
+                .observe(responseTimeInMillis / MILLISECONDS_PER_SECOND);
+    }
+
+    /**
+     * {@code gateway-operations.<gateway>.<account type>.<order request type>.failures}
+     */
+    public Counter gatewayFailures(GatewayAccountEntity account, OrderRequestType orderRequestType) {
+        GatewayHandles handles = handlesFor(account);
+        return lookUp(handles.failures, orderRequestType, handles.newFailures);
+    }
+
+    /**
+     * {@code gateway-operations.capture.row-lock-conflicts}
+     */
+    public Counter captureRowLockConflicts() {
+        return metricRegistry.counter(CAPTURE_ROW_LOCK_CONFLICTS);
+    }
+
+    /**
+     * Counts the outcome of an authorisation or capture as
+     * {@code gateway-operations.<gateway>.<account type>.<operation>.result.<outcome>}.
+     */
+    public void operationResult(GatewayAccountEntity account, String operation, String outcome) {
+        GatewayHandles handles = handlesFor(account);
+        ConcurrentMap<String, Counter> outcomes = lookUp(handles.resultsByOperation, operation, handles.newOutcomeTable);
+        String outcomeKey = String.valueOf(outcome);
+        Counter counter = outcomes.get(outcomeKey);
+        if (counter == null) {
+            counter = outcomes.computeIfAbsent(outcomeKey,
+                    o -> metricRegistry.counter(handles.operationsPrefix + "." + operation + ".result." + o));
+        }
+        counter.inc();
+        recordActivity(account);
+    }
+
+    /**
+     * Counts a charge moving to {@code targetStatus} as {@code state-transition.<account type>.<gateway>.to.<status>},
+     * alongside a meter of the same name with a {@code .rate} suffix.
+     */
+    public void stateTransition(GatewayAccountEntity account, String targetStatus) {
+        GatewayHandles handles = handlesFor(account);
+        String statusKey = String.valueOf(targetStatus);
+        lookUp(handles.stateTransitions, statusKey, handles.newStateTransition).inc();
+        lookUp(handles.stateTransitionRates, statusKey, handles.newStateTransitionRate).mark();
+        recordActivity(account);
+    }
+
+    private void recordActivity(GatewayAccountEntity account) {
+        if (activityReporter != null) {
+            activityReporter.record(account.getId());
+        }
+    }
+
+    private GatewayHandles handlesFor(GatewayAccountEntity account) {
+        // String.valueOf keeps the "null" the old formatted names had, as ConcurrentHashMap does not allow null keys
+        String gatewayName = String.valueOf(account.getGatewayName());
+        String type = String.valueOf(account.getType());
+        ConcurrentMap<String, GatewayHandles> handlesByType = handlesByGatewayAndType.get(gatewayName);
+        if (handlesByType == null) {
+            handlesByType = handlesByGatewayAndType.computeIfAbsent(gatewayName, name -> new ConcurrentHashMap<>());
+        }
+        GatewayHandles handles = handlesByType.get(type);
+        if (handles == null) {
+            handles = handlesByType.computeIfAbsent(type, t -> new GatewayHandles(gatewayName, t));
+        }
+        return handles;
+    }
+
+    // get before computeIfAbsent, as computeIfAbsent on a ConcurrentHashMap may lock even when the key is present
+    private static <K, V> V lookUp(ConcurrentMap<K, V> handles, K key, Function<K, V> create) {
+        V handle = handles.get(key);
+        return handle != null ? handle : handles.computeIfAbsent(key, create);
+    }
+
+    private class GatewayHandles {
+        private final String operationsPrefix;
+        private final String stateTransitionPrefix;
+
+        private final ConcurrentMap<OrderRequestType, Histogram> responseTimes = new ConcurrentHashMap<>();
+        private final ConcurrentMap<OrderRequestType, Child> responseTimeDurations = new ConcurrentHashMap<>();
+        private final ConcurrentMap<OrderRequestType, Counter> failures = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, ConcurrentMap<String, Counter>> resultsByOperation = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, Counter> stateTransitions = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, Meter> stateTransitionRates = new ConcurrentHashMap<>();
+
+        // created once here rather than as capturing lambdas at each call site
+        private final Function<OrderRequestType, Histogram> newResponseTime;
+        private final Function<OrderRequestType, Child> newResponseTimeDuration;
+        private final Function<OrderRequestType, Counter> newFailures;
+        private final Function<String, ConcurrentMap<String, Counter>> newOutcomeTable;
+        private final Function<String, Counter> newStateTransition;
+        private final Function<String, Meter> newStateTransitionRate;
+
+        private GatewayHandles(String gatewayName, String type) {
+            this.operationsPrefix = "gateway-operations." + gatewayName + "." + type;
+            this.stateTransitionPrefix = "state-transition." + type + "." + gatewayName;
+
+            this.newResponseTime = orderRequestType ->
+                    metricRegistry.histogram(operationsPrefix + "." + orderRequestType + ".response_time");
+            this.newResponseTimeDuration = orderRequestType ->
+                    latencyHistograms.gatewayOperationDuration(gatewayName, type, orderRequestType.toString());
+            this.newFailures = orderRequestType ->
+                    metricRegistry.counter(operationsPrefix + "." + orderRequestType + ".failures");
+            this.newOutcomeTable = operation -> new ConcurrentHashMap<>();
+            this.newStateTransition = status -> metricRegistry.counter(stateTransitionPrefix + ".to." + status);
+            this.newStateTransitionRate = status -> metricRegistry.meter(stateTransitionPrefix + ".to." + status + ".rate");
+        }
+    }
+}
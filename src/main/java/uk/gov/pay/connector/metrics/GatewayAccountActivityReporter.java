@@ -0,0 +1,146 @@
+package uk.gov.pay.connector.metrics;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.setup.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.config.GatewayAccountActivityConfig;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Keeps per gateway account breakdowns out of metric names. When enabled, it counts gateway operations per account
+ * and, every reporting interval, publishes only the busiest accounts as a fixed set of ranked gauges
+ * ({@code gateway-account-activity.top.<rank>.gateway-account-id} and {@code .operations}), so the number of series
+ * does not grow with the number of accounts. At most {@code maximumTrackedAccounts} accounts are counted in an
+ * interval; operations for any others are only added to {@code gateway-account-activity.untracked-operations}.
+ */
+@Singleton
+public class GatewayAccountActivityReporter implements Managed {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GatewayAccountActivityReporter.class);
+    private static final String METRIC_PREFIX = "gateway-account-activity";
+
+    private final GatewayAccountActivityConfig config;
+    private final ScheduledExecutorService executorService;
+    private final AtomicReference<ConcurrentMap<Long, LongAdder>> operationsByAccount =
+            new AtomicReference<>(new ConcurrentHashMap<>());
+    private final LongAdder untrackedOperations = new LongAdder();
+    private volatile List<AccountActivity> topAccounts = List.of();
+    private volatile long lastUntrackedOperations;
+
+    @Inject
+    public GatewayAccountActivityReporter(ConnectorConfiguration configuration, Environment environment) {
+        this(configuration.getGatewayAccountActivityConfig(),
+                environment.lifecycle().scheduledExecutorService("gateway-account-activity-reporter").threads(1).build(),
+                environment.metrics());
+    }
+
+    GatewayAccountActivityReporter(GatewayAccountActivityConfig config,
+                                   ScheduledExecutorService executorService,
+                                   MetricRegistry metricRegistry) {
+        this.config = config;
+        this.executorService = executorService;
+
+        if (config.isEnabled()) {
+            for (int rank = 1; rank <= config.getTopAccounts(); rank++) {
+                int index = rank - 1;
+                metricRegistry.register(METRIC_PREFIX + ".top." + rank + ".gateway-account-id",
+                        (Gauge<Long>) () -> index < topAccounts.size() ? topAccounts.get(index).gatewayAccountId : 0L);
+                metricRegistry.register(METRIC_PREFIX + ".top." + rank + ".operations",
+                        (Gauge<Long>) () -> index < topAccounts.size() ? topAccounts.get(index).operations : 0L);
+            }
+            metricRegistry.register(METRIC_PREFIX + ".untracked-operations", (Gauge<Long>) () -> lastUntrackedOperations);
+        }
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    public void record(Long gatewayAccountId) {
+        if (!config.isEnabled() || gatewayAccountId == null) {
+            return;
+        }
+
+        ConcurrentMap<Long, LongAdder> operations = operationsByAccount.get();
+        LongAdder accountOperations = operations.get(gatewayAccountId);
+        if (accountOperations == null) {
+            if (operations.size() >= config.getMaximumTrackedAccounts()) {
+                untrackedOperations.increment();
+                return;
+            }
+            accountOperations = operations.computeIfAbsent(gatewayAccountId, id -> new LongAdder());
+        }
+        accountOperations.increment();
+    }
+
+    @Override
+    public void start() {
+        if (config.isEnabled()) {
+            executorService.scheduleAtFixedRate(this::report,
+                    config.getReportingIntervalInSeconds(),
+                    config.getReportingIntervalInSeconds(),
+                    TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    public void stop() {
+        executorService.shutdown();
+    }
+
+    void report() {
+        try {
+            ConcurrentMap<Long, LongAdder> operations = operationsByAccount.getAndSet(new ConcurrentHashMap<>());
+            List<AccountActivity> activity = new ArrayList<>(operations.size());
+            operations.forEach((gatewayAccountId, count) -> activity.add(new AccountActivity(gatewayAccountId, count.sum())));
+
+            topAccounts = activity.stream()
+                    .sorted(Comparator.comparingLong((AccountActivity a) -> a.operations).reversed())
+                    .limit(config.getTopAccounts())
+                    .collect(toList());
+            lastUntrackedOperations = untrackedOperations.sumThenReset();
+
+            if (!topAccounts.isEmpty()) {
+                LOGGER.info("Busiest gateway accounts in the last {}s: {}", config.getReportingIntervalInSeconds(), topAccounts);
+            }
+        } catch (Exception e) {
+            LOGGER.error("Gateway account activity report failed [message={}]", e.getMessage());
+        }
+    }
+
+    List<AccountActivity> getTopAccounts() {
+        return topAccounts;
+    }
+
+    static class AccountActivity {
+        final long gatewayAccountId;
+        final long operations;
+
+        AccountActivity(long gatewayAccountId, long operations) {
+            this.gatewayAccountId = gatewayAccountId;
+            this.operations = operations;
+        }
+
+        @Override
+        public String toString() {
+            return gatewayAccountId + "=" + operations;
+        }
+    }
+}
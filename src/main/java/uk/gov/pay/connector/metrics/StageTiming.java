@@ -0,0 +1,9 @@
+package uk.gov.pay.connector.metrics;
+
+/**
+ * A stage being timed by {@link AuthorisationStageTimings}; closing it stops the clock.
+ */
+public interface StageTiming extends AutoCloseable {
+    @Override
+    void close();
+}
@@ -0,0 +1,63 @@
+package uk.gov.pay.connector.metrics.prometheus;
+
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Histogram;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.List;
+
+/**
+ * Prometheus histograms for the latencies we alert on, in seconds and bucketed by
+ * {@code prometheus.latencyBucketsInMillis}. Dropwizard histograms and timers only keep a sample, which
+ * {@link io.prometheus.client.dropwizard.DropwizardExports} can export as quantiles but not as buckets, so these are
+ * recorded alongside them and served from the same {@link CollectorRegistry}.
+ */
+@Singleton
+public class LatencyHistograms {
+
+    private static final double MILLISECONDS_PER_SECOND = 1000;
+
+    private final CollectorRegistry collectorRegistry;
+    private final Histogram gatewayOperationDuration;
+    private final Histogram authorisationStageDuration;
+
+    @Inject
+    public LatencyHistograms(ConnectorConfiguration configuration) {
+        this(new CollectorRegistry(), configuration.getPrometheusConfig().getLatencyBucketsInMillis());
+    }
+
+    public LatencyHistograms(CollectorRegistry collectorRegistry, List<Long> latencyBucketsInMillis) {
+        double[] buckets = latencyBucketsInMillis.stream()
+                .mapToDouble(millis -> millis / MILLISECONDS_PER_SECOND)
+                .sorted()
+                .distinct()
+                .toArray();
+        this.collectorRegistry = collectorRegistry;
+        this.gatewayOperationDuration = Histogram.build()
+                .name("gateway_operation_duration_seconds")
+                .help("Time taken by a payment gateway to respond to an order request")
+                .labelNames("gateway", "account_type", "operation")
+                .buckets(buckets)
+                .register(collectorRegistry);
+        this.authorisationStageDuration = Histogram.build()
+                .name("authorisation_stage_duration_seconds")
+                .help("Time spent in each stage of a card authorisation")
+                .labelNames("gateway", "stage")
+                .buckets(buckets)
+                .register(collectorRegistry);
+    }
+
+    public Histogram.Child gatewayOperationDuration(String gateway, String accountType, String operation) {
+        return gatewayOperationDuration.labels(gateway, accountType, operation);
+    }
+
+    public Histogram.Child authorisationStageDuration(String gateway, String stage) {
+        return authorisationStageDuration.labels(gateway, stage);
+    }
+
+    public CollectorRegistry getCollectorRegistry() {
+        return collectorRegistry;
+    }
+}
@@ -1,8 +1,6 @@
 package uk.gov.pay.connector.paymentprocessor.service;
 
 
-import com.codahale.metrics.MetricRegistry;
-import io.dropwizard.setup.Environment;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
@@ -14,6 +12,7 @@ import uk.gov.pay.connector.gateway.GatewayException;
 import uk.gov.pay.connector.gateway.exception.GenericGatewayRuntimeException;
 import uk.gov.pay.connector.gateway.model.response.BaseAuthoriseResponse;
 import uk.gov.pay.connector.gateway.model.response.GatewayResponse;
+import uk.gov.pay.connector.metrics.ConnectorMetrics;
 import uk.gov.pay.connector.paymentprocessor.model.OperationType;
 
 import javax.inject.Inject;
@@ -29,12 +28,12 @@ public class CardAuthoriseBaseService {
     
     private final CardExecutorService cardExecutorService;
     private final Logger logger = LoggerFactory.getLogger(getClass());
-    private final MetricRegistry metricRegistry;
+    private final ConnectorMetrics connectorMetrics;
 
     @Inject
-    public CardAuthoriseBaseService(CardExecutorService cardExecutorService, Environment environment) {
+    public CardAuthoriseBaseService(CardExecutorService cardExecutorService, ConnectorMetrics connectorMetrics) {
         this.cardExecutorService = cardExecutorService;
-        this.metricRegistry = environment.metrics();
+        this.connectorMetrics = connectorMetrics;
     }
  
     public <T> T executeAuthorise(String chargeId, Supplier<T> authorisationSupplier) {
@@ -63,13 +62,7 @@ public class CardAuthoriseBaseService {
     }
 
     void emitAuthorisationMetric(ChargeEntity charge, String operation) {
-        metricRegistry.counter(String.format("gateway-operations.%s.%s.%s.%s.result.%s",
-                charge.getGatewayAccount().getGatewayName(),
-                charge.getGatewayAccount().getType(),
-                charge.getGatewayAccount().getId(),
-                operation,
-                charge.getStatus())
-        ).inc();
+        connectorMetrics.operationResult(charge.getGatewayAccount(), operation, charge.getStatus());
     }
     
     public static ChargeStatus mapFromGatewayErrorException(GatewayException e) {
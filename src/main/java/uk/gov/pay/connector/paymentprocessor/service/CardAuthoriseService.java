@@ -1,8 +1,6 @@
 package uk.gov.pay.connector.paymentprocessor.service;
 
-import com.codahale.metrics.MetricRegistry;
 import com.google.inject.persist.Transactional;
-import io.dropwizard.setup.Environment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.gov.pay.connector.cardtype.dao.CardTypeDao;
@@ -21,6 +19,8 @@ import uk.gov.pay.connector.gateway.model.ProviderSessionIdentifier;
 import uk.gov.pay.connector.gateway.model.request.CardAuthorisationGatewayRequest;
 import uk.gov.pay.connector.gateway.model.response.BaseAuthoriseResponse;
 import uk.gov.pay.connector.gateway.model.response.GatewayResponse;
+import uk.gov.pay.connector.metrics.AuthorisationStageTimings;
+import uk.gov.pay.connector.metrics.StageTiming;
 import uk.gov.pay.connector.paymentprocessor.api.AuthorisationResponse;
 import uk.gov.pay.connector.paymentprocessor.model.OperationType;
 
@@ -30,6 +30,9 @@ import java.util.Optional;
 import java.util.stream.Collectors;
 
 import static uk.gov.pay.connector.charge.util.CorporateCardSurchargeCalculator.getCorporateCardSurchargeFor;
+import static uk.gov.pay.connector.metrics.AuthorisationStage.CARD_BRAND_3DS_CHECK;
+import static uk.gov.pay.connector.metrics.AuthorisationStage.CHARGE_UPDATE;
+import static uk.gov.pay.connector.metrics.AuthorisationStage.LOCK_CHARGE;
 
 public class CardAuthoriseService {
 
@@ -37,81 +40,88 @@ public class CardAuthoriseService {
     private final CardAuthoriseBaseService cardAuthoriseBaseService;
     private final ChargeService chargeService;
     private final PaymentProviders providers;
+    private final AuthorisationStageTimings authorisationStageTimings;
     private final Logger logger = LoggerFactory.getLogger(getClass());
-    private MetricRegistry metricRegistry;
 
     @Inject
     public CardAuthoriseService(CardTypeDao cardTypeDao,
                                 PaymentProviders providers,
                                 CardAuthoriseBaseService cardAuthoriseBaseService,
                                 ChargeService chargeService,
-                                Environment environment) {
+                                AuthorisationStageTimings authorisationStageTimings) {
         this.providers = providers;
         this.cardAuthoriseBaseService = cardAuthoriseBaseService;
         this.chargeService = chargeService;
-        this.metricRegistry = environment.metrics();
         this.cardTypeDao = cardTypeDao;
+        this.authorisationStageTimings = authorisationStageTimings;
     }
 
     public AuthorisationResponse doAuthorise(String chargeId, AuthCardDetails authCardDetails) {
         return cardAuthoriseBaseService.executeAuthorise(chargeId, () -> {
-
-            final ChargeEntity charge = prepareChargeForAuthorisation(chargeId, authCardDetails);
-            GatewayResponse<BaseAuthoriseResponse> operationResponse;
-            ChargeStatus newStatus;
-            Optional<String> transactionId = Optional.empty();
-            Optional<ProviderSessionIdentifier> sessionIdentifier = Optional.empty();
-            Optional<Auth3dsRequiredEntity> auth3dsDetailsEntity = Optional.empty();
-
-            try {
-                operationResponse = authorise(charge, authCardDetails);
-
-                if (operationResponse.getBaseResponse().isEmpty()) operationResponse.throwGatewayError();
-
-                newStatus = operationResponse.getBaseResponse().get().authoriseStatus().getMappedChargeStatus();
-                transactionId = cardAuthoriseBaseService.extractTransactionId(charge.getExternalId(), operationResponse);
-                auth3dsDetailsEntity = extractAuth3dsRequiredDetails(operationResponse);
-                sessionIdentifier = operationResponse.getSessionIdentifier();
-
-            } catch (GatewayException e) {
-                newStatus = CardAuthoriseBaseService.mapFromGatewayErrorException(e);
-                operationResponse = GatewayResponse.GatewayResponseBuilder.responseBuilder().withGatewayError(e.toGatewayError()).build();
+            try (AuthorisationStageTimings.Recording recording = authorisationStageTimings.startRecording(chargeId)) {
+
+                final ChargeEntity charge;
+                try (StageTiming ignored = AuthorisationStageTimings.time(LOCK_CHARGE)) {
+                    charge = prepareChargeForAuthorisation(chargeId, authCardDetails);
+                }
+                recording.setGatewayName(charge.getPaymentGatewayName().getName());
+
+                GatewayResponse<BaseAuthoriseResponse> operationResponse;
+                ChargeStatus newStatus;
+                Optional<String> transactionId = Optional.empty();
+                Optional<ProviderSessionIdentifier> sessionIdentifier = Optional.empty();
+                Optional<Auth3dsRequiredEntity> auth3dsDetailsEntity = Optional.empty();
+
+                try {
+                    operationResponse = authorise(charge, authCardDetails);
+
+                    if (operationResponse.getBaseResponse().isEmpty()) operationResponse.throwGatewayError();
+
+                    newStatus = operationResponse.getBaseResponse().get().authoriseStatus().getMappedChargeStatus();
+                    transactionId = cardAuthoriseBaseService.extractTransactionId(charge.getExternalId(), operationResponse);
+                    auth3dsDetailsEntity = extractAuth3dsRequiredDetails(operationResponse);
+                    sessionIdentifier = operationResponse.getSessionIdentifier();
+
+                } catch (GatewayException e) {
+                    newStatus = CardAuthoriseBaseService.mapFromGatewayErrorException(e);
+                    operationResponse = GatewayResponse.GatewayResponseBuilder.responseBuilder().withGatewayError(e.toGatewayError()).build();
+                }
+
+                ChargeEntity updatedCharge;
+                try (StageTiming ignored = AuthorisationStageTimings.time(CHARGE_UPDATE)) {
+                    updatedCharge = chargeService.updateChargePostCardAuthorisation(
+                            charge.getExternalId(),
+                            newStatus,
+                            transactionId.orElse(null),
+                            auth3dsDetailsEntity.orElse(null),
+                            sessionIdentifier.orElse(null),
+                            authCardDetails);
+                }
+
+                boolean billingAddressSubmitted = updatedCharge.getCardDetails().getBillingAddress().isPresent();
+
+                // Used by Sumo Logic saved search
+                logger.info("Authorisation {} for {} ({} {}) for {} ({}) - {} .'. {} -> {}",
+                        billingAddressSubmitted ? "with billing address" : "without billing address",
+                        updatedCharge.getExternalId(), updatedCharge.getPaymentGatewayName().getName(),
+                        transactionId.orElse("missing transaction ID"),
+                        updatedCharge.getGatewayAccount().getAnalyticsId(), updatedCharge.getGatewayAccount().getId(),
+                        operationResponse, ChargeStatus.fromString(charge.getStatus()), newStatus);
+
+                cardAuthoriseBaseService.emitAuthorisationMetric(updatedCharge,
+                        billingAddressSubmitted ? "authorise.with-billing-address" : "authorise.without-billing-address");
+
+                return new AuthorisationResponse(operationResponse);
             }
-
-            ChargeEntity updatedCharge = chargeService.updateChargePostCardAuthorisation(
-                    charge.getExternalId(),
-                    newStatus,
-                    transactionId.orElse(null),
-                    auth3dsDetailsEntity.orElse(null),
-                    sessionIdentifier.orElse(null),
-                    authCardDetails);
-
-            boolean billingAddressSubmitted = updatedCharge.getCardDetails().getBillingAddress().isPresent();
-
-            // Used by Sumo Logic saved search
-            logger.info("Authorisation {} for {} ({} {}) for {} ({}) - {} .'. {} -> {}",
-                    billingAddressSubmitted ? "with billing address" : "without billing address",
-                    updatedCharge.getExternalId(), updatedCharge.getPaymentGatewayName().getName(),
-                    transactionId.orElse("missing transaction ID"),
-                    updatedCharge.getGatewayAccount().getAnalyticsId(), updatedCharge.getGatewayAccount().getId(),
-                    operationResponse, ChargeStatus.fromString(charge.getStatus()), newStatus);
-
-            metricRegistry.counter(String.format(
-                    "gateway-operations.%s.%s.%s.authorise.%s.result.%s",
-                    updatedCharge.getGatewayAccount().getGatewayName(),
-                    updatedCharge.getGatewayAccount().getType(),
-                    updatedCharge.getGatewayAccount().getId(),
-                    billingAddressSubmitted ? "with-billing-address" : "without-billing-address",
-                    newStatus.toString())).inc();
-
-            return new AuthorisationResponse(operationResponse);
         });
     }
 
     @Transactional
     public ChargeEntity prepareChargeForAuthorisation(String chargeId, AuthCardDetails authCardDetails) {
         ChargeEntity charge = chargeService.lockChargeForProcessing(chargeId, OperationType.AUTHORISATION);
-        ensureCardBrandGateway3DSCompatibility(charge, authCardDetails.getCardBrand());
+        try (StageTiming ignored = AuthorisationStageTimings.time(CARD_BRAND_3DS_CHECK)) {
+            ensureCardBrandGateway3DSCompatibility(charge, authCardDetails.getCardBrand());
+        }
         getCorporateCardSurchargeFor(authCardDetails, charge).ifPresent(charge::setCorporateSurcharge);
         getPaymentProviderFor(charge)
                 .generateTransactionId().ifPresent(charge::setGatewayTransactionId);
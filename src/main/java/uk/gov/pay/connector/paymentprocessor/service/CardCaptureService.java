@@ -1,10 +1,9 @@
 package uk.gov.pay.connector.paymentprocessor.service;
 
-import com.codahale.metrics.MetricRegistry;
 import com.google.inject.persist.Transactional;
-import io.dropwizard.setup.Environment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.charge.exception.ChargeLockedRuntimeException;
 import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
 import uk.gov.pay.connector.charge.model.domain.ChargeStatus;
 import uk.gov.pay.connector.charge.model.domain.FeeEntity;
@@ -14,6 +13,7 @@ import uk.gov.pay.connector.fee.dao.FeeDao;
 import uk.gov.pay.connector.gateway.CaptureResponse;
 import uk.gov.pay.connector.gateway.PaymentProviders;
 import uk.gov.pay.connector.gateway.model.request.CaptureGatewayRequest;
+import uk.gov.pay.connector.metrics.ConnectorMetrics;
 import uk.gov.pay.connector.paymentprocessor.model.OperationType;
 import uk.gov.pay.connector.queue.capture.CaptureQueue;
 import uk.gov.pay.connector.queue.QueueException;
@@ -40,7 +40,7 @@ public class CardCaptureService {
     private final ChargeService chargeService;
     private final PaymentProviders providers;
     protected final Logger logger = LoggerFactory.getLogger(getClass());
-    protected MetricRegistry metricRegistry;
+    protected ConnectorMetrics connectorMetrics;
     protected CaptureQueue captureQueue;
 
     @Inject
@@ -48,12 +48,12 @@ public class CardCaptureService {
                               FeeDao feeDao,
                               PaymentProviders providers,
                               UserNotificationService userNotificationService,
-                              Environment environment,
+                              ConnectorMetrics connectorMetrics,
                               CaptureQueue captureQueue) {
         this.chargeService = chargeService;
         this.feeDao = feeDao;
         this.providers = providers;
-        this.metricRegistry = environment.metrics();
+        this.connectorMetrics = connectorMetrics;
         this.userNotificationService = userNotificationService;
         this.captureQueue = captureQueue;
     }
@@ -62,6 +62,10 @@ public class CardCaptureService {
         ChargeEntity charge;
         try {
             charge = prepareChargeForCapture(externalId);
+        } catch (ChargeLockedRuntimeException e) {
+            LOG.info("Charge external_id={} is locked by another operation, skipping capture", externalId);
+            connectorMetrics.captureRowLockConflicts().inc();
+            throw e;
         } catch (OptimisticLockException e) {
             LOG.info("OptimisticLockException in doCapture for charge external_id={}", externalId);
             throw new ConflictRuntimeException(externalId);
@@ -74,7 +78,7 @@ public class CardCaptureService {
 
     @Transactional
     public ChargeEntity prepareChargeForCapture(String chargeId) {
-        return chargeService.lockChargeForProcessing(chargeId, OperationType.CAPTURE);
+        return chargeService.lockChargeForBackgroundProcessing(chargeId, OperationType.CAPTURE);
     }
 
     public ChargeEntity markChargeAsEligibleForCapture(String externalId) {
@@ -106,6 +110,11 @@ public class CardCaptureService {
                 .capture(CaptureGatewayRequest.valueOf(chargeEntity));
     }
 
+    /**
+     * Guice applies the transaction to the call from {@link #doCapture(String)} too, because the injected service is a
+     * generated subclass, so the charge update, the fee and the outbox row for a delayed capture's confirmation email
+     * commit together.
+     */
     @Transactional
     public void processGatewayCaptureResponse(String chargeId, String oldStatus, CaptureResponse captureResponse) {
 
@@ -122,10 +131,7 @@ public class CardCaptureService {
                 charge.getGatewayAccount().getAnalyticsId(), charge.getGatewayAccount().getId(),
                 captureResponse, oldStatus, nextStatus);
 
-        metricRegistry.counter(format("gateway-operations.%s.%s.%s.capture.result.%s",
-                charge.getGatewayAccount().getGatewayName(),
-                charge.getGatewayAccount().getType(),
-                charge.getGatewayAccount().getId(), nextStatus.toString())).inc();
+        connectorMetrics.operationResult(charge.getGatewayAccount(), "capture", nextStatus.toString());
 
         if (captureResponse.isSuccessful() && charge.isDelayedCapture()) {
             userNotificationService.sendPaymentConfirmedEmail(charge, charge.getGatewayAccount());
@@ -0,0 +1,102 @@
+package uk.gov.pay.connector.paymentprocessor.service;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.inject.Provider;
+import io.dropwizard.setup.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
+import uk.gov.pay.connector.charge.model.domain.ChargeStatus;
+import uk.gov.pay.connector.common.exception.Charge3dsNotReadyRuntimeException;
+import uk.gov.pay.connector.common.exception.OperationAlreadyInProgressRuntimeException;
+import uk.gov.pay.connector.gateway.model.Auth3dsResult;
+
+import javax.inject.Inject;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_3DS_READY;
+import static uk.gov.pay.logging.LoggingKeys.PAYMENT_EXTERNAL_ID;
+
+/**
+ * Completes 3DS authorisations reported by gateway notifications, which can arrive before the user has returned from
+ * 3DS and frontend has moved the charge to AUTHORISATION 3DS READY.
+ * <p>
+ * Nothing waits for the charge to become ready. A notification for a charge that is not ready yet is turned away
+ * with a {@link Charge3dsNotReadyRuntimeException} and seen again later: the notification inbox schedules it for
+ * another attempt, and a notification handled directly is answered with a conflict so that the gateway sends it again.
+ * Once the maximum wait has passed since the gateway created the notification (for example because the user never
+ * returned), the charge is authorised whatever its state.
+ */
+public class Deferred3dsAuthorisationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(Deferred3dsAuthorisationService.class);
+    private static final String METRIC_PREFIX = "gateway-operations.authorise-3ds.deferred";
+    static final Duration RECHECK_INTERVAL = Duration.ofMillis(200);
+
+    private final Provider<Card3dsResponseAuthService> card3dsResponseAuthService;
+    private final Clock clock;
+
+    private final Counter authorisedWhen3dsReady;
+    private final Counter authorisedAfterMaximumWait;
+    private final Counter deferred;
+
+    @Inject
+    public Deferred3dsAuthorisationService(Provider<Card3dsResponseAuthService> card3dsResponseAuthService,
+                                           Environment environment,
+                                           Clock clock) {
+        this(card3dsResponseAuthService, environment.metrics(), clock);
+    }
+
+    Deferred3dsAuthorisationService(Provider<Card3dsResponseAuthService> card3dsResponseAuthService,
+                                    MetricRegistry metricRegistry,
+                                    Clock clock) {
+        this.card3dsResponseAuthService = card3dsResponseAuthService;
+        this.clock = clock;
+        this.authorisedWhen3dsReady = metricRegistry.counter(METRIC_PREFIX + ".authorised-when-3ds-ready");
+        this.authorisedAfterMaximumWait = metricRegistry.counter(METRIC_PREFIX + ".authorised-after-maximum-wait");
+        this.deferred = metricRegistry.counter(METRIC_PREFIX + ".deferred");
+    }
+
+    /**
+     * Authorises the charge if it is 3DS ready or the maximum wait since the notification was created has passed.
+     *
+     * @throws Charge3dsNotReadyRuntimeException if the notification should be handled again later, no earlier than
+     *                                           the returned retry date
+     */
+    public void authoriseWhen3dsReady(ChargeEntity charge, Auth3dsResult auth3dsResult,
+                                      ZonedDateTime notificationCreatedDate, Duration maximumWait) {
+        String chargeExternalId = charge.getExternalId();
+        if (ChargeStatus.fromString(charge.getStatus()) == AUTHORISATION_3DS_READY) {
+            authorisedWhen3dsReady.inc();
+            authorise(chargeExternalId, auth3dsResult);
+            return;
+        }
+
+        ZonedDateTime now = ZonedDateTime.now(clock);
+        ZonedDateTime maximumWaitDate = notificationCreatedDate.plus(maximumWait);
+        if (!now.isBefore(maximumWaitDate)) {
+            authorisedAfterMaximumWait.inc();
+            logger.info("Authorising 3DS charge that is not 3DS ready after waiting {} milliseconds since the notification was created",
+                    Duration.between(notificationCreatedDate, now).toMillis(), kv(PAYMENT_EXTERNAL_ID, chargeExternalId));
+            authorise(chargeExternalId, auth3dsResult);
+            return;
+        }
+
+        deferred.inc();
+        ZonedDateTime recheckDate = now.plus(RECHECK_INTERVAL);
+        throw new Charge3dsNotReadyRuntimeException(chargeExternalId,
+                recheckDate.isBefore(maximumWaitDate) ? recheckDate : maximumWaitDate);
+    }
+
+    private void authorise(String chargeExternalId, Auth3dsResult auth3dsResult) {
+        try {
+            card3dsResponseAuthService.get().process3DSecureAuthorisationWithoutLocking(chargeExternalId, auth3dsResult);
+        } catch (OperationAlreadyInProgressRuntimeException e) {
+            // the charge is already being authorised, for example by frontend following the user's return from 3DS
+        }
+    }
+}
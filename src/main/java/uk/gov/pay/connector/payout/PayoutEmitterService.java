@@ -12,9 +12,8 @@ import uk.gov.pay.connector.events.model.payout.PayoutFailed;
 import uk.gov.pay.connector.events.model.payout.PayoutPaid;
 import uk.gov.pay.connector.events.model.payout.PayoutUpdated;
 import uk.gov.pay.connector.gateway.stripe.json.StripePayout;
-import uk.gov.pay.connector.gatewayaccount.dao.GatewayAccountDao;
 import uk.gov.pay.connector.gatewayaccount.exception.GatewayAccountNotFoundException;
-import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
+import uk.gov.pay.connector.gatewayaccount.service.StripeAccountIdCache;
 import uk.gov.pay.connector.queue.QueueException;
 
 import java.time.ZonedDateTime;
@@ -22,7 +21,6 @@ import java.util.Optional;
 
 import static java.lang.String.format;
 import static net.logstash.logback.argument.StructuredArguments.kv;
-import static uk.gov.pay.connector.gatewayaccount.model.StripeCredentials.STRIPE_ACCOUNT_ID_KEY;
 import static uk.gov.pay.logging.LoggingKeys.CONNECT_ACCOUNT_ID;
 import static uk.gov.pay.logging.LoggingKeys.GATEWAY_PAYOUT_ID;
 import static uk.gov.pay.logging.LoggingKeys.LEDGER_EVENT_TYPE;
@@ -33,16 +31,16 @@ public class PayoutEmitterService {
 
     private final EventService eventService;
     private final boolean shouldEmitPayoutEvents;
-    private final GatewayAccountDao gatewayAccountDao;
+    private final StripeAccountIdCache stripeAccountIdCache;
 
     @Inject
     public PayoutEmitterService(EventService eventService,
                                 ConnectorConfiguration connectorConfiguration,
-                                GatewayAccountDao gatewayAccountDao) {
+                                StripeAccountIdCache stripeAccountIdCache) {
 
         this.eventService = eventService;
         shouldEmitPayoutEvents = connectorConfiguration.getEmitPayoutEvents();
-        this.gatewayAccountDao = gatewayAccountDao;
+        this.stripeAccountIdCache = stripeAccountIdCache;
     }
 
     public void emitPayoutEvent(Class<? extends PayoutEvent> eventClass, ZonedDateTime eventDate,
@@ -89,11 +87,10 @@ public class PayoutEmitterService {
     }
 
     private Event getPayoutCreatedEvent(String connectAccount, StripePayout payout) {
-        Optional<GatewayAccountEntity> mayBeGatewayAccount = gatewayAccountDao.findByCredentialsKeyValue(
-                STRIPE_ACCOUNT_ID_KEY, connectAccount);
+        Optional<Long> mayBeGatewayAccountId = stripeAccountIdCache.getGatewayAccountId(connectAccount);
 
-        if (mayBeGatewayAccount.isPresent()) {
-            return PayoutCreated.from(mayBeGatewayAccount.get().getId(), payout);
+        if (mayBeGatewayAccountId.isPresent()) {
+            return PayoutCreated.from(mayBeGatewayAccountId.get(), payout);
         } else {
             logger.error(format("Gateway account with Stripe connect account not found: connect_account_id [%s] ", connectAccount),
                     kv(GATEWAY_PAYOUT_ID, payout.getId()),
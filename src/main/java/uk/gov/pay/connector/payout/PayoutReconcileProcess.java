@@ -1,9 +1,11 @@
 package uk.gov.pay.connector.payout;
 
 import com.stripe.model.BalanceTransaction;
+import com.stripe.model.BalanceTransactionCollection;
 import com.stripe.model.Charge;
 import com.stripe.model.Payout;
 import com.stripe.model.Transfer;
+import io.dropwizard.setup.Environment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.gov.pay.connector.app.ConnectorConfiguration;
@@ -18,34 +20,58 @@ import uk.gov.pay.connector.gateway.stripe.json.StripePayout;
 import uk.gov.pay.connector.gateway.stripe.json.StripePayoutStatus;
 import uk.gov.pay.connector.gateway.stripe.request.StripeTransferMetadata;
 import uk.gov.pay.connector.gatewayaccount.dao.GatewayAccountDao;
-import uk.gov.pay.connector.gatewayaccount.model.StripeCredentials;
+import uk.gov.pay.connector.gatewayaccount.service.StripeAccountIdCache;
+import uk.gov.pay.connector.payout.dao.PayoutReconcileCheckpointDao;
+import uk.gov.pay.connector.payout.model.PayoutReconcileCheckpointEntity;
 import uk.gov.pay.connector.queue.QueueException;
 import uk.gov.pay.connector.queue.payout.PayoutReconcileMessage;
 import uk.gov.pay.connector.queue.payout.PayoutReconcileQueue;
 
 import javax.inject.Inject;
+import javax.persistence.OptimisticLockException;
+import java.time.Clock;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 
 import static java.lang.Boolean.TRUE;
 import static java.lang.String.format;
 import static net.logstash.logback.argument.StructuredArguments.kv;
 import static uk.gov.pay.logging.LoggingKeys.CONNECT_ACCOUNT_ID;
 import static uk.gov.pay.logging.LoggingKeys.GATEWAY_PAYOUT_ID;
-import static uk.gov.pay.logging.LoggingKeys.PAYMENT_EXTERNAL_ID;
-import static uk.gov.pay.logging.LoggingKeys.REFUND_EXTERNAL_ID;
 
+/**
+ * Emits an event for each payment and refund included in the payouts on the payout reconcile queue. Payouts are
+ * processed concurrently on the payout executor, up to the configured maximum. Each payout's balance transactions are
+ * fetched from Stripe a page at a time, the page's events are emitted in batches and a checkpoint is then recorded, so
+ * a payout whose message is retried resumes after the last page that was emitted. The checkpoint also records once
+ * the payout's own events have been emitted, so a retried page does not emit them again.
+ * <p>
+ * As the message is handed off rather than processed before the next receive, its visibility timeout is extended
+ * before each page is fetched, so it is not received again while its payout is still making progress. Should it be
+ * received again anyway, the checkpoint is versioned, so only one of the two can advance it.
+ */
 public class PayoutReconcileProcess {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PayoutReconcileProcess.class);
-    private PayoutReconcileQueue payoutReconcileQueue;
-    private StripeClientWrapper stripeClientWrapper;
-    private StripeGatewayConfig stripeGatewayConfig;
-    private ConnectorConfiguration connectorConfiguration;
-    private GatewayAccountDao gatewayAccountDao;
-    private EventService eventService;
-    private PayoutEmitterService payoutEmitterService;
+    private final PayoutReconcileQueue payoutReconcileQueue;
+    private final StripeClientWrapper stripeClientWrapper;
+    private final StripeGatewayConfig stripeGatewayConfig;
+    private final ConnectorConfiguration connectorConfiguration;
+    private final GatewayAccountDao gatewayAccountDao;
+    private final StripeAccountIdCache stripeAccountIdCache;
+    private final EventService eventService;
+    private final PayoutEmitterService payoutEmitterService;
+    private final PayoutReconcileCheckpointDao payoutReconcileCheckpointDao;
+    private final ExecutorService payoutExecutor;
+    private final Semaphore payoutsInFlight;
+    private final Clock clock;
+    private final int balanceTransactionPageSize;
+    private final int inFlightPayoutVisibilityTimeoutInSeconds;
 
     @Inject
     public PayoutReconcileProcess(PayoutReconcileQueue payoutReconcileQueue,
@@ -53,81 +79,206 @@ public class PayoutReconcileProcess {
                                   StripeGatewayConfig stripeGatewayConfig,
                                   ConnectorConfiguration connectorConfiguration,
                                   GatewayAccountDao gatewayAccountDao,
+                                  StripeAccountIdCache stripeAccountIdCache,
                                   EventService eventService,
-                                  PayoutEmitterService payoutEmitterService) {
+                                  PayoutEmitterService payoutEmitterService,
+                                  PayoutReconcileCheckpointDao payoutReconcileCheckpointDao,
+                                  Environment environment,
+                                  Clock clock) {
+        this(payoutReconcileQueue, stripeClientWrapper, stripeGatewayConfig, connectorConfiguration, gatewayAccountDao,
+                stripeAccountIdCache, eventService, payoutEmitterService, payoutReconcileCheckpointDao,
+                environment.lifecycle().executorService("payout-reconcile-%d")
+                        .minThreads(connectorConfiguration.getPayoutReconcileProcessConfig().getMaximumConcurrentPayouts())
+                        .maxThreads(connectorConfiguration.getPayoutReconcileProcessConfig().getMaximumConcurrentPayouts())
+                        .build(),
+                clock);
+    }
+
+    PayoutReconcileProcess(PayoutReconcileQueue payoutReconcileQueue,
+                           StripeClientWrapper stripeClientWrapper,
+                           StripeGatewayConfig stripeGatewayConfig,
+                           ConnectorConfiguration connectorConfiguration,
+                           GatewayAccountDao gatewayAccountDao,
+                           StripeAccountIdCache stripeAccountIdCache,
+                           EventService eventService,
+                           PayoutEmitterService payoutEmitterService,
+                           PayoutReconcileCheckpointDao payoutReconcileCheckpointDao,
+                           ExecutorService payoutExecutor,
+                           Clock clock) {
         this.payoutReconcileQueue = payoutReconcileQueue;
         this.stripeClientWrapper = stripeClientWrapper;
         this.stripeGatewayConfig = stripeGatewayConfig;
         this.connectorConfiguration = connectorConfiguration;
         this.gatewayAccountDao = gatewayAccountDao;
+        this.stripeAccountIdCache = stripeAccountIdCache;
         this.eventService = eventService;
         this.payoutEmitterService = payoutEmitterService;
+        this.payoutReconcileCheckpointDao = payoutReconcileCheckpointDao;
+        this.payoutExecutor = payoutExecutor;
+        this.payoutsInFlight = new Semaphore(connectorConfiguration.getPayoutReconcileProcessConfig().getMaximumConcurrentPayouts());
+        this.clock = clock;
+        this.balanceTransactionPageSize = connectorConfiguration.getPayoutReconcileProcessConfig().getBalanceTransactionPageSize();
+        this.inFlightPayoutVisibilityTimeoutInSeconds = connectorConfiguration.getPayoutReconcileProcessConfig()
+                .getInFlightPayoutVisibilityTimeoutInSeconds();
     }
 
+    /**
+     * Hands each payout message received to the payout executor and returns without waiting for the payouts to finish.
+     * No messages are received while the maximum number of payouts is in flight, and a message received beyond that
+     * waits only for the first of them to finish.
+     */
     public void processPayouts() throws QueueException {
-        List<PayoutReconcileMessage> payoutReconcileMessages = payoutReconcileQueue.retrievePayoutMessages();
-        for (PayoutReconcileMessage payoutReconcileMessage : payoutReconcileMessages) {
+        if (payoutsInFlight.availablePermits() == 0) {
+            return;
+        }
+
+        for (PayoutReconcileMessage payoutReconcileMessage : payoutReconcileQueue.retrievePayoutMessages()) {
             try {
-                LOGGER.info("Processing payout [{}] for connect account [{}]",
+                payoutsInFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                payoutExecutor.execute(() -> {
+                    try {
+                        processPayout(payoutReconcileMessage);
+                    } finally {
+                        payoutsInFlight.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                payoutsInFlight.release();
+                throw e;
+            }
+        }
+    }
+
+    private void processPayout(PayoutReconcileMessage payoutReconcileMessage) {
+        try {
+            LOGGER.info("Processing payout [{}] for connect account [{}]",
+                    payoutReconcileMessage.getGatewayPayoutId(),
+                    payoutReconcileMessage.getConnectAccountId());
+
+            String apiKey = getStripeApiKey(payoutReconcileMessage.getConnectAccountId());
+
+            PayoutReconcileCheckpointEntity checkpoint = payoutReconcileCheckpointDao
+                    .findByGatewayPayoutId(payoutReconcileMessage.getGatewayPayoutId())
+                    .orElseGet(() -> new PayoutReconcileCheckpointEntity(payoutReconcileMessage.getGatewayPayoutId()));
+
+            if (checkpoint.getLastBalanceTransactionId() != null) {
+                LOGGER.info(format("Resuming payout [%s] after balance transaction [%s]",
                         payoutReconcileMessage.getGatewayPayoutId(),
-                        payoutReconcileMessage.getConnectAccountId());
-
-                String apiKey = getStripeApiKey(payoutReconcileMessage.getConnectAccountId());
-
-                AtomicInteger payments = new AtomicInteger();
-                AtomicInteger refunds = new AtomicInteger();
-
-                stripeClientWrapper.getBalanceTransactionsForPayout(payoutReconcileMessage.getGatewayPayoutId(), payoutReconcileMessage.getConnectAccountId(), apiKey)
-                        .forEach(balanceTransaction -> {
-                            switch (balanceTransaction.getType()) {
-                                case "payment":
-                                    emitPaymentEvent(payoutReconcileMessage, balanceTransaction);
-                                    payments.getAndIncrement();
-                                    break;
-                                // Refunds have a balance transaction of type "transfer" as refunds are made from our 
-                                // Platform Stripe account, and then a transfer is made for the amount from the connect
-                                // account.
-                                case "transfer":
-                                    emitRefundEvent(payoutReconcileMessage, balanceTransaction);
-                                    refunds.getAndIncrement();
-                                    break;
-                                case "payout":
-                                    emitPayoutCreatedEvent(payoutReconcileMessage, balanceTransaction);
-                                    break;
-                                default:
-                                    LOGGER.error(format("Payout contains balance transfer of type [%s], which is unexpected.",
-                                            balanceTransaction.getType()),
-                                            kv(CONNECT_ACCOUNT_ID, payoutReconcileMessage.getConnectAccountId()),
-                                            kv(GATEWAY_PAYOUT_ID, payoutReconcileMessage.getGatewayPayoutId()));
-                                    break;
-                            }
-                        });
-
-                if (payments.intValue() == 0 && refunds.intValue() == 0) {
-                    LOGGER.error(format("No payments or refunds retrieved for payout [%s]. Requires investigation.",
-                            payoutReconcileMessage.getGatewayPayoutId()),
-                            kv(CONNECT_ACCOUNT_ID, payoutReconcileMessage.getConnectAccountId()),
-                            kv(GATEWAY_PAYOUT_ID, payoutReconcileMessage.getGatewayPayoutId()));
-                } else {
-                    LOGGER.info(format("Finished processing payout [%s]. Emitted events for %s payments and %s refunds.",
-                            payoutReconcileMessage.getGatewayPayoutId(),
-                            payments.intValue(),
-                            refunds.intValue()),
-                            kv(CONNECT_ACCOUNT_ID, payoutReconcileMessage.getConnectAccountId()),
-                            kv(GATEWAY_PAYOUT_ID, payoutReconcileMessage.getGatewayPayoutId()));
+                        checkpoint.getLastBalanceTransactionId()),
+                        kv(CONNECT_ACCOUNT_ID, payoutReconcileMessage.getConnectAccountId()),
+                        kv(GATEWAY_PAYOUT_ID, payoutReconcileMessage.getGatewayPayoutId()));
+            }
 
-                    payoutReconcileQueue.markMessageAsProcessed(payoutReconcileMessage.getQueueMessage());
+            BalanceTransactionCollection page;
+            do {
+                payoutReconcileQueue.extendVisibilityTimeout(payoutReconcileMessage.getQueueMessage(),
+                        inFlightPayoutVisibilityTimeoutInSeconds);
+                page = stripeClientWrapper.getBalanceTransactionsPageForPayout(payoutReconcileMessage.getGatewayPayoutId(),
+                        payoutReconcileMessage.getConnectAccountId(), apiKey, checkpoint.getLastBalanceTransactionId(),
+                        balanceTransactionPageSize);
+                if (page.getData().isEmpty()) {
+                    break;
                 }
-            } catch (Exception e) {
-                LOGGER.error(format("Error processing payout from SQS message [queueMessageId=%s] [errorMessage=%s]",
-                        payoutReconcileMessage.getQueueMessageId(),
-                        e.getMessage()),
+                checkpoint = processBalanceTransactions(payoutReconcileMessage, page.getData(), checkpoint);
+            } while (TRUE.equals(page.getHasMore()));
+
+            if (checkpoint.getPaymentsEmitted() == 0 && checkpoint.getRefundsEmitted() == 0) {
+                LOGGER.error(format("No payments or refunds retrieved for payout [%s]. Requires investigation.",
+                        payoutReconcileMessage.getGatewayPayoutId()),
+                        kv(CONNECT_ACCOUNT_ID, payoutReconcileMessage.getConnectAccountId()),
+                        kv(GATEWAY_PAYOUT_ID, payoutReconcileMessage.getGatewayPayoutId()));
+            } else {
+                LOGGER.info(format("Finished processing payout [%s]. Emitted events for %s payments and %s refunds.",
+                        payoutReconcileMessage.getGatewayPayoutId(),
+                        checkpoint.getPaymentsEmitted(),
+                        checkpoint.getRefundsEmitted()),
                         kv(CONNECT_ACCOUNT_ID, payoutReconcileMessage.getConnectAccountId()),
                         kv(GATEWAY_PAYOUT_ID, payoutReconcileMessage.getGatewayPayoutId()));
+
+                payoutReconcileQueue.markMessageAsProcessed(payoutReconcileMessage.getQueueMessage());
+                payoutReconcileCheckpointDao.deleteByGatewayPayoutId(payoutReconcileMessage.getGatewayPayoutId());
             }
+        } catch (OptimisticLockException e) {
+            LOGGER.info(format("Checkpoint for payout [%s] was advanced by another receipt of its message [queueMessageId=%s]",
+                    payoutReconcileMessage.getGatewayPayoutId(),
+                    payoutReconcileMessage.getQueueMessageId()),
+                    kv(CONNECT_ACCOUNT_ID, payoutReconcileMessage.getConnectAccountId()),
+                    kv(GATEWAY_PAYOUT_ID, payoutReconcileMessage.getGatewayPayoutId()));
+        } catch (Exception e) {
+            LOGGER.error(format("Error processing payout from SQS message [queueMessageId=%s] [errorMessage=%s]",
+                    payoutReconcileMessage.getQueueMessageId(),
+                    e.getMessage()),
+                    kv(CONNECT_ACCOUNT_ID, payoutReconcileMessage.getConnectAccountId()),
+                    kv(GATEWAY_PAYOUT_ID, payoutReconcileMessage.getGatewayPayoutId()));
         }
     }
 
+    /**
+     * Emits the events for a page of balance transactions and returns the checkpoint as merged, which carries the
+     * version the next merge must match.
+     */
+    private PayoutReconcileCheckpointEntity processBalanceTransactions(PayoutReconcileMessage payoutReconcileMessage,
+                                                                       List<BalanceTransaction> balanceTransactions,
+                                                                       PayoutReconcileCheckpointEntity checkpoint) {
+        List<Event> events = new ArrayList<>(balanceTransactions.size());
+        BalanceTransaction payoutBalanceTransaction = null;
+        int payments = 0;
+        int refunds = 0;
+
+        for (BalanceTransaction balanceTransaction : balanceTransactions) {
+            switch (balanceTransaction.getType()) {
+                case "payment":
+                    events.add(paymentEvent(payoutReconcileMessage, balanceTransaction));
+                    payments++;
+                    break;
+                // Refunds have a balance transaction of type "transfer" as refunds are made from our
+                // Platform Stripe account, and then a transfer is made for the amount from the connect
+                // account.
+                case "transfer":
+                    events.add(refundEvent(payoutReconcileMessage, balanceTransaction));
+                    refunds++;
+                    break;
+                case "payout":
+                    payoutBalanceTransaction = balanceTransaction;
+                    break;
+                default:
+                    LOGGER.error(format("Payout contains balance transfer of type [%s], which is unexpected.",
+                            balanceTransaction.getType()),
+                            kv(CONNECT_ACCOUNT_ID, payoutReconcileMessage.getConnectAccountId()),
+                            kv(GATEWAY_PAYOUT_ID, payoutReconcileMessage.getGatewayPayoutId()));
+                    break;
+            }
+        }
+
+        PayoutReconcileCheckpointEntity currentCheckpoint = checkpoint;
+        if (payoutBalanceTransaction != null && !currentCheckpoint.isPayoutEventsEmitted()) {
+            emitPayoutCreatedEvent(payoutReconcileMessage, payoutBalanceTransaction);
+            currentCheckpoint.payoutEventsEmitted(ZonedDateTime.now(clock));
+            currentCheckpoint = payoutReconcileCheckpointDao.merge(currentCheckpoint);
+        }
+
+        emitEvents(events, payoutReconcileMessage);
+
+        String lastBalanceTransactionId = balanceTransactions.get(balanceTransactions.size() - 1).getId();
+        currentCheckpoint.advance(lastBalanceTransactionId, payments, refunds, ZonedDateTime.now(clock));
+        currentCheckpoint = payoutReconcileCheckpointDao.merge(currentCheckpoint);
+
+        LOGGER.info(format("Emitted events for %s payments and %s refunds included in payout [%s] up to balance transaction [%s]",
+                payments,
+                refunds,
+                payoutReconcileMessage.getGatewayPayoutId(),
+                lastBalanceTransactionId),
+                kv(CONNECT_ACCOUNT_ID, payoutReconcileMessage.getConnectAccountId()),
+                kv(GATEWAY_PAYOUT_ID, payoutReconcileMessage.getGatewayPayoutId()));
+
+        return currentCheckpoint;
+    }
+
     private void emitPayoutCreatedEvent(PayoutReconcileMessage payoutReconcileMessage, BalanceTransaction balanceTransaction) {
         Payout payoutObject = (Payout) balanceTransaction.getSourceObject();
         StripePayout stripePayout = StripePayout.from(payoutObject);
@@ -159,45 +310,30 @@ public class PayoutReconcileProcess {
     }
 
     private String getStripeApiKey(String stripeAccountId) {
-        return gatewayAccountDao.findByCredentialsKeyValue(StripeCredentials.STRIPE_ACCOUNT_ID_KEY, stripeAccountId)
+        return stripeAccountIdCache.getGatewayAccountId(stripeAccountId)
+                .flatMap(gatewayAccountDao::findById)
                 .map(gatewayAccountEntity ->
                         gatewayAccountEntity.isLive() ? stripeGatewayConfig.getAuthTokens().getLive() : stripeGatewayConfig.getAuthTokens().getTest())
                 .orElseThrow(() -> new RuntimeException(format("Gateway account with Stripe connect account ID [%s] not found.", stripeAccountId)));
     }
 
-    private void emitPaymentEvent(PayoutReconcileMessage payoutReconcileMessage, BalanceTransaction balanceTransaction) {
+    private Event paymentEvent(PayoutReconcileMessage payoutReconcileMessage, BalanceTransaction balanceTransaction) {
         var paymentSource = (Charge) balanceTransaction.getSourceObject();
         var paymentSourceTransfer = paymentSource.getSourceTransferObject();
         String paymentExternalId = resolveTransactionExternalId(payoutReconcileMessage, balanceTransaction, paymentSourceTransfer);
 
-        var paymentEvent = new PaymentIncludedInPayout(paymentExternalId,
+        return new PaymentIncludedInPayout(paymentExternalId,
                 payoutReconcileMessage.getGatewayPayoutId(),
                 payoutReconcileMessage.getCreatedDate());
-        emitEvent(paymentEvent, payoutReconcileMessage, paymentExternalId);
-
-        LOGGER.info(format("Emitted event for payment [%s] included in payout [%s]",
-                paymentExternalId,
-                payoutReconcileMessage.getGatewayPayoutId()),
-                kv(PAYMENT_EXTERNAL_ID, paymentExternalId),
-                kv(CONNECT_ACCOUNT_ID, payoutReconcileMessage.getConnectAccountId()),
-                kv(GATEWAY_PAYOUT_ID, payoutReconcileMessage.getGatewayPayoutId()));
     }
 
-    private void emitRefundEvent(PayoutReconcileMessage payoutReconcileMessage, BalanceTransaction balanceTransaction) {
+    private Event refundEvent(PayoutReconcileMessage payoutReconcileMessage, BalanceTransaction balanceTransaction) {
         var sourceTransfer = (Transfer) balanceTransaction.getSourceObject();
         String refundExternalId = resolveTransactionExternalId(payoutReconcileMessage, balanceTransaction, sourceTransfer);
 
-        var refundEvent = new RefundIncludedInPayout(refundExternalId,
+        return new RefundIncludedInPayout(refundExternalId,
                 payoutReconcileMessage.getGatewayPayoutId(),
                 payoutReconcileMessage.getCreatedDate());
-        emitEvent(refundEvent, payoutReconcileMessage, refundExternalId);
-
-        LOGGER.info(format("Emitted event for refund [%s] included in payout [%s]",
-                refundExternalId,
-                payoutReconcileMessage.getGatewayPayoutId()),
-                kv(REFUND_EXTERNAL_ID, refundExternalId),
-                kv(CONNECT_ACCOUNT_ID, payoutReconcileMessage.getConnectAccountId()),
-                kv(GATEWAY_PAYOUT_ID, payoutReconcileMessage.getGatewayPayoutId()));
     }
 
     private String resolveTransactionExternalId(PayoutReconcileMessage payoutReconcileMessage, BalanceTransaction balanceTransaction, Transfer sourceTransfer) {
@@ -212,13 +348,13 @@ public class PayoutReconcileProcess {
         return transactionExternalId;
     }
 
-    private void emitEvent(Event event, PayoutReconcileMessage payoutReconcileMessage, String transactionExternalId) {
+    private void emitEvents(List<Event> events, PayoutReconcileMessage payoutReconcileMessage) {
         if (TRUE.equals(connectorConfiguration.getEmitPayoutEvents())) {
             try {
-                eventService.emitEvent(event, false);
+                eventService.emitEvents(events);
             } catch (QueueException e) {
-                throw new RuntimeException(format("Error sending %s event for transaction [%s] included in payout [%s] to event queue: %s",
-                        event.getEventType(), transactionExternalId, payoutReconcileMessage.getGatewayPayoutId(), e.getMessage()), e);
+                throw new RuntimeException(format("Error sending batch of %s events for transactions included in payout [%s] to event queue: %s",
+                        events.size(), payoutReconcileMessage.getGatewayPayoutId(), e.getMessage()), e);
             }
         }
     }
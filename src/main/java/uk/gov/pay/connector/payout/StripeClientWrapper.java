@@ -1,24 +1,53 @@
 package uk.gov.pay.connector.payout;
 
 import com.stripe.exception.StripeException;
-import com.stripe.model.BalanceTransaction;
+import com.stripe.model.BalanceTransactionCollection;
+import com.stripe.net.ApiResource;
 import com.stripe.net.RequestOptions;
+import uk.gov.pay.connector.app.StripeGatewayConfig;
 
+import javax.inject.Inject;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 class StripeClientWrapper {
 
-    Iterable<BalanceTransaction> getBalanceTransactionsForPayout(String payoutId, String stripeAccountId, String apiKey) throws StripeException {
-        RequestOptions requestOptions = RequestOptions.builder()
+    private static final String BALANCE_TRANSACTIONS_PATH = "/v1/balance_transactions";
+
+    private final String stripeUrl;
+
+    /**
+     * Requests go to the configured Stripe url, which is a local stub in tests. The url is given with each request
+     * rather than through {@code Stripe.overrideApiBase}, which would change it for every user of the Stripe library.
+     */
+    @Inject
+    StripeClientWrapper(StripeGatewayConfig stripeGatewayConfig) {
+        this.stripeUrl = stripeGatewayConfig.getUrl();
+    }
+
+    /**
+     * Fetches one page of the payout's balance transactions, in Stripe's order, starting after the given balance
+     * transaction or from the first when it is null.
+     */
+    BalanceTransactionCollection getBalanceTransactionsPageForPayout(String payoutId, String stripeAccountId, String apiKey,
+                                                                     String startingAfter, int pageSize) throws StripeException {
+        Map<String, Object> params = new HashMap<>();
+        params.put("payout", payoutId);
+        params.put("limit", pageSize);
+        params.put("expand", List.of("data.source", "data.source.source_transfer"));
+        if (startingAfter != null) {
+            params.put("starting_after", startingAfter);
+        }
+
+        return ApiResource.requestCollection(stripeUrl + BALANCE_TRANSACTIONS_PATH, params,
+                BalanceTransactionCollection.class, requestOptions(stripeAccountId, apiKey));
+    }
+
+    private static RequestOptions requestOptions(String stripeAccountId, String apiKey) {
+        return RequestOptions.builder()
                 .setApiKey(apiKey)
                 .setStripeAccount(stripeAccountId)
                 .build();
-
-        Map<String, Object> params = Map.of(
-                "payout", payoutId,
-                "expand", List.of("data.source", "data.source.source_transfer"));
-        
-        return BalanceTransaction.list(params, requestOptions).autoPagingIterable();
     }
 }
@@ -0,0 +1,30 @@
+package uk.gov.pay.connector.payout.dao;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.persist.Transactional;
+import uk.gov.pay.connector.common.dao.JpaDao;
+import uk.gov.pay.connector.payout.model.PayoutReconcileCheckpointEntity;
+
+import javax.persistence.EntityManager;
+import java.util.Optional;
+
+@Transactional
+public class PayoutReconcileCheckpointDao extends JpaDao<PayoutReconcileCheckpointEntity> {
+
+    @Inject
+    public PayoutReconcileCheckpointDao(Provider<EntityManager> entityManager) {
+        super(entityManager);
+    }
+
+    public Optional<PayoutReconcileCheckpointEntity> findByGatewayPayoutId(String gatewayPayoutId) {
+        return super.findById(PayoutReconcileCheckpointEntity.class, gatewayPayoutId);
+    }
+
+    public void deleteByGatewayPayoutId(String gatewayPayoutId) {
+        entityManager.get()
+                .createQuery("DELETE FROM PayoutReconcileCheckpointEntity c WHERE c.gatewayPayoutId = :gatewayPayoutId")
+                .setParameter("gatewayPayoutId", gatewayPayoutId)
+                .executeUpdate();
+    }
+}
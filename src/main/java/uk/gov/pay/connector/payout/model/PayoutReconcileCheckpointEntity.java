@@ -0,0 +1,85 @@
+package uk.gov.pay.connector.payout.model;
+
+import uk.gov.pay.connector.common.model.domain.AbstractVersionedEntity;
+import uk.gov.pay.connector.common.model.domain.UTCDateTimeConverter;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.ZonedDateTime;
+
+/**
+ * How far reconciliation of a payout has got: the last balance transaction whose event has been emitted, how many
+ * payment and refund events have been emitted up to it and whether the payout's own events have been emitted. A retried
+ * payout message resumes after that transaction. It is versioned, so two receipts of the same payout message cannot
+ * both advance it.
+ */
+@Entity
+@Table(name = "payout_reconcile_checkpoints")
+public class PayoutReconcileCheckpointEntity extends AbstractVersionedEntity {
+
+    @Id
+    @Column(name = "gateway_payout_id")
+    private String gatewayPayoutId;
+
+    @Column(name = "last_balance_transaction_id")
+    private String lastBalanceTransactionId;
+
+    @Column(name = "payments_emitted")
+    private int paymentsEmitted;
+
+    @Column(name = "refunds_emitted")
+    private int refundsEmitted;
+
+    @Column(name = "payout_events_emitted")
+    private boolean payoutEventsEmitted;
+
+    @Convert(converter = UTCDateTimeConverter.class)
+    @Column(name = "updated_date")
+    private ZonedDateTime updatedDate;
+
+    protected PayoutReconcileCheckpointEntity() {
+    }
+
+    public PayoutReconcileCheckpointEntity(String gatewayPayoutId) {
+        this.gatewayPayoutId = gatewayPayoutId;
+    }
+
+    public void advance(String lastBalanceTransactionId, int payments, int refunds, ZonedDateTime updatedDate) {
+        this.lastBalanceTransactionId = lastBalanceTransactionId;
+        this.paymentsEmitted += payments;
+        this.refundsEmitted += refunds;
+        this.updatedDate = updatedDate;
+    }
+
+    public void payoutEventsEmitted(ZonedDateTime updatedDate) {
+        this.payoutEventsEmitted = true;
+        this.updatedDate = updatedDate;
+    }
+
+    public String getGatewayPayoutId() {
+        return gatewayPayoutId;
+    }
+
+    public String getLastBalanceTransactionId() {
+        return lastBalanceTransactionId;
+    }
+
+    public int getPaymentsEmitted() {
+        return paymentsEmitted;
+    }
+
+    public int getRefundsEmitted() {
+        return refundsEmitted;
+    }
+
+    public boolean isPayoutEventsEmitted() {
+        return payoutEventsEmitted;
+    }
+
+    public ZonedDateTime getUpdatedDate() {
+        return updatedDate;
+    }
+}
@@ -37,5 +37,9 @@ public abstract class AbstractQueue {
     public void scheduleMessageForRetry(QueueMessage queueMessage) throws QueueException {
         sqsQueueService.deferMessage(this.queueUrl, queueMessage.getReceiptHandle(), failedMessageRetryDelayInSeconds);
     }
+
+    public void extendVisibilityTimeout(QueueMessage queueMessage, int timeoutInSeconds) throws QueueException {
+        sqsQueueService.deferMessage(this.queueUrl, queueMessage.getReceiptHandle(), timeoutInSeconds);
+    }
 }
 
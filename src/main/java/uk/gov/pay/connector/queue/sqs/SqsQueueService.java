@@ -2,6 +2,8 @@ package uk.gov.pay.connector.queue.sqs;
 
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
 import com.amazonaws.services.sqs.model.SendMessageResult;
 import com.amazonaws.services.sqs.model.DeleteMessageRequest;
 import com.amazonaws.services.sqs.model.DeleteMessageResult;
@@ -18,9 +20,13 @@ import uk.gov.pay.connector.queue.QueueMessage;
 
 import javax.inject.Inject;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class SqsQueueService {
 
+    private static final int MAXIMUM_SEND_BATCH_SIZE = 10;
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     private AmazonSQS sqsClient;
@@ -47,6 +53,34 @@ public class SqsQueueService {
         }
     }
 
+    /**
+     * Sends the messages in batches of up to {@value MAXIMUM_SEND_BATCH_SIZE}, the most SQS accepts in one request.
+     * Throws if any message was not sent; messages in earlier batches, and the others in the failed batch, may have
+     * been sent.
+     */
+    public void sendMessages(String queueUrl, List<String> messageBodies) throws QueueException {
+        for (int start = 0; start < messageBodies.size(); start += MAXIMUM_SEND_BATCH_SIZE) {
+            List<String> batch = messageBodies.subList(start, Math.min(start + MAXIMUM_SEND_BATCH_SIZE, messageBodies.size()));
+            List<SendMessageBatchRequestEntry> entries = IntStream.range(0, batch.size())
+                    .mapToObj(i -> new SendMessageBatchRequestEntry(String.valueOf(i), batch.get(i)))
+                    .collect(Collectors.toList());
+            try {
+                SendMessageBatchResult sendMessageBatchResult = sqsClient.sendMessageBatch(queueUrl, entries);
+
+                if (!sendMessageBatchResult.getFailed().isEmpty()) {
+                    logger.error("Failed sending {} of {} messages in batch to SQS queue - {}",
+                            sendMessageBatchResult.getFailed().size(), batch.size(), sendMessageBatchResult.getFailed());
+                    throw new QueueException(String.format("Failed sending %s of %s messages in batch",
+                            sendMessageBatchResult.getFailed().size(), batch.size()));
+                }
+                logger.info("{} messages sent to SQS queue in batch", batch.size());
+            } catch (AmazonSQSException | UnsupportedOperationException e) {
+                logger.error("Failed sending message batch to SQS queue - {}", e.getMessage());
+                throw new QueueException(e.getMessage());
+            }
+        }
+    }
+
     public List<QueueMessage> receiveMessages(String queueUrl, String messageAttributeName) throws QueueException {
         try {
             ReceiveMessageRequest receiveMessageRequest = new ReceiveMessageRequest(queueUrl);
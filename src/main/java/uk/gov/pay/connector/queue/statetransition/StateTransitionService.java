@@ -1,8 +1,6 @@
 package uk.gov.pay.connector.queue.statetransition;
 
-import com.codahale.metrics.MetricRegistry;
 import com.google.inject.persist.Transactional;
-import io.dropwizard.setup.Environment;
 import org.apache.commons.lang3.ArrayUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,6 +10,9 @@ import uk.gov.pay.connector.common.model.domain.PaymentGatewayStateTransitions;
 import uk.gov.pay.connector.events.EventService;
 import uk.gov.pay.connector.events.model.Event;
 import uk.gov.pay.connector.events.model.ResourceType;
+import uk.gov.pay.connector.metrics.AuthorisationStageTimings;
+import uk.gov.pay.connector.metrics.ConnectorMetrics;
+import uk.gov.pay.connector.metrics.StageTiming;
 import uk.gov.pay.connector.refund.model.domain.RefundEntity;
 import uk.gov.pay.connector.refund.model.domain.RefundStatus;
 import uk.gov.pay.connector.refund.service.RefundStateEventMap;
@@ -24,6 +25,7 @@ import static java.lang.String.format;
 import static java.time.ZonedDateTime.now;
 import static net.logstash.logback.argument.StructuredArguments.e;
 import static net.logstash.logback.argument.StructuredArguments.kv;
+import static uk.gov.pay.connector.metrics.AuthorisationStage.EVENT_OFFER;
 
 public class StateTransitionService {
 
@@ -31,15 +33,15 @@ public class StateTransitionService {
 
     private StateTransitionQueue stateTransitionQueue;
     private EventService eventService;
-    private MetricRegistry metricRegistry;
+    private ConnectorMetrics connectorMetrics;
 
     @Inject
     public StateTransitionService(StateTransitionQueue stateTransitionQueue,
-                                  EventService eventService, 
-                                  Environment environment) {
+                                  EventService eventService,
+                                  ConnectorMetrics connectorMetrics) {
         this.stateTransitionQueue = stateTransitionQueue;
         this.eventService = eventService;
-        this.metricRegistry = environment.metrics();
+        this.connectorMetrics = connectorMetrics;
     }
 
     @Transactional
@@ -69,14 +71,14 @@ public class StateTransitionService {
             ChargeEventEntity chargeEventEntity, Class<T> eventClass) {
 
         PaymentStateTransition transition = new PaymentStateTransition(chargeEventEntity.getId(), eventClass);
-        stateTransitionQueue.offer(transition);
+        try (StageTiming ignored = AuthorisationStageTimings.time(EVENT_OFFER)) {
+            stateTransitionQueue.offer(transition);
+        }
 
         var logMessage = format("Offered payment state transition to emitter queue [from=%s] [to=%s] [chargeEventId=%s] [chargeId=%s]",
                 fromChargeState, targetChargeState, chargeEventEntity.getId(), externalId);
 
-        incrementPerGatewayStateTransitionCounter(targetChargeState, chargeEventEntity);
-        incrementPerGatewayStateTransitionMeter(targetChargeState, chargeEventEntity);
-        incrementPerGatewayAccountStateTransitionCounter(targetChargeState, chargeEventEntity);
+        connectorMetrics.stateTransition(chargeEventEntity.getChargeEntity().getGatewayAccount(), targetChargeState.toString());
 
         Object[] structuredArgs = ArrayUtils.addAll(
                 chargeEventEntity.getChargeEntity().getStructuredLoggingArgs(),
@@ -91,31 +93,6 @@ public class StateTransitionService {
                 chargeEventEntity.getUpdated());
     }
 
-    private void incrementPerGatewayAccountStateTransitionCounter(ChargeStatus targetChargeState, ChargeEventEntity chargeEventEntity) {
-        metricRegistry.counter(String.format(
-                "state-transition.%s.%s.%s.to.%s",
-                chargeEventEntity.getChargeEntity().getGatewayAccount().getType(),
-                chargeEventEntity.getChargeEntity().getGatewayAccount().getGatewayName(),
-                chargeEventEntity.getChargeEntity().getGatewayAccount().getId(),
-                targetChargeState)).inc();
-    }
-    
-    private void incrementPerGatewayStateTransitionMeter(ChargeStatus targetChargeState, ChargeEventEntity chargeEventEntity) {
-        metricRegistry.meter(String.format(
-                "state-transition.%s.%s.to.%s.rate",
-                chargeEventEntity.getChargeEntity().getGatewayAccount().getType(),
-                chargeEventEntity.getChargeEntity().getGatewayAccount().getGatewayName(),
-                targetChargeState)).mark();
-    }
-
-    private void incrementPerGatewayStateTransitionCounter(ChargeStatus targetChargeState, ChargeEventEntity chargeEventEntity) {
-        metricRegistry.counter(String.format(
-                "state-transition.%s.%s.to.%s",
-                chargeEventEntity.getChargeEntity().getGatewayAccount().getType(),
-                chargeEventEntity.getChargeEntity().getGatewayAccount().getGatewayName(),
-                targetChargeState)).inc();
-    }
-
     @Transactional
     public void offerStateTransition(StateTransition stateTransition, Event event,
                                      ZonedDateTime doNotRetryEmitUntilDate) {
@@ -12,6 +12,7 @@ import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.TemporalType;
 import java.sql.Date;
+import java.sql.Timestamp;
 import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -21,6 +22,15 @@ import static java.time.ZoneOffset.UTC;
 @Transactional
 public class RefundDao extends JpaDao<RefundEntity> {
 
+    // Walks idx_refunds_created_date_parity_check_date in created_date order and probes idx_charges_external_id
+    // for the anti-join, so it stops at the first refund whose charge has already been expunged
+    public static final String FIND_REFUND_TO_EXPUNGE =
+            "SELECT r.* FROM refunds r " +
+                    "WHERE r.created_date < ?1 " +
+                    "AND (r.parity_check_date IS NULL OR r.parity_check_date < ?2) " +
+                    "AND NOT EXISTS (SELECT 1 FROM charges c WHERE c.external_id = r.charge_external_id) " +
+                    "ORDER BY r.created_date LIMIT 1";
+
     @Inject
     public RefundDao(final Provider<EntityManager> entityManager) {
         super(entityManager);
@@ -135,22 +145,15 @@ public class RefundDao extends JpaDao<RefundEntity> {
     }
 
     public Optional<RefundEntity> findRefundToExpunge(int minimumAgeOfRefundInDays, int excludeRefundsParityCheckedWithInDays) {
-        String query = "SELECT r FROM RefundEntity r left outer join ChargeEntity c on r.chargeExternalId = c.externalId " +
-                " WHERE c.externalId is null " +
-                " AND (r.parityCheckDate is null or r.parityCheckDate < :parityCheckedBeforeDate)" +
-                " AND r.createdDate < :createdBeforeDate " +
-                " ORDER BY r.createdDate asc";
-
         ZonedDateTime parityCheckedBeforeDate = ZonedDateTime.now(UTC)
                 .minusDays(excludeRefundsParityCheckedWithInDays);
         ZonedDateTime createdBeforeDate = ZonedDateTime.now(UTC)
                 .minusDays(minimumAgeOfRefundInDays);
 
         return entityManager.get()
-                .createQuery(query, RefundEntity.class)
-                .setParameter("parityCheckedBeforeDate", parityCheckedBeforeDate)
-                .setParameter("createdBeforeDate", createdBeforeDate)
-                .setMaxResults(1)
+                .createNativeQuery(FIND_REFUND_TO_EXPUNGE, RefundEntity.class)
+                .setParameter(1, Timestamp.from(createdBeforeDate.toInstant()))
+                .setParameter(2, Timestamp.from(parityCheckedBeforeDate.toInstant()))
                 .getResultList().stream().findFirst();
     }
 
@@ -1,6 +1,7 @@
 package uk.gov.pay.connector.refund.model;
 
 import black.door.hate.HalRepresentation;
+import uk.gov.pay.connector.common.model.api.LinkTemplates;
 import uk.gov.pay.connector.refund.model.domain.RefundEntity;
 
 import javax.ws.rs.core.UriInfo;
@@ -19,13 +20,9 @@ public class RefundResponse extends HalResourceResponse {
         String externalChargeId = refundEntity.getChargeExternalId();
         String externalRefundId = refundEntity.getExternalId();
 
-        URI selfLink = uriInfo.getBaseUriBuilder()
-                .path("/v1/api/accounts/{accountId}/charges/{chargeId}/refunds/{refundId}")
-                .build(gatewayAccountId, externalChargeId, externalRefundId);
+        URI selfLink = LinkTemplates.CHARGE_REFUND.expand(uriInfo.getBaseUri(), gatewayAccountId, externalChargeId, externalRefundId);
 
-        URI paymentLink = uriInfo.getBaseUriBuilder()
-                .path("/v1/api/accounts/{accountId}/charges/{chargeId}")
-                .build(gatewayAccountId, externalChargeId);
+        URI paymentLink = LinkTemplates.CHARGE.expand(uriInfo.getBaseUri(), gatewayAccountId, externalChargeId);
 
         return new RefundResponse(HalRepresentation.builder()
                 .addProperty("refund_id", refundEntity.getExternalId())
@@ -3,6 +3,7 @@ package uk.gov.pay.connector.refund.model;
 import black.door.hate.HalRepresentation;
 import black.door.hate.HalResource;
 import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
+import uk.gov.pay.connector.common.model.api.LinkTemplates;
 import uk.gov.pay.connector.refund.model.domain.RefundEntity;
 
 import javax.ws.rs.core.UriInfo;
@@ -21,13 +22,9 @@ public class RefundsResponse extends HalResourceResponse {
         Long accountId = chargeEntity.getGatewayAccount().getId();
         String externalChargeId = chargeEntity.getExternalId();
 
-        URI selfLink = uriInfo.getBaseUriBuilder()
-                .path("/v1/api/accounts/{accountId}/charges/{chargeId}/refunds")
-                .build(accountId.toString(), externalChargeId);
+        URI selfLink = LinkTemplates.CHARGE_REFUNDS.expand(uriInfo.getBaseUri(), accountId, externalChargeId);
 
-        URI paymentLink = uriInfo.getBaseUriBuilder()
-                .path("/v1/api/accounts/{accountId}/charges/{chargeId}")
-                .build(accountId.toString(), externalChargeId);
+        URI paymentLink = LinkTemplates.CHARGE.expand(uriInfo.getBaseUri(), accountId, externalChargeId);
 
         List<HalResource> refunds = refundEntityList.stream()
                 .map(refundEntity -> RefundResponse.valueOf(refundEntity, accountId, uriInfo))
@@ -0,0 +1,90 @@
+package uk.gov.pay.connector.refund.service;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.setup.Environment;
+import uk.gov.pay.connector.client.ledger.model.RefundTransactionsForPayment;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the refunds ledger holds for historic charges for the length of a single operation (a refund request or a
+ * batch of state transition events), so that working out refund availability several times during the operation only
+ * asks ledger once per charge. Nothing is remembered outside a scope. The refunds ledger holds for a historic charge
+ * are the expunged ones, which no longer change; refunds written during the operation are in the database, which is
+ * re-read every time and preferred over ledger, so entries never need to be dropped.
+ */
+@Singleton
+public class LedgerRefundCache {
+
+    private static final String METRIC_PREFIX = "refunds.ledger-lookups";
+
+    private final ThreadLocal<Scope> currentScope = new ThreadLocal<>();
+    private final Histogram ledgerCallsPerOperation;
+    private final Counter reused;
+
+    @Inject
+    public LedgerRefundCache(Environment environment) {
+        this(environment.metrics());
+    }
+
+    LedgerRefundCache(MetricRegistry metricRegistry) {
+        this.ledgerCallsPerOperation = metricRegistry.histogram(METRIC_PREFIX + ".ledger-calls-per-operation");
+        this.reused = metricRegistry.counter(METRIC_PREFIX + ".reused");
+    }
+
+    /**
+     * Opens a scope on the current thread, or joins the one that is already open. Only closing the outermost scope
+     * ends it.
+     */
+    public Scope openScope() {
+        Scope scope = currentScope.get();
+        if (scope == null) {
+            scope = new Scope();
+            currentScope.set(scope);
+        }
+        scope.depth++;
+        return scope;
+    }
+
+    public RefundTransactionsForPayment getRefundsForPayment(String chargeExternalId,
+                                                             Supplier<RefundTransactionsForPayment> ledgerCall) {
+        Scope scope = currentScope.get();
+        if (scope == null) {
+            return ledgerCall.get();
+        }
+
+        RefundTransactionsForPayment refunds = scope.refundsByCharge.get(chargeExternalId);
+        if (refunds != null) {
+            reused.inc();
+            return refunds;
+        }
+
+        refunds = ledgerCall.get();
+        scope.ledgerCalls++;
+        scope.refundsByCharge.put(chargeExternalId, refunds);
+        return refunds;
+    }
+
+    public class Scope implements AutoCloseable {
+        private final Map<String, RefundTransactionsForPayment> refundsByCharge = new HashMap<>();
+        private int depth;
+        private int ledgerCalls;
+
+        private Scope() {
+        }
+
+        @Override
+        public void close() {
+            if (--depth == 0) {
+                currentScope.remove();
+                ledgerCallsPerOperation.update(ledgerCalls);
+            }
+        }
+    }
+}
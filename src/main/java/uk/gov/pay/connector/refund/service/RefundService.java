@@ -48,6 +48,7 @@ public class RefundService {
     private final UserNotificationService userNotificationService;
     private StateTransitionService stateTransitionService;
     private LedgerService ledgerService;
+    private final LedgerRefundCache ledgerRefundCache;
 
     @Inject
     public RefundService(RefundDao refundDao,
@@ -55,7 +56,8 @@ public class RefundService {
                          PaymentProviders providers,
                          UserNotificationService userNotificationService,
                          StateTransitionService stateTransitionService,
-                         LedgerService ledgerService
+                         LedgerService ledgerService,
+                         LedgerRefundCache ledgerRefundCache
     ) {
         this.refundDao = refundDao;
         this.gatewayAccountDao = gatewayAccountDao;
@@ -63,17 +65,20 @@ public class RefundService {
         this.userNotificationService = userNotificationService;
         this.stateTransitionService = stateTransitionService;
         this.ledgerService = ledgerService;
+        this.ledgerRefundCache = ledgerRefundCache;
     }
 
     public ChargeRefundResponse doRefund(Long accountId, Charge charge, RefundRequest refundRequest) {
-        GatewayAccountEntity gatewayAccountEntity = gatewayAccountDao.findById(accountId).orElseThrow(
-                () -> new GatewayAccountNotFoundException(accountId));
-        RefundEntity refundEntity = createRefund(charge, gatewayAccountEntity, refundRequest);
-        GatewayRefundResponse gatewayRefundResponse = providers
-                .byName(PaymentGatewayName.valueFrom(gatewayAccountEntity.getGatewayName()))
-                .refund(RefundGatewayRequest.valueOf(charge, refundEntity, gatewayAccountEntity));
-        RefundEntity refund = processRefund(gatewayRefundResponse, refundEntity.getId(), gatewayAccountEntity, charge);
-        return new ChargeRefundResponse(gatewayRefundResponse, refund);
+        try (LedgerRefundCache.Scope ignored = ledgerRefundCache.openScope()) {
+            GatewayAccountEntity gatewayAccountEntity = gatewayAccountDao.findById(accountId).orElseThrow(
+                    () -> new GatewayAccountNotFoundException(accountId));
+            RefundEntity refundEntity = createRefund(charge, gatewayAccountEntity, refundRequest);
+            GatewayRefundResponse gatewayRefundResponse = providers
+                    .byName(PaymentGatewayName.valueFrom(gatewayAccountEntity.getGatewayName()))
+                    .refund(RefundGatewayRequest.valueOf(charge, refundEntity, gatewayAccountEntity));
+            RefundEntity refund = processRefund(gatewayRefundResponse, refundEntity.getId(), gatewayAccountEntity, charge);
+            return new ChargeRefundResponse(gatewayRefundResponse, refund);
+        }
     }
 
     @Transactional
@@ -277,8 +282,9 @@ public class RefundService {
         if (charge.isHistoric()) {
             // Combine refunds that have been expunged and so only exist in ledger with refunds that still exist in
             // the database, preferring records that still exist in the database as they might be in-flight.
-            Stream<Refund> refundsOnlyInLedger = ledgerService
-                    .getRefundsForPayment(charge.getGatewayAccountId(), charge.getExternalId())
+            Stream<Refund> refundsOnlyInLedger = ledgerRefundCache
+                    .getRefundsForPayment(charge.getExternalId(),
+                            () -> ledgerService.getRefundsForPayment(charge.getGatewayAccountId(), charge.getExternalId()))
                     .getTransactions()
                     .stream()
                     .map(Refund::from)
@@ -0,0 +1,63 @@
+package uk.gov.pay.connector.usernotification.dao;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.persist.Transactional;
+import org.eclipse.persistence.config.HintValues;
+import org.eclipse.persistence.config.QueryHints;
+import uk.gov.pay.connector.common.dao.JpaDao;
+import uk.gov.pay.connector.usernotification.model.domain.EmailOutboxEntity;
+import uk.gov.pay.connector.usernotification.model.domain.EmailOutboxStatistics;
+
+import javax.persistence.EntityManager;
+import java.sql.Timestamp;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+@Transactional
+public class EmailOutboxDao extends JpaDao<EmailOutboxEntity> {
+
+    @Inject
+    public EmailOutboxDao(Provider<EntityManager> entityManager) {
+        super(entityManager);
+    }
+
+    /**
+     * Claims up to {@code limit} emails that are due to be sent. Emails row-locked by another worker's claim are
+     * skipped rather than waited for, so concurrent workers never claim the same email.
+     */
+    public List<EmailOutboxEntity> claimDue(ZonedDateTime now, ZonedDateTime leaseExpiryDate, int limit) {
+        String query = "SELECT e.* FROM email_outbox e " +
+                "WHERE e.status IN ('PENDING', 'PROCESSING') AND e.next_attempt_date <= ?1 " +
+                "ORDER BY e.next_attempt_date " +
+                "LIMIT ?2 " +
+                "FOR UPDATE SKIP LOCKED";
+
+        List<EmailOutboxEntity> due = entityManager.get()
+                .createNativeQuery(query, EmailOutboxEntity.class)
+                .setParameter(1, Timestamp.from(now.toInstant()))
+                .setParameter(2, limit)
+                .setHint(QueryHints.REFRESH, HintValues.TRUE)
+                .getResultList();
+
+        due.forEach(email -> email.claim(leaseExpiryDate));
+        return due;
+    }
+
+    public EmailOutboxStatistics getStatistics() {
+        Object[] result = (Object[]) entityManager.get()
+                .createNativeQuery("SELECT " +
+                        "count(*) FILTER (WHERE status <> 'DEAD_LETTER'), " +
+                        "count(*) FILTER (WHERE status = 'DEAD_LETTER'), " +
+                        "min(created_date) FILTER (WHERE status <> 'DEAD_LETTER') " +
+                        "FROM email_outbox")
+                .getSingleResult();
+
+        Timestamp oldestCreatedDate = (Timestamp) result[2];
+        return new EmailOutboxStatistics(
+                ((Number) result[0]).longValue(),
+                ((Number) result[1]).longValue(),
+                oldestCreatedDate == null ? null : ZonedDateTime.ofInstant(oldestCreatedDate.toInstant(), ZoneId.of("UTC")));
+    }
+}
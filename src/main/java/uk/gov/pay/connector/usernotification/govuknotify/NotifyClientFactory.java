@@ -5,10 +5,17 @@ import uk.gov.pay.connector.app.NotifyConfiguration;
 import uk.gov.service.notify.NotificationClient;
 
 import javax.inject.Inject;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * Hands out one {@link NotificationClient} per Notify API key. Clients hold no per-request state, so each is built once
+ * and shared rather than built again for every email.
+ */
 public class NotifyClientFactory {
 
     private final NotifyConfiguration configuration;
+    private final ConcurrentMap<String, NotificationClient> clientsByApiKey = new ConcurrentHashMap<>();
 
     @Inject
     public NotifyClientFactory(ConnectorConfiguration configuration) {
@@ -16,11 +23,12 @@ public class NotifyClientFactory {
     }
 
     public NotificationClient getInstance() {
-        return newInstance(configuration.getApiKey(), configuration.getNotificationBaseURL());
+        return getInstance(configuration.getApiKey());
     }
 
     public NotificationClient getInstance(String notifyApiKey) {
-        return newInstance(notifyApiKey, configuration.getNotificationBaseURL());
+        return clientsByApiKey.computeIfAbsent(notifyApiKey,
+                apiKey -> newInstance(apiKey, configuration.getNotificationBaseURL()));
     }
 
     private NotificationClient newInstance(String apiKey, String notificationBaseURL) {
@@ -0,0 +1,193 @@
+package uk.gov.pay.connector.usernotification.managed;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.setup.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.config.EmailOutboxConfig;
+import uk.gov.pay.connector.gatewayaccount.dao.GatewayAccountDao;
+import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
+import uk.gov.pay.connector.usernotification.model.domain.EmailOutboxEntity;
+import uk.gov.pay.connector.usernotification.model.domain.EmailOutboxStatistics;
+import uk.gov.pay.connector.usernotification.service.EmailOutboxService;
+import uk.gov.pay.connector.usernotification.service.UserNotificationService;
+import uk.gov.service.notify.NotificationClientException;
+
+import javax.inject.Inject;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+import static uk.gov.pay.logging.LoggingKeys.PAYMENT_EXTERNAL_ID;
+
+/**
+ * Sends the emails stored by {@link EmailOutboxService} when the email outbox is enabled. Each sender thread
+ * repeatedly claims a batch of due emails and sends them through Notify, sharing the rate limit applied by
+ * {@link UserNotificationService#sendNow}. An email Notify fails to accept is retried later and eventually
+ * dead-lettered; one Notify rejects outright is dead-lettered straight away.
+ */
+public class EmailOutboxProcessor implements Managed {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmailOutboxProcessor.class);
+    private static final String EMAIL_OUTBOX_THREAD_NAME = "email-outbox-processor";
+    private static final String METRIC_PREFIX = "email-outbox";
+
+    private final EmailOutboxService emailOutboxService;
+    private final UserNotificationService userNotificationService;
+    private final GatewayAccountDao gatewayAccountDao;
+    private final EmailOutboxConfig config;
+    private final boolean emailNotifyGloballyEnabled;
+    private final ScheduledExecutorService executorService;
+    private final Clock clock;
+
+    private final Counter sent;
+    private final Counter retried;
+    private final Counter deadLettered;
+    private final Timer sendTimer;
+    private volatile EmailOutboxStatistics statistics = new EmailOutboxStatistics(0, 0, null);
+
+    @Inject
+    public EmailOutboxProcessor(EmailOutboxService emailOutboxService,
+                                UserNotificationService userNotificationService,
+                                GatewayAccountDao gatewayAccountDao,
+                                ConnectorConfiguration connectorConfiguration,
+                                Environment environment,
+                                Clock clock) {
+        this(emailOutboxService,
+                userNotificationService,
+                gatewayAccountDao,
+                connectorConfiguration.getEmailOutboxConfig(),
+                connectorConfiguration.getNotifyConfiguration().isEmailNotifyEnabled(),
+                environment.lifecycle()
+                        .scheduledExecutorService(EMAIL_OUTBOX_THREAD_NAME)
+                        // one more thread than senders, for refreshing the outbox metrics
+                        .threads(connectorConfiguration.getEmailOutboxConfig().getSenderThreads() + 1)
+                        .build(),
+                environment.metrics(),
+                clock);
+    }
+
+    EmailOutboxProcessor(EmailOutboxService emailOutboxService,
+                         UserNotificationService userNotificationService,
+                         GatewayAccountDao gatewayAccountDao,
+                         EmailOutboxConfig config,
+                         boolean emailNotifyGloballyEnabled,
+                         ScheduledExecutorService executorService,
+                         MetricRegistry metricRegistry,
+                         Clock clock) {
+        this.emailOutboxService = emailOutboxService;
+        this.userNotificationService = userNotificationService;
+        this.gatewayAccountDao = gatewayAccountDao;
+        this.config = config;
+        this.emailNotifyGloballyEnabled = emailNotifyGloballyEnabled;
+        this.executorService = executorService;
+        this.clock = clock;
+
+        this.sent = metricRegistry.counter(METRIC_PREFIX + ".sent");
+        this.retried = metricRegistry.counter(METRIC_PREFIX + ".retried");
+        this.deadLettered = metricRegistry.counter(METRIC_PREFIX + ".dead-lettered");
+        this.sendTimer = metricRegistry.timer(METRIC_PREFIX + ".send-time");
+        metricRegistry.register(METRIC_PREFIX + ".depth", (Gauge<Long>) () -> statistics.getDepth());
+        metricRegistry.register(METRIC_PREFIX + ".dead-letter-depth", (Gauge<Long>) () -> statistics.getDeadLettered());
+        metricRegistry.register(METRIC_PREFIX + ".oldest-age-seconds", (Gauge<Long>) this::oldestEmailAgeInSeconds);
+    }
+
+    @Override
+    public void start() {
+        if (!config.isEnabled() || !emailNotifyGloballyEnabled) {
+            return;
+        }
+        for (int i = 0; i < config.getSenderThreads(); i++) {
+            executorService.scheduleWithFixedDelay(this::sendDueEmails,
+                    config.getPollIntervalInMillis(),
+                    config.getPollIntervalInMillis(),
+                    TimeUnit.MILLISECONDS);
+        }
+        executorService.scheduleWithFixedDelay(this::refreshStatistics,
+                0,
+                config.getMetricsRefreshIntervalInSeconds(),
+                TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void stop() {
+        executorService.shutdown();
+    }
+
+    void sendDueEmails() {
+        try {
+            List<EmailOutboxEntity> claimed;
+            do {
+                claimed = emailOutboxService.claimDueEmails();
+                claimed.forEach(this::send);
+            } while (claimed.size() >= config.getBatchSize() && !Thread.currentThread().isInterrupted());
+        } catch (Exception e) {
+            LOGGER.error("Email outbox processor thread exception [message={}]", e.getMessage());
+        }
+    }
+
+    void refreshStatistics() {
+        try {
+            statistics = emailOutboxService.getStatistics();
+        } catch (Exception e) {
+            LOGGER.error("Email outbox metrics refresh failed [message={}]", e.getMessage());
+        }
+    }
+
+    private void send(EmailOutboxEntity email) {
+        String failure;
+        boolean retryable;
+        try (Timer.Context ignored = sendTimer.time()) {
+            Optional<GatewayAccountEntity> gatewayAccount = gatewayAccountDao.findById(email.getGatewayAccountId());
+            if (gatewayAccount.isPresent()) {
+                String notificationId = userNotificationService.sendNow(email.getEmailType(), email.getChargeExternalId(),
+                        email.getEmailAddress(), email.getPersonalisation(), gatewayAccount.get(), String.valueOf(email.getId()));
+                emailOutboxService.markSent(email.getId());
+                sent.inc();
+                LOGGER.info("Sent {} email from outbox, notification_id={}", email.getEmailType(), notificationId,
+                        kv(PAYMENT_EXTERNAL_ID, email.getChargeExternalId()));
+                return;
+            }
+            failure = "Gateway account " + email.getGatewayAccountId() + " not found";
+            retryable = false;
+        } catch (NotificationClientException e) {
+            failure = "Notify responded with " + e.getHttpResult() + ": " + e.getMessage();
+            retryable = isRetryable(e.getHttpResult());
+        } catch (Exception e) {
+            LOGGER.error("Sending {} email from outbox failed [message={}]", email.getEmailType(), e.getMessage(),
+                    kv(PAYMENT_EXTERNAL_ID, email.getChargeExternalId()));
+            failure = e.getClass().getSimpleName() + ": " + e.getMessage();
+            retryable = true;
+        }
+
+        if (emailOutboxService.markFailed(email.getId(), failure, retryable)) {
+            deadLettered.inc();
+        } else {
+            retried.inc();
+        }
+    }
+
+    /**
+     * Notify rejects a bad request (400) or a bad API key (403) the same way every time, so those are not retried.
+     * Rate limiting (429), server errors and failures to get a response at all (no status) are.
+     */
+    private static boolean isRetryable(int httpStatus) {
+        return httpStatus != 400 && httpStatus != 403;
+    }
+
+    private long oldestEmailAgeInSeconds() {
+        return statistics.getOldestCreatedDate()
+                .map(createdDate -> Duration.between(createdDate, ZonedDateTime.now(clock)).getSeconds())
+                .orElse(0L);
+    }
+}
@@ -0,0 +1,162 @@
+package uk.gov.pay.connector.usernotification.model.domain;
+
+import uk.gov.pay.connector.common.model.domain.UTCDateTimeConverter;
+import uk.gov.pay.connector.gatewayaccount.util.JsonToMapConverter;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import java.time.ZonedDateTime;
+import java.util.Map;
+
+@Entity
+@Table(name = "email_outbox")
+@SequenceGenerator(name = "email_outbox_id_seq",
+        sequenceName = "email_outbox_id_seq", allocationSize = 1)
+public class EmailOutboxEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "email_outbox_id_seq")
+    private Long id;
+
+    @Column(name = "email_type")
+    @Enumerated(EnumType.STRING)
+    private EmailNotificationType emailType;
+
+    @Column(name = "charge_external_id")
+    private String chargeExternalId;
+
+    @Column(name = "gateway_account_id")
+    private Long gatewayAccountId;
+
+    @Column(name = "email_address")
+    private String emailAddress;
+
+    @Column(name = "personalisation", columnDefinition = "json")
+    @Convert(converter = JsonToMapConverter.class)
+    private Map<String, String> personalisation;
+
+    @Column(name = "status")
+    @Enumerated(EnumType.STRING)
+    private EmailOutboxStatus status;
+
+    @Column(name = "attempts")
+    private int attempts;
+
+    @Convert(converter = UTCDateTimeConverter.class)
+    @Column(name = "created_date")
+    private ZonedDateTime createdDate;
+
+    @Convert(converter = UTCDateTimeConverter.class)
+    @Column(name = "next_attempt_date")
+    private ZonedDateTime nextAttemptDate;
+
+    @Column(name = "last_error")
+    private String lastError;
+
+    protected EmailOutboxEntity() {
+    }
+
+    public EmailOutboxEntity(EmailNotificationType emailType,
+                             String chargeExternalId,
+                             Long gatewayAccountId,
+                             String emailAddress,
+                             Map<String, String> personalisation,
+                             ZonedDateTime createdDate) {
+        this.emailType = emailType;
+        this.chargeExternalId = chargeExternalId;
+        this.gatewayAccountId = gatewayAccountId;
+        this.emailAddress = emailAddress;
+        this.personalisation = personalisation;
+        this.createdDate = createdDate;
+        this.nextAttemptDate = createdDate;
+        this.status = EmailOutboxStatus.PENDING;
+        this.attempts = 0;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public EmailNotificationType getEmailType() {
+        return emailType;
+    }
+
+    public String getChargeExternalId() {
+        return chargeExternalId;
+    }
+
+    public Long getGatewayAccountId() {
+        return gatewayAccountId;
+    }
+
+    public String getEmailAddress() {
+        return emailAddress;
+    }
+
+    public Map<String, String> getPersonalisation() {
+        return personalisation;
+    }
+
+    public EmailOutboxStatus getStatus() {
+        return status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public ZonedDateTime getCreatedDate() {
+        return createdDate;
+    }
+
+    public ZonedDateTime getNextAttemptDate() {
+        return nextAttemptDate;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    /**
+     * Until the lease expires no other worker will claim the email. If the worker dies while sending it, the email
+     * becomes due again once the lease has expired.
+     */
+    public void claim(ZonedDateTime leaseExpiryDate) {
+        this.status = EmailOutboxStatus.PROCESSING;
+        this.attempts++;
+        this.nextAttemptDate = leaseExpiryDate;
+    }
+
+    public void scheduleRetry(ZonedDateTime nextAttemptDate, String error) {
+        this.status = EmailOutboxStatus.PENDING;
+        this.nextAttemptDate = nextAttemptDate;
+        this.lastError = error;
+    }
+
+    public void deadLetter(String error) {
+        this.status = EmailOutboxStatus.DEAD_LETTER;
+        this.lastError = error;
+    }
+
+    @Override
+    public String toString() {
+        // the email address and personalisation are deliberately left out
+        return "EmailOutboxEntity{" +
+                "id=" + id +
+                ", emailType=" + emailType +
+                ", chargeExternalId='" + chargeExternalId + '\'' +
+                ", status=" + status +
+                ", attempts=" + attempts +
+                ", createdDate=" + createdDate +
+                ", nextAttemptDate=" + nextAttemptDate +
+                '}';
+    }
+}
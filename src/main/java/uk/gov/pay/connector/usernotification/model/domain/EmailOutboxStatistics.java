@@ -0,0 +1,29 @@
+package uk.gov.pay.connector.usernotification.model.domain;
+
+import java.time.ZonedDateTime;
+import java.util.Optional;
+
+public class EmailOutboxStatistics {
+
+    private final long depth;
+    private final long deadLettered;
+    private final ZonedDateTime oldestCreatedDate;
+
+    public EmailOutboxStatistics(long depth, long deadLettered, ZonedDateTime oldestCreatedDate) {
+        this.depth = depth;
+        this.deadLettered = deadLettered;
+        this.oldestCreatedDate = oldestCreatedDate;
+    }
+
+    public long getDepth() {
+        return depth;
+    }
+
+    public long getDeadLettered() {
+        return deadLettered;
+    }
+
+    public Optional<ZonedDateTime> getOldestCreatedDate() {
+        return Optional.ofNullable(oldestCreatedDate);
+    }
+}
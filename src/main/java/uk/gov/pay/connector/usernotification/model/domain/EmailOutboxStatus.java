@@ -0,0 +1,7 @@
+package uk.gov.pay.connector.usernotification.model.domain;
+
+public enum EmailOutboxStatus {
+    PENDING,
+    PROCESSING,
+    DEAD_LETTER
+}
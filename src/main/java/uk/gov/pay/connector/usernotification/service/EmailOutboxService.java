@@ -0,0 +1,116 @@
+package uk.gov.pay.connector.usernotification.service;
+
+import com.google.inject.persist.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.config.EmailOutboxConfig;
+import uk.gov.pay.connector.usernotification.dao.EmailOutboxDao;
+import uk.gov.pay.connector.usernotification.model.domain.EmailNotificationType;
+import uk.gov.pay.connector.usernotification.model.domain.EmailOutboxEntity;
+import uk.gov.pay.connector.usernotification.model.domain.EmailOutboxStatistics;
+
+import javax.inject.Inject;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+import static uk.gov.pay.logging.LoggingKeys.PAYMENT_EXTERNAL_ID;
+
+public class EmailOutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxService.class);
+
+    private final EmailOutboxDao emailOutboxDao;
+    private final EmailOutboxConfig config;
+    private final Clock clock;
+
+    @Inject
+    public EmailOutboxService(EmailOutboxDao emailOutboxDao,
+                              ConnectorConfiguration configuration,
+                              Clock clock) {
+        this.emailOutboxDao = emailOutboxDao;
+        this.config = configuration.getEmailOutboxConfig();
+        this.clock = clock;
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * Stores the email to be sent by the {@link uk.gov.pay.connector.usernotification.managed.EmailOutboxProcessor}.
+     * Called within a transaction the email is only stored if that transaction commits.
+     */
+    public void enqueue(EmailNotificationType emailType,
+                        String chargeExternalId,
+                        Long gatewayAccountId,
+                        String emailAddress,
+                        Map<String, String> personalisation) {
+        EmailOutboxEntity email = new EmailOutboxEntity(emailType, chargeExternalId, gatewayAccountId, emailAddress,
+                personalisation, now());
+        emailOutboxDao.persist(email);
+        logger.info("Stored {} email in outbox", emailType,
+                kv(PAYMENT_EXTERNAL_ID, chargeExternalId),
+                kv("email_outbox_id", email.getId()));
+    }
+
+    public List<EmailOutboxEntity> claimDueEmails() {
+        ZonedDateTime now = now();
+        return emailOutboxDao.claimDue(now, now.plusSeconds(config.getLeaseInSeconds()), config.getBatchSize());
+    }
+
+    @Transactional
+    public void markSent(Long emailId) {
+        emailOutboxDao.findById(EmailOutboxEntity.class, emailId)
+                .ifPresent(emailOutboxDao::remove);
+    }
+
+    /**
+     * Schedules the email for another attempt with exponential backoff, or dead-letters it once it has used up its
+     * attempts or when another attempt could not succeed. Dead-lettered emails stay in the outbox for investigation
+     * and are never claimed again.
+     *
+     * @return true if the email was dead-lettered
+     */
+    @Transactional
+    public boolean markFailed(Long emailId, String error, boolean retryable) {
+        return emailOutboxDao.findById(EmailOutboxEntity.class, emailId)
+                .map(email -> {
+                    if (!retryable || email.getAttempts() >= config.getMaximumAttempts()) {
+                        email.deadLetter(error);
+                        logger.error("{} email dead-lettered after {} attempts: {}",
+                                email.getEmailType(), email.getAttempts(), error,
+                                kv(PAYMENT_EXTERNAL_ID, email.getChargeExternalId()),
+                                kv("email_outbox_id", emailId));
+                        return true;
+                    }
+                    ZonedDateTime nextAttemptDate = now().plus(retryDelay(email.getAttempts()));
+                    email.scheduleRetry(nextAttemptDate, error);
+                    logger.warn("{} email will be retried at {}: {}",
+                            email.getEmailType(), nextAttemptDate, error,
+                            kv(PAYMENT_EXTERNAL_ID, email.getChargeExternalId()),
+                            kv("email_outbox_id", emailId));
+                    return false;
+                })
+                .orElse(false);
+    }
+
+    public EmailOutboxStatistics getStatistics() {
+        return emailOutboxDao.getStatistics();
+    }
+
+    Duration retryDelay(int attempts) {
+        long maximumDelay = config.getMaximumRetryDelayInSeconds();
+        int doublings = Math.min(Math.max(attempts - 1, 0), 30);
+        long delay = Math.min((long) config.getInitialRetryDelayInSeconds() << doublings, maximumDelay);
+        return Duration.ofSeconds(delay);
+    }
+
+    private ZonedDateTime now() {
+        return ZonedDateTime.now(clock);
+    }
+}
@@ -2,11 +2,13 @@ package uk.gov.pay.connector.usernotification.service;
 
 import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.RateLimiter;
 import io.dropwizard.setup.Environment;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.config.EmailOutboxConfig;
 import uk.gov.pay.connector.charge.model.domain.Charge;
 import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
 import uk.gov.pay.connector.charge.util.CorporateCardSurchargeCalculator;
@@ -21,26 +23,28 @@ import uk.gov.service.notify.NotificationClientException;
 import uk.gov.service.notify.SendEmailResponse;
 
 import javax.inject.Inject;
+import javax.inject.Singleton;
 import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import static java.lang.Runtime.getRuntime;
 import static java.util.Optional.ofNullable;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import static uk.gov.pay.connector.gatewayaccount.model.EmailCollectionMode.OFF;
 import static uk.gov.pay.connector.gatewayaccount.model.EmailCollectionMode.OPTIONAL;
 
-
+@Singleton
 public class UserNotificationService {
 
     private static final Pattern LITERAL_DOLLAR_REFERENCE = Pattern.compile(Pattern.quote("$reference"));
@@ -52,16 +56,26 @@ public class UserNotificationService {
     private NotifyClientFactory notifyClientFactory;
     private ExecutorService executorService;
     private final MetricRegistry metricRegistry;
+    private final EmailOutboxService emailOutboxService;
+    private final RateLimiter sendRateLimiter;
 
     @Inject
-    public UserNotificationService(NotifyClientFactory notifyClientFactory, ConnectorConfiguration configuration, Environment environment) {
+    public UserNotificationService(NotifyClientFactory notifyClientFactory,
+                                   ConnectorConfiguration configuration,
+                                   Environment environment,
+                                   EmailOutboxService emailOutboxService) {
         readEmailConfig(configuration);
+        EmailOutboxConfig emailOutboxConfig = configuration.getEmailOutboxConfig();
         if (emailNotifyGloballyEnabled) {
             this.notifyClientFactory = notifyClientFactory;
-            int numberOfThreads = configuration.getExecutorServiceConfig().getThreadsPerCpu() * getRuntime().availableProcessors();
-            executorService = Executors.newFixedThreadPool(numberOfThreads);
+            // bounded so that a slow or unavailable Notify cannot queue up emails until the heap runs out
+            executorService = new ThreadPoolExecutor(emailOutboxConfig.getSenderThreads(), emailOutboxConfig.getSenderThreads(),
+                    0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(emailOutboxConfig.getDirectSendQueueSize()));
         }
         this.metricRegistry = environment.metrics();
+        this.emailOutboxService = emailOutboxService;
+        // shared by every sender so that, together, they stay within Notify's rate limit
+        this.sendRateLimiter = RateLimiter.create(emailOutboxConfig.getMaximumSendsPerSecond());
     }
 
     public Future<Optional<String>> sendRefundIssuedEmail(RefundEntity refundEntity, Charge charge, GatewayAccountEntity gatewayAccountEntity) {
@@ -74,6 +88,36 @@ public class UserNotificationService {
                 buildConfirmationEmailPersonalisationFrom(chargeEntity));
     }
 
+    /**
+     * Sends an email through Notify on the calling thread, waiting for the shared rate limit if necessary.
+     *
+     * @param reference passed to Notify to identify the email, such as the id of its email outbox row, or null
+     * @return the Notify notification id
+     */
+    public String sendNow(EmailNotificationType emailNotificationType,
+                          String chargeExternalId,
+                          String emailAddress,
+                          Map<String, String> personalisation,
+                          GatewayAccountEntity gatewayAccountEntity,
+                          String reference) throws NotificationClientException {
+        NotifyClientSettings notifyClientSettings = getNotifyClientSettings(emailNotificationType, gatewayAccountEntity);
+        sendRateLimiter.acquire();
+
+        Stopwatch responseTimeStopwatch = Stopwatch.createStarted();
+        try {
+            logger.info("Sending {} email, charge_external_id={}", emailNotificationType, chargeExternalId);
+            SendEmailResponse response = notifyClientSettings.getClient()
+                    .sendEmail(notifyClientSettings.getTemplateId(), emailAddress, personalisation, reference);
+            return response.getNotificationId().toString();
+        } catch (NotificationClientException e) {
+            metricRegistry.counter("notify-operations.failures").inc();
+            throw e;
+        } finally {
+            responseTimeStopwatch.stop();
+            metricRegistry.histogram("notify-operations.response_time").update(responseTimeStopwatch.elapsed(TimeUnit.MILLISECONDS));
+        }
+    }
+
     private Future<Optional<String>> sendEmail(EmailNotificationType emailNotificationType, Charge charge, GatewayAccountEntity gatewayAccountEntity, HashMap<String, String> personalisation) {
         boolean isEmailEnabled = ofNullable(gatewayAccountEntity.getEmailNotifications().get(emailNotificationType))
                 .map(EmailNotificationEntity::isEnabled)
@@ -84,23 +128,27 @@ public class UserNotificationService {
             return CompletableFuture.completedFuture(Optional.empty());
         }
 
-        Stopwatch responseTimeStopwatch = Stopwatch.createStarted();
-        return executorService.submit(() -> {
-            try {
-                NotifyClientSettings notifyClientSettings = getNotifyClientSettings(emailNotificationType, gatewayAccountEntity);
-                logger.info("Sending {} email, charge_external_id={}", emailNotificationType, charge.getExternalId());
-                SendEmailResponse response = notifyClientSettings.getClient()
-                        .sendEmail(notifyClientSettings.getTemplateId(), charge.getEmail(), personalisation, null);
-                return Optional.of(response.getNotificationId().toString());
-            } catch (NotificationClientException e) {
-                logger.error("Failed to send " + emailNotificationType + " email - charge_external_id=" + charge.getExternalId(), e);
-                metricRegistry.counter("notify-operations.failures").inc();
-                return Optional.empty();
-            } finally {
-                responseTimeStopwatch.stop();
-                metricRegistry.histogram("notify-operations.response_time").update(responseTimeStopwatch.elapsed(TimeUnit.MILLISECONDS));
-            }
-        });
+        if (emailOutboxService.isEnabled()) {
+            emailOutboxService.enqueue(emailNotificationType, charge.getExternalId(), gatewayAccountEntity.getId(),
+                    charge.getEmail(), personalisation);
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+
+        try {
+            return executorService.submit(() -> {
+                try {
+                    return Optional.of(sendNow(emailNotificationType, charge.getExternalId(), charge.getEmail(),
+                            personalisation, gatewayAccountEntity, null));
+                } catch (NotificationClientException e) {
+                    logger.error("Failed to send " + emailNotificationType + " email - charge_external_id=" + charge.getExternalId(), e);
+                    return Optional.empty();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            metricRegistry.counter("notify-operations.rejected").inc();
+            logger.error("Failed to send " + emailNotificationType + " email as too many emails are waiting to be sent - charge_external_id=" + charge.getExternalId());
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
     }
 
     private NotifyClientSettings getNotifyClientSettings(EmailNotificationType emailNotificationType, GatewayAccountEntity gatewayAccountEntity) {
@@ -0,0 +1,62 @@
+package uk.gov.pay.connector.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.hash.Hashing;
+
+import javax.inject.Inject;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Builds responses to GET requests that carry an entity tag, answering {@code 304 Not Modified} when the request's
+ * {@code If-None-Match} header has the current tag. A tag can be made from versions the caller has read, which saves
+ * loading and serialising the entity when it has not changed, or from a hash of the serialised entity, which only
+ * saves sending it.
+ */
+public class ConditionalResponses {
+
+    private final ObjectMapper objectMapper;
+
+    @Inject
+    public ConditionalResponses(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * A weak tag, as equal versions mean an equivalent rather than byte for byte identical representation.
+     */
+    public static EntityTag versionTag(String resource, Object... versions) {
+        return new EntityTag(resource + "-" + Arrays.stream(versions).map(String::valueOf).collect(joining("-")), true);
+    }
+
+    public static Optional<Response> notModified(Request request, EntityTag tag) {
+        return Optional.ofNullable(request.evaluatePreconditions(tag)).map(Response.ResponseBuilder::build);
+    }
+
+    public Response okWithContentTag(Request request, Object entity) {
+        return okWithContentTag(request, entity, objectMapper.writer());
+    }
+
+    public Response okWithContentTag(Request request, Object entity, Class<?> view) {
+        return okWithContentTag(request, entity, objectMapper.writerWithView(view));
+    }
+
+    private static Response okWithContentTag(Request request, Object entity, ObjectWriter writer) {
+        byte[] body;
+        try {
+            body = writer.writeValueAsBytes(entity);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialise response entity", e);
+        }
+        EntityTag tag = new EntityTag(Hashing.murmur3_128().hashBytes(body).toString());
+        return notModified(request, tag)
+                .orElseGet(() -> Response.ok(body).tag(tag).build());
+    }
+}
@@ -3,6 +3,7 @@ package uk.gov.pay.connector.util;
 import org.eclipse.persistence.config.SessionCustomizer;
 import org.eclipse.persistence.sessions.DatabaseLogin;
 import org.eclipse.persistence.sessions.Session;
+import uk.gov.pay.connector.common.dao.AfterCommitActions;
 
 public class ConnectorSessionCustomiser implements SessionCustomizer {
 
@@ -14,6 +15,7 @@ public class ConnectorSessionCustomiser implements SessionCustomizer {
         DatabaseLogin datasourceLogin = (DatabaseLogin) session.getDatasourceLogin();
         datasourceLogin.setQueryRetryAttemptCount(QUERY_RETRY_ATTEMPT_COUNT_ZERO_BASED_INDEX);
         datasourceLogin.setDelayBetweenConnectionAttempts(DELAY_BETWEEN_CONNECTION_ATTEMPTS_MILLIS);
+        session.getEventManager().addListener(AfterCommitActions.SESSION_LISTENER);
     }
 }
 
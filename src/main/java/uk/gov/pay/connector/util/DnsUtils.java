@@ -4,6 +4,12 @@ package uk.gov.pay.connector.util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.naming.Context;
+import javax.naming.InvalidNameException;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.directory.Attribute;
 import javax.naming.directory.Attributes;
 import javax.naming.directory.DirContext;
 import javax.naming.directory.InitialDirContext;
@@ -15,29 +21,61 @@ import static java.lang.String.*;
 public class DnsUtils {
     private static final Logger logger = LoggerFactory.getLogger(DnsUtils.class);
 
-    private String extractForwardedIp(String forwardedAddress) {
-        String extractedIp = forwardedAddress.split(",")[0];
+    private final String dnsProviderUrl;
+
+    public DnsUtils() {
+        this(null);
+    }
+
+    /**
+     * @param dnsProviderUrl DNS server to query, e.g. {@code dns://127.0.0.1:5353}; the system resolver is used if null
+     */
+    public DnsUtils(String dnsProviderUrl) {
+        this.dnsProviderUrl = dnsProviderUrl;
+    }
+
+    public String extractForwardedIp(String forwardedAddress) {
+        String extractedIp = forwardedAddress.split(",")[0].trim();
         logger.debug("Extracted ip {} from X-Forwarded-For '{}'", extractedIp, forwardedAddress);
         return extractedIp;
     }
+
+    /**
+     * Checks that the ip address reverse resolves to a host in the domain and that the host forward resolves back to
+     * the same ip address, so a PTR record alone is not enough to pass the check.
+     */
     public boolean ipMatchesDomain(String forwardedAddress, String domain) {
         try {
-            String ipAddress = extractForwardedIp(forwardedAddress);
-            Optional<String> host = reverseDnsLookup(ipAddress);
-            if (host.isEmpty()) {
-                throw new Exception(format("Host not found for ip address '%s'", ipAddress));
-            }
-            if (!host.get().endsWith(domain + ".")) {
-                logger.error("Reverse DNS lookup on ip '{}' - resolved domain '{}' does not match '{}'", ipAddress, host.get(), domain);
-                return false;
-            }
-            return true;
+            return verifyIpMatchesDomain(forwardedAddress, domain);
         } catch (Exception e) {
             logger.error("Reverse DNS Lookup failed: {}", e.getLocalizedMessage());
             return false;
         }
     }
 
+    /**
+     * Like {@link #ipMatchesDomain(String, String)} but only answers false when DNS says the ip does not match, for
+     * example because there is no PTR record. A lookup that could not be completed, such as a timeout or a server
+     * failure, is thrown instead so that callers can tell it apart from a rejection.
+     */
+    public boolean verifyIpMatchesDomain(String forwardedAddress, String domain) throws NamingException {
+        String ipAddress = extractForwardedIp(forwardedAddress);
+        Optional<String> host = lookupRecordsIfNameExists(reverseName(ipAddress), "PTR").stream().findFirst();
+        if (host.isEmpty()) {
+            logger.error("Reverse DNS lookup on ip '{}' - host not found", ipAddress);
+            return false;
+        }
+        if (!host.get().endsWith(domain + ".")) {
+            logger.error("Reverse DNS lookup on ip '{}' - resolved domain '{}' does not match '{}'", ipAddress, host.get(), domain);
+            return false;
+        }
+        if (!lookupRecordsIfNameExists(host.get(), "A").contains(ipAddress)) {
+            logger.error("Forward DNS lookup on host '{}' - does not resolve back to ip '{}'", host.get(), ipAddress);
+            return false;
+        }
+        return true;
+    }
+
     public Optional<String> dnsLookup(String hostName) {
         try {
             InetAddress inetAddress = InetAddress.getByName(hostName);
@@ -48,18 +86,55 @@ public class DnsUtils {
     }
 
     public Optional<String> reverseDnsLookup(String hostIp) {
+        try {
+            return lookupRecords(reverseName(hostIp), "PTR").stream().findFirst();
+        } catch (Exception e) {
+            return Optional.empty();
+        }
+    }
+
+    public List<String> forwardDnsLookup(String hostName) {
+        try {
+            return lookupRecords(hostName, "A");
+        } catch (Exception e) {
+            return List.of();
+        }
+    }
+
+    private static String reverseName(String hostIp) {
         List<String> components = Arrays.asList(hostIp.split("\\."));
         Collections.reverse(components);
-        String reverseIp = join(".", components.toArray(new String[0])) + ".in-addr.arpa";
+        return join(".", components.toArray(new String[0])) + ".in-addr.arpa";
+    }
+
+    private List<String> lookupRecordsIfNameExists(String name, String recordType) throws NamingException {
         try {
-            Hashtable env = new Hashtable();
-            env.put("java.naming.factory.initial", "com.sun.jndi.dns.DnsContextFactory");
-            DirContext ctx = new InitialDirContext(env);
-            Attributes attrs = ctx.getAttributes(reverseIp, new String[]{"PTR"});
+            return lookupRecords(name, recordType);
+        } catch (NameNotFoundException | InvalidNameException e) {
+            return List.of();
+        }
+    }
+
+    private List<String> lookupRecords(String name, String recordType) throws NamingException {
+        Hashtable<String, String> env = new Hashtable<>();
+        env.put(Context.INITIAL_CONTEXT_FACTORY, "com.sun.jndi.dns.DnsContextFactory");
+        if (dnsProviderUrl != null) {
+            env.put(Context.PROVIDER_URL, dnsProviderUrl);
+        }
+        DirContext ctx = new InitialDirContext(env);
+        try {
+            Attributes attrs = ctx.getAttributes(name, new String[]{recordType});
+            Attribute attribute = attrs.get(recordType);
+            List<String> records = new ArrayList<>();
+            if (attribute != null) {
+                NamingEnumeration<?> values = attribute.getAll();
+                while (values.hasMore()) {
+                    records.add(values.next().toString());
+                }
+            }
+            return records;
+        } finally {
             ctx.close();
-            return Optional.ofNullable(attrs.get("ptr").get().toString());
-        } catch (Exception e) {
-            return Optional.empty();
         }
     }
 }
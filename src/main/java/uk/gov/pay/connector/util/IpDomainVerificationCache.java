@@ -0,0 +1,185 @@
+package uk.gov.pay.connector.util;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.codahale.metrics.Timer;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.dropwizard.setup.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.NotificationDnsVerificationConfig;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.naming.NamingException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Remembers which notification source ip addresses have recently been verified or rejected by
+ * {@link DnsUtils#verifyIpMatchesDomain(String, String)}. Lookups run on a dedicated executor, so concurrent
+ * notifications from the same ip share a single lookup and callers wait for at most the configured timeout. A lookup
+ * that times out is treated as a rejection for that caller but its result is still cached for the gateway's retry.
+ * A lookup that fails, for example because the DNS server is unavailable, is not cached at all, so a transient DNS
+ * problem does not turn into minutes of rejected notifications.
+ */
+@Singleton
+public class IpDomainVerificationCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(IpDomainVerificationCache.class);
+    private static final String METRIC_PREFIX = "notifications.dns-verification";
+
+    private final DnsUtils dnsUtils;
+    private final Clock clock;
+    private final ExecutorService executor;
+    private final Duration rejectedTtl;
+    private final long lookupTimeoutInMillis;
+    private final Cache<String, Verification> verifications;
+    private final Counter hits;
+    private final Counter misses;
+    private final Timer lookupTimer;
+
+    @Inject
+    public IpDomainVerificationCache(DnsUtils dnsUtils, ConnectorConfiguration configuration, Environment environment, Clock clock) {
+        this(dnsUtils,
+                configuration.getWorldpayConfig().getNotificationDnsVerificationConfig(),
+                environment.lifecycle().executorService("notification-dns-verification-%d")
+                        .minThreads(configuration.getWorldpayConfig().getNotificationDnsVerificationConfig().getLookupThreads())
+                        .maxThreads(configuration.getWorldpayConfig().getNotificationDnsVerificationConfig().getLookupThreads())
+                        .build(),
+                environment.metrics(),
+                clock);
+    }
+
+    IpDomainVerificationCache(DnsUtils dnsUtils,
+                              NotificationDnsVerificationConfig config,
+                              ExecutorService executor,
+                              MetricRegistry metricRegistry,
+                              Clock clock) {
+        this.dnsUtils = dnsUtils;
+        this.clock = clock;
+        this.executor = executor;
+        this.rejectedTtl = Duration.ofSeconds(config.getRejectedTtlInSeconds());
+        this.lookupTimeoutInMillis = config.getLookupTimeoutInMillis();
+        this.verifications = CacheBuilder.newBuilder()
+                .maximumSize(config.getMaximumCacheSize())
+                .expireAfterWrite(config.getVerifiedTtlInSeconds(), TimeUnit.SECONDS)
+                .build();
+
+        this.hits = metricRegistry.counter(METRIC_PREFIX + ".cache.hits");
+        this.misses = metricRegistry.counter(METRIC_PREFIX + ".cache.misses");
+        this.lookupTimer = metricRegistry.timer(METRIC_PREFIX + ".lookup");
+        metricRegistry.register(METRIC_PREFIX + ".cache.hit-ratio", new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(hits.getCount(), hits.getCount() + misses.getCount());
+            }
+        });
+        metricRegistry.register(METRIC_PREFIX + ".cache.size", (Gauge<Long>) verifications::size);
+    }
+
+    public boolean ipMatchesDomain(String forwardedAddress, String domain) {
+        if (forwardedAddress == null) {
+            return false;
+        }
+
+        String key = dnsUtils.extractForwardedIp(forwardedAddress) + "|" + domain;
+        AtomicBoolean started = new AtomicBoolean();
+        Verification verification;
+        try {
+            verification = verifications.get(key, () -> {
+                started.set(true);
+                return startVerification(key, forwardedAddress, domain);
+            });
+        } catch (ExecutionException e) {
+            logger.error("DNS verification of '{}' could not be started: {}", forwardedAddress, e.getMessage());
+            return false;
+        }
+
+        if (!started.get() && verification.isExpiredRejection(clock.instant(), rejectedTtl)) {
+            verifications.asMap().remove(key, verification);
+            verification = verifications.asMap().computeIfAbsent(key, k -> {
+                started.set(true);
+                return startVerification(k, forwardedAddress, domain);
+            });
+        }
+
+        if (started.get()) {
+            misses.inc();
+        } else {
+            hits.inc();
+        }
+
+        return awaitResult(key, forwardedAddress, verification);
+    }
+
+    private Verification startVerification(String key, String forwardedAddress, String domain) {
+        CompletableFuture<Boolean> result = CompletableFuture.supplyAsync(() -> {
+            try (Timer.Context ignored = lookupTimer.time()) {
+                return dnsUtils.verifyIpMatchesDomain(forwardedAddress, domain);
+            } catch (NamingException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+        Verification verification = new Verification(result, clock);
+        result.whenComplete((matches, e) -> {
+            if (e != null) {
+                forgetFailedLookup(key, forwardedAddress, verification, e);
+            }
+        });
+        return verification;
+    }
+
+    private void forgetFailedLookup(String key, String forwardedAddress, Verification verification, Throwable e) {
+        if (verifications.asMap().remove(key, verification)) {
+            logger.warn("DNS verification of '{}' failed and will be retried on the next notification: {}",
+                    forwardedAddress, e.getMessage());
+        }
+    }
+
+    private boolean awaitResult(String key, String forwardedAddress, Verification verification) {
+        try {
+            return verification.result.get(lookupTimeoutInMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.warn("DNS verification of '{}' did not complete within {}ms", forwardedAddress, lookupTimeoutInMillis);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            // the lookup may have failed before it was added to the cache, so make sure it is not kept there
+            forgetFailedLookup(key, forwardedAddress, verification, e.getCause());
+            return false;
+        }
+    }
+
+    private static class Verification {
+        private final CompletableFuture<Boolean> result;
+        private volatile Instant completedAt;
+
+        private Verification(CompletableFuture<Boolean> result, Clock clock) {
+            this.result = result;
+            result.whenComplete((matches, e) -> completedAt = clock.instant());
+        }
+
+        private boolean isExpiredRejection(Instant now, Duration rejectedTtl) {
+            if (completedAt == null) {
+                return false;
+            }
+            boolean rejected = result.isCompletedExceptionally() || !result.join();
+            return rejected && completedAt.plus(rejectedTtl).isBefore(now);
+        }
+    }
+}
@@ -3,12 +3,15 @@ package uk.gov.pay.connector.util;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.metrics.AuthorisationStageTimings;
+import uk.gov.pay.connector.metrics.StageTiming;
 
 import javax.inject.Inject;
 import javax.ws.rs.WebApplicationException;
 import java.io.IOException;
 
 import static java.lang.String.format;
+import static uk.gov.pay.connector.metrics.AuthorisationStage.RESPONSE_UNMARSHAL;
 import static uk.gov.pay.connector.util.ResponseUtil.serviceErrorResponse;
 
 public class JsonObjectMapper {
@@ -21,7 +24,7 @@ public class JsonObjectMapper {
     }
 
     public <T> T getObject(String jsonResponse, Class<T> targetType) {
-        try {
+        try (StageTiming ignored = AuthorisationStageTimings.time(RESPONSE_UNMARSHAL)) {
             return objectMapper.readValue(jsonResponse, targetType);
         } catch (IOException e) {
             logger.info("There was an exception parsing the payload [{}] into an [{}]", jsonResponse, targetType);
@@ -1,9 +1,7 @@
 package uk.gov.pay.connector.wallets;
 
-import com.codahale.metrics.MetricRegistry;
 import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
-import io.dropwizard.setup.Environment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
@@ -17,6 +15,7 @@ import uk.gov.pay.connector.gateway.model.AuthCardDetails;
 import uk.gov.pay.connector.gateway.model.ProviderSessionIdentifier;
 import uk.gov.pay.connector.gateway.model.response.BaseAuthoriseResponse;
 import uk.gov.pay.connector.gateway.model.response.GatewayResponse;
+import uk.gov.pay.connector.metrics.ConnectorMetrics;
 import uk.gov.pay.connector.paymentprocessor.model.OperationType;
 import uk.gov.pay.connector.paymentprocessor.service.CardAuthoriseBaseService;
 import uk.gov.pay.connector.wallets.model.WalletAuthorisationData;
@@ -24,25 +23,23 @@ import uk.gov.pay.connector.wallets.model.WalletAuthorisationData;
 import java.time.format.DateTimeFormatter;
 import java.util.Optional;
 
-import static java.lang.String.format;
-
 public class WalletAuthoriseService {
     private static final DateTimeFormatter EXPIRY_DATE_FORMAT = DateTimeFormatter.ofPattern("MM/yy");
     private final CardAuthoriseBaseService cardAuthoriseBaseService;
     private final ChargeService chargeService;
     private final PaymentProviders paymentProviders;
     private final Logger logger = LoggerFactory.getLogger(getClass());
-    private MetricRegistry metricRegistry;
+    private final ConnectorMetrics connectorMetrics;
 
     @Inject
     public WalletAuthoriseService(PaymentProviders paymentProviders,
                                   ChargeService chargeService,
                                   CardAuthoriseBaseService cardAuthoriseBaseService,
-                                  Environment environment) {
+                                  ConnectorMetrics connectorMetrics) {
         this.paymentProviders = paymentProviders;
         this.cardAuthoriseBaseService = cardAuthoriseBaseService;
         this.chargeService = chargeService;
-        this.metricRegistry = environment.metrics();
+        this.connectorMetrics = connectorMetrics;
     }
 
     public GatewayResponse<BaseAuthoriseResponse> doAuthorise(String chargeId, WalletAuthorisationData walletAuthorisationData) {
@@ -111,12 +108,9 @@ public class WalletAuthoriseService {
 
         logger.info("{} authorisation {} - charge_external_id={}, payment provider response={}",
                 walletType.toString(), successOrFailure, chargeEntity.getExternalId(), operationResponse.toString());
-        metricRegistry.counter(format("gateway-operations.%s.%s.%s.authorise.%s.result.%s",
-                chargeEntity.getGatewayAccount().getGatewayName(),
-                chargeEntity.getGatewayAccount().getType(),
-                chargeEntity.getGatewayAccount().getId(),
-                walletType.equals(WalletType.GOOGLE_PAY) ? "google-pay" : "apple-pay",
-                successOrFailure)).inc();
+        connectorMetrics.operationResult(chargeEntity.getGatewayAccount(),
+                walletType.equals(WalletType.GOOGLE_PAY) ? "authorise.google-pay" : "authorise.apple-pay",
+                successOrFailure);
     }
 
     @Transactional
@@ -154,12 +148,7 @@ public class WalletAuthoriseService {
                 updatedCharge.getGatewayAccount().getAnalyticsId(), updatedCharge.getGatewayAccount().getId(),
                 responseFromGateway, oldChargeStatus, status);
 
-        metricRegistry.counter(String.format(
-                "gateway-operations.%s.%s.%s.authorise.result.%s",
-                updatedCharge.getGatewayAccount().getGatewayName(),
-                updatedCharge.getGatewayAccount().getType(),
-                updatedCharge.getGatewayAccount().getId(),
-                status.toString())).inc();
+        connectorMetrics.operationResult(updatedCharge.getGatewayAccount(), "authorise", status.toString());
     }
 
     private GatewayResponse<BaseAuthoriseResponse> authorise(ChargeEntity chargeEntity, WalletAuthorisationData walletAuthorisationData)
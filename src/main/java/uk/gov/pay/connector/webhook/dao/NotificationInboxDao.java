@@ -0,0 +1,63 @@
+package uk.gov.pay.connector.webhook.dao;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.persist.Transactional;
+import org.eclipse.persistence.config.HintValues;
+import org.eclipse.persistence.config.QueryHints;
+import uk.gov.pay.connector.common.dao.JpaDao;
+import uk.gov.pay.connector.webhook.model.NotificationInboxEntity;
+import uk.gov.pay.connector.webhook.model.NotificationInboxStatistics;
+
+import javax.persistence.EntityManager;
+import java.sql.Timestamp;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+@Transactional
+public class NotificationInboxDao extends JpaDao<NotificationInboxEntity> {
+
+    @Inject
+    public NotificationInboxDao(Provider<EntityManager> entityManager) {
+        super(entityManager);
+    }
+
+    /**
+     * Claims up to {@code limit} notifications that are due for processing. Notifications row-locked by another
+     * worker's claim are skipped rather than waited for, so concurrent workers never claim the same notification.
+     */
+    public List<NotificationInboxEntity> claimDue(ZonedDateTime now, ZonedDateTime leaseExpiryDate, int limit) {
+        String query = "SELECT n.* FROM notification_inbox n " +
+                "WHERE n.status IN ('PENDING', 'PROCESSING') AND n.next_attempt_date <= ?1 " +
+                "ORDER BY n.next_attempt_date " +
+                "LIMIT ?2 " +
+                "FOR UPDATE SKIP LOCKED";
+
+        List<NotificationInboxEntity> due = entityManager.get()
+                .createNativeQuery(query, NotificationInboxEntity.class)
+                .setParameter(1, Timestamp.from(now.toInstant()))
+                .setParameter(2, limit)
+                .setHint(QueryHints.REFRESH, HintValues.TRUE)
+                .getResultList();
+
+        due.forEach(notification -> notification.claim(leaseExpiryDate));
+        return due;
+    }
+
+    public NotificationInboxStatistics getStatistics() {
+        Object[] result = (Object[]) entityManager.get()
+                .createNativeQuery("SELECT " +
+                        "count(*) FILTER (WHERE status <> 'DEAD_LETTER'), " +
+                        "count(*) FILTER (WHERE status = 'DEAD_LETTER'), " +
+                        "min(received_date) FILTER (WHERE status <> 'DEAD_LETTER') " +
+                        "FROM notification_inbox")
+                .getSingleResult();
+
+        Timestamp oldestReceivedDate = (Timestamp) result[2];
+        return new NotificationInboxStatistics(
+                ((Number) result[0]).longValue(),
+                ((Number) result[1]).longValue(),
+                oldestReceivedDate == null ? null : ZonedDateTime.ofInstant(oldestReceivedDate.toInstant(), ZoneId.of("UTC")));
+    }
+}
@@ -0,0 +1,51 @@
+package uk.gov.pay.connector.webhook.dao;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.persist.Transactional;
+import uk.gov.pay.connector.common.dao.JpaDao;
+import uk.gov.pay.connector.webhook.model.NotificationKey;
+import uk.gov.pay.connector.webhook.model.ProcessedNotificationEntity;
+
+import javax.persistence.EntityManager;
+import java.sql.Timestamp;
+import java.time.ZonedDateTime;
+
+@Transactional
+public class ProcessedNotificationDao extends JpaDao<ProcessedNotificationEntity> {
+
+    @Inject
+    public ProcessedNotificationDao(Provider<EntityManager> entityManager) {
+        super(entityManager);
+    }
+
+    public boolean hasBeenProcessed(NotificationKey notificationKey) {
+        return !entityManager.get()
+                .createQuery("SELECT 1 FROM ProcessedNotificationEntity p WHERE p.notificationKey = :notificationKey", Integer.class)
+                .setParameter("notificationKey", notificationKey.getValue())
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty();
+    }
+
+    /**
+     * Records the notification unless it has already been recorded. A conflicting insert is ignored rather than
+     * failing, so it does not roll back the transaction that processed the notification.
+     */
+    public void recordProcessed(NotificationKey notificationKey, ZonedDateTime processedDate) {
+        entityManager.get()
+                .createNativeQuery("INSERT INTO processed_notifications (payment_provider, notification_key, processed_date) " +
+                        "VALUES (?1, ?2, ?3) ON CONFLICT (notification_key) DO NOTHING")
+                .setParameter(1, notificationKey.getPaymentGatewayName().getName())
+                .setParameter(2, notificationKey.getValue())
+                .setParameter(3, Timestamp.from(processedDate.toInstant()))
+                .executeUpdate();
+    }
+
+    public int deleteProcessedBefore(ZonedDateTime cutOffDate) {
+        return entityManager.get()
+                .createQuery("DELETE FROM ProcessedNotificationEntity p WHERE p.processedDate < :cutOffDate")
+                .setParameter("cutOffDate", cutOffDate)
+                .executeUpdate();
+    }
+}
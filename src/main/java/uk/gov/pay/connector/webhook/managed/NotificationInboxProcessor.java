@@ -0,0 +1,205 @@
+package uk.gov.pay.connector.webhook.managed;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.setup.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.config.NotificationInboxConfig;
+import uk.gov.pay.connector.common.exception.Charge3dsNotReadyRuntimeException;
+import uk.gov.pay.connector.gateway.PaymentGatewayName;
+import uk.gov.pay.connector.gateway.epdq.EpdqNotificationService;
+import uk.gov.pay.connector.gateway.smartpay.SmartpayNotificationService;
+import uk.gov.pay.connector.gateway.stripe.StripeNotificationService;
+import uk.gov.pay.connector.gateway.worldpay.WorldpayNotificationService;
+import uk.gov.pay.connector.webhook.model.NotificationInboxEntity;
+import uk.gov.pay.connector.webhook.model.NotificationInboxStatistics;
+import uk.gov.pay.connector.webhook.service.NotificationInboxService;
+
+import javax.inject.Inject;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Processes the gateway notifications stored by {@link uk.gov.pay.connector.webhook.resource.NotificationResource}
+ * when the notification inbox is enabled. Each worker thread repeatedly claims a batch of due notifications and hands
+ * them to the gateway's notification service; a notification that fails, or that the service asks to see again, is
+ * retried later and eventually dead-lettered. A Stripe 3DS notification for a charge that is not 3DS ready yet is
+ * deferred to its retry date without using up an attempt.
+ */
+public class NotificationInboxProcessor implements Managed {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NotificationInboxProcessor.class);
+    private static final String NOTIFICATION_INBOX_THREAD_NAME = "notification-inbox-processor";
+    private static final String METRIC_PREFIX = "notification-inbox";
+
+    private final NotificationInboxService notificationInboxService;
+    private final WorldpayNotificationService worldpayNotificationService;
+    private final EpdqNotificationService epdqNotificationService;
+    private final SmartpayNotificationService smartpayNotificationService;
+    private final StripeNotificationService stripeNotificationService;
+    private final NotificationInboxConfig config;
+    private final ScheduledExecutorService executorService;
+    private final Clock clock;
+
+    private final Counter processed;
+    private final Counter retried;
+    private final Counter deferred;
+    private final Counter deadLettered;
+    private final Timer processingTimer;
+    private volatile NotificationInboxStatistics statistics = new NotificationInboxStatistics(0, 0, null);
+
+    @Inject
+    public NotificationInboxProcessor(NotificationInboxService notificationInboxService,
+                                      WorldpayNotificationService worldpayNotificationService,
+                                      EpdqNotificationService epdqNotificationService,
+                                      SmartpayNotificationService smartpayNotificationService,
+                                      StripeNotificationService stripeNotificationService,
+                                      ConnectorConfiguration connectorConfiguration,
+                                      Environment environment,
+                                      Clock clock) {
+        this(notificationInboxService,
+                worldpayNotificationService,
+                epdqNotificationService,
+                smartpayNotificationService,
+                stripeNotificationService,
+                connectorConfiguration.getNotificationInboxConfig(),
+                environment.lifecycle()
+                        .scheduledExecutorService(NOTIFICATION_INBOX_THREAD_NAME)
+                        // one more thread than workers, for refreshing the inbox metrics
+                        .threads(connectorConfiguration.getNotificationInboxConfig().getWorkerThreads() + 1)
+                        .build(),
+                environment.metrics(),
+                clock);
+    }
+
+    NotificationInboxProcessor(NotificationInboxService notificationInboxService,
+                               WorldpayNotificationService worldpayNotificationService,
+                               EpdqNotificationService epdqNotificationService,
+                               SmartpayNotificationService smartpayNotificationService,
+                               StripeNotificationService stripeNotificationService,
+                               NotificationInboxConfig config,
+                               ScheduledExecutorService executorService,
+                               MetricRegistry metricRegistry,
+                               Clock clock) {
+        this.notificationInboxService = notificationInboxService;
+        this.worldpayNotificationService = worldpayNotificationService;
+        this.epdqNotificationService = epdqNotificationService;
+        this.smartpayNotificationService = smartpayNotificationService;
+        this.stripeNotificationService = stripeNotificationService;
+        this.config = config;
+        this.executorService = executorService;
+        this.clock = clock;
+
+        this.processed = metricRegistry.counter(METRIC_PREFIX + ".processed");
+        this.retried = metricRegistry.counter(METRIC_PREFIX + ".retried");
+        this.deferred = metricRegistry.counter(METRIC_PREFIX + ".deferred");
+        this.deadLettered = metricRegistry.counter(METRIC_PREFIX + ".dead-lettered");
+        this.processingTimer = metricRegistry.timer(METRIC_PREFIX + ".processing-time");
+        metricRegistry.register(METRIC_PREFIX + ".depth", (Gauge<Long>) () -> statistics.getDepth());
+        metricRegistry.register(METRIC_PREFIX + ".dead-letter-depth", (Gauge<Long>) () -> statistics.getDeadLettered());
+        metricRegistry.register(METRIC_PREFIX + ".oldest-age-seconds", (Gauge<Long>) this::oldestNotificationAgeInSeconds);
+    }
+
+    @Override
+    public void start() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        for (int i = 0; i < config.getWorkerThreads(); i++) {
+            executorService.scheduleWithFixedDelay(this::processDueNotifications,
+                    config.getPollIntervalInMillis(),
+                    config.getPollIntervalInMillis(),
+                    TimeUnit.MILLISECONDS);
+        }
+        executorService.scheduleWithFixedDelay(this::refreshStatistics,
+                0,
+                config.getMetricsRefreshIntervalInSeconds(),
+                TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void stop() {
+        executorService.shutdown();
+    }
+
+    void processDueNotifications() {
+        try {
+            List<NotificationInboxEntity> claimed;
+            do {
+                claimed = notificationInboxService.claimDueNotifications();
+                claimed.forEach(this::process);
+            } while (claimed.size() >= config.getBatchSize() && !Thread.currentThread().isInterrupted());
+        } catch (Exception e) {
+            LOGGER.error("Notification inbox processor thread exception [message={}]", e.getMessage());
+        }
+    }
+
+    void refreshStatistics() {
+        try {
+            statistics = notificationInboxService.getStatistics();
+        } catch (Exception e) {
+            LOGGER.error("Notification inbox metrics refresh failed [message={}]", e.getMessage());
+        }
+    }
+
+    private void process(NotificationInboxEntity notification) {
+        String failure;
+        try (Timer.Context ignored = processingTimer.time()) {
+            if (handle(notification)) {
+                notificationInboxService.markProcessed(notification.getId());
+                processed.inc();
+                return;
+            }
+            failure = "Notification was not accepted by the " + notification.getPaymentProvider() + " notification service";
+        } catch (Charge3dsNotReadyRuntimeException e) {
+            notificationInboxService.defer(notification.getId(), e.getRetryDate());
+            deferred.inc();
+            return;
+        } catch (Exception e) {
+            LOGGER.error("Processing {} notification from inbox failed [message={}]", notification.getPaymentProvider(),
+                    e.getMessage(), kv("notification_inbox_id", notification.getId()));
+            failure = e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+
+        if (notificationInboxService.markFailed(notification.getId(), failure)) {
+            deadLettered.inc();
+        } else {
+            retried.inc();
+        }
+    }
+
+    private boolean handle(NotificationInboxEntity notification) {
+        String payload = notification.getPayload();
+        switch (PaymentGatewayName.valueFrom(notification.getPaymentProvider())) {
+            case WORLDPAY:
+                return worldpayNotificationService.handleNotificationFor(payload);
+            case SMARTPAY:
+                return smartpayNotificationService.handleNotificationFor(payload);
+            case EPDQ:
+                epdqNotificationService.handleNotificationFor(payload);
+                return true;
+            case STRIPE:
+                stripeNotificationService.processNotification(payload);
+                return true;
+            default:
+                throw new IllegalArgumentException("No notification service for " + notification.getPaymentProvider());
+        }
+    }
+
+    private long oldestNotificationAgeInSeconds() {
+        return statistics.getOldestReceivedDate()
+                .map(receivedDate -> Duration.between(receivedDate, ZonedDateTime.now(clock)).getSeconds())
+                .orElse(0L);
+    }
+}
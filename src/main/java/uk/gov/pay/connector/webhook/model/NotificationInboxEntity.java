@@ -0,0 +1,137 @@
+package uk.gov.pay.connector.webhook.model;
+
+import uk.gov.pay.connector.common.model.domain.UTCDateTimeConverter;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import java.time.ZonedDateTime;
+
+@Entity
+@Table(name = "notification_inbox")
+@SequenceGenerator(name = "notification_inbox_id_seq",
+        sequenceName = "notification_inbox_id_seq", allocationSize = 1)
+public class NotificationInboxEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notification_inbox_id_seq")
+    private Long id;
+
+    @Column(name = "payment_provider")
+    private String paymentProvider;
+
+    @Column(name = "payload")
+    private String payload;
+
+    @Column(name = "status")
+    @Enumerated(EnumType.STRING)
+    private NotificationInboxStatus status;
+
+    @Column(name = "attempts")
+    private int attempts;
+
+    @Convert(converter = UTCDateTimeConverter.class)
+    @Column(name = "received_date")
+    private ZonedDateTime receivedDate;
+
+    @Convert(converter = UTCDateTimeConverter.class)
+    @Column(name = "next_attempt_date")
+    private ZonedDateTime nextAttemptDate;
+
+    @Column(name = "last_error")
+    private String lastError;
+
+    protected NotificationInboxEntity() {
+    }
+
+    public NotificationInboxEntity(String paymentProvider, String payload, ZonedDateTime receivedDate) {
+        this.paymentProvider = paymentProvider;
+        this.payload = payload;
+        this.receivedDate = receivedDate;
+        this.nextAttemptDate = receivedDate;
+        this.status = NotificationInboxStatus.PENDING;
+        this.attempts = 0;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getPaymentProvider() {
+        return paymentProvider;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public NotificationInboxStatus getStatus() {
+        return status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public ZonedDateTime getReceivedDate() {
+        return receivedDate;
+    }
+
+    public ZonedDateTime getNextAttemptDate() {
+        return nextAttemptDate;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    /**
+     * Until the lease expires no other worker will claim the notification. If the worker dies while processing it,
+     * the notification becomes due again once the lease has expired.
+     */
+    public void claim(ZonedDateTime leaseExpiryDate) {
+        this.status = NotificationInboxStatus.PROCESSING;
+        this.attempts++;
+        this.nextAttemptDate = leaseExpiryDate;
+    }
+
+    public void scheduleRetry(ZonedDateTime nextAttemptDate, String error) {
+        this.status = NotificationInboxStatus.PENDING;
+        this.nextAttemptDate = nextAttemptDate;
+        this.lastError = error;
+    }
+
+    /**
+     * Hands the notification back to be claimed again once it is due, without counting the attempt towards the
+     * notification being dead-lettered, because it was not processed rather than failing.
+     */
+    public void defer(ZonedDateTime nextAttemptDate) {
+        this.status = NotificationInboxStatus.PENDING;
+        this.attempts = Math.max(attempts - 1, 0);
+        this.nextAttemptDate = nextAttemptDate;
+    }
+
+    public void deadLetter(String error) {
+        this.status = NotificationInboxStatus.DEAD_LETTER;
+        this.lastError = error;
+    }
+
+    @Override
+    public String toString() {
+        return "NotificationInboxEntity{" +
+                "id=" + id +
+                ", paymentProvider='" + paymentProvider + '\'' +
+                ", status=" + status +
+                ", attempts=" + attempts +
+                ", receivedDate=" + receivedDate +
+                ", nextAttemptDate=" + nextAttemptDate +
+                '}';
+    }
+}
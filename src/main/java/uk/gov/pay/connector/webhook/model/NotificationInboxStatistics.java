@@ -0,0 +1,29 @@
+package uk.gov.pay.connector.webhook.model;
+
+import java.time.ZonedDateTime;
+import java.util.Optional;
+
+public class NotificationInboxStatistics {
+
+    private final long depth;
+    private final long deadLettered;
+    private final ZonedDateTime oldestReceivedDate;
+
+    public NotificationInboxStatistics(long depth, long deadLettered, ZonedDateTime oldestReceivedDate) {
+        this.depth = depth;
+        this.deadLettered = deadLettered;
+        this.oldestReceivedDate = oldestReceivedDate;
+    }
+
+    public long getDepth() {
+        return depth;
+    }
+
+    public long getDeadLettered() {
+        return deadLettered;
+    }
+
+    public Optional<ZonedDateTime> getOldestReceivedDate() {
+        return Optional.ofNullable(oldestReceivedDate);
+    }
+}
@@ -0,0 +1,60 @@
+package uk.gov.pay.connector.webhook.model;
+
+import uk.gov.pay.connector.gateway.PaymentGatewayName;
+
+import java.time.ZonedDateTime;
+import java.util.Objects;
+
+import static org.apache.commons.lang3.StringUtils.defaultString;
+
+/**
+ * Identifies a gateway notification well enough to recognise the gateway sending it again. The reference is part of
+ * the key so that notifications for different refunds of the same payment are not mistaken for each other.
+ */
+public class NotificationKey {
+
+    private final PaymentGatewayName paymentGatewayName;
+    private final String value;
+
+    private NotificationKey(PaymentGatewayName paymentGatewayName, String value) {
+        this.paymentGatewayName = paymentGatewayName;
+        this.value = value;
+    }
+
+    public static NotificationKey of(PaymentGatewayName paymentGatewayName, String transactionId, String reference,
+                                     String status, ZonedDateTime eventDate) {
+        String value = String.join("|",
+                paymentGatewayName.getName(),
+                defaultString(transactionId),
+                defaultString(reference),
+                defaultString(status),
+                eventDate == null ? "" : eventDate.toInstant().toString());
+        return new NotificationKey(paymentGatewayName, value);
+    }
+
+    public PaymentGatewayName getPaymentGatewayName() {
+        return paymentGatewayName;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        NotificationKey that = (NotificationKey) o;
+        return Objects.equals(value, that.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(value);
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+}
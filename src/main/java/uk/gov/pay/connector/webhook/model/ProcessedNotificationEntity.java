@@ -0,0 +1,53 @@
+package uk.gov.pay.connector.webhook.model;
+
+import uk.gov.pay.connector.common.model.domain.UTCDateTimeConverter;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import java.time.ZonedDateTime;
+
+@Entity
+@Table(name = "processed_notifications")
+@SequenceGenerator(name = "processed_notifications_id_seq",
+        sequenceName = "processed_notifications_id_seq", allocationSize = 1)
+public class ProcessedNotificationEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "processed_notifications_id_seq")
+    private Long id;
+
+    @Column(name = "payment_provider")
+    private String paymentProvider;
+
+    @Column(name = "notification_key")
+    private String notificationKey;
+
+    @Convert(converter = UTCDateTimeConverter.class)
+    @Column(name = "processed_date")
+    private ZonedDateTime processedDate;
+
+    protected ProcessedNotificationEntity() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getPaymentProvider() {
+        return paymentProvider;
+    }
+
+    public String getNotificationKey() {
+        return notificationKey;
+    }
+
+    public ZonedDateTime getProcessedDate() {
+        return processedDate;
+    }
+}
@@ -6,7 +6,7 @@ import uk.gov.pay.connector.gateway.epdq.EpdqNotificationService;
 import uk.gov.pay.connector.gateway.smartpay.SmartpayNotificationService;
 import uk.gov.pay.connector.gateway.stripe.StripeNotificationService;
 import uk.gov.pay.connector.gateway.worldpay.WorldpayNotificationService;
-import uk.gov.pay.connector.queue.QueueException;
+import uk.gov.pay.connector.webhook.service.NotificationInboxService;
 
 import javax.annotation.security.PermitAll;
 import javax.inject.Inject;
@@ -21,6 +21,10 @@ import static javax.ws.rs.core.MediaType.APPLICATION_FORM_URLENCODED;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 import static javax.ws.rs.core.MediaType.TEXT_XML;
 import static net.logstash.logback.argument.StructuredArguments.kv;
+import static uk.gov.pay.connector.gateway.PaymentGatewayName.EPDQ;
+import static uk.gov.pay.connector.gateway.PaymentGatewayName.SMARTPAY;
+import static uk.gov.pay.connector.gateway.PaymentGatewayName.STRIPE;
+import static uk.gov.pay.connector.gateway.PaymentGatewayName.WORLDPAY;
 import static uk.gov.pay.connector.util.ResponseUtil.forbiddenErrorResponse;
 
 @Path("/")
@@ -32,16 +36,19 @@ public class NotificationResource {
     private final EpdqNotificationService epdqNotificationService;
     private final SmartpayNotificationService smartpayNotificationService;
     private final StripeNotificationService stripeNotificationService;
+    private final NotificationInboxService notificationInboxService;
 
     @Inject
     public NotificationResource(WorldpayNotificationService worldpayNotificationService,
                                 EpdqNotificationService epdqNotificationService,
                                 SmartpayNotificationService smartpayNotificationService,
-                                StripeNotificationService stripeNotificationService) {
+                                StripeNotificationService stripeNotificationService,
+                                NotificationInboxService notificationInboxService) {
         this.worldpayNotificationService = worldpayNotificationService;
         this.smartpayNotificationService = smartpayNotificationService;
         this.epdqNotificationService = epdqNotificationService;
         this.stripeNotificationService = stripeNotificationService;
+        this.notificationInboxService = notificationInboxService;
     }
 
     @POST
@@ -49,7 +56,11 @@ public class NotificationResource {
     @PermitAll
     @Path("/v1/api/notifications/smartpay")
     public Response authoriseSmartpayNotifications(String notification) {
-        smartpayNotificationService.handleNotificationFor(notification);
+        if (notificationInboxService.isEnabled()) {
+            notificationInboxService.enqueue(SMARTPAY, notification);
+        } else {
+            smartpayNotificationService.handleNotificationFor(notification);
+        }
         String response = "[accepted]";
         logger.info("Responding to notification from provider=smartpay with 200 {}", response);
         return Response.ok(response).build();
@@ -67,7 +78,13 @@ public class NotificationResource {
     @Path("/v1/api/notifications/worldpay")
     @Produces({TEXT_XML, APPLICATION_JSON})
     public Response authoriseWorldpayNotifications(String notification, @HeaderParam("X-Forwarded-For") String ipAddress) {
-        if (!worldpayNotificationService.handleNotificationFor(ipAddress, notification)) {
+        if (!worldpayNotificationService.isNotificationFromPermittedSource(ipAddress)) {
+            logger.info(String.format("Rejected notification for ip '%s'", ipAddress), kv("notification_source", ipAddress));
+            return forbiddenErrorResponse();
+        }
+        if (notificationInboxService.isEnabled()) {
+            notificationInboxService.enqueue(WORLDPAY, notification);
+        } else if (!worldpayNotificationService.handleNotificationFor(notification)) {
             logger.info(String.format("Rejected notification for ip '%s'", ipAddress), kv("notification_source", ipAddress));
             return forbiddenErrorResponse();
         }
@@ -81,7 +98,11 @@ public class NotificationResource {
     @Path("/v1/api/notifications/epdq")
     @Produces({TEXT_XML, APPLICATION_JSON})
     public Response authoriseEpdqNotifications(String notification) {
-        epdqNotificationService.handleNotificationFor(notification);
+        if (notificationInboxService.isEnabled()) {
+            notificationInboxService.enqueue(EPDQ, notification);
+        } else {
+            epdqNotificationService.handleNotificationFor(notification);
+        }
         String response = "[OK]";
         logger.info("Responding to notification from provider={} with 200 {}", "epdq", response);
         return Response.ok(response).build();
@@ -92,7 +113,12 @@ public class NotificationResource {
     @Path("/v1/api/notifications/stripe")
     @Produces({TEXT_XML, APPLICATION_JSON})
     public Response authoriseStripeNotifications(String notification, @HeaderParam("Stripe-Signature") String signatureHeader) {
-        stripeNotificationService.handleNotificationFor(notification, signatureHeader);
+        if (notificationInboxService.isEnabled()) {
+            stripeNotificationService.verifySignature(notification, signatureHeader);
+            notificationInboxService.enqueue(STRIPE, notification);
+        } else {
+            stripeNotificationService.handleNotificationFor(notification, signatureHeader);
+        }
         String response = "[OK]";
         logger.info("Responding to notification from provider=Stripe with 200 {}", response);
         return Response.ok(response).build();
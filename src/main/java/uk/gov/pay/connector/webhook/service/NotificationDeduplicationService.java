@@ -0,0 +1,95 @@
+package uk.gov.pay.connector.webhook.service;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.dropwizard.setup.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.common.dao.AfterCommitActions;
+import uk.gov.pay.connector.gateway.PaymentGatewayName;
+import uk.gov.pay.connector.webhook.dao.ProcessedNotificationDao;
+import uk.gov.pay.connector.webhook.model.NotificationKey;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Recognises gateway notifications that have already been processed, so that a gateway's retries can be acknowledged
+ * without looking up or transitioning the charge again. Recently processed notifications are remembered in memory;
+ * older ones, and those processed by other nodes, are found in the processed_notifications table. A notification is
+ * only remembered in memory once the transaction that recorded it has committed, so that a gateway retry after a
+ * failed commit is processed again rather than acknowledged.
+ */
+@Singleton
+public class NotificationDeduplicationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationDeduplicationService.class);
+
+    private static final long MAXIMUM_RECENT_NOTIFICATIONS = 10000;
+    private static final long RECENT_NOTIFICATION_TTL_HOURS = 24;
+    static final Duration PROCESSED_NOTIFICATION_RETENTION = Duration.ofDays(30);
+
+    private final ProcessedNotificationDao processedNotificationDao;
+    private final AfterCommitActions afterCommitActions;
+    private final Clock clock;
+    private final Cache<NotificationKey, Boolean> recentlyProcessed = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_RECENT_NOTIFICATIONS)
+            .expireAfterWrite(RECENT_NOTIFICATION_TTL_HOURS, TimeUnit.HOURS)
+            .build();
+    private final Map<PaymentGatewayName, Counter> suppressedCounters = new EnumMap<>(PaymentGatewayName.class);
+
+    @Inject
+    public NotificationDeduplicationService(ProcessedNotificationDao processedNotificationDao,
+                                            AfterCommitActions afterCommitActions,
+                                            Environment environment,
+                                            Clock clock) {
+        this(processedNotificationDao, afterCommitActions, environment.metrics(), clock);
+    }
+
+    NotificationDeduplicationService(ProcessedNotificationDao processedNotificationDao,
+                                     AfterCommitActions afterCommitActions,
+                                     MetricRegistry metricRegistry,
+                                     Clock clock) {
+        this.processedNotificationDao = processedNotificationDao;
+        this.afterCommitActions = afterCommitActions;
+        this.clock = clock;
+        for (PaymentGatewayName paymentGatewayName : PaymentGatewayName.values()) {
+            suppressedCounters.put(paymentGatewayName,
+                    metricRegistry.counter("notifications.duplicates-suppressed." + paymentGatewayName.getName()));
+        }
+    }
+
+    public boolean isDuplicate(NotificationKey notificationKey) {
+        boolean duplicate = recentlyProcessed.getIfPresent(notificationKey) != null
+                || processedNotificationDao.hasBeenProcessed(notificationKey);
+        if (duplicate) {
+            recentlyProcessed.put(notificationKey, Boolean.TRUE);
+            suppressedCounters.get(notificationKey.getPaymentGatewayName()).inc();
+            logger.info("Ignoring {} notification that has already been processed",
+                    notificationKey.getPaymentGatewayName().getName(), kv("notification_key", notificationKey.getValue()));
+        }
+        return duplicate;
+    }
+
+    public void recordProcessed(NotificationKey notificationKey) {
+        processedNotificationDao.recordProcessed(notificationKey, ZonedDateTime.now(clock));
+        afterCommitActions.run(() -> recentlyProcessed.put(notificationKey, Boolean.TRUE));
+    }
+
+    public int expungeProcessedNotifications() {
+        int expunged = processedNotificationDao.deleteProcessedBefore(
+                ZonedDateTime.now(clock).minus(PROCESSED_NOTIFICATION_RETENTION));
+        logger.info("Expunged {} processed notification records", expunged);
+        return expunged;
+    }
+}
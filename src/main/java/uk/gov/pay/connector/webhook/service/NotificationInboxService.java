@@ -0,0 +1,111 @@
+package uk.gov.pay.connector.webhook.service;
+
+import com.google.inject.persist.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.config.NotificationInboxConfig;
+import uk.gov.pay.connector.gateway.PaymentGatewayName;
+import uk.gov.pay.connector.webhook.dao.NotificationInboxDao;
+import uk.gov.pay.connector.webhook.model.NotificationInboxEntity;
+import uk.gov.pay.connector.webhook.model.NotificationInboxStatistics;
+
+import javax.inject.Inject;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+public class NotificationInboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationInboxService.class);
+
+    private final NotificationInboxDao notificationInboxDao;
+    private final NotificationInboxConfig config;
+    private final Clock clock;
+
+    @Inject
+    public NotificationInboxService(NotificationInboxDao notificationInboxDao,
+                                    ConnectorConfiguration configuration,
+                                    Clock clock) {
+        this.notificationInboxDao = notificationInboxDao;
+        this.config = configuration.getNotificationInboxConfig();
+        this.clock = clock;
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    public void enqueue(PaymentGatewayName paymentGatewayName, String payload) {
+        NotificationInboxEntity notification = new NotificationInboxEntity(paymentGatewayName.getName(), payload, now());
+        notificationInboxDao.persist(notification);
+        logger.info("Stored {} notification in inbox", paymentGatewayName.getName(),
+                kv("notification_inbox_id", notification.getId()));
+    }
+
+    public List<NotificationInboxEntity> claimDueNotifications() {
+        ZonedDateTime now = now();
+        return notificationInboxDao.claimDue(now, now.plusSeconds(config.getLeaseInSeconds()), config.getBatchSize());
+    }
+
+    @Transactional
+    public void markProcessed(Long notificationId) {
+        notificationInboxDao.findById(NotificationInboxEntity.class, notificationId)
+                .ifPresent(notificationInboxDao::remove);
+    }
+
+    /**
+     * Schedules the notification for another attempt with exponential backoff, or dead-letters it once it has used up
+     * its attempts. Dead-lettered notifications stay in the inbox for investigation and are never claimed again.
+     *
+     * @return true if the notification was dead-lettered
+     */
+    @Transactional
+    public boolean markFailed(Long notificationId, String error) {
+        return notificationInboxDao.findById(NotificationInboxEntity.class, notificationId)
+                .map(notification -> {
+                    if (notification.getAttempts() >= config.getMaximumAttempts()) {
+                        notification.deadLetter(error);
+                        logger.error("{} notification dead-lettered after {} attempts: {}",
+                                notification.getPaymentProvider(), notification.getAttempts(), error,
+                                kv("notification_inbox_id", notificationId));
+                        return true;
+                    }
+                    ZonedDateTime nextAttemptDate = now().plus(retryDelay(notification.getAttempts()));
+                    notification.scheduleRetry(nextAttemptDate, error);
+                    logger.warn("{} notification will be retried at {}: {}",
+                            notification.getPaymentProvider(), nextAttemptDate, error,
+                            kv("notification_inbox_id", notificationId));
+                    return false;
+                })
+                .orElse(false);
+    }
+
+    @Transactional
+    public void defer(Long notificationId, ZonedDateTime nextAttemptDate) {
+        notificationInboxDao.findById(NotificationInboxEntity.class, notificationId)
+                .ifPresent(notification -> {
+                    notification.defer(nextAttemptDate);
+                    logger.info("{} notification deferred until {}", notification.getPaymentProvider(), nextAttemptDate,
+                            kv("notification_inbox_id", notificationId));
+                });
+    }
+
+    public NotificationInboxStatistics getStatistics() {
+        return notificationInboxDao.getStatistics();
+    }
+
+    Duration retryDelay(int attempts) {
+        long maximumDelay = config.getMaximumRetryDelayInSeconds();
+        int doublings = Math.min(Math.max(attempts - 1, 0), 30);
+        long delay = Math.min((long) config.getInitialRetryDelayInSeconds() << doublings, maximumDelay);
+        return Duration.ofSeconds(delay);
+    }
+
+    private ZonedDateTime now() {
+        return ZonedDateTime.now(clock);
+    }
+}
@@ -0,0 +1,89 @@
+package uk.gov.pay.connector.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.dropwizard.jackson.Jackson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.pay.connector.charge.model.ChargeResponse;
+import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
+import uk.gov.pay.connector.charge.model.domain.ChargeStatus;
+import uk.gov.pay.connector.common.model.api.ExternalChargeState;
+import uk.gov.pay.connector.common.model.api.ExternalTransactionState;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import static uk.gov.pay.connector.charge.model.ChargeResponse.aChargeResponseBuilder;
+import static uk.gov.pay.connector.charge.model.domain.ChargeEntityFixture.aValidChargeEntity;
+import static uk.gov.pay.connector.common.model.api.ExternalChargeRefundAvailability.EXTERNAL_AVAILABLE;
+
+/**
+ * Compares writing a {@link ChargeResponse} to the response stream with a writer resolved once, as Jersey's Jackson
+ * provider does, against serialising it through the mapper to a string on every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChargeResponseSerialisationBenchmark {
+
+    private static final ObjectMapper MAPPER = Jackson.newObjectMapper();
+    private static final ObjectWriter WRITER = MAPPER.writerFor(ChargeResponse.class);
+
+    private ChargeResponse chargeResponse;
+
+    @Setup
+    public void setUp() {
+        ChargeEntity charge = aValidChargeEntity().build();
+
+        ChargeResponse.RefundSummary refunds = new ChargeResponse.RefundSummary();
+        refunds.setAmountAvailable(charge.getAmount());
+        refunds.setAmountSubmitted(0L);
+        refunds.setStatus(EXTERNAL_AVAILABLE.getStatus());
+
+        ExternalChargeState externalChargeState = ChargeStatus.fromString(charge.getStatus()).toExternal();
+        URI selfLink = URI.create("https://connector.example.com/v1/api/accounts/1/charges/" + charge.getExternalId());
+        chargeResponse = aChargeResponseBuilder()
+                .withChargeId(charge.getExternalId())
+                .withAmount(charge.getAmount())
+                .withReference(charge.getReference())
+                .withDescription(charge.getDescription())
+                .withState(new ExternalTransactionState(externalChargeState.getStatus(), externalChargeState.isFinished(),
+                        externalChargeState.getCode(), externalChargeState.getMessage()))
+                .withGatewayTransactionId(charge.getGatewayTransactionId())
+                .withProviderName(charge.getGatewayAccount().getGatewayName())
+                .withCreatedDate(charge.getCreatedDate())
+                .withEmail(charge.getEmail())
+                .withRefunds(refunds)
+                .withSettlement(new ChargeResponse.SettlementSummary())
+                .withReturnUrl(charge.getReturnUrl())
+                .withLanguage(charge.getLanguage())
+                .withMoto(charge.isMoto())
+                .withLink("self", "GET", selfLink)
+                .withLink("refunds", "GET", URI.create(selfLink + "/refunds"))
+                .build();
+    }
+
+    @Benchmark
+    public void writeValueToStream() throws IOException {
+        WRITER.writeValue(OutputStream.nullOutputStream(), chargeResponse);
+    }
+
+    @Benchmark
+    public String writeValueAsStringBaseline() throws IOException {
+        return MAPPER.writeValueAsString(chargeResponse);
+    }
+}
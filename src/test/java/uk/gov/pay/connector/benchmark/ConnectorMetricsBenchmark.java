@@ -0,0 +1,58 @@
+package uk.gov.pay.connector.benchmark;
+
+import com.codahale.metrics.MetricRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
+import uk.gov.pay.connector.metrics.ConnectorMetrics;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+import static uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity.Type.TEST;
+import static uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntityFixture.aGatewayAccountEntity;
+
+/**
+ * Compares counting an operation result through the handles {@link ConnectorMetrics} caches against building the per
+ * account metric name for every call, as was done before. Run with the GC profiler to compare bytes allocated per
+ * operation (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConnectorMetricsBenchmark {
+
+    private MetricRegistry metricRegistry;
+    private ConnectorMetrics connectorMetrics;
+    private GatewayAccountEntity gatewayAccount;
+
+    @Setup
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        connectorMetrics = new ConnectorMetrics(metricRegistry);
+        gatewayAccount = aGatewayAccountEntity().withId(1L).withGatewayName("worldpay").withType(TEST).build();
+    }
+
+    @Benchmark
+    public void operationResultThroughCachedHandle() {
+        connectorMetrics.operationResult(gatewayAccount, "capture", "CAPTURE SUBMITTED");
+    }
+
+    @Benchmark
+    public void operationResultFormattingNamePerCallBaseline() {
+        metricRegistry.counter(format("gateway-operations.%s.%s.%s.%s.result.%s",
+                gatewayAccount.getGatewayName(), gatewayAccount.getType(), gatewayAccount.getId(),
+                "capture", "CAPTURE SUBMITTED")).inc();
+    }
+}
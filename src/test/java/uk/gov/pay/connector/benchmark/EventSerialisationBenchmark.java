@@ -0,0 +1,175 @@
+package uk.gov.pay.connector.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dropwizard.jackson.Jackson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
+import uk.gov.pay.connector.charge.model.domain.ChargeStatus;
+import uk.gov.pay.connector.chargeevent.model.domain.ChargeEventEntity;
+import uk.gov.pay.connector.events.model.Event;
+import uk.gov.pay.connector.events.model.charge.AuthorisationCancelled;
+import uk.gov.pay.connector.events.model.charge.AuthorisationRejected;
+import uk.gov.pay.connector.events.model.charge.AuthorisationSucceeded;
+import uk.gov.pay.connector.events.model.charge.CancelledByExpiration;
+import uk.gov.pay.connector.events.model.charge.CancelledByUser;
+import uk.gov.pay.connector.events.model.charge.CaptureConfirmed;
+import uk.gov.pay.connector.events.model.charge.CaptureErrored;
+import uk.gov.pay.connector.events.model.charge.CaptureSubmitted;
+import uk.gov.pay.connector.events.model.charge.GatewayRequires3dsAuthorisation;
+import uk.gov.pay.connector.events.model.charge.PaymentCreated;
+import uk.gov.pay.connector.events.model.charge.PaymentDetailsEntered;
+import uk.gov.pay.connector.events.model.charge.PaymentExpired;
+import uk.gov.pay.connector.events.model.charge.PaymentNotificationCreated;
+import uk.gov.pay.connector.events.model.charge.PaymentStarted;
+import uk.gov.pay.connector.events.model.charge.ServiceApprovedForCapture;
+import uk.gov.pay.connector.events.model.charge.SystemCancelled;
+import uk.gov.pay.connector.events.model.charge.UserApprovedForCapture;
+import uk.gov.pay.connector.events.model.refund.RefundCreatedByUser;
+import uk.gov.pay.connector.events.model.refund.RefundSubmitted;
+import uk.gov.pay.connector.events.model.refund.RefundSucceeded;
+import uk.gov.pay.connector.pact.ChargeEventEntityFixture;
+import uk.gov.pay.connector.refund.model.domain.RefundHistory;
+import uk.gov.pay.connector.refund.model.domain.RefundStatus;
+
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+
+import static uk.gov.pay.connector.charge.model.domain.ChargeEntityFixture.aValidChargeEntity;
+import static uk.gov.pay.connector.model.domain.AuthCardDetailsFixture.anAuthCardDetails;
+import static uk.gov.pay.connector.pact.RefundHistoryEntityFixture.aValidRefundHistoryEntity;
+
+/**
+ * Compares {@link Event#toJsonString()}, which uses a writer cached per event class, with serialising through the
+ * mapper on every call, for the event types emitted most often. Run with {@code mvn test -DrunBenchmarks}, which adds
+ * the GC profiler for allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventSerialisationBenchmark {
+
+    private static final ObjectMapper MAPPER = Jackson.newObjectMapper();
+
+    @Param({
+            "PaymentCreated",
+            "PaymentStarted",
+            "PaymentDetailsEntered",
+            "AuthorisationSucceeded",
+            "AuthorisationRejected",
+            "AuthorisationCancelled",
+            "GatewayRequires3dsAuthorisation",
+            "UserApprovedForCapture",
+            "ServiceApprovedForCapture",
+            "CaptureSubmitted",
+            "CaptureConfirmed",
+            "CaptureErrored",
+            "PaymentExpired",
+            "CancelledByUser",
+            "CancelledByExpiration",
+            "SystemCancelled",
+            "PaymentNotificationCreated",
+            "RefundCreatedByUser",
+            "RefundSubmitted",
+            "RefundSucceeded"
+    })
+    public String eventType;
+
+    private Event event;
+
+    @Setup
+    public void setUp() {
+        event = anEvent(eventType);
+    }
+
+    @Benchmark
+    public String toJsonString() throws JsonProcessingException {
+        return event.toJsonString();
+    }
+
+    @Benchmark
+    public String writeValueAsStringBaseline() throws JsonProcessingException {
+        return MAPPER.writeValueAsString(event);
+    }
+
+    private static Event anEvent(String eventType) {
+        ChargeEntity charge = aValidChargeEntity()
+                .withFee(42L)
+                .withCorporateSurcharge(55L)
+                .withCardDetails(anAuthCardDetails().getCardDetailsEntity())
+                .build();
+        ChargeEventEntity chargeEvent = ChargeEventEntityFixture.aValidChargeEventEntity()
+                .withCharge(charge)
+                .withGatewayEventDate(ZonedDateTime.now())
+                .build();
+        RefundHistory refundHistory = aValidRefundHistoryEntity()
+                .withUserExternalId("a-user-external-id")
+                .withUserEmail("test@example.com")
+                .withGatewayTransactionId("a-gateway-transaction-id")
+                .withStatus(RefundStatus.REFUNDED.getValue())
+                .build();
+        String externalId = charge.getExternalId();
+        ZonedDateTime timestamp = ZonedDateTime.now();
+
+        switch (eventType) {
+            case "PaymentCreated":
+                return PaymentCreated.from(charge);
+            case "PaymentStarted":
+                return new PaymentStarted(externalId, timestamp);
+            case "PaymentDetailsEntered":
+                return PaymentDetailsEntered.from(chargeEvent);
+            case "AuthorisationSucceeded":
+                return new AuthorisationSucceeded(externalId, timestamp);
+            case "AuthorisationRejected":
+                return new AuthorisationRejected(externalId, timestamp);
+            case "AuthorisationCancelled":
+                return new AuthorisationCancelled(externalId, timestamp);
+            case "GatewayRequires3dsAuthorisation":
+                return new GatewayRequires3dsAuthorisation(externalId, timestamp);
+            case "UserApprovedForCapture":
+                return new UserApprovedForCapture(externalId, timestamp);
+            case "ServiceApprovedForCapture":
+                return new ServiceApprovedForCapture(externalId, timestamp);
+            case "CaptureSubmitted":
+                return CaptureSubmitted.from(chargeEvent);
+            case "CaptureConfirmed":
+                return CaptureConfirmed.from(chargeEvent);
+            case "CaptureErrored":
+                return new CaptureErrored(externalId, timestamp);
+            case "PaymentExpired":
+                return new PaymentExpired(externalId, timestamp);
+            case "CancelledByUser":
+                return new CancelledByUser(externalId, timestamp);
+            case "CancelledByExpiration":
+                return new CancelledByExpiration(externalId, timestamp);
+            case "SystemCancelled":
+                return new SystemCancelled(externalId, timestamp);
+            case "PaymentNotificationCreated":
+                return PaymentNotificationCreated.from(ChargeEventEntityFixture.aValidChargeEventEntity()
+                        .withCharge(charge)
+                        .withChargeStatus(ChargeStatus.PAYMENT_NOTIFICATION_CREATED)
+                        .build());
+            case "RefundCreatedByUser":
+                return RefundCreatedByUser.from(refundHistory, charge.getGatewayAccount().getId());
+            case "RefundSubmitted":
+                return RefundSubmitted.from(refundHistory);
+            case "RefundSucceeded":
+                return RefundSucceeded.from(refundHistory);
+            default:
+                throw new IllegalArgumentException("Unknown event type " + eventType);
+        }
+    }
+}
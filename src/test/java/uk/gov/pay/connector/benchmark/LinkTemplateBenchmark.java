@@ -0,0 +1,45 @@
+package uk.gov.pay.connector.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.pay.connector.common.model.api.LinkTemplates;
+
+import javax.ws.rs.core.UriBuilder;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares building the self link of a charge response from a {@link uk.gov.pay.connector.common.model.api.LinkTemplate}
+ * with building it through the base {@link UriBuilder}, as the response builders used to.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LinkTemplateBenchmark {
+
+    private final URI baseUri = URI.create("http://connector.example.com/");
+    private final Long accountId = 12345L;
+    private final String chargeId = "ch_ab2341da231434l";
+
+    @Benchmark
+    public URI linkTemplate() {
+        return LinkTemplates.CHARGE.expand(baseUri, accountId, chargeId);
+    }
+
+    @Benchmark
+    public URI uriBuilderBaseline() {
+        return UriBuilder.fromUri(baseUri)
+                .path("/v1/api/accounts/{accountId}/charges/{chargeId}")
+                .build(accountId, chargeId);
+    }
+}
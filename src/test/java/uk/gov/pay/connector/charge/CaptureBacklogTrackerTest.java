@@ -0,0 +1,119 @@
+package uk.gov.pay.connector.charge;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.pay.connector.charge.model.domain.ChargeAwaitingCapture;
+import uk.gov.pay.connector.common.dao.AfterCommitActions;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.CAPTURED;
+import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.CAPTURE_APPROVED;
+import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.CAPTURE_APPROVED_RETRY;
+import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.CAPTURE_READY;
+
+public class CaptureBacklogTrackerTest {
+
+    private static final Instant NOW = Instant.parse("2020-01-01T12:00:00Z");
+
+    private Clock clock;
+    private AfterCommitActions afterCommitActions;
+    private CaptureBacklogTracker tracker;
+
+    @Before
+    public void setUp() {
+        clock = mock(Clock.class);
+        when(clock.instant()).thenReturn(NOW);
+        afterCommitActions = mock(AfterCommitActions.class);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(afterCommitActions).run(any(Runnable.class));
+        tracker = new CaptureBacklogTracker(clock, afterCommitActions);
+    }
+
+    @Test
+    public void shouldNotTrackStatusChangeUntilItIsCommitted() {
+        doNothing().when(afterCommitActions).run(any(Runnable.class));
+
+        tracker.chargeStatusChanged("charge-1", CAPTURE_APPROVED);
+
+        assertThat(tracker.size(), is(0));
+    }
+
+    @Test
+    public void shouldTrackChargeUntilItLeavesTheCaptureStates() {
+        tracker.chargeStatusChanged("charge-1", CAPTURE_APPROVED);
+        tracker.chargeStatusChanged("charge-1", CAPTURE_READY);
+        tracker.chargeStatusChanged("charge-1", CAPTURE_APPROVED_RETRY);
+
+        assertThat(tracker.size(), is(1));
+
+        tracker.chargeStatusChanged("charge-1", CAPTURED);
+
+        assertThat(tracker.size(), is(0));
+    }
+
+    @Test
+    public void shouldNotCountChargesWithRecentCaptureAttemptAsReadyForCapture() {
+        tracker.chargeStatusChanged("charge-1", CAPTURE_APPROVED);
+        tracker.chargeStatusChanged("charge-2", CAPTURE_APPROVED);
+        tracker.chargeStatusChanged("charge-2", CAPTURE_APPROVED_RETRY);
+
+        assertThat(tracker.countReadyForCapture(Duration.ofHours(1)), is(1));
+
+        when(clock.instant()).thenReturn(NOW.plus(Duration.ofHours(2)));
+
+        assertThat(tracker.countReadyForCapture(Duration.ofHours(1)), is(2));
+    }
+
+    @Test
+    public void shouldKeepOriginalWaitingTimeWhenCaptureIsRetried() {
+        tracker.chargeStatusChanged("charge-1", CAPTURE_APPROVED);
+        when(clock.instant()).thenReturn(NOW.plus(Duration.ofMinutes(30)));
+        tracker.chargeStatusChanged("charge-1", CAPTURE_APPROVED_RETRY);
+
+        assertThat(tracker.oldestWait(), is(Optional.of(Duration.ofMinutes(30))));
+    }
+
+    @Test
+    public void shouldReportWaitPercentiles() {
+        tracker.reconcile(List.of(
+                new ChargeAwaitingCapture("charge-1", NOW.minusSeconds(10), null),
+                new ChargeAwaitingCapture("charge-2", NOW.minusSeconds(20), null),
+                new ChargeAwaitingCapture("charge-3", NOW.minusSeconds(30), null),
+                new ChargeAwaitingCapture("charge-4", NOW.minusSeconds(400), null)));
+
+        assertThat(tracker.waitPercentile(0.5), is(Optional.of(Duration.ofSeconds(20))));
+        assertThat(tracker.waitPercentile(0.99), is(Optional.of(Duration.ofSeconds(400))));
+        assertThat(tracker.oldestWait(), is(Optional.of(Duration.ofSeconds(400))));
+    }
+
+    @Test
+    public void reconcileShouldReplaceChargesNoLongerAwaitingCapture() {
+        tracker.chargeStatusChanged("captured-elsewhere", CAPTURE_APPROVED);
+
+        tracker.reconcile(List.of(new ChargeAwaitingCapture("charge-1", NOW.minusSeconds(10), null)));
+
+        assertThat(tracker.size(), is(1));
+        assertThat(tracker.oldestWait(), is(Optional.of(Duration.ofSeconds(10))));
+    }
+
+    @Test
+    public void shouldReportNothingWhenBacklogIsEmpty() {
+        assertThat(tracker.oldestWait(), is(Optional.empty()));
+        assertThat(tracker.waitPercentile(0.5), is(Optional.empty()));
+        assertThat(tracker.countReadyForCapture(Duration.ofHours(1)), is(0));
+    }
+}
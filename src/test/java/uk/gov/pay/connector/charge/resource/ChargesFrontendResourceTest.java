@@ -1,6 +1,7 @@
 package uk.gov.pay.connector.charge.resource;
 
 import io.dropwizard.testing.junit.ResourceTestRule;
+import org.junit.After;
 import org.junit.ClassRule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -8,20 +9,29 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import uk.gov.pay.connector.cardtype.dao.CardTypeDao;
 import uk.gov.pay.connector.charge.dao.ChargeDao;
+import uk.gov.pay.connector.charge.model.FrontendChargeVersion;
 import uk.gov.pay.connector.charge.service.ChargeService;
 import uk.gov.pay.connector.charge.service.Worldpay3dsFlexJwtService;
 import uk.gov.pay.connector.rules.ResourceTestRuleWithCustomExceptionMappersBuilder;
 
 import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import static org.hamcrest.CoreMatchers.hasItem;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
 public class ChargesFrontendResourceTest {
@@ -39,6 +49,18 @@ public class ChargesFrontendResourceTest {
             .addResource(new ChargesFrontendResource(chargeDao, chargeService, cardTypeDao, worldpay3dsFlexJwtService))
             .build();
 
+    private static final ChargeDao versionedChargeDao = mock(ChargeDao.class);
+
+    @ClassRule
+    public static ResourceTestRule versionedResources = ResourceTestRuleWithCustomExceptionMappersBuilder.getBuilder()
+            .addResource(new ChargesFrontendResource(versionedChargeDao, chargeService, cardTypeDao, worldpay3dsFlexJwtService))
+            .build();
+
+    @After
+    public void tearDown() {
+        reset(versionedChargeDao);
+    }
+
     @Test
     public void shouldReturn400_whenPutToChargeStatus_emptyPayload() {
         Response response = resources.client()
@@ -82,4 +104,50 @@ public class ChargesFrontendResourceTest {
         assertThat(listOfErrors.size(), is(1));
         assertThat(listOfErrors, hasItem("invalid new status"));
     }
+
+    @Test
+    public void shouldReturn304WithoutLoadingTheCharge_whenChargeVersionsAreUnchanged() {
+        FrontendChargeVersion version = new FrontendChargeVersion(3L, 2L, null, 4L, 2L, null, "AUTHORISATION SUCCESS", null);
+        when(versionedChargeDao.findFrontendChargeVersion("a-charge-id")).thenReturn(Optional.of(version));
+
+        Response response = versionedResources.client()
+                .target("/v1/frontend/charges/a-charge-id")
+                .request()
+                .header(HttpHeaders.IF_NONE_MATCH, version.toEntityTag().toString())
+                .get();
+
+        assertThat(response.getStatus(), is(304));
+        assertThat(response.getEntityTag(), is(version.toEntityTag()));
+        verify(versionedChargeDao, never()).findByExternalId(anyString());
+    }
+
+    @Test
+    public void shouldLoadTheCharge_whenItHasAWorldpayChallengeEvenIfVersionsAreUnchanged() {
+        FrontendChargeVersion version = new FrontendChargeVersion(3L, 2L, 1L, 4L, 2L, null,
+                "AUTHORISATION 3DS REQUIRED", "challenge-transaction-id");
+        when(versionedChargeDao.findFrontendChargeVersion("a-charge-id")).thenReturn(Optional.of(version));
+        when(versionedChargeDao.findByExternalId("a-charge-id")).thenReturn(Optional.empty());
+
+        Response response = versionedResources.client()
+                .target("/v1/frontend/charges/a-charge-id")
+                .request()
+                .header(HttpHeaders.IF_NONE_MATCH, version.toEntityTag().toString())
+                .get();
+
+        assertThat(response.getStatus(), is(404));
+        verify(versionedChargeDao).findByExternalId("a-charge-id");
+    }
+
+    @Test
+    public void shouldReturn404WithoutLoadingTheCharge_whenChargeHasNoVersion() {
+        when(versionedChargeDao.findFrontendChargeVersion("a-charge-id")).thenReturn(Optional.empty());
+
+        Response response = versionedResources.client()
+                .target("/v1/frontend/charges/a-charge-id")
+                .request()
+                .get();
+
+        assertThat(response.getStatus(), is(404));
+        verify(versionedChargeDao, never()).findByExternalId(anyString());
+    }
 }
@@ -1,6 +1,9 @@
 package uk.gov.pay.connector.charge.service;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.ImmutableList;
+import io.dropwizard.setup.Environment;
 import junitparams.JUnitParamsRunner;
 import junitparams.Parameters;
 import org.junit.Before;
@@ -14,6 +17,7 @@ import org.mockito.junit.MockitoRule;
 import uk.gov.pay.connector.app.ChargeSweepConfig;
 import uk.gov.pay.connector.app.ConnectorConfiguration;
 import uk.gov.pay.connector.charge.dao.ChargeDao;
+import uk.gov.pay.connector.charge.exception.ChargeLockedRuntimeException;
 import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
 import uk.gov.pay.connector.charge.model.domain.ChargeEntityFixture;
 import uk.gov.pay.connector.charge.model.domain.ChargeStatus;
@@ -95,6 +99,12 @@ public class ChargeExpiryServiceTest {
     @Mock
     private ConnectorConfiguration mockedConfig;
 
+    @Mock
+    private Environment mockEnvironment;
+
+    @Mock
+    private MetricRegistry mockMetricRegistry;
+
     private static final List<ChargeStatus> EXPIRABLE_REGULAR_STATUSES = ImmutableList.of(
             CREATED,
             ENTERING_CARD_DETAILS,
@@ -113,8 +123,10 @@ public class ChargeExpiryServiceTest {
 
     @Before
     public void setup() {
+        when(mockEnvironment.metrics()).thenReturn(mockMetricRegistry);
         when(mockedConfig.getChargeSweepConfig()).thenReturn(mockedChargeSweepConfig);
-        chargeExpiryService = new ChargeExpiryService(mockChargeDao, mockChargeService, mockTokenDao, mockPaymentProviders, mockQueryService, mockedConfig);
+        chargeExpiryService = new ChargeExpiryService(mockChargeDao, mockChargeService, mockTokenDao, mockPaymentProviders, mockQueryService,
+                new ChargeExpiryLocker(mockChargeDao, mockChargeService), mockedConfig, mockEnvironment);
         GatewayResponseBuilder<BaseCancelResponse> gatewayResponseBuilder = responseBuilder();
         gatewayResponse = gatewayResponseBuilder.withResponse(mockWorldpayCancelResponse).build();
         gatewayAccount = ChargeEntityFixture.defaultGatewayAccountEntity();
@@ -148,7 +160,7 @@ public class ChargeExpiryServiceTest {
         assertThat(sweepResult.get("expiry-failed"), is(0));
 
         verify(mockPaymentProvider, never()).cancel(any());
-        verify(mockChargeService).transitionChargeState(chargeEntity.getExternalId(), EXPIRED);
+        verify(mockChargeService).transitionChargeStateWithRowLock(chargeEntity.getExternalId(), EXPIRED);
     }
 
     @Test
@@ -173,7 +185,7 @@ public class ChargeExpiryServiceTest {
         assertThat(sweepResult.get("expiry-failed"), is(0));
 
         verify(mockPaymentProvider, never()).cancel(any());
-        verify(mockChargeService).transitionChargeState(chargeEntity.getExternalId(), EXPIRED);
+        verify(mockChargeService).transitionChargeStateWithRowLock(chargeEntity.getExternalId(), EXPIRED);
     }
 
     @Test
@@ -195,7 +207,7 @@ public class ChargeExpiryServiceTest {
 
         when(mockWorldpayCancelResponse.cancelStatus()).thenReturn(CancelStatus.CANCELLED);
 
-        when(mockChargeDao.findByExternalId(chargeEntity.getExternalId())).thenReturn(Optional.of(chargeEntity));
+        when(mockChargeDao.findByExternalIdForUpdate(chargeEntity.getExternalId())).thenReturn(Optional.of(chargeEntity));
         when(mockPaymentProvider.cancel(any())).thenReturn(gatewayResponse);
         when(mockPaymentProviders.byName(PaymentGatewayName.WORLDPAY)).thenReturn(mockPaymentProvider);
         ArgumentCaptor<CancelGatewayRequest> cancelCaptor = ArgumentCaptor.forClass(CancelGatewayRequest.class);
@@ -234,7 +246,7 @@ public class ChargeExpiryServiceTest {
 
         when(mockWorldpayCancelResponse.cancelStatus()).thenReturn(CancelStatus.CANCELLED);
 
-        when(mockChargeDao.findByExternalId(chargeEntity.getExternalId())).thenReturn(Optional.of(chargeEntity));
+        when(mockChargeDao.findByExternalIdForUpdate(chargeEntity.getExternalId())).thenReturn(Optional.of(chargeEntity));
         when(mockPaymentProvider.cancel(any())).thenReturn(gatewayResponse);
         when(mockPaymentProviders.byName(PaymentGatewayName.WORLDPAY)).thenReturn(mockPaymentProvider);
         ArgumentCaptor<CancelGatewayRequest> cancelCaptor = ArgumentCaptor.forClass(CancelGatewayRequest.class);
@@ -317,7 +329,7 @@ public class ChargeExpiryServiceTest {
                 .withGatewayAccountEntity(gatewayAccount)
                 .build();
 
-        when(mockChargeDao.findByExternalId(chargeEntity.getExternalId())).thenReturn(Optional.of(chargeEntity));
+        when(mockChargeDao.findByExternalIdForUpdate(chargeEntity.getExternalId())).thenReturn(Optional.of(chargeEntity));
         when(mockPaymentProvider.cancel(any())).thenThrow(new GatewayException.GenericGatewayException("something went wrong"));
 
         ChargeEntity expireFailedCharge = mock(ChargeEntity.class);
@@ -330,6 +342,32 @@ public class ChargeExpiryServiceTest {
         verify(mockChargeService).transitionChargeState(chargeEntity.getExternalId(), EXPIRE_CANCEL_FAILED);
     }
 
+    @Test
+    public void shouldSkipChargesLockedByAnotherOperationAndCountTheConflict() throws Exception {
+        Counter mockConflictCounter = mock(Counter.class);
+        when(mockMetricRegistry.counter("expiry.row-lock-conflicts")).thenReturn(mockConflictCounter);
+
+        ChargeEntity lockedCharge = ChargeEntityFixture.aValidChargeEntity()
+                .withStatus(ChargeStatus.AUTHORISATION_SUCCESS)
+                .withGatewayAccountEntity(gatewayAccount)
+                .build();
+        ChargeEntity createdCharge = ChargeEntityFixture.aValidChargeEntity()
+                .withStatus(CREATED)
+                .withGatewayAccountEntity(gatewayAccount)
+                .build();
+
+        when(mockChargeDao.findByExternalIdForUpdate(lockedCharge.getExternalId()))
+                .thenThrow(new ChargeLockedRuntimeException(lockedCharge.getExternalId()));
+
+        Map<String, Integer> sweepResult = chargeExpiryService.expire(List.of(lockedCharge, createdCharge));
+
+        assertThat(sweepResult.get("expiry-success"), is(1));
+        assertThat(sweepResult.get("expiry-failed"), is(0));
+        verify(mockConflictCounter).inc();
+        verify(mockPaymentProvider, never()).cancel(any());
+        verify(mockChargeService).transitionChargeStateWithRowLock(createdCharge.getExternalId(), EXPIRED);
+    }
+
     @Test
     public void shouldSweepAndExpireCharges() throws Exception {
         ChargeEntity chargeEntityAwaitingCapture = ChargeEntityFixture.aValidChargeEntity()
@@ -348,8 +386,8 @@ public class ChargeExpiryServiceTest {
 
         when(mockWorldpayCancelResponse.cancelStatus()).thenReturn(CancelStatus.CANCELLED);
 
-        when(mockChargeDao.findByExternalId(chargeEntityAwaitingCapture.getExternalId())).thenReturn(Optional.of(chargeEntityAwaitingCapture));
-        when(mockChargeDao.findByExternalId(chargeEntityAuthorisationSuccess.getExternalId())).thenReturn(Optional.of(chargeEntityAuthorisationSuccess));
+        when(mockChargeDao.findByExternalIdForUpdate(chargeEntityAwaitingCapture.getExternalId())).thenReturn(Optional.of(chargeEntityAwaitingCapture));
+        when(mockChargeDao.findByExternalIdForUpdate(chargeEntityAuthorisationSuccess.getExternalId())).thenReturn(Optional.of(chargeEntityAuthorisationSuccess));
         when(mockPaymentProvider.cancel(any())).thenReturn(gatewayResponse);
         when(mockPaymentProviders.byName(PaymentGatewayName.WORLDPAY)).thenReturn(mockPaymentProvider);
         when(mockChargeDao.findBeforeDateWithStatusIn(any(ZonedDateTime.class), eq(EXPIRABLE_AWAITING_CAPTURE_REQUEST_STATUS))).thenReturn(singletonList(chargeEntityAwaitingCapture));
@@ -377,11 +415,11 @@ public class ChargeExpiryServiceTest {
 
         when(mockChargeDao.findBeforeDateWithStatusIn(any(ZonedDateTime.class), eq(EXPIRABLE_REGULAR_STATUSES))).thenReturn(singletonList(preAuthorisationCharge));
 
-        when(mockChargeService.transitionChargeState(any(String.class), any())).thenReturn(expiredCharge);
+        when(mockChargeService.transitionChargeStateWithRowLock(any(String.class), any())).thenReturn(expiredCharge);
 
         Map<String, Integer> sweepResult = chargeExpiryService.sweepAndExpireChargesAndTokens();
 
-        verify(mockChargeService).transitionChargeState(preAuthorisationCharge.getExternalId(), EXPIRED);
+        verify(mockChargeService).transitionChargeStateWithRowLock(preAuthorisationCharge.getExternalId(), EXPIRED);
         assertThat(sweepResult.get("expiry-success"), is(1));
         assertThat(sweepResult.get("expiry-failed"), is(0));
     }
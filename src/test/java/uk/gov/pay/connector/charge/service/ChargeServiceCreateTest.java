@@ -39,7 +39,6 @@ import static java.time.ZonedDateTime.now;
 import static java.util.Collections.emptyMap;
 import static javax.ws.rs.HttpMethod.GET;
 import static javax.ws.rs.HttpMethod.POST;
-import static javax.ws.rs.core.UriBuilder.fromUri;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
@@ -139,7 +138,7 @@ public class ChargeServiceCreateTest extends ChargeServiceTest {
 
     @Test
     public void shouldCreateAChargeWithDefaults() {
-        doAnswer(invocation -> fromUri(SERVICE_HOST)).when(this.mockedUriInfo).getBaseUriBuilder();
+        when(this.mockedUriInfo.getBaseUri()).thenReturn(URI.create(SERVICE_HOST));
         when(mockedLinksConfig.getFrontendUrl()).thenReturn("http://frontend.test");
         when(mockedProviders.byName(any(PaymentGatewayName.class))).thenReturn(mockedPaymentProvider);
         when(mockedPaymentProvider.getExternalChargeRefundAvailability(any(Charge.class), any(List.class))).thenReturn(EXTERNAL_AVAILABLE);
@@ -173,7 +172,7 @@ public class ChargeServiceCreateTest extends ChargeServiceTest {
 
     @Test
     public void shouldCreateAChargeWithDelayedCaptureTrue() {
-        doAnswer(invocation -> fromUri(SERVICE_HOST)).when(this.mockedUriInfo).getBaseUriBuilder();
+        when(this.mockedUriInfo.getBaseUri()).thenReturn(URI.create(SERVICE_HOST));
         when(mockedLinksConfig.getFrontendUrl()).thenReturn("http://frontend.test");
         when(mockedProviders.byName(any(PaymentGatewayName.class))).thenReturn(mockedPaymentProvider);
         when(mockedPaymentProvider.getExternalChargeRefundAvailability(any(Charge.class), any(List.class))).thenReturn(EXTERNAL_AVAILABLE);
@@ -187,7 +186,7 @@ public class ChargeServiceCreateTest extends ChargeServiceTest {
 
     @Test
     public void shouldCreateAChargeWithDelayedCaptureFalse() {
-        doAnswer(invocation -> fromUri(SERVICE_HOST)).when(this.mockedUriInfo).getBaseUriBuilder();
+        when(this.mockedUriInfo.getBaseUri()).thenReturn(URI.create(SERVICE_HOST));
         when(mockedLinksConfig.getFrontendUrl()).thenReturn("http://frontend.test");
         when(mockedProviders.byName(any(PaymentGatewayName.class))).thenReturn(mockedPaymentProvider);
         when(mockedPaymentProvider.getExternalChargeRefundAvailability(any(Charge.class), any(List.class))).thenReturn(EXTERNAL_AVAILABLE);
@@ -201,7 +200,7 @@ public class ChargeServiceCreateTest extends ChargeServiceTest {
 
     @Test
     public void shouldCreateAChargeWithExternalMetadata() {
-        doAnswer(invocation -> fromUri(SERVICE_HOST)).when(this.mockedUriInfo).getBaseUriBuilder();
+        when(this.mockedUriInfo.getBaseUri()).thenReturn(URI.create(SERVICE_HOST));
         when(mockedLinksConfig.getFrontendUrl()).thenReturn("http://frontend.test");
         when(mockedProviders.byName(any(PaymentGatewayName.class))).thenReturn(mockedPaymentProvider);
         when(mockedPaymentProvider.getExternalChargeRefundAvailability(any(Charge.class), any(List.class))).thenReturn(EXTERNAL_AVAILABLE);
@@ -222,7 +221,7 @@ public class ChargeServiceCreateTest extends ChargeServiceTest {
 
     @Test
     public void shouldCreateAChargeWithNonDefaultLanguage() {
-        doAnswer(invocation -> fromUri(SERVICE_HOST)).when(this.mockedUriInfo).getBaseUriBuilder();
+        when(this.mockedUriInfo.getBaseUri()).thenReturn(URI.create(SERVICE_HOST));
         when(mockedLinksConfig.getFrontendUrl()).thenReturn("http://frontend.test");
         when(mockedProviders.byName(any(PaymentGatewayName.class))).thenReturn(mockedPaymentProvider);
         when(mockedPaymentProvider.getExternalChargeRefundAvailability(any(Charge.class), any(List.class))).thenReturn(EXTERNAL_AVAILABLE);
@@ -240,7 +239,7 @@ public class ChargeServiceCreateTest extends ChargeServiceTest {
 
     @Test
     public void shouldCreateChargeWithZeroAmountIfGatewayAccountAllowsIt() {
-        doAnswer(invocation -> fromUri(SERVICE_HOST)).when(this.mockedUriInfo).getBaseUriBuilder();
+        when(this.mockedUriInfo.getBaseUri()).thenReturn(URI.create(SERVICE_HOST));
         when(mockedLinksConfig.getFrontendUrl()).thenReturn("http://frontend.test");
         when(mockedProviders.byName(any(PaymentGatewayName.class))).thenReturn(mockedPaymentProvider);
         when(mockedPaymentProvider.getExternalChargeRefundAvailability(any(Charge.class), any(List.class))).thenReturn(EXTERNAL_AVAILABLE);
@@ -270,7 +269,7 @@ public class ChargeServiceCreateTest extends ChargeServiceTest {
 
     @Test
     public void shouldCreateMotoChargeIfGatewayAccountAllowsIt() {
-        doAnswer(invocation -> fromUri(SERVICE_HOST)).when(this.mockedUriInfo).getBaseUriBuilder();
+        when(this.mockedUriInfo.getBaseUri()).thenReturn(URI.create(SERVICE_HOST));
         when(mockedLinksConfig.getFrontendUrl()).thenReturn("http://frontend.test");
         when(mockedProviders.byName(any(PaymentGatewayName.class))).thenReturn(mockedPaymentProvider);
         when(mockedPaymentProvider.getExternalChargeRefundAvailability(any(Charge.class), any(List.class))).thenReturn(EXTERNAL_AVAILABLE);
@@ -300,7 +299,7 @@ public class ChargeServiceCreateTest extends ChargeServiceTest {
 
     @Test
     public void shouldCreateAChargeWithAllPrefilledCardHolderDetails() {
-        doAnswer(invocation -> fromUri(SERVICE_HOST)).when(this.mockedUriInfo).getBaseUriBuilder();
+        when(this.mockedUriInfo.getBaseUri()).thenReturn(URI.create(SERVICE_HOST));
         when(mockedLinksConfig.getFrontendUrl()).thenReturn("http://frontend.test");
         when(mockedProviders.byName(any(PaymentGatewayName.class))).thenReturn(mockedPaymentProvider);
         when(mockedPaymentProvider.getExternalChargeRefundAvailability(any(Charge.class), any(List.class))).thenReturn(EXTERNAL_AVAILABLE);
@@ -329,7 +328,7 @@ public class ChargeServiceCreateTest extends ChargeServiceTest {
 
     @Test
     public void shouldCreateAChargeWithPrefilledCardHolderDetailsAndSomeAddressMissing() {
-        doAnswer(invocation -> fromUri(SERVICE_HOST)).when(this.mockedUriInfo).getBaseUriBuilder();
+        when(this.mockedUriInfo.getBaseUri()).thenReturn(URI.create(SERVICE_HOST));
         when(mockedLinksConfig.getFrontendUrl()).thenReturn("http://frontend.test");
         when(mockedProviders.byName(any(PaymentGatewayName.class))).thenReturn(mockedPaymentProvider);
         when(mockedPaymentProvider.getExternalChargeRefundAvailability(any(Charge.class), any(List.class))).thenReturn(EXTERNAL_AVAILABLE);
@@ -361,7 +360,7 @@ public class ChargeServiceCreateTest extends ChargeServiceTest {
 
     @Test
     public void shouldCreateAChargeWithNoCountryWhenPrefilledAddressCountryIsMoreThanTwoCharacters() {
-        doAnswer(invocation -> fromUri(SERVICE_HOST)).when(this.mockedUriInfo).getBaseUriBuilder();
+        when(this.mockedUriInfo.getBaseUri()).thenReturn(URI.create(SERVICE_HOST));
         when(mockedLinksConfig.getFrontendUrl()).thenReturn("http://frontend.test");
         when(mockedProviders.byName(any(PaymentGatewayName.class))).thenReturn(mockedPaymentProvider);
         when(mockedPaymentProvider.getExternalChargeRefundAvailability(any(Charge.class), any(List.class))).thenReturn(EXTERNAL_AVAILABLE);
@@ -392,7 +391,7 @@ public class ChargeServiceCreateTest extends ChargeServiceTest {
 
     @Test
     public void shouldCreateAChargeWithPrefilledCardHolderDetailsCardholderNameOnly() {
-        doAnswer(invocation -> fromUri(SERVICE_HOST)).when(this.mockedUriInfo).getBaseUriBuilder();
+        when(this.mockedUriInfo.getBaseUri()).thenReturn(URI.create(SERVICE_HOST));
         when(mockedLinksConfig.getFrontendUrl()).thenReturn("http://frontend.test");
         when(mockedProviders.byName(any(PaymentGatewayName.class))).thenReturn(mockedPaymentProvider);
         when(mockedPaymentProvider.getExternalChargeRefundAvailability(any(Charge.class), any(List.class))).thenReturn(EXTERNAL_AVAILABLE);
@@ -414,7 +413,7 @@ public class ChargeServiceCreateTest extends ChargeServiceTest {
 
     @Test
     public void shouldCreateAChargeWhenPrefilledCardHolderDetailsCardholderNameAndSomeAddressNotPresent() {
-        doAnswer(invocation -> fromUri(SERVICE_HOST)).when(this.mockedUriInfo).getBaseUriBuilder();
+        when(this.mockedUriInfo.getBaseUri()).thenReturn(URI.create(SERVICE_HOST));
         when(mockedLinksConfig.getFrontendUrl()).thenReturn("http://frontend.test");
         when(mockedProviders.byName(any(PaymentGatewayName.class))).thenReturn(mockedPaymentProvider);
         when(mockedPaymentProvider.getExternalChargeRefundAvailability(any(Charge.class), any(List.class))).thenReturn(EXTERNAL_AVAILABLE);
@@ -444,7 +443,7 @@ public class ChargeServiceCreateTest extends ChargeServiceTest {
 
     @Test
     public void shouldCreateAChargeWhenPrefilledCardHolderDetailsAreNotPresent() {
-        doAnswer(invocation -> fromUri(SERVICE_HOST)).when(this.mockedUriInfo).getBaseUriBuilder();
+        when(this.mockedUriInfo.getBaseUri()).thenReturn(URI.create(SERVICE_HOST));
         when(mockedLinksConfig.getFrontendUrl()).thenReturn("http://frontend.test");
         when(mockedProviders.byName(any(PaymentGatewayName.class))).thenReturn(mockedPaymentProvider);
         when(mockedPaymentProvider.getExternalChargeRefundAvailability(any(Charge.class), any(List.class))).thenReturn(EXTERNAL_AVAILABLE);
@@ -460,7 +459,7 @@ public class ChargeServiceCreateTest extends ChargeServiceTest {
 
     @Test
     public void shouldCreateAChargeWithSource() {
-        doAnswer(invocation -> fromUri(SERVICE_HOST)).when(this.mockedUriInfo).getBaseUriBuilder();
+        when(this.mockedUriInfo.getBaseUri()).thenReturn(URI.create(SERVICE_HOST));
         when(mockedLinksConfig.getFrontendUrl()).thenReturn("http://frontend.test");
         when(mockedProviders.byName(any(PaymentGatewayName.class))).thenReturn(mockedPaymentProvider);
         when(mockedPaymentProvider.getExternalChargeRefundAvailability(any(Charge.class), any(List.class))).thenReturn(EXTERNAL_AVAILABLE);
@@ -837,7 +836,7 @@ public class ChargeServiceCreateTest extends ChargeServiceTest {
 
     @Test
     public void shouldCreateAResponse() throws Exception {
-        doAnswer(invocation -> fromUri(SERVICE_HOST)).when(this.mockedUriInfo).getBaseUriBuilder();
+        when(this.mockedUriInfo.getBaseUri()).thenReturn(URI.create(SERVICE_HOST));
         when(mockedLinksConfig.getFrontendUrl()).thenReturn("http://frontend.test");
         when(mockedProviders.byName(any(PaymentGatewayName.class))).thenReturn(mockedPaymentProvider);
         when(mockedPaymentProvider.getExternalChargeRefundAvailability(any(Charge.class), any(List.class))).thenReturn(EXTERNAL_AVAILABLE);
@@ -867,7 +866,7 @@ public class ChargeServiceCreateTest extends ChargeServiceTest {
 
     @Test
     public void shouldCreateAToken() {
-        doAnswer(invocation -> fromUri(SERVICE_HOST)).when(this.mockedUriInfo).getBaseUriBuilder();
+        when(this.mockedUriInfo.getBaseUri()).thenReturn(URI.create(SERVICE_HOST));
         when(mockedLinksConfig.getFrontendUrl()).thenReturn("http://frontend.test");
         when(mockedProviders.byName(any(PaymentGatewayName.class))).thenReturn(mockedPaymentProvider);
         when(mockedPaymentProvider.getExternalChargeRefundAvailability(any(Charge.class), any(List.class))).thenReturn(EXTERNAL_AVAILABLE);
@@ -11,6 +11,7 @@ import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
 import uk.gov.pay.connector.charge.model.domain.ChargeStatus;
 import uk.gov.pay.connector.charge.model.telephone.PaymentOutcome;
 import uk.gov.pay.connector.charge.model.telephone.TelephoneChargeCreateRequest;
+import uk.gov.pay.connector.client.ledger.exception.LedgerException;
 import uk.gov.pay.connector.client.ledger.model.LedgerTransaction;
 import uk.gov.pay.connector.gateway.PaymentGatewayName;
 import uk.gov.pay.connector.token.model.domain.TokenEntity;
@@ -25,7 +26,6 @@ import java.util.Optional;
 
 import static javax.ws.rs.HttpMethod.GET;
 import static javax.ws.rs.HttpMethod.POST;
-import static javax.ws.rs.core.UriBuilder.fromUri;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsNull.notNullValue;
@@ -33,7 +33,6 @@ import static org.hamcrest.core.IsNull.nullValue;
 import static org.mockito.ArgumentCaptor.forClass;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
-import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
@@ -85,7 +84,7 @@ public class ChargeServiceFindTest extends ChargeServiceTest {
 
         String externalId = newCharge.getExternalId();
 
-        doAnswer(invocation -> fromUri(SERVICE_HOST)).when(this.mockedUriInfo).getBaseUriBuilder();
+        when(this.mockedUriInfo.getBaseUri()).thenReturn(URI.create(SERVICE_HOST));
         when(mockedLinksConfig.getFrontendUrl()).thenReturn("http://frontend.test");
         when(mockedProviders.byName(any(PaymentGatewayName.class))).thenReturn(mockedPaymentProvider);
         when(mockedPaymentProvider.getExternalChargeRefundAvailability(any(Charge.class), any(List.class))).thenReturn(EXTERNAL_AVAILABLE);
@@ -131,7 +130,7 @@ public class ChargeServiceFindTest extends ChargeServiceTest {
 
         String externalId = newCharge.getExternalId();
 
-        doAnswer(invocation -> fromUri(SERVICE_HOST)).when(this.mockedUriInfo).getBaseUriBuilder();
+        when(this.mockedUriInfo.getBaseUri()).thenReturn(URI.create(SERVICE_HOST));
         when(mockedLinksConfig.getFrontendUrl()).thenReturn("http://frontend.test");
         when(mockedProviders.byName(any(PaymentGatewayName.class))).thenReturn(mockedPaymentProvider);
         when(mockedPaymentProvider.getExternalChargeRefundAvailability(any(Charge.class), any(List.class))).thenReturn(EXTERNAL_AVAILABLE);
@@ -164,7 +163,7 @@ public class ChargeServiceFindTest extends ChargeServiceTest {
 
         String externalId = charge.getExternalId();
 
-        doAnswer(invocation -> fromUri(SERVICE_HOST)).when(this.mockedUriInfo).getBaseUriBuilder();
+        when(this.mockedUriInfo.getBaseUri()).thenReturn(URI.create(SERVICE_HOST));
         when(mockedLinksConfig.getFrontendUrl()).thenReturn("http://frontend.test");
         when(mockedProviders.byName(any(PaymentGatewayName.class))).thenReturn(mockedPaymentProvider);
         when(mockedPaymentProvider.getExternalChargeRefundAvailability(any(Charge.class), any(List.class))).thenReturn(EXTERNAL_AVAILABLE);
@@ -183,7 +182,7 @@ public class ChargeServiceFindTest extends ChargeServiceTest {
 
     @Test
     public void shouldFindChargeForChargeIdAndAccountIdWithoutNextUrlWhenChargeCannotBeResumed() throws Exception {
-        doAnswer(invocation -> fromUri(SERVICE_HOST)).when(this.mockedUriInfo).getBaseUriBuilder();
+        when(this.mockedUriInfo.getBaseUri()).thenReturn(URI.create(SERVICE_HOST));
         when(mockedProviders.byName(any(PaymentGatewayName.class))).thenReturn(mockedPaymentProvider);
         when(mockedPaymentProvider.getExternalChargeRefundAvailability(any(Charge.class), any(List.class))).thenReturn(EXTERNAL_AVAILABLE);
 
@@ -239,7 +238,7 @@ public class ChargeServiceFindTest extends ChargeServiceTest {
 
         when(mockedProviders.byName(any(PaymentGatewayName.class))).thenReturn(mockedPaymentProvider);
         when(mockedPaymentProvider.getExternalChargeRefundAvailability(any(Charge.class), any(List.class))).thenReturn(EXTERNAL_AVAILABLE);
-        doAnswer(invocation -> fromUri(SERVICE_HOST)).when(this.mockedUriInfo).getBaseUriBuilder();
+        when(this.mockedUriInfo.getBaseUri()).thenReturn(URI.create(SERVICE_HOST));
         when(mockedChargeDao.findByExternalIdAndGatewayAccount(externalId, GATEWAY_ACCOUNT_ID)).thenReturn(Optional.ofNullable(newCharge));
 
         Optional<ChargeResponse> chargeResponseForAccount = service.findChargeForAccount(externalId, GATEWAY_ACCOUNT_ID, mockedUriInfo);
@@ -358,4 +357,21 @@ public class ChargeServiceFindTest extends ChargeServiceTest {
 
         assertThat(charge.isPresent(), is(false));
     }
+
+    @Test
+    public void findByProviderAndTransactionIdFromDbOrLedger_shouldReturnEmptyOptionalIfLedgerFails() {
+        ChargeEntity chargeEntity = aValidChargeEntity().build();
+
+        when(mockedChargeDao.findByProviderAndTransactionId(
+                "sandbox", chargeEntity.getExternalId()
+        )).thenReturn(Optional.empty());
+
+        when(ledgerService.getTransactionForProviderAndGatewayTransactionId("sandbox",
+                chargeEntity.getExternalId())).thenThrow(new LedgerException(new RuntimeException("ledger unavailable")));
+
+        Optional<Charge> charge = service.findByProviderAndTransactionIdFromDbOrLedger("sandbox",
+                chargeEntity.getExternalId());
+
+        assertThat(charge.isPresent(), is(false));
+    }
 }
@@ -1,15 +1,18 @@
 package uk.gov.pay.connector.charge.service;
 
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.setup.Environment;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import uk.gov.pay.connector.charge.dao.ChargeDao;
+import uk.gov.pay.connector.charge.exception.ChargeLockedRuntimeException;
 import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
 import uk.gov.pay.connector.charge.model.domain.ChargeStatus;
 import uk.gov.pay.connector.gateway.ChargeQueryResponse;
+import uk.gov.pay.connector.gateway.GatewayException.GenericGatewayException;
 import uk.gov.pay.connector.gateway.PaymentProvider;
 import uk.gov.pay.connector.gateway.PaymentProviders;
 import uk.gov.pay.connector.gateway.epdq.model.response.EpdqCancelResponse;
@@ -21,11 +24,13 @@ import uk.gov.pay.connector.paymentprocessor.service.QueryService;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -33,6 +38,7 @@ import static uk.gov.pay.connector.charge.model.domain.ChargeEntityFixture.aVali
 import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_ERROR;
 import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_ERROR_CANCELLED;
 import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_ERROR_CHARGE_MISSING;
+import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_ERROR_CLEANUP_READY;
 import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_ERROR_REJECTED;
 import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_REJECTED;
 import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_SUCCESS;
@@ -41,6 +47,7 @@ import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATIO
 import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.USER_CANCELLED;
 import static uk.gov.pay.connector.charge.service.EpdqAuthorisationErrorGatewayCleanupService.CLEANUP_FAILED;
 import static uk.gov.pay.connector.charge.service.EpdqAuthorisationErrorGatewayCleanupService.CLEANUP_SUCCESS;
+import static uk.gov.pay.connector.charge.service.EpdqAuthorisationErrorGatewayCleanupService.CONFLICTS_METRIC;
 import static uk.gov.pay.connector.gateway.PaymentGatewayName.EPDQ;
 import static uk.gov.pay.connector.gateway.model.response.GatewayResponse.GatewayResponseBuilder.responseBuilder;
 import static uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntityFixture.aGatewayAccountEntity;
@@ -69,13 +76,20 @@ public class EpdqAuthorisationErrorGatewayCleanupServiceTest {
     @Mock
     private EpdqCancelResponse epdqCancelResponse;
 
-    @InjectMocks
+    @Mock
+    private Environment mockEnvironment;
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
     private EpdqAuthorisationErrorGatewayCleanupService cleanupService;
     private ChargeEntity charge;
 
     @Before
     public void setUp() {
-        when(mockPaymentProviders.byName(EPDQ)).thenReturn(mockPaymentProvider);
+        when(mockEnvironment.metrics()).thenReturn(metricRegistry);
+        cleanupService = new EpdqAuthorisationErrorGatewayCleanupService(mockChargeDao,
+                new EpdqAuthorisationErrorChargeCleaner(mockChargeDao, mockChargeService, mockQueryService, mockPaymentProviders),
+                mockEnvironment);
+        lenient().when(mockPaymentProviders.byName(EPDQ)).thenReturn(mockPaymentProvider);
 
         GatewayAccountEntity gatewayAccountEntity = aGatewayAccountEntity()
                 .withGatewayName(EPDQ.getName())
@@ -93,6 +107,8 @@ public class EpdqAuthorisationErrorGatewayCleanupServiceTest {
                         AUTHORISATION_UNEXPECTED_ERROR
                 )),
                 any(Integer.class))).thenReturn(List.of(charge));
+        when(mockChargeDao.findByExternalIdForUpdate(charge.getExternalId())).thenReturn(Optional.of(charge));
+        lenient().when(mockChargeService.findChargeByExternalId(charge.getExternalId())).thenReturn(charge);
     }
 
     @Test
@@ -110,7 +126,9 @@ public class EpdqAuthorisationErrorGatewayCleanupServiceTest {
         assertThat(result.get(CLEANUP_SUCCESS), is(1));
         assertThat(result.get(CLEANUP_FAILED), is(0));
 
+        verify(mockChargeService).transitionChargeState(charge, AUTHORISATION_ERROR_CLEANUP_READY);
         verify(mockChargeService).transitionChargeState(eq(charge.getExternalId()), eq(AUTHORISATION_ERROR_CANCELLED));
+        verify(mockChargeService, never()).transitionChargeState(charge.getExternalId(), AUTHORISATION_ERROR);
     }
 
     @Test
@@ -173,7 +191,8 @@ public class EpdqAuthorisationErrorGatewayCleanupServiceTest {
         assertThat(result.get(CLEANUP_SUCCESS), is(0));
         assertThat(result.get(CLEANUP_FAILED), is(1));
 
-        verify(mockChargeService, never()).transitionChargeState(eq(charge.getExternalId()), any());
+        verify(mockChargeService).transitionChargeState(charge.getExternalId(), AUTHORISATION_ERROR);
+        verify(mockChargeService, never()).transitionChargeState(charge.getExternalId(), AUTHORISATION_ERROR_CANCELLED);
     }
 
     @Test
@@ -188,7 +207,7 @@ public class EpdqAuthorisationErrorGatewayCleanupServiceTest {
         assertThat(result.get(CLEANUP_FAILED), is(1));
 
         verify(mockPaymentProvider, never()).cancel(any());
-        verify(mockChargeService, never()).transitionChargeState(eq(charge.getExternalId()), any());
+        verify(mockChargeService).transitionChargeState(charge.getExternalId(), AUTHORISATION_ERROR);
     }
 
     @Test
@@ -203,6 +222,63 @@ public class EpdqAuthorisationErrorGatewayCleanupServiceTest {
         assertThat(result.get(CLEANUP_FAILED), is(1));
 
         verify(mockPaymentProvider, never()).cancel(any());
+        verify(mockChargeService).transitionChargeState(charge.getExternalId(), AUTHORISATION_ERROR);
+    }
+
+    @Test
+    public void shouldReturnChargeToItsAuthorisationErrorStateWhenGatewayQueryFails() throws Exception {
+        charge.setStatusIgnoringValidTransitions(AUTHORISATION_TIMEOUT);
+        when(mockQueryService.getChargeGatewayStatus(eq(charge))).thenThrow(new GenericGatewayException("timed out"));
+
+        Map<String, Integer> result = cleanupService.sweepAndCleanupAuthorisationErrors(10);
+
+        assertThat(result.get(CLEANUP_SUCCESS), is(0));
+        assertThat(result.get(CLEANUP_FAILED), is(1));
+
+        verify(mockChargeService).transitionChargeState(charge, AUTHORISATION_ERROR_CLEANUP_READY);
+        verify(mockChargeService).transitionChargeState(charge.getExternalId(), AUTHORISATION_TIMEOUT);
+    }
+
+    @Test
+    public void shouldSkipChargeLockedByAnotherOperation() throws Exception {
+        when(mockChargeDao.findByExternalIdForUpdate(charge.getExternalId()))
+                .thenThrow(new ChargeLockedRuntimeException(charge.getExternalId()));
+
+        Map<String, Integer> result = cleanupService.sweepAndCleanupAuthorisationErrors(10);
+
+        assertThat(result.get(CLEANUP_SUCCESS), is(0));
+        assertThat(result.get(CLEANUP_FAILED), is(0));
+        assertThat(metricRegistry.counter(CONFLICTS_METRIC).getCount(), is(1L));
+
+        verify(mockQueryService, never()).getChargeGatewayStatus(any());
+        verify(mockChargeService, never()).transitionChargeState(eq(charge.getExternalId()), any());
+    }
+
+    @Test
+    public void shouldSkipChargeAnotherSweepIsAlreadyCleaningUp() throws Exception {
+        charge.setStatusIgnoringValidTransitions(AUTHORISATION_ERROR_CLEANUP_READY);
+
+        Map<String, Integer> result = cleanupService.sweepAndCleanupAuthorisationErrors(10);
+
+        assertThat(result.get(CLEANUP_SUCCESS), is(0));
+        assertThat(result.get(CLEANUP_FAILED), is(0));
+        assertThat(metricRegistry.counter(CONFLICTS_METRIC).getCount(), is(1L));
+
+        verify(mockQueryService, never()).getChargeGatewayStatus(any());
+        verify(mockChargeService, never()).transitionChargeState(any(ChargeEntity.class), any());
+        verify(mockChargeService, never()).transitionChargeState(eq(charge.getExternalId()), any());
+    }
+
+    @Test
+    public void shouldSkipChargeNoLongerInAuthorisationErrorStateOnceLocked() throws Exception {
+        charge.setStatusIgnoringValidTransitions(AUTHORISATION_ERROR_CANCELLED);
+
+        Map<String, Integer> result = cleanupService.sweepAndCleanupAuthorisationErrors(10);
+
+        assertThat(result.get(CLEANUP_SUCCESS), is(0));
+        assertThat(result.get(CLEANUP_FAILED), is(0));
+
+        verify(mockQueryService, never()).getChargeGatewayStatus(any());
         verify(mockChargeService, never()).transitionChargeState(eq(charge.getExternalId()), any());
     }
 }
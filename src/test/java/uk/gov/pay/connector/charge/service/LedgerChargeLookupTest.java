@@ -0,0 +1,180 @@
+package uk.gov.pay.connector.charge.service;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.pay.connector.app.config.LedgerChargeLookupConfig;
+import uk.gov.pay.connector.charge.model.domain.Charge;
+import uk.gov.pay.connector.client.ledger.exception.LedgerException;
+import uk.gov.pay.connector.client.ledger.model.LedgerTransaction;
+import uk.gov.pay.connector.client.ledger.service.LedgerService;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayDeque;
+import java.util.Optional;
+import java.util.Queue;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class LedgerChargeLookupTest {
+
+    private static final String CHARGE_EXTERNAL_ID = "charge-external-id";
+    private static final String GATEWAY_TRANSACTION_ID = "gateway-transaction-id";
+    private static final Long GATEWAY_ACCOUNT_ID = 10L;
+
+    private final LedgerService ledgerService = mock(LedgerService.class);
+    private final LedgerChargeLookupConfig config = mock(LedgerChargeLookupConfig.class);
+
+    private final Queue<Runnable> pendingLedgerCalls = new ArrayDeque<>();
+    private boolean holdingLedgerCalls;
+
+    private MetricRegistry metricRegistry;
+    private LedgerChargeLookup ledgerChargeLookup;
+
+    @Before
+    public void setUp() {
+        when(config.getLookupTimeoutInMillis()).thenReturn(1000);
+        when(config.getNotFoundTtlInSeconds()).thenReturn(30);
+        when(config.getHistoricChargeTtlInSeconds()).thenReturn(300);
+        when(config.getMaximumHistoricCharges()).thenReturn(100);
+        metricRegistry = new MetricRegistry();
+        ledgerChargeLookup = new LedgerChargeLookup(ledgerService, config, this::runLedgerCall, metricRegistry);
+    }
+
+    @Test
+    public void shouldOnlyAskLedgerOnceForAHistoricCharge() {
+        when(ledgerService.getTransaction(CHARGE_EXTERNAL_ID)).thenReturn(Optional.of(aLedgerTransaction()));
+
+        Optional<Charge> first = ledgerChargeLookup.findCharge(CHARGE_EXTERNAL_ID);
+        Optional<Charge> second = ledgerChargeLookup.findCharge(CHARGE_EXTERNAL_ID);
+
+        assertThat(first.get().getExternalId(), is(CHARGE_EXTERNAL_ID));
+        assertThat(first.get().isHistoric(), is(true));
+        assertThat(second.get().getExternalId(), is(CHARGE_EXTERNAL_ID));
+        verify(ledgerService, times(1)).getTransaction(CHARGE_EXTERNAL_ID);
+        assertThat(metricRegistry.counter("ledger.charge-lookup.misses").getCount(), is(1L));
+        assertThat(metricRegistry.counter("ledger.charge-lookup.historic-charge-cache.hits").getCount(), is(1L));
+        assertThat(metricRegistry.timer("ledger.charge-lookup.ledger-call").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldRememberChargesLedgerDoesNotKnowAbout() {
+        when(ledgerService.getTransactionForProviderAndGatewayTransactionId("worldpay", GATEWAY_TRANSACTION_ID))
+                .thenReturn(Optional.empty());
+
+        assertThat(ledgerChargeLookup.findByProviderAndTransactionId("worldpay", GATEWAY_TRANSACTION_ID).isPresent(), is(false));
+        assertThat(ledgerChargeLookup.findByProviderAndTransactionId("worldpay", GATEWAY_TRANSACTION_ID).isPresent(), is(false));
+
+        verify(ledgerService, times(1)).getTransactionForProviderAndGatewayTransactionId("worldpay", GATEWAY_TRANSACTION_ID);
+        assertThat(metricRegistry.counter("ledger.charge-lookup.not-found-cache.hits").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldNotShareChargesBetweenGatewayAccounts() {
+        when(ledgerService.getTransactionForGatewayAccount(CHARGE_EXTERNAL_ID, GATEWAY_ACCOUNT_ID))
+                .thenReturn(Optional.of(aLedgerTransaction()));
+        when(ledgerService.getTransactionForGatewayAccount(CHARGE_EXTERNAL_ID, 99L)).thenReturn(Optional.empty());
+
+        assertThat(ledgerChargeLookup.findCharge(CHARGE_EXTERNAL_ID, GATEWAY_ACCOUNT_ID).isPresent(), is(true));
+        assertThat(ledgerChargeLookup.findCharge(CHARGE_EXTERNAL_ID, 99L).isPresent(), is(false));
+    }
+
+    @Test
+    public void shouldFailWhenLedgerDoesNotAnswerInTimeAndUseTheLateAnswerForTheNextLookup() {
+        givenLedgerCallsThatDoNotAnswerUntilReleased();
+        when(ledgerService.getTransaction(CHARGE_EXTERNAL_ID)).thenReturn(Optional.of(aLedgerTransaction()));
+
+        try {
+            ledgerChargeLookup.findCharge(CHARGE_EXTERNAL_ID);
+            fail("expecting LedgerException");
+        } catch (LedgerException e) {
+            assertThat(metricRegistry.counter("ledger.charge-lookup.timeouts").getCount(), is(1L));
+        }
+
+        releaseLedgerCalls();
+        assertThat(ledgerChargeLookup.findCharge(CHARGE_EXTERNAL_ID).isPresent(), is(true));
+        verify(ledgerService, times(1)).getTransaction(CHARGE_EXTERNAL_ID);
+    }
+
+    @Test(expected = LedgerException.class)
+    public void shouldPassOnLedgerFailures() {
+        when(ledgerService.getTransaction(CHARGE_EXTERNAL_ID)).thenThrow(new LedgerException(new RuntimeException("ledger unavailable")));
+
+        ledgerChargeLookup.findCharge(CHARGE_EXTERNAL_ID);
+    }
+
+    @Test
+    public void shouldNotRememberLookupsThatFailed() {
+        when(ledgerService.getTransaction(CHARGE_EXTERNAL_ID))
+                .thenThrow(new LedgerException(new RuntimeException("ledger unavailable")))
+                .thenReturn(Optional.of(aLedgerTransaction()));
+
+        try {
+            ledgerChargeLookup.findCharge(CHARGE_EXTERNAL_ID);
+            fail("expecting LedgerException");
+        } catch (LedgerException e) {
+            assertThat(ledgerChargeLookup.findCharge(CHARGE_EXTERNAL_ID).isPresent(), is(true));
+        }
+
+        verify(ledgerService, times(2)).getTransaction(CHARGE_EXTERNAL_ID);
+        assertThat(metricRegistry.counter("ledger.charge-lookup.not-found-cache.hits").getCount(), is(0L));
+    }
+
+    @Test
+    public void shouldNotRememberLateLookupsThatFailed() {
+        givenLedgerCallsThatDoNotAnswerUntilReleased();
+        when(ledgerService.getTransaction(CHARGE_EXTERNAL_ID))
+                .thenThrow(new LedgerException(new RuntimeException("ledger unavailable")))
+                .thenReturn(Optional.of(aLedgerTransaction()));
+
+        try {
+            ledgerChargeLookup.findCharge(CHARGE_EXTERNAL_ID);
+            fail("expecting LedgerException");
+        } catch (LedgerException e) {
+            assertThat(metricRegistry.counter("ledger.charge-lookup.timeouts").getCount(), is(1L));
+        }
+
+        releaseLedgerCalls();
+        assertThat(ledgerChargeLookup.findCharge(CHARGE_EXTERNAL_ID).isPresent(), is(true));
+        verify(ledgerService, times(2)).getTransaction(CHARGE_EXTERNAL_ID);
+    }
+
+    /**
+     * Ledger calls wait in a queue until {@link #releaseLedgerCalls()}, so lookups time out without racing a thread.
+     */
+    private void givenLedgerCallsThatDoNotAnswerUntilReleased() {
+        when(config.getLookupTimeoutInMillis()).thenReturn(1);
+        ledgerChargeLookup = new LedgerChargeLookup(ledgerService, config, this::runLedgerCall, metricRegistry);
+        holdingLedgerCalls = true;
+    }
+
+    private void runLedgerCall(Runnable ledgerCall) {
+        if (holdingLedgerCalls) {
+            pendingLedgerCalls.add(ledgerCall);
+        } else {
+            ledgerCall.run();
+        }
+    }
+
+    private void releaseLedgerCalls() {
+        holdingLedgerCalls = false;
+        while (!pendingLedgerCalls.isEmpty()) {
+            pendingLedgerCalls.remove().run();
+        }
+    }
+
+    private LedgerTransaction aLedgerTransaction() {
+        LedgerTransaction transaction = new LedgerTransaction();
+        transaction.setTransactionId(CHARGE_EXTERNAL_ID);
+        transaction.setAmount(1000L);
+        transaction.setCreatedDate(ZonedDateTime.now().toString());
+        transaction.setGatewayAccountId(String.valueOf(GATEWAY_ACCOUNT_ID));
+        return transaction;
+    }
+}
@@ -0,0 +1,157 @@
+package uk.gov.pay.connector.client.ledger.service;
+
+import com.codahale.metrics.MetricRegistry;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import io.dropwizard.client.JerseyClientBuilder;
+import io.dropwizard.jackson.Jackson;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import uk.gov.pay.connector.app.config.LedgerClientConfig;
+import uk.gov.pay.connector.client.ledger.exception.GetRefundsForPaymentException;
+import uk.gov.pay.connector.client.ledger.exception.LedgerException;
+import uk.gov.pay.connector.client.ledger.model.LedgerTransaction;
+
+import javax.ws.rs.client.Client;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static com.github.tomakehurst.wiremock.stubbing.Scenario.STARTED;
+import static javax.ws.rs.core.HttpHeaders.CONTENT_TYPE;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+import static uk.gov.pay.connector.util.TestTemplateResourceLoader.LEDGER_PAYMENT_TRANSACTION;
+import static uk.gov.pay.connector.util.TestTemplateResourceLoader.load;
+
+public class LedgerServiceStubTest {
+
+    private static final String TRANSACTION_PATH = "/v1/transaction/external-id";
+    private static final String REFUNDS_PATH = "/v1/transaction/external-id/transaction";
+
+    @Rule
+    public WireMockRule ledgerStub = new WireMockRule(options().dynamicPort());
+
+    private ExecutorService executor;
+    private MetricRegistry metricRegistry;
+    private LedgerClientConfig config;
+    private Client client;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+        metricRegistry = new MetricRegistry();
+        config = spy(new LedgerClientConfig());
+        doReturn(10).when(config).getRetryDelayInMillis();
+        client = new JerseyClientBuilder(metricRegistry)
+                .using(config)
+                .using(executor, Jackson.newObjectMapper())
+                .build("ledger-stub-test");
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void shouldRetryGetAfterServerErrorAndRecordLatency() {
+        ledgerStub.stubFor(get(urlPathEqualTo(TRANSACTION_PATH)).inScenario("retry").whenScenarioStateIs(STARTED)
+                .willReturn(aResponse().withStatus(503))
+                .willSetStateTo("recovered"));
+        ledgerStub.stubFor(get(urlPathEqualTo(TRANSACTION_PATH)).inScenario("retry").whenScenarioStateIs("recovered")
+                .willReturn(aTransaction()));
+
+        Optional<LedgerTransaction> transaction = ledgerService().getTransaction("external-id");
+
+        assertThat(transaction.get().getTransactionId(), is("external-id"));
+        ledgerStub.verify(2, getRequestedFor(urlPathEqualTo(TRANSACTION_PATH)));
+        assertThat(metricRegistry.counter("ledger-client.get-transaction.retries").getCount(), is(1L));
+        assertThat(metricRegistry.timer("ledger-client.get-transaction.response-time").getCount(), is(2L));
+    }
+
+    @Test
+    public void shouldNotRetryClientErrors() {
+        ledgerStub.stubFor(get(urlPathEqualTo(TRANSACTION_PATH)).willReturn(aResponse().withStatus(404)));
+
+        assertThat(ledgerService().getTransaction("external-id").isPresent(), is(false));
+
+        ledgerStub.verify(1, getRequestedFor(urlPathEqualTo(TRANSACTION_PATH)));
+    }
+
+    @Test
+    public void shouldThrowRatherThanReportTransactionMissingForOtherClientErrors() {
+        ledgerStub.stubFor(get(urlPathEqualTo(TRANSACTION_PATH)).willReturn(aResponse().withStatus(403)));
+
+        try {
+            ledgerService().getTransaction("external-id");
+            fail("expecting LedgerException");
+        } catch (LedgerException e) {
+            ledgerStub.verify(1, getRequestedFor(urlPathEqualTo(TRANSACTION_PATH)));
+        }
+    }
+
+    @Test
+    public void shouldGiveUpAfterMaximumAttempts() {
+        ledgerStub.stubFor(get(urlPathEqualTo(REFUNDS_PATH)).willReturn(aResponse().withStatus(500)));
+
+        try {
+            ledgerService().getRefundsForPayment(1L, "external-id");
+            fail("expecting GetRefundsForPaymentException");
+        } catch (GetRefundsForPaymentException e) {
+            ledgerStub.verify(3, getRequestedFor(urlPathEqualTo(REFUNDS_PATH)));
+            assertThat(metricRegistry.counter("ledger-client.get-refunds-for-payment.failures").getCount(), is(1L));
+        }
+    }
+
+    @Test
+    public void shouldThrowRatherThanReportTransactionMissingOnceServerErrorRetriesAreExhausted() {
+        ledgerStub.stubFor(get(urlPathEqualTo(TRANSACTION_PATH)).willReturn(aResponse().withStatus(503)));
+
+        try {
+            ledgerService().getTransaction("external-id");
+            fail("expecting LedgerException");
+        } catch (LedgerException e) {
+            ledgerStub.verify(3, getRequestedFor(urlPathEqualTo(TRANSACTION_PATH)));
+            assertThat(metricRegistry.counter("ledger-client.get-transaction.failures").getCount(), is(1L));
+        }
+    }
+
+    @Test
+    public void shouldFailOnceDeadlineHasPassed() {
+        doReturn(300).when(config).getDeadlineInMillis();
+        ledgerStub.stubFor(get(urlPathEqualTo(TRANSACTION_PATH)).willReturn(aTransaction().withFixedDelay(2000)));
+
+        long start = System.currentTimeMillis();
+        try {
+            ledgerService().getTransaction("external-id");
+            fail("expecting LedgerException");
+        } catch (LedgerException e) {
+            assertThat(System.currentTimeMillis() - start, lessThan(1500L));
+        }
+    }
+
+    private LedgerService ledgerService() {
+        return new LedgerService(client, "http://localhost:" + ledgerStub.port(), config, metricRegistry);
+    }
+
+    private static ResponseDefinitionBuilder aTransaction() {
+        return aResponse()
+                .withStatus(200)
+                .withHeader(CONTENT_TYPE, APPLICATION_JSON)
+                .withBody(load(LEDGER_PAYMENT_TRANSACTION));
+    }
+}
@@ -1,12 +1,13 @@
 package uk.gov.pay.connector.client.ledger.service;
 
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.junit.MockitoJUnitRunner;
-import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.config.LedgerClientConfig;
 import uk.gov.pay.connector.client.ledger.exception.GetRefundsForPaymentException;
 import uk.gov.pay.connector.client.ledger.exception.LedgerException;
 import uk.gov.pay.connector.client.ledger.model.LedgerTransaction;
@@ -45,19 +46,19 @@ public class LedgerServiceTest {
     @Before
     public void setUp() {
         Client mockClient = mock(Client.class);
-        ConnectorConfiguration mockConnectorConfiguration = mock(ConnectorConfiguration.class);
         WebTarget mockWebTarget = mock(WebTarget.class);
         Invocation.Builder mockBuilder = mock(Invocation.Builder.class);
         mockResponse = mock(Response.class);
 
-        when(mockConnectorConfiguration.getLedgerBaseUrl()).thenReturn("http://ledgerUrl");
         when(mockClient.target(any(UriBuilder.class))).thenReturn(mockWebTarget);
         when(mockWebTarget.request()).thenReturn(mockBuilder);
         when(mockBuilder.accept(APPLICATION_JSON)).thenReturn(mockBuilder);
+        when(mockBuilder.property(any(), any())).thenReturn(mockBuilder);
         when(mockBuilder.get()).thenReturn(mockResponse);
 
         when(mockResponse.getStatus()).thenReturn(SC_OK);
-        ledgerService = new LedgerService(mockClient, mockConnectorConfiguration);
+        when(mockResponse.getStatusInfo()).thenReturn(Response.Status.OK);
+        ledgerService = new LedgerService(mockClient, "http://ledgerUrl", new LedgerClientConfig(), new MetricRegistry());
     }
 
     @Test
@@ -122,6 +123,7 @@ public class LedgerServiceTest {
     @Test(expected = GetRefundsForPaymentException.class)
     public void getRefundsFromLedgerShouldThrowExceptionForNon2xxResponse() {
         when(mockResponse.getStatus()).thenReturn(SC_NOT_FOUND);
+        when(mockResponse.getStatusInfo()).thenReturn(Response.Status.NOT_FOUND);
 
         ledgerService.getRefundsForPayment(152L, "external-id");
     }
@@ -0,0 +1,83 @@
+package uk.gov.pay.connector.common.dao;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AfterCommitActionsTest {
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private EntityTransaction transaction;
+
+    private final List<String> ran = new ArrayList<>();
+    private AfterCommitActions afterCommitActions;
+
+    @Before
+    public void setUp() {
+        when(entityManager.getTransaction()).thenReturn(transaction);
+        afterCommitActions = new AfterCommitActions(() -> entityManager);
+    }
+
+    @Test
+    public void shouldRunActionStraightAwayOutsideTransaction() {
+        when(transaction.isActive()).thenReturn(false);
+
+        afterCommitActions.run(() -> ran.add("action"));
+
+        assertThat(ran, contains("action"));
+    }
+
+    @Test
+    public void shouldRunActionsOnceTransactionCommits() {
+        when(transaction.isActive()).thenReturn(true);
+
+        afterCommitActions.run(() -> ran.add("first"));
+        afterCommitActions.run(() -> ran.add("second"));
+
+        assertThat(ran, empty());
+
+        AfterCommitActions.SESSION_LISTENER.postCommitTransaction(null);
+
+        assertThat(ran, contains("first", "second"));
+    }
+
+    @Test
+    public void shouldDropActionsWhenTransactionRollsBack() {
+        when(transaction.isActive()).thenReturn(true);
+
+        afterCommitActions.run(() -> ran.add("action"));
+        AfterCommitActions.SESSION_LISTENER.postRollbackTransaction(null);
+        AfterCommitActions.SESSION_LISTENER.postCommitTransaction(null);
+
+        assertThat(ran, empty());
+    }
+
+    @Test
+    public void shouldRunRemainingActionsWhenOneFails() {
+        when(transaction.isActive()).thenReturn(true);
+
+        afterCommitActions.run(() -> {
+            throw new IllegalStateException("boom");
+        });
+        afterCommitActions.run(() -> ran.add("second"));
+        AfterCommitActions.SESSION_LISTENER.postCommitTransaction(null);
+
+        assertThat(ran, contains("second"));
+    }
+}
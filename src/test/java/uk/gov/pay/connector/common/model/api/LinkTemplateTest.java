@@ -0,0 +1,65 @@
+package uk.gov.pay.connector.common.model.api;
+
+import org.junit.Test;
+
+import javax.ws.rs.core.UriBuilder;
+import java.net.URI;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class LinkTemplateTest {
+
+    private static final URI BASE_URI = URI.create("http://connector.example.com/");
+
+    @Test
+    public void shouldExpandTemplateAgainstBaseUri() {
+        LinkTemplate template = LinkTemplate.compile("/v1/api/accounts/{accountId}/charges/{chargeId}/refunds/{refundId}");
+
+        URI link = template.expand(BASE_URI, 1L, "charge-id", "refund-id");
+
+        assertThat(link, is(URI.create("http://connector.example.com/v1/api/accounts/1/charges/charge-id/refunds/refund-id")));
+    }
+
+    @Test
+    public void shouldJoinBaseUriWithoutTrailingSlashAndRelativeTemplate() {
+        assertThat(LinkTemplate.compile("secure/{tokenId}").expand("http://frontend.test", "a-token"),
+                is(URI.create("http://frontend.test/secure/a-token")));
+        assertThat(LinkTemplate.compile("secure").expand("http://frontend.test/"),
+                is(URI.create("http://frontend.test/secure")));
+    }
+
+    @Test
+    public void shouldBuildTheSameLinksForDifferentBaseUris() {
+        LinkTemplate template = LinkTemplate.compile("/v1/api/accounts/{accountId}");
+
+        assertThat(template.expand(URI.create("http://a.example.com/"), 1L), is(URI.create("http://a.example.com/v1/api/accounts/1")));
+        assertThat(template.expand(URI.create("https://b.example.com/"), 2L), is(URI.create("https://b.example.com/v1/api/accounts/2")));
+        assertThat(template.expand(URI.create("http://a.example.com/"), 3L), is(URI.create("http://a.example.com/v1/api/accounts/3")));
+    }
+
+    @Test
+    public void shouldEncodeValuesAsUriBuilderDoes() {
+        String template = "/v1/frontend/charges/{chargeId}";
+        String value = "a value/with ?reserved #characters%";
+
+        URI link = LinkTemplate.compile(template).expand(BASE_URI, value);
+
+        assertThat(link, is(UriBuilder.fromUri(BASE_URI).path(template).build(value)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectWrongNumberOfValues() {
+        LinkTemplate.compile("/v1/api/accounts/{accountId}/charges/{chargeId}").expand(BASE_URI, 1L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNullValue() {
+        LinkTemplate.compile("/v1/api/accounts/{accountId}").expand(BASE_URI, (Object) null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnclosedParameter() {
+        LinkTemplate.compile("/v1/api/accounts/{accountId");
+    }
+}
@@ -36,6 +36,7 @@ import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Optional;
 
+import static com.google.common.util.concurrent.MoreExecutors.newDirectExecutorService;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 import static org.mockito.ArgumentMatchers.any;
@@ -95,7 +96,7 @@ public class EmittedEventsBackfillServiceTest {
         HistoricalEventEmitter historicalEventEmitter = new HistoricalEventEmitter(emittedEventDao, refundDao,
                 chargeService, true, eventService, stateTransitionService);
         emittedEventsBackfillService = new EmittedEventsBackfillService(emittedEventDao, chargeService, refundDao,
-                historicalEventEmitter, connectorConfiguration);
+                historicalEventEmitter, connectorConfiguration, newDirectExecutorService(), newDirectExecutorService());
         lenient().when(chargeService.findChargeByExternalId(any())).thenThrow(new ChargeNotFoundRuntimeException(""));
         chargeEntity = ChargeEntityFixture
                 .aValidChargeEntity()
@@ -193,4 +194,68 @@ public class EmittedEventsBackfillServiceTest {
         assertThat(loggingEvents.get(0).getFormattedMessage(), is("Processing not emitted events [lastProcessedId=0, no.of.events=2, oldestDate=2019-09-20T09:00Z]"));
         assertThat(loggingEvents.get(1).getFormattedMessage(), is("Finished processing not emitted events [lastProcessedId=2, maxId=2]"));
     }
+
+    @Test
+    public void backfillsEachPaymentOnceAndMarksAllItsEventsAsEmittedTogether() {
+        var paymentCreated = anEmittedEventEntity().withId(1L).withResourceExternalId(chargeEntity.getExternalId()).build();
+        var paymentStarted = anEmittedEventEntity().withId(2L).withEventType("PAYMENT_STARTED")
+                .withResourceExternalId(chargeEntity.getExternalId()).build();
+        when(emittedEventDao.findNotEmittedEventsOlderThan(any(ZonedDateTime.class), anyInt(), eq(0L), eq(maxId), any())).thenReturn(List.of(paymentCreated, paymentStarted));
+        doReturn(chargeEntity).when(chargeService).findChargeByExternalId(chargeEntity.getExternalId());
+
+        emittedEventsBackfillService.backfillNotEmittedEvents();
+
+        verify(chargeService, times(1)).findChargeByExternalId(chargeEntity.getExternalId());
+        verify(stateTransitionService, times(1)).offerStateTransition(any(), any(), isNull());
+        verify(emittedEventDao, times(1)).markEventsAsEmitted(eq(List.of(1L, 2L)), any(ZonedDateTime.class));
+
+        EmittedEventsBackfillProgress progress = emittedEventsBackfillService.getProgress();
+        assertThat(progress.getEventsProcessed(), is(2L));
+        assertThat(progress.getResourcesProcessed(), is(1L));
+        assertThat(progress.getResourcesFailed(), is(0L));
+        assertThat(progress.getMaxId(), is(maxId));
+        assertThat(progress.getLastProcessedId(), is(2L));
+    }
+
+    @Test
+    public void doesNotReprocessAPaymentSeenInAnEarlierPageOfTheSameSweep() {
+        var firstPage = anEmittedEventEntity().withId(1L).withResourceExternalId(chargeEntity.getExternalId()).build();
+        var secondPage = anEmittedEventEntity().withId(2L).withEventType("PAYMENT_STARTED")
+                .withResourceExternalId(chargeEntity.getExternalId()).build();
+        when(emittedEventDao.findNotEmittedEventsOlderThan(any(ZonedDateTime.class), anyInt(), eq(0L), eq(maxId), any())).thenReturn(List.of(firstPage));
+        when(emittedEventDao.findNotEmittedEventsOlderThan(any(ZonedDateTime.class), anyInt(), eq(1L), eq(maxId), any())).thenReturn(List.of(secondPage));
+        doReturn(chargeEntity).when(chargeService).findChargeByExternalId(chargeEntity.getExternalId());
+
+        emittedEventsBackfillService.backfillNotEmittedEvents();
+
+        verify(chargeService, times(1)).findChargeByExternalId(chargeEntity.getExternalId());
+        verify(emittedEventDao).markEventsAsEmitted(eq(List.of(1L)), any(ZonedDateTime.class));
+        verify(emittedEventDao).markEventsAsEmitted(eq(List.of(2L)), any(ZonedDateTime.class));
+    }
+
+    @Test
+    public void setsDoNotRetryEmitUntilForAllEventsOfAPaymentThatFailsToBackfill() {
+        var paymentCreated = anEmittedEventEntity().withId(1L).withResourceExternalId("unknown-charge").build();
+        var paymentStarted = anEmittedEventEntity().withId(2L).withEventType("PAYMENT_STARTED")
+                .withResourceExternalId("unknown-charge").build();
+        when(emittedEventDao.findNotEmittedEventsOlderThan(any(ZonedDateTime.class), anyInt(), eq(0L), eq(maxId), any())).thenReturn(List.of(paymentCreated, paymentStarted));
+
+        emittedEventsBackfillService.backfillNotEmittedEvents();
+
+        verify(emittedEventDao).setDoNotRetryEmitUntil(eq(List.of(1L, 2L)), any(ZonedDateTime.class));
+        verify(emittedEventDao, never()).markEventsAsEmitted(any(), any());
+        assertThat(emittedEventsBackfillService.getProgress().getResourcesFailed(), is(1L));
+    }
+
+    @Test
+    public void runsTheSweepInTheBackground() {
+        when(emittedEventDao.findNotEmittedEventMaxIdOlderThan(any(ZonedDateTime.class), any())).thenReturn(Optional.empty());
+
+        assertThat(emittedEventsBackfillService.startBackfill(), is(true));
+
+        EmittedEventsBackfillProgress progress = emittedEventsBackfillService.getProgress();
+        assertThat(progress.isRunning(), is(false));
+        assertThat(progress.getStartedDate() != null, is(true));
+        assertThat(progress.getFinishedDate() != null, is(true));
+    }
 }
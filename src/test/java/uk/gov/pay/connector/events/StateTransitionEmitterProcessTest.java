@@ -6,6 +6,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import uk.gov.pay.connector.chargeevent.model.domain.ChargeEventEntity;
+import uk.gov.pay.connector.client.ledger.exception.LedgerException;
 import uk.gov.pay.connector.events.eventdetails.charge.PaymentCreatedEventDetails;
 import uk.gov.pay.connector.events.exception.EventCreationException;
 import uk.gov.pay.connector.events.model.EventFactory;
@@ -14,6 +15,7 @@ import uk.gov.pay.connector.events.model.charge.PaymentEvent;
 import uk.gov.pay.connector.queue.statetransition.PaymentStateTransition;
 import uk.gov.pay.connector.queue.QueueException;
 import uk.gov.pay.connector.queue.statetransition.StateTransitionQueue;
+import uk.gov.pay.connector.refund.service.LedgerRefundCache;
 
 import java.time.ZonedDateTime;
 import java.util.List;
@@ -21,9 +23,11 @@ import java.util.concurrent.TimeUnit;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.atMost;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -44,6 +48,9 @@ public class StateTransitionEmitterProcessTest {
     @Mock
     EventService mockEventService;
 
+    @Mock
+    LedgerRefundCache ledgerRefundCache;
+
     @InjectMocks
     StateTransitionEmitterProcess stateTransitionEmitterProcess;
 
@@ -93,11 +100,28 @@ public class StateTransitionEmitterProcessTest {
         verify(stateTransitionQueue).offer(any(PaymentStateTransition.class));
     }
 
+    @Test
+    public void shouldPutOnlyTheFailingTransitionBackOnQueueAndCarryOnWithTheRestOfTheBatch() throws Exception {
+        PaymentStateTransition failing = new PaymentStateTransition(100L, PaymentEvent.class);
+        PaymentStateTransition succeeding = new PaymentStateTransition(200L, PaymentCreated.class);
+        when(stateTransitionQueue.poll(anyLong(), any(TimeUnit.class))).thenReturn(failing);
+        when(stateTransitionQueue.poll()).thenReturn(succeeding).thenReturn(null);
+        when(eventFactory.createEvents(failing)).thenThrow(new LedgerException(new RuntimeException("ledger unavailable")));
+        PaymentCreated event = new PaymentCreated("id", mock(PaymentCreatedEventDetails.class), ZonedDateTime.now());
+        when(eventFactory.createEvents(succeeding)).thenReturn(List.of(event));
+
+        stateTransitionEmitterProcess.handleStateTransitionMessages();
+
+        verify(mockEventService).emitAndMarkEventAsEmitted(event);
+        verify(stateTransitionQueue).offer(argThat(transition -> transition.getIdentifier().equals("100")));
+        verify(stateTransitionQueue, never()).offer(argThat(transition -> transition.getIdentifier().equals("200")));
+    }
+
 
     @Test
     public void shouldNotPutPaymentTransitionBackOnQueueIfItHasExceededMaxAttempts() throws Exception {
         StateTransitionQueue spyQueue = spy(new StateTransitionQueue());
-        StateTransitionEmitterProcess stateTransitionEmitterProcess = new StateTransitionEmitterProcess(spyQueue, eventFactory, stateTransitionQueueMetricEmitter, mockEventService);
+        StateTransitionEmitterProcess stateTransitionEmitterProcess = new StateTransitionEmitterProcess(spyQueue, eventFactory, stateTransitionQueueMetricEmitter, mockEventService, ledgerRefundCache);
         PaymentStateTransition paymentStateTransition = new PaymentStateTransition(100L, PaymentEvent.class, 0);
 
         when(eventFactory.createEvents(any(PaymentStateTransition.class))).thenThrow(EventCreationException.class);
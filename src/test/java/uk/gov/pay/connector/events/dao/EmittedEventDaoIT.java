@@ -197,6 +197,40 @@ public class EmittedEventDaoIT extends DaoITestBase {
                 is(Timestamp.from(doNotRetryEmitUntil.toInstant())));
     }
 
+    @Test
+    public void markEventsAsEmitted_shouldSetEmittedDateOnlyForTheGivenIds() {
+        final PaymentCreated paymentCreatedEvent = aPaymentCreatedEvent();
+        for (int i = 0; i < 3; i++) {
+            emittedEventDao.recordEmission(paymentCreatedEvent.getResourceType(), paymentCreatedEvent.getResourceExternalId(),
+                    paymentCreatedEvent.getEventType(), paymentCreatedEvent.getTimestamp(), null);
+        }
+        List<Map<String, Object>> events = databaseTestHelper.readEmittedEvents();
+        Long firstId = (Long) events.get(0).get("id");
+        Long secondId = (Long) events.get(1).get("id");
+
+        int updated = emittedEventDao.markEventsAsEmitted(List.of(firstId, secondId), ZonedDateTime.parse("2019-01-01T15:00:00Z"));
+
+        assertThat(updated, is(2));
+        events = databaseTestHelper.readEmittedEvents();
+        assertThat(events.get(0).get("emitted_date"), is(Timestamp.valueOf("2019-01-01 15:00:00")));
+        assertThat(events.get(1).get("emitted_date"), is(Timestamp.valueOf("2019-01-01 15:00:00")));
+        assertThat(events.get(2).get("emitted_date"), is(nullValue()));
+    }
+
+    @Test
+    public void setDoNotRetryEmitUntil_shouldUpdateAllTheGivenIds() {
+        final PaymentCreated paymentCreatedEvent = aPaymentCreatedEvent();
+        emittedEventDao.recordEmission(paymentCreatedEvent.getResourceType(), paymentCreatedEvent.getResourceExternalId(),
+                paymentCreatedEvent.getEventType(), paymentCreatedEvent.getTimestamp(), null);
+        Long id = (Long) databaseTestHelper.readEmittedEvents().get(0).get("id");
+
+        emittedEventDao.setDoNotRetryEmitUntil(List.of(id), ZonedDateTime.parse("2019-01-02T13:00:00Z"));
+
+        Map<String, Object> event = databaseTestHelper.readEmittedEvents().get(0);
+        assertThat(event.get("do_not_retry_emit_until"), is(Timestamp.valueOf("2019-01-02 13:00:00")));
+        assertThat(event.get("emitted_date"), is(nullValue()));
+    }
+
     private PaymentCreated aPaymentCreatedEvent() {
         PaymentCreatedEventDetails eventDetails = new PaymentCreatedEventDetails.Builder()
                 .withAmount(1L)
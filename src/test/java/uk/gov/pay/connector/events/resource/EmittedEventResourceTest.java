@@ -1,19 +1,24 @@
 package uk.gov.pay.connector.events.resource;
 
 import io.dropwizard.testing.junit.ResourceTestRule;
+import org.junit.Before;
 import org.junit.ClassRule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.connector.events.EmittedEventsBackfillProgress;
 import uk.gov.pay.connector.events.EmittedEventsBackfillService;
 
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
 public class EmittedEventResourceTest {
@@ -24,13 +29,48 @@ public class EmittedEventResourceTest {
             .addResource(new EmittedEventResource(emittedEventsBackfillService))
             .build();
 
+    @Before
+    public void setUp() {
+        reset(emittedEventsBackfillService);
+        when(emittedEventsBackfillService.getProgress())
+                .thenReturn(new EmittedEventsBackfillProgress(true, null, null, 0L, 250L, 0, 0, 0));
+    }
+
     @Test
-    public void shouldReturn200() {
+    public void shouldReturn202WhenSweepIsStarted() {
+        when(emittedEventsBackfillService.startBackfill()).thenReturn(true);
+
         Response response = resources
                 .target("/v1/tasks/emitted-events-sweep")
                 .request()
                 .post(Entity.json(""));
 
+        assertThat(response.getStatus(), is(Status.ACCEPTED.getStatusCode()));
+    }
+
+    @Test
+    public void shouldReturn409WhenSweepIsAlreadyRunning() {
+        when(emittedEventsBackfillService.startBackfill()).thenReturn(false);
+
+        Response response = resources
+                .target("/v1/tasks/emitted-events-sweep")
+                .request()
+                .post(Entity.json(""));
+
+        assertThat(response.getStatus(), is(Status.CONFLICT.getStatusCode()));
+    }
+
+    @Test
+    public void shouldReturnSweepProgress() {
+        Response response = resources
+                .target("/v1/tasks/emitted-events-sweep")
+                .request()
+                .get();
+
         assertThat(response.getStatus(), is(Status.OK.getStatusCode()));
+        Map<String, Object> progress = response.readEntity(Map.class);
+        assertThat(progress.get("running"), is(true));
+        assertThat(progress.get("max_id"), is(250));
+        assertThat(progress.get("last_processed_id"), is(0));
     }
 }
@@ -7,6 +7,7 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import uk.gov.pay.connector.app.ConnectorConfiguration;
 import uk.gov.pay.connector.app.config.ExpungeConfig;
+import uk.gov.pay.connector.webhook.service.NotificationDeduplicationService;
 
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -20,6 +21,8 @@ public class ExpungeServiceTest {
     @Mock
     RefundExpungeService mockRefundExpungeService;
     @Mock
+    NotificationDeduplicationService mockNotificationDeduplicationService;
+    @Mock
     ConnectorConfiguration mockConnectorConfiguration;
 
     int defaultNumberOfChargesOrRefundsToExpunge = 999;
@@ -31,7 +34,8 @@ public class ExpungeServiceTest {
         when(mockConnectorConfiguration.getExpungeConfig()).thenReturn(expungeConfig);
         when(expungeConfig.getNumberOfChargesOrRefundsToExpunge()).thenReturn(defaultNumberOfChargesOrRefundsToExpunge);
 
-        expungeService = new ExpungeService(mockChargeExpungeService, mockRefundExpungeService, mockConnectorConfiguration);
+        expungeService = new ExpungeService(mockChargeExpungeService, mockRefundExpungeService,
+                mockNotificationDeduplicationService, mockConnectorConfiguration);
     }
 
     @Test
@@ -40,6 +44,7 @@ public class ExpungeServiceTest {
 
         verify(mockChargeExpungeService).expunge(defaultNumberOfChargesOrRefundsToExpunge);
         verify(mockRefundExpungeService).expunge(defaultNumberOfChargesOrRefundsToExpunge);
+        verify(mockNotificationDeduplicationService).expungeProcessedNotifications();
     }
 
     @Test
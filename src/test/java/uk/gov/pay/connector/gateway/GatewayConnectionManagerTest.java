@@ -0,0 +1,74 @@
+package uk.gov.pay.connector.gateway;
+
+import com.codahale.metrics.MetricRegistry;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.impl.conn.DefaultRoutePlanner;
+import org.apache.http.impl.conn.DefaultSchemePortResolver;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.net.Socket;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class GatewayConnectionManagerTest {
+
+    private static final String GATEWAY_URL = "http://localhost/gateway";
+
+    @Mock
+    private ConnectionSocketFactory socketFactory;
+
+    private GatewayConnectionManager connectionManager;
+
+    @Before
+    public void setUp() throws Exception {
+        when(socketFactory.createSocket(any())).thenAnswer(invocation -> new Socket());
+        when(socketFactory.connectSocket(anyInt(), any(), any(), any(), any(), any()))
+                .thenAnswer(invocation -> invocation.getArgument(1));
+        connectionManager = new GatewayConnectionManager(new MetricRegistry(),
+                RegistryBuilder.<ConnectionSocketFactory>create().register("http", socketFactory).build(),
+                60000, "test-gateway");
+    }
+
+    @After
+    public void tearDown() {
+        connectionManager.shutdown();
+    }
+
+    @Test
+    public void shouldLeaseAWarmedConnectionToARequestForAUrlWithoutAPort() throws Exception {
+        connectionManager.warmUp(List.of(GATEWAY_URL), 2, 1000, 60000);
+
+        HttpClientConnection connection = connectionManager.requestConnection(routeForRequestTo(GATEWAY_URL), null)
+                .get(1, TimeUnit.SECONDS);
+
+        assertThat(connection.isOpen(), is(true));
+        verify(socketFactory, times(2)).createSocket(any());
+    }
+
+    // the route the client plans for a request, which is what the pool looks connections up by
+    private static HttpRoute routeForRequestTo(String url) throws Exception {
+        return new DefaultRoutePlanner(DefaultSchemePortResolver.INSTANCE)
+                .determineRoute(URIUtils.extractHost(URI.create(url)), new HttpGet(url), HttpClientContext.create());
+    }
+}
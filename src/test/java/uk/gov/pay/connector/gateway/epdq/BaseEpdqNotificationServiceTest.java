@@ -14,6 +14,8 @@ import uk.gov.pay.connector.gateway.processor.ChargeNotificationProcessor;
 import uk.gov.pay.connector.gateway.processor.RefundNotificationProcessor;
 import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
 import uk.gov.pay.connector.gatewayaccount.service.GatewayAccountService;
+import uk.gov.pay.connector.webhook.model.NotificationKey;
+import uk.gov.pay.connector.webhook.service.NotificationDeduplicationService;
 
 import java.nio.charset.StandardCharsets;
 import java.util.List;
@@ -28,6 +30,8 @@ public abstract class BaseEpdqNotificationServiceTest {
     @Mock
     protected GatewayAccountService mockGatewayAccountService;
     @Mock
+    protected NotificationDeduplicationService mockNotificationDeduplicationService;
+    @Mock
     protected ChargeNotificationProcessor mockChargeNotificationProcessor;
     @Mock
     protected RefundNotificationProcessor mockRefundNotificationProcessor;
@@ -45,7 +49,8 @@ public abstract class BaseEpdqNotificationServiceTest {
                 new EpdqSha512SignatureGenerator(),
                 mockChargeNotificationProcessor,
                 mockRefundNotificationProcessor,
-                mockGatewayAccountService
+                mockGatewayAccountService,
+                mockNotificationDeduplicationService
         );
         gatewayAccountEntity = ChargeEntityFixture.defaultGatewayAccountEntity();
         gatewayAccountEntity.setCredentials(ImmutableMap.of(CREDENTIALS_SHA_OUT_PASSPHRASE, shaPhraseOut));
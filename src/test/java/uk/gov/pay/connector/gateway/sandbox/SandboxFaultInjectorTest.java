@@ -0,0 +1,117 @@
+package uk.gov.pay.connector.gateway.sandbox;
+
+import io.dropwizard.util.Duration;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.connector.app.config.SandboxConfig;
+import uk.gov.pay.connector.app.config.SandboxOperationProfile;
+import uk.gov.pay.connector.app.config.SandboxProfile;
+import uk.gov.pay.connector.gateway.GatewayException.GatewayConnectionTimeoutException;
+import uk.gov.pay.connector.gateway.GatewayException.GatewayErrorException;
+import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.Mockito.when;
+import static uk.gov.pay.connector.gateway.GatewayOperation.AUTHORISE;
+import static uk.gov.pay.connector.gateway.GatewayOperation.CAPTURE;
+import static uk.gov.pay.connector.gateway.sandbox.SandboxFaultInjector.SANDBOX_PROFILE_KEY;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SandboxFaultInjectorTest {
+
+    @Mock
+    private SandboxConfig sandboxConfig;
+
+    @Mock
+    private SandboxOperationProfile authProfile;
+
+    private final GatewayAccountEntity gatewayAccount = new GatewayAccountEntity();
+
+    @Before
+    public void setUp() {
+        SandboxProfile profile = new SandboxProfile();
+        profile.setAuth(authProfile);
+        when(sandboxConfig.getProfiles()).thenReturn(Map.of("flaky", profile));
+        gatewayAccount.setCredentials(Map.of(SANDBOX_PROFILE_KEY, "flaky"));
+    }
+
+    @Test
+    public void shouldDoNothingForAccountWithoutProfile() throws Exception {
+        gatewayAccount.setCredentials(Map.of());
+
+        new SandboxFaultInjector(sandboxConfig, outcome(0)).apply(AUTHORISE, gatewayAccount);
+    }
+
+    @Test
+    public void shouldDoNothingForAccountWithUnknownProfile() throws Exception {
+        gatewayAccount.setCredentials(Map.of(SANDBOX_PROFILE_KEY, "unknown"));
+
+        new SandboxFaultInjector(sandboxConfig, outcome(0)).apply(AUTHORISE, gatewayAccount);
+    }
+
+    @Test
+    public void shouldDoNothingForOperationWithoutProfile() throws Exception {
+        new SandboxFaultInjector(sandboxConfig, outcome(0)).apply(CAPTURE, gatewayAccount);
+    }
+
+    @Test
+    public void shouldFailWithServerErrorWhenOutcomeFallsInErrorRate() {
+        when(authProfile.getTimeoutRate()).thenReturn(0.1);
+        when(authProfile.getErrorRate()).thenReturn(0.5);
+        when(authProfile.getMedianLatency()).thenReturn(Duration.milliseconds(0));
+        when(authProfile.getP99Latency()).thenReturn(Duration.milliseconds(0));
+
+        GatewayErrorException exception = assertThrows(GatewayErrorException.class,
+                () -> new SandboxFaultInjector(sandboxConfig, outcome(0.5)).apply(AUTHORISE, gatewayAccount));
+
+        assertThat(exception.getStatus(), is(Optional.of(503)));
+    }
+
+    @Test
+    public void shouldTimeOutWhenOutcomeFallsInTimeoutRate() {
+        when(authProfile.getTimeoutRate()).thenReturn(0.1);
+        when(authProfile.getTimeout()).thenReturn(Duration.milliseconds(1));
+
+        assertThrows(GatewayConnectionTimeoutException.class,
+                () -> new SandboxFaultInjector(sandboxConfig, outcome(0.05)).apply(AUTHORISE, gatewayAccount));
+    }
+
+    @Test
+    public void shouldWaitForLatencyAndSucceedOtherwise() throws Exception {
+        when(authProfile.getTimeoutRate()).thenReturn(0.1);
+        when(authProfile.getErrorRate()).thenReturn(0.1);
+        when(authProfile.getMedianLatency()).thenReturn(Duration.milliseconds(50));
+        when(authProfile.getP99Latency()).thenReturn(Duration.milliseconds(500));
+
+        long start = System.currentTimeMillis();
+        new SandboxFaultInjector(sandboxConfig, outcome(0.9)).apply(AUTHORISE, gatewayAccount);
+
+        assertThat(System.currentTimeMillis() - start, greaterThanOrEqualTo(50L));
+    }
+
+    private static Supplier<Random> outcome(double outcome) {
+        Random random = new Random() {
+            @Override
+            public double nextDouble() {
+                return outcome;
+            }
+
+            @Override
+            public synchronized double nextGaussian() {
+                return 0;
+            }
+        };
+        return () -> random;
+    }
+}
@@ -8,9 +8,12 @@ import org.junit.runner.RunWith;
 import org.mockito.junit.MockitoJUnitRunner;
 import uk.gov.pay.connector.charge.model.domain.Charge;
 import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
+import uk.gov.pay.connector.gateway.CaptureResponse;
+import uk.gov.pay.connector.gateway.GatewayException.GatewayErrorException;
 import uk.gov.pay.connector.gateway.model.AuthCardDetails;
 import uk.gov.pay.connector.gateway.model.GatewayError;
 import uk.gov.pay.connector.gateway.model.request.CancelGatewayRequest;
+import uk.gov.pay.connector.gateway.model.request.CaptureGatewayRequest;
 import uk.gov.pay.connector.gateway.model.request.CardAuthorisationGatewayRequest;
 import uk.gov.pay.connector.gateway.model.request.RefundGatewayRequest;
 import uk.gov.pay.connector.gateway.model.response.BaseAuthoriseResponse;
@@ -27,6 +30,12 @@ import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static uk.gov.pay.connector.gateway.GatewayOperation.CAPTURE;
+import static uk.gov.pay.connector.gateway.model.ErrorType.GATEWAY_ERROR;
 import static uk.gov.pay.connector.gateway.model.ErrorType.GENERIC_GATEWAY_ERROR;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -160,4 +169,17 @@ public class SandboxPaymentProviderTest {
         assertThat(cancelResponse.getErrorCode(), is(nullValue()));
         assertThat(cancelResponse.getErrorMessage(), is(nullValue()));
     }
+
+    @Test
+    public void capture_shouldReturnGatewayErrorWhenProfileInjectsFault() throws Exception {
+        SandboxFaultInjector sandboxFaultInjector = mock(SandboxFaultInjector.class);
+        doThrow(new GatewayErrorException("Non-success HTTP status code 503 from gateway", "Service Unavailable", 503))
+                .when(sandboxFaultInjector).apply(eq(CAPTURE), any());
+        ChargeEntity chargeEntity = ChargeEntityFixture.aValidChargeEntity().build();
+
+        CaptureResponse captureResponse = new SandboxPaymentProvider(sandboxFaultInjector).capture(CaptureGatewayRequest.valueOf(chargeEntity));
+
+        assertThat(captureResponse.getError().isPresent(), is(true));
+        assertThat(captureResponse.getError().get().getErrorType(), is(GATEWAY_ERROR));
+    }
 }
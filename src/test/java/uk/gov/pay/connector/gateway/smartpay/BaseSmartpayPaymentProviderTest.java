@@ -12,6 +12,7 @@ import uk.gov.pay.connector.gateway.ClientFactory;
 import uk.gov.pay.connector.gateway.GatewayClientFactory;
 import uk.gov.pay.connector.gateway.PaymentGatewayName;
 import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
+import uk.gov.pay.connector.metrics.ConnectorMetrics;
 
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.Entity;
@@ -47,7 +48,7 @@ public abstract class BaseSmartpayPaymentProviderTest {
 
     @Before
     public void setup() {
-        GatewayClientFactory gatewayClientFactory = new GatewayClientFactory(mockClientFactory);
+        GatewayClientFactory gatewayClientFactory = new GatewayClientFactory(mockClientFactory, new ConnectorMetrics(metricRegistry));
 
         when(mockClientFactory.createWithDropwizardClient(eq(PaymentGatewayName.SMARTPAY), any(MetricRegistry.class)))
                 .thenReturn(mockClient);
@@ -15,11 +15,14 @@ import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
 import uk.gov.pay.connector.gatewayaccount.service.GatewayAccountService;
 import uk.gov.pay.connector.refund.model.domain.RefundStatus;
 import uk.gov.pay.connector.util.TestTemplateResourceLoader;
+import uk.gov.pay.connector.webhook.model.NotificationKey;
+import uk.gov.pay.connector.webhook.service.NotificationDeduplicationService;
 
 import java.time.ZonedDateTime;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
@@ -43,6 +46,8 @@ public class SmartpayNotificationServiceTest {
     @Mock
     private GatewayAccountService mockGatewayAccountService;
     @Mock
+    private NotificationDeduplicationService mockNotificationDeduplicationService;
+    @Mock
     private ChargeNotificationProcessor mockChargeNotificationProcessor;
     @Mock
     private RefundNotificationProcessor mockRefundNotificationProcessor;
@@ -68,7 +73,8 @@ public class SmartpayNotificationServiceTest {
                 mockChargeService,
                 mockChargeNotificationProcessor,
                 mockRefundNotificationProcessor,
-                mockGatewayAccountService
+                mockGatewayAccountService,
+                mockNotificationDeduplicationService
         );
         charge = Charge.from(ChargeEntityFixture.aValidChargeEntity()
                 .withStatus(AUTHORISATION_SUCCESS)
@@ -90,6 +96,20 @@ public class SmartpayNotificationServiceTest {
                 ZonedDateTime.parse("2015-10-08T13:48:30+02:00"));  // from notification-capture.json
     }
 
+    @Test
+    public void shouldNotLookUpCharge_WhenNotificationHasAlreadyBeenProcessed() {
+        final String payload = sampleSmartpayNotification(SMARTPAY_NOTIFICATION_CAPTURE,
+                randomId(), originalReference, pspReference);
+        NotificationKey notificationKey = NotificationKey.of(SMARTPAY, originalReference, pspReference, "CAPTURE:true",
+                ZonedDateTime.parse("2015-10-08T13:48:30+02:00"));
+        when(mockNotificationDeduplicationService.isDuplicate(notificationKey)).thenReturn(true);
+
+        notificationService.handleNotificationFor(payload);
+
+        verify(mockChargeService, never()).findByProviderAndTransactionIdFromDbOrLedger(SMARTPAY.getName(), originalReference);
+        verifyNoInteractions(mockChargeNotificationProcessor);
+    }
+
     @Test
     public void shouldNotUpdateCharge_WhenNotificationIsForCaptureAndChargeIsHistoric() {
         final String payload = sampleSmartpayNotification(SMARTPAY_NOTIFICATION_CAPTURE,
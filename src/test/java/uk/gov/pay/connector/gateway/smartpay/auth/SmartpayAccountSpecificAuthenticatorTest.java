@@ -4,7 +4,6 @@ import io.dropwizard.auth.basic.BasicCredentials;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import uk.gov.pay.connector.gatewayaccount.dao.GatewayAccountDao;
@@ -17,6 +16,8 @@ import java.util.Optional;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -31,11 +32,13 @@ public class SmartpayAccountSpecificAuthenticatorTest {
     @Mock
     HashUtil hashUtil;
 
-    @InjectMocks
     private SmartpayAccountSpecificAuthenticator smartpayAccountSpecificAuthenticator;
 
     @Before
     public void setup() {
+        smartpayAccountSpecificAuthenticator = new SmartpayAccountSpecificAuthenticator(gatewayAccountDao, hashUtil,
+                new VerifiedNotificationCredentialsCache());
+
         GatewayAccountEntity gatewayAccountEntity = mock(GatewayAccountEntity.class);
         NotificationCredentials notificationCredentials = mock(NotificationCredentials.class);
         Optional<GatewayAccountEntity> gatewayAccountEntityMayBe = Optional.of(gatewayAccountEntity);
@@ -67,6 +70,39 @@ public class SmartpayAccountSpecificAuthenticatorTest {
         assertFalse(authenticate.isPresent());
     }
 
+    @Test
+    public void whenCredentialsWereRecentlyVerified_shouldNotCheckThemAgain() {
+        when(hashUtil.check(password, hashedPassword)).thenReturn(true);
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(smartpayAccountSpecificAuthenticator.authenticate(new BasicCredentials(username, password)).isPresent());
+        }
+
+        verify(hashUtil, times(1)).check(password, hashedPassword);
+        verify(gatewayAccountDao, times(1)).findByNotificationCredentialsUsername(username);
+    }
+
+    @Test
+    public void whenPasswordDiffersFromRecentlyVerifiedOne_shouldCheckItAgain() {
+        when(hashUtil.check(password, hashedPassword)).thenReturn(true);
+        when(hashUtil.check("wrong-password", hashedPassword)).thenReturn(false);
+
+        assertTrue(smartpayAccountSpecificAuthenticator.authenticate(new BasicCredentials(username, password)).isPresent());
+        assertFalse(smartpayAccountSpecificAuthenticator.authenticate(new BasicCredentials(username, "wrong-password")).isPresent());
+
+        verify(hashUtil).check("wrong-password", hashedPassword);
+    }
+
+    @Test
+    public void whenFailedVerification_shouldNotBeCached() {
+        when(hashUtil.check(password, hashedPassword)).thenReturn(false);
+
+        assertFalse(smartpayAccountSpecificAuthenticator.authenticate(new BasicCredentials(username, password)).isPresent());
+        assertFalse(smartpayAccountSpecificAuthenticator.authenticate(new BasicCredentials(username, password)).isPresent());
+
+        verify(hashUtil, times(2)).check(password, hashedPassword);
+    }
+
     @Test
     public void whenAccountDoesNotExist_shouldReturnEmpty() {
         Optional<GatewayAccountEntity> gatewayAccountEntityMayBe = Optional.empty();
@@ -21,9 +21,10 @@ import org.slf4j.LoggerFactory;
 import uk.gov.pay.connector.app.StripeGatewayConfig;
 import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
 import uk.gov.pay.connector.charge.service.ChargeService;
+import uk.gov.pay.connector.common.exception.Charge3dsNotReadyRuntimeException;
 import uk.gov.pay.connector.gateway.model.Auth3dsResult;
 import uk.gov.pay.connector.gateway.stripe.json.StripePayout;
-import uk.gov.pay.connector.paymentprocessor.service.Card3dsResponseAuthService;
+import uk.gov.pay.connector.paymentprocessor.service.Deferred3dsAuthorisationService;
 import uk.gov.pay.connector.payout.PayoutEmitterService;
 import uk.gov.pay.connector.queue.QueueException;
 import uk.gov.pay.connector.queue.payout.Payout;
@@ -31,7 +32,7 @@ import uk.gov.pay.connector.queue.payout.PayoutReconcileQueue;
 import uk.gov.pay.connector.util.TestTemplateResourceLoader;
 
 import javax.ws.rs.WebApplicationException;
-import java.time.Instant;
+import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -40,16 +41,15 @@ import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.hasItemInArray;
-import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
-import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_3DS_READY;
 import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_3DS_REQUIRED;
 import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.ENTERING_CARD_DETAILS;
 import static uk.gov.pay.connector.gateway.PaymentGatewayName.STRIPE;
@@ -72,7 +72,7 @@ public class StripeNotificationServiceTest {
     private StripeNotificationService notificationService;
 
     @Mock
-    private Card3dsResponseAuthService mockCard3dsResponseAuthService;
+    private Deferred3dsAuthorisationService mockDeferred3dsAuthorisationService;
     @Mock
     private ChargeService mockChargeService;
     @Mock
@@ -101,7 +101,7 @@ public class StripeNotificationServiceTest {
 
     @Before
     public void setup() {
-        notificationService = new StripeNotificationService(mockCard3dsResponseAuthService,
+        notificationService = new StripeNotificationService(mockDeferred3dsAuthorisationService,
                 mockChargeService, stripeGatewayConfig, stripeAccountUpdatedHandler, mockPayoutReconcileQueue,
                 mockPayoutEmitterService);
 
@@ -218,7 +218,7 @@ public class StripeNotificationServiceTest {
 
         notificationService.handleNotificationFor(payload, signPayload(payload));
 
-        verify(mockCard3dsResponseAuthService).process3DSecureAuthorisationWithoutLocking(externalId, getAuth3dsResult(Auth3dsResult.Auth3dsResultOutcome.AUTHORISED));
+        verify(mockDeferred3dsAuthorisationService).authoriseWhen3dsReady(eq(mockCharge), eq(getAuth3dsResult(Auth3dsResult.Auth3dsResultOutcome.AUTHORISED)), any(ZonedDateTime.class), any(Duration.class));
     }
 
     @Test
@@ -228,7 +228,7 @@ public class StripeNotificationServiceTest {
 
         notificationService.handleNotificationFor(payload, signPayloadWithTestSecret(payload));
 
-        verify(mockCard3dsResponseAuthService).process3DSecureAuthorisationWithoutLocking(externalId, getAuth3dsResult(Auth3dsResult.Auth3dsResultOutcome.AUTHORISED));
+        verify(mockDeferred3dsAuthorisationService).authoriseWhen3dsReady(eq(mockCharge), eq(getAuth3dsResult(Auth3dsResult.Auth3dsResultOutcome.AUTHORISED)), any(ZonedDateTime.class), any(Duration.class));
     }
 
     @Test
@@ -237,7 +237,7 @@ public class StripeNotificationServiceTest {
                 sourceId, SOURCE_FAILED);
         notificationService.handleNotificationFor(payload, signPayload(payload));
 
-        verify(mockCard3dsResponseAuthService).process3DSecureAuthorisationWithoutLocking(externalId, getAuth3dsResult(Auth3dsResult.Auth3dsResultOutcome.DECLINED));
+        verify(mockDeferred3dsAuthorisationService).authoriseWhen3dsReady(eq(mockCharge), eq(getAuth3dsResult(Auth3dsResult.Auth3dsResultOutcome.DECLINED)), any(ZonedDateTime.class), any(Duration.class));
     }
 
     @Test
@@ -246,7 +246,7 @@ public class StripeNotificationServiceTest {
                 sourceId, SOURCE_CANCELED);
         notificationService.handleNotificationFor(payload, signPayload(payload));
 
-        verify(mockCard3dsResponseAuthService).process3DSecureAuthorisationWithoutLocking(externalId, getAuth3dsResult(Auth3dsResult.Auth3dsResultOutcome.CANCELED));
+        verify(mockDeferred3dsAuthorisationService).authoriseWhen3dsReady(eq(mockCharge), eq(getAuth3dsResult(Auth3dsResult.Auth3dsResultOutcome.CANCELED)), any(ZonedDateTime.class), any(Duration.class));
     }
 
     @Test
@@ -258,7 +258,7 @@ public class StripeNotificationServiceTest {
 
         notificationService.handleNotificationFor(payload, signPayload(payload));
 
-        verify(mockCard3dsResponseAuthService).process3DSecureAuthorisationWithoutLocking(externalId, getAuth3dsResult(Auth3dsResult.Auth3dsResultOutcome.AUTHORISED));
+        verify(mockDeferred3dsAuthorisationService).authoriseWhen3dsReady(eq(mockCharge), eq(getAuth3dsResult(Auth3dsResult.Auth3dsResultOutcome.AUTHORISED)), any(ZonedDateTime.class), any(Duration.class));
     }
 
     @Test
@@ -270,7 +270,7 @@ public class StripeNotificationServiceTest {
 
         notificationService.handleNotificationFor(payload, signPayload(payload));
 
-        verify(mockCard3dsResponseAuthService, never()).process3DSecureAuthorisationWithoutLocking(any(), any());
+        verify(mockDeferred3dsAuthorisationService, never()).authoriseWhen3dsReady(any(), any(), any(), any());
     }
 
     @Test
@@ -281,7 +281,7 @@ public class StripeNotificationServiceTest {
         when(mockChargeService.findByProviderAndTransactionId(STRIPE.getName(), "pi_123")).thenReturn(Optional.of(mockCharge));
         notificationService.handleNotificationFor(payload, signPayload(payload));
 
-        verify(mockCard3dsResponseAuthService).process3DSecureAuthorisationWithoutLocking(externalId, getAuth3dsResult(Auth3dsResult.Auth3dsResultOutcome.DECLINED));
+        verify(mockDeferred3dsAuthorisationService).authoriseWhen3dsReady(eq(mockCharge), eq(getAuth3dsResult(Auth3dsResult.Auth3dsResultOutcome.DECLINED)), any(ZonedDateTime.class), any(Duration.class));
     }
 
     @Test
@@ -296,7 +296,7 @@ public class StripeNotificationServiceTest {
             notificationService.handleNotificationFor(payload, signPayload(payload));
         }
 
-        verify(mockCard3dsResponseAuthService, never()).process3DSecureAuthorisationWithoutLocking(anyString(), any());
+        verify(mockDeferred3dsAuthorisationService, never()).authoriseWhen3dsReady(any(), any(), any(), any());
     }
 
     @Test
@@ -306,7 +306,7 @@ public class StripeNotificationServiceTest {
 
         notificationService.handleNotificationFor(payload, signPayload(payload));
 
-        verify(mockCard3dsResponseAuthService, never()).process3DSecureAuthorisationWithoutLocking(anyString(), any());
+        verify(mockDeferred3dsAuthorisationService, never()).authoriseWhen3dsReady(any(), any(), any(), any());
     }
 
     @Test
@@ -316,7 +316,7 @@ public class StripeNotificationServiceTest {
 
         notificationService.handleNotificationFor(payload, signPayload(payload));
 
-        verify(mockCard3dsResponseAuthService, never()).process3DSecureAuthorisationWithoutLocking(anyString(), any());
+        verify(mockDeferred3dsAuthorisationService, never()).authoriseWhen3dsReady(any(), any(), any(), any());
     }
 
     @Test
@@ -326,7 +326,7 @@ public class StripeNotificationServiceTest {
 
         notificationService.handleNotificationFor(payload, signPayload(payload));
 
-        verify(mockCard3dsResponseAuthService, never()).process3DSecureAuthorisationWithoutLocking(anyString(), any());
+        verify(mockDeferred3dsAuthorisationService, never()).authoriseWhen3dsReady(any(), any(), any(), any());
     }
 
     @Test
@@ -334,39 +334,31 @@ public class StripeNotificationServiceTest {
         final String payload = "invalid-payload";
         notificationService.handleNotificationFor(payload, signPayload(payload));
 
-        verify(mockCard3dsResponseAuthService, never()).process3DSecureAuthorisationWithoutLocking(anyString(), any());
+        verify(mockDeferred3dsAuthorisationService, never()).authoriseWhen3dsReady(any(), any(), any(), any());
     }
 
     @Test
-    public void shouldWaitForSpecifiedDelayBeforeProcessingNotification() {
+    public void shouldDeferAuthorisationForUpToTheConfiguredWaitSinceTheNotificationWasCreated() {
         final String payload = sampleStripeNotification(STRIPE_NOTIFICATION_3DS_SOURCE,
                 sourceId, SOURCE_FAILED);
         when(stripeGatewayConfig.getNotification3dsWaitDelay()).thenReturn(1000);
-        when(mockChargeService.findChargeByExternalId(anyString())).thenReturn(mockCharge);
 
-        Instant instantBeforeInvocation = Instant.now();
         notificationService.handleNotificationFor(payload, signPayload(payload));
-        Instant instantAfterInvocation = Instant.now();
-        assertTrue(instantAfterInvocation.isAfter(instantBeforeInvocation.plusSeconds(1)));
-        assertTrue(instantAfterInvocation.isBefore(instantBeforeInvocation.plusMillis(1500))); //includes additional overhead to complete handleNotificationFor() 
 
-        verify(mockCard3dsResponseAuthService).process3DSecureAuthorisationWithoutLocking(externalId, getAuth3dsResult(Auth3dsResult.Auth3dsResultOutcome.DECLINED));
+        verify(mockDeferred3dsAuthorisationService).authoriseWhen3dsReady(mockCharge,
+                getAuth3dsResult(Auth3dsResult.Auth3dsResultOutcome.DECLINED), ZonedDateTime.parse("2018-11-27T17:25:52Z"),
+                Duration.ofMillis(1000));
+        verify(mockChargeService, never()).findChargeByExternalId(anyString());
     }
 
-    @Test
-    public void shouldNotWaitForSpecifiedDelayIfChargeIs3DSReady() {
+    @Test(expected = Charge3dsNotReadyRuntimeException.class)
+    public void shouldTurnNotificationAway_WhenChargeIsNot3dsReadyYet() {
         final String payload = sampleStripeNotification(STRIPE_NOTIFICATION_3DS_SOURCE,
-                sourceId, SOURCE_FAILED);
-        when(stripeGatewayConfig.getNotification3dsWaitDelay()).thenReturn(2000);
-        when(mockChargeService.findChargeByExternalId(anyString())).thenReturn(mockCharge);
-        when(mockCharge.getStatus()).thenReturn(AUTHORISATION_3DS_READY.getValue());
+                sourceId, SOURCE_CHARGEABLE);
+        doThrow(new Charge3dsNotReadyRuntimeException("charge-id", ZonedDateTime.now()))
+                .when(mockDeferred3dsAuthorisationService).authoriseWhen3dsReady(any(), any(), any(), any());
 
-        Instant instantBeforeInvocation = Instant.now();
         notificationService.handleNotificationFor(payload, signPayload(payload));
-        Instant instantAfterInvocation = Instant.now();
-        assertTrue(instantAfterInvocation.isBefore(instantBeforeInvocation.plusMillis(300))); // plus 300 to consider the time to process handleNotificationFor()
-
-        verify(mockCard3dsResponseAuthService).process3DSecureAuthorisationWithoutLocking(externalId, getAuth3dsResult(Auth3dsResult.Auth3dsResultOutcome.DECLINED));
     }
 
     @Test(expected = WebApplicationException.class)
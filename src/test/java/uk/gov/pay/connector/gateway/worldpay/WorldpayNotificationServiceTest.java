@@ -13,15 +13,20 @@ import uk.gov.pay.connector.gateway.processor.RefundNotificationProcessor;
 import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
 import uk.gov.pay.connector.gatewayaccount.service.GatewayAccountService;
 import uk.gov.pay.connector.refund.model.domain.RefundStatus;
-import uk.gov.pay.connector.util.DnsUtils;
+import uk.gov.pay.connector.util.IpDomainVerificationCache;
 import uk.gov.pay.connector.util.TestTemplateResourceLoader;
+import uk.gov.pay.connector.webhook.model.NotificationKey;
+import uk.gov.pay.connector.webhook.service.NotificationDeduplicationService;
 
+import java.time.ZonedDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
@@ -39,9 +44,11 @@ public class WorldpayNotificationServiceTest {
     @Mock
     private GatewayAccountService mockGatewayAccountService;
     @Mock
+    private NotificationDeduplicationService mockNotificationDeduplicationService;
+    @Mock
     private WorldpayNotificationConfiguration mockWorldpayConfiguration;
     @Mock
-    private DnsUtils mockDnsUtils;
+    private IpDomainVerificationCache mockIpDomainVerificationCache;
     @Mock
     private ChargeNotificationProcessor mockChargeNotificationProcessor;
     @Mock
@@ -58,10 +65,11 @@ public class WorldpayNotificationServiceTest {
         notificationService = new WorldpayNotificationService(
                 mockChargeService,
                 mockWorldpayConfiguration,
-                mockDnsUtils,
+                mockIpDomainVerificationCache,
                 mockChargeNotificationProcessor,
                 mockRefundNotificationProcessor,
-                mockGatewayAccountService);
+                mockGatewayAccountService,
+                mockNotificationDeduplicationService);
         when(mockChargeService.findByProviderAndTransactionIdFromDbOrLedger(WORLDPAY.getName(), transactionId)).thenReturn(Optional.of(charge));
         when(mockGatewayAccountService.getGatewayAccount(charge.getGatewayAccountId())).thenReturn(Optional.of(gatewayAccountEntity));
     }
@@ -76,7 +84,7 @@ public class WorldpayNotificationServiceTest {
                 "03",
                 "2017");
 
-        final boolean result = notificationService.handleNotificationFor(ipAddress, payload);
+        final boolean result = notificationService.handleNotificationFor(payload);
         assertTrue(result);
 
         WorldpayNotification expectedNotification = new WorldpayNotification(
@@ -107,7 +115,7 @@ public class WorldpayNotificationServiceTest {
 
         when(mockChargeService.findByProviderAndTransactionIdFromDbOrLedger(WORLDPAY.getName(), transactionId)).thenReturn(Optional.of(charge));
 
-        final boolean result = notificationService.handleNotificationFor(ipAddress, payload);
+        final boolean result = notificationService.handleNotificationFor(payload);
         assertFalse(result);
         verifyNoInteractions(mockChargeNotificationProcessor);
         verifyNoInteractions(mockRefundNotificationProcessor);
@@ -125,7 +133,7 @@ public class WorldpayNotificationServiceTest {
                     transactionId, referenceId, status,
                     "10", "03", "2017");
 
-            final boolean result = notificationService.handleNotificationFor(ipAddress, payload);
+            final boolean result = notificationService.handleNotificationFor(payload);
             assertTrue(result);
         }
 
@@ -140,7 +148,7 @@ public class WorldpayNotificationServiceTest {
                 transactionId, referenceId, "REFUND_FAILED",
                 "10", "03", "2017");
 
-        final boolean result = notificationService.handleNotificationFor(ipAddress, payload);
+        final boolean result = notificationService.handleNotificationFor(payload);
         assertTrue(result);
 
         verifyNoInteractions(mockChargeNotificationProcessor);
@@ -161,7 +169,7 @@ public class WorldpayNotificationServiceTest {
         when(mockChargeService.findByProviderAndTransactionIdFromDbOrLedger(WORLDPAY.getName(), 
                 transactionId)).thenReturn(Optional.empty());
 
-        final boolean result = notificationService.handleNotificationFor(ipAddress, payload);
+        final boolean result = notificationService.handleNotificationFor(payload);
         assertFalse(result);
 
         verifyNoInteractions(mockChargeNotificationProcessor);
@@ -179,7 +187,7 @@ public class WorldpayNotificationServiceTest {
 
         when(mockGatewayAccountService.getGatewayAccount(charge.getGatewayAccountId())).thenReturn(Optional.empty());
 
-        final boolean result = notificationService.handleNotificationFor(ipAddress, payload);
+        final boolean result = notificationService.handleNotificationFor(payload);
         assertFalse(result);
 
         verifyNoInteractions(mockChargeNotificationProcessor);
@@ -196,12 +204,49 @@ public class WorldpayNotificationServiceTest {
                 "03",
                 "2017");
 
-        final boolean result = notificationService.handleNotificationFor(ipAddress, payload);
+        final boolean result = notificationService.handleNotificationFor(payload);
         assertTrue(result);
 
         verifyNoInteractions(mockChargeNotificationProcessor);
     }
 
+    @Test
+    public void givenANotificationThatHasAlreadyBeenProcessed_shouldAcknowledgeItWithoutLookingUpTheCharge() {
+        final String payload = sampleWorldpayNotification(
+                transactionId,
+                referenceId,
+                "CAPTURED",
+                "10",
+                "03",
+                "2017");
+        NotificationKey notificationKey = NotificationKey.of(WORLDPAY, transactionId, referenceId, "CAPTURED",
+                ZonedDateTime.parse("2017-03-10T00:00:00Z"));
+        when(mockNotificationDeduplicationService.isDuplicate(any(NotificationKey.class))).thenReturn(true);
+
+        assertTrue(notificationService.handleNotificationFor(payload));
+
+        verify(mockNotificationDeduplicationService).isDuplicate(notificationKey);
+        verify(mockChargeService, never()).findByProviderAndTransactionIdFromDbOrLedger(WORLDPAY.getName(), transactionId);
+        verifyNoInteractions(mockChargeNotificationProcessor);
+        verify(mockNotificationDeduplicationService, never()).recordProcessed(any(NotificationKey.class));
+    }
+
+    @Test
+    public void givenAChargeCapturedNotification_shouldRecordThatItHasBeenProcessed() {
+        final String payload = sampleWorldpayNotification(
+                transactionId,
+                referenceId,
+                "CAPTURED",
+                "10",
+                "03",
+                "2017");
+
+        assertTrue(notificationService.handleNotificationFor(payload));
+
+        verify(mockNotificationDeduplicationService).recordProcessed(NotificationKey.of(WORLDPAY, transactionId,
+                referenceId, "CAPTURED", ZonedDateTime.parse("2017-03-10T00:00:00Z")));
+    }
+
     @Test
     public void shouldIgnoreNotificationWhenStatusIsToBeIgnored() {
         final List<String> ignoredStatuses = Arrays.asList(
@@ -221,7 +266,7 @@ public class WorldpayNotificationServiceTest {
                     referenceId,
                     status);
 
-            assertTrue(notificationService.handleNotificationFor(ipAddress, payload));
+            assertTrue(notificationService.handleNotificationFor(payload));
 
             verifyNoInteractions(mockChargeNotificationProcessor);
             verifyNoInteractions(mockRefundNotificationProcessor);
@@ -229,30 +274,40 @@ public class WorldpayNotificationServiceTest {
     }
 
     @Test
-    public void ifIpAddressOutsidePermittedRange_returnFalseAndDontProcessNotification() {
-        final String payload = sampleWorldpayNotification(
-                transactionId,
-                referenceId,
-                "CAPTURED",
-                "10",
-                "03",
-                "2017");
+    public void ifIpAddressOutsidePermittedRange_rejectNotificationSource() {
         when(mockWorldpayConfiguration.isNotificationEndpointSecured()).thenReturn(true);
         when(mockWorldpayConfiguration.getNotificationDomain()).thenReturn("worldpay.com");
-        when(mockDnsUtils.ipMatchesDomain(ipAddress, "worldpay.com")).thenReturn(false);
+        when(mockIpDomainVerificationCache.ipMatchesDomain(ipAddress, "worldpay.com")).thenReturn(false);
 
-        final boolean result = notificationService.handleNotificationFor(ipAddress, payload);
+        final boolean result = notificationService.isNotificationFromPermittedSource(ipAddress);
         assertFalse(result);
 
         verifyNoInteractions(mockChargeNotificationProcessor);
         verifyNoInteractions(mockRefundNotificationProcessor);
     }
 
+    @Test
+    public void ifIpAddressInPermittedDomain_acceptNotificationSource() {
+        when(mockWorldpayConfiguration.isNotificationEndpointSecured()).thenReturn(true);
+        when(mockWorldpayConfiguration.getNotificationDomain()).thenReturn("worldpay.com");
+        when(mockIpDomainVerificationCache.ipMatchesDomain(ipAddress, "worldpay.com")).thenReturn(true);
+
+        assertTrue(notificationService.isNotificationFromPermittedSource(ipAddress));
+    }
+
+    @Test
+    public void ifNotificationEndpointNotSecured_acceptNotificationSourceWithoutDnsLookup() {
+        when(mockWorldpayConfiguration.isNotificationEndpointSecured()).thenReturn(false);
+
+        assertTrue(notificationService.isNotificationFromPermittedSource(ipAddress));
+        verifyNoInteractions(mockIpDomainVerificationCache);
+    }
+
     @Test
     public void ifPayloadNotValidXml_shouldIgnoreNotification() {
         String payload = "<not></valid>";
 
-        final boolean result = notificationService.handleNotificationFor(ipAddress, payload);
+        final boolean result = notificationService.handleNotificationFor(payload);
         assertTrue(result);
 
         verifyNoInteractions(mockChargeNotificationProcessor);
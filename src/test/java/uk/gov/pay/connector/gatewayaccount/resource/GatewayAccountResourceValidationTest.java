@@ -10,6 +10,7 @@ import uk.gov.pay.commons.model.ErrorIdentifier;
 import uk.gov.pay.connector.app.ConnectorConfiguration;
 import uk.gov.pay.connector.app.GatewayConfig;
 import uk.gov.pay.connector.app.WorldpayConfig;
+import uk.gov.pay.connector.app.config.SandboxConfig;
 import uk.gov.pay.connector.common.validator.RequestValidator;
 import uk.gov.pay.connector.rules.ResourceTestRuleWithCustomExceptionMappersBuilder;
 
@@ -39,12 +40,13 @@ public class GatewayAccountResourceValidationTest {
         when(mockConnectorConfiguration.getWorldpayConfig()).thenReturn(mockWorldpayConfig);
         when(mockConnectorConfiguration.getSmartpayConfig()).thenReturn(mockGatewayConfig);
         when(mockConnectorConfiguration.getEpdqConfig()).thenReturn(mockGatewayConfig);
+        when(mockConnectorConfiguration.getSandboxConfig()).thenReturn(new SandboxConfig());
     }
 
     @ClassRule
     public static ResourceTestRule resources = ResourceTestRuleWithCustomExceptionMappersBuilder.getBuilder()
             .addResource(new GatewayAccountResource(null, null, null, mockConnectorConfiguration,
-                    null, new GatewayAccountRequestValidator(new RequestValidator()), null))
+                    null, new GatewayAccountRequestValidator(new RequestValidator()), null, null, new ObjectMapper(), null))
             .build();
 
     @Test
@@ -0,0 +1,84 @@
+package uk.gov.pay.connector.gatewayaccount.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.connector.common.dao.AfterCommitActions;
+import uk.gov.pay.connector.gatewayaccount.dao.GatewayAccountDao;
+
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class StripeAccountIdCacheTest {
+
+    private static final String STRIPE_ACCOUNT_ID = "acct_123example123";
+
+    @Mock
+    private GatewayAccountDao gatewayAccountDao;
+
+    @Mock
+    private AfterCommitActions afterCommitActions;
+
+    private StripeAccountIdCache stripeAccountIdCache;
+
+    @Before
+    public void setUp() {
+        lenient().doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(afterCommitActions).run(any(Runnable.class));
+        stripeAccountIdCache = new StripeAccountIdCache(gatewayAccountDao, afterCommitActions);
+    }
+
+    @Test
+    public void shouldLookUpGatewayAccountIdOnce() {
+        when(gatewayAccountDao.findIdByStripeAccountId(STRIPE_ACCOUNT_ID)).thenReturn(Optional.of(1L));
+
+        assertThat(stripeAccountIdCache.getGatewayAccountId(STRIPE_ACCOUNT_ID), is(Optional.of(1L)));
+        assertThat(stripeAccountIdCache.getGatewayAccountId(STRIPE_ACCOUNT_ID), is(Optional.of(1L)));
+
+        verify(gatewayAccountDao, times(1)).findIdByStripeAccountId(STRIPE_ACCOUNT_ID);
+    }
+
+    @Test
+    public void shouldNotRememberUnknownStripeAccount() {
+        when(gatewayAccountDao.findIdByStripeAccountId(STRIPE_ACCOUNT_ID)).thenReturn(Optional.empty(), Optional.of(1L));
+
+        assertThat(stripeAccountIdCache.getGatewayAccountId(STRIPE_ACCOUNT_ID), is(Optional.empty()));
+        assertThat(stripeAccountIdCache.getGatewayAccountId(STRIPE_ACCOUNT_ID), is(Optional.of(1L)));
+    }
+
+    @Test
+    public void shouldLookUpGatewayAccountIdAgainWhenInvalidated() {
+        when(gatewayAccountDao.findIdByStripeAccountId(STRIPE_ACCOUNT_ID)).thenReturn(Optional.of(1L), Optional.of(2L));
+
+        stripeAccountIdCache.getGatewayAccountId(STRIPE_ACCOUNT_ID);
+        stripeAccountIdCache.invalidate(STRIPE_ACCOUNT_ID);
+
+        assertThat(stripeAccountIdCache.getGatewayAccountId(STRIPE_ACCOUNT_ID), is(Optional.of(2L)));
+    }
+
+    @Test
+    public void shouldKeepGatewayAccountIdUntilInvalidationIsCommitted() {
+        when(gatewayAccountDao.findIdByStripeAccountId(STRIPE_ACCOUNT_ID)).thenReturn(Optional.of(1L));
+        doNothing().when(afterCommitActions).run(any(Runnable.class));
+
+        stripeAccountIdCache.getGatewayAccountId(STRIPE_ACCOUNT_ID);
+        stripeAccountIdCache.invalidate(STRIPE_ACCOUNT_ID);
+
+        assertThat(stripeAccountIdCache.getGatewayAccountId(STRIPE_ACCOUNT_ID), is(Optional.of(1L)));
+        verify(gatewayAccountDao, times(1)).findIdByStripeAccountId(STRIPE_ACCOUNT_ID);
+    }
+}
@@ -40,6 +40,7 @@ import uk.gov.pay.connector.gateway.model.response.Gateway3DSAuthorisationRespon
 import uk.gov.pay.connector.gateway.model.response.GatewayRefundResponse;
 import uk.gov.pay.connector.gateway.model.response.GatewayResponse;
 import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
+import uk.gov.pay.connector.metrics.ConnectorMetrics;
 import uk.gov.pay.connector.model.domain.AuthCardDetailsFixture;
 import uk.gov.pay.connector.refund.model.domain.RefundEntity;
 import uk.gov.pay.connector.util.TestClientFactory;
@@ -123,7 +124,7 @@ public class EpdqPaymentProviderTest {
 
         Client client = TestClientFactory.createJerseyClient();
         GatewayClient gatewayClient = new GatewayClient(client,
-                mockMetricRegistry);
+                new ConnectorMetrics(mockMetricRegistry));
 
         when(mockGatewayClientFactory.createGatewayClient(any(PaymentGatewayName.class),
                 any(GatewayOperation.class),
@@ -1,7 +1,6 @@
 package uk.gov.pay.connector.it.contract;
 
 import com.google.common.collect.ImmutableMap;
-import io.dropwizard.setup.Environment;
 import org.apache.commons.lang.math.RandomUtils;
 import org.apache.http.HttpStatus;
 import org.junit.Ignore;
@@ -13,6 +12,7 @@ import uk.gov.pay.connector.gateway.model.OrderRequestType;
 import uk.gov.pay.connector.gateway.util.XMLUnmarshaller;
 import uk.gov.pay.connector.gateway.worldpay.WorldpayOrderStatusResponse;
 import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
+import uk.gov.pay.connector.metrics.ConnectorMetrics;
 import uk.gov.pay.connector.rules.DropwizardAppWithPostgresRule;
 
 import javax.ws.rs.client.ClientBuilder;
@@ -74,7 +74,6 @@ public class GooglePayForWorldpayTest {
     }
 
     private GatewayClient getGatewayClient() {
-        Environment environment = app.getInstanceFromGuiceContainer(Environment.class);
-        return new GatewayClient(ClientBuilder.newClient(), environment.metrics());
+        return new GatewayClient(ClientBuilder.newClient(), app.getInstanceFromGuiceContainer(ConnectorMetrics.class));
     }
 }
@@ -0,0 +1,121 @@
+package uk.gov.pay.connector.it.dao;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.pay.connector.charge.dao.ChargeDao;
+import uk.gov.pay.connector.charge.model.domain.ChargeStatus;
+import uk.gov.pay.connector.events.dao.EmittedEventDao;
+import uk.gov.pay.connector.refund.dao.RefundDao;
+import uk.gov.pay.connector.util.RandomIdGenerator;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static java.time.ZoneOffset.UTC;
+import static org.apache.commons.lang.math.RandomUtils.nextLong;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.CAPTURED;
+import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.CAPTURE_APPROVED;
+import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.CAPTURE_APPROVED_RETRY;
+import static uk.gov.pay.connector.refund.model.domain.RefundStatus.REFUNDED;
+
+/**
+ * Guards the query plans of the background queries (capture backlog reconcile, emitted events sweep and expunging)
+ * against regressions by explaining the SQL the DAOs issue, with its parameters bound. The seeded data set is small,
+ * so sequential scans are disabled to make the planner show which indexes it is able to use rather than which plan
+ * happens to be cheapest for a handful of rows.
+ */
+public class BackgroundQueryPlanIT extends DaoITestBase {
+
+    private static final ZonedDateTime NOW = ZonedDateTime.now(UTC);
+
+    private DatabaseFixtures.TestAccount testAccount;
+
+    @Before
+    public void setUp() {
+        databaseTestHelper.truncateAllData();
+        testAccount = DatabaseFixtures
+                .withDatabaseTestHelper(databaseTestHelper)
+                .aTestAccount()
+                .withAccountId(nextLong())
+                .insert();
+
+        for (int i = 0; i < 200; i++) {
+            insertCharge(i % 20 == 0 ? CAPTURE_APPROVED : CAPTURED);
+            databaseTestHelper.addEmittedEvent("payment", RandomIdGenerator.newId(),
+                    Instant.now().minus(1, ChronoUnit.HOURS), "PAYMENT_CREATED",
+                    i % 10 == 0 ? null : Instant.now(), null);
+            databaseTestHelper.addRefund(RandomIdGenerator.newId(), 100L, REFUNDED, RandomIdGenerator.newId(),
+                    ZonedDateTime.now(UTC).minusDays(i % 30), RandomIdGenerator.newId());
+        }
+        insertCharge(CAPTURE_APPROVED_RETRY);
+    }
+
+    @Test
+    public void findChargesAwaitingCapture_shouldUseAwaitingCapturePartialIndex() {
+        List<String> plan = databaseTestHelper.explainWithoutSequentialScans(ChargeDao.FIND_CHARGES_AWAITING_CAPTURE);
+
+        assertPlanUses(plan, "idx_charges_awaiting_capture");
+    }
+
+    @Test
+    public void findNotEmittedEventMaxIdOlderThan_shouldUseIndexOnlyScan() {
+        List<String> plan = databaseTestHelper.explainWithoutSequentialScans(
+                EmittedEventDao.FIND_NOT_EMITTED_EVENT_MAX_ID_OLDER_THAN, timestamp(NOW), timestamp(NOW));
+
+        assertPlanUses(plan, "Index Only Scan Backward using idx_emitted_events_not_emitted_id");
+    }
+
+    @Test
+    public void findNotEmittedEventsOlderThan_shouldUseNotEmittedPartialIndex() {
+        List<String> plan = databaseTestHelper.explainWithoutSequentialScans(
+                EmittedEventDao.FIND_NOT_EMITTED_EVENTS_OLDER_THAN, 0L, 1000L, timestamp(NOW), timestamp(NOW), 100);
+
+        assertPlanUses(plan, "idx_emitted_events_not_emitted_id");
+    }
+
+    @Test
+    public void findChargeToExpunge_shouldWalkCreatedDateIndexWithParityFilter() {
+        List<String> plan = databaseTestHelper.explainWithoutSequentialScans(
+                ChargeDao.FIND_CHARGE_TO_EXPUNGE, timestamp(NOW.minusDays(7)), timestamp(NOW.minusDays(7)));
+
+        assertPlanUses(plan, "idx_charges_created_date_parity_check_date");
+        assertThat(plan, not(hasItem(containsString("Sort"))));
+    }
+
+    @Test
+    public void findRefundToExpunge_shouldUseBoundedAntiJoin() {
+        List<String> plan = databaseTestHelper.explainWithoutSequentialScans(
+                RefundDao.FIND_REFUND_TO_EXPUNGE, timestamp(NOW.minusDays(7)), timestamp(NOW.minusDays(7)));
+
+        assertPlanUses(plan, "idx_refunds_created_date_parity_check_date");
+        assertPlanUses(plan, "idx_charges_external_id");
+        assertThat(plan, not(hasItem(containsString("Sort"))));
+    }
+
+    private void assertPlanUses(List<String> plan, String expected) {
+        assertThat(String.join("\n", plan), plan, hasItem(containsString(expected)));
+    }
+
+    private static Timestamp timestamp(ZonedDateTime dateTime) {
+        return Timestamp.from(dateTime.toInstant());
+    }
+
+    private void insertCharge(ChargeStatus status) {
+        DatabaseFixtures
+                .withDatabaseTestHelper(databaseTestHelper)
+                .aTestCharge()
+                .withTestAccount(testAccount)
+                .withChargeId(nextLong())
+                .withExternalChargeId(RandomIdGenerator.newId())
+                .withCreatedDate(ZonedDateTime.now(UTC).minusDays(10))
+                .withChargeStatus(status)
+                .insert();
+    }
+}
@@ -10,7 +10,9 @@ import org.junit.rules.ExpectedException;
 import uk.gov.pay.commons.model.Source;
 import uk.gov.pay.commons.model.charge.ExternalMetadata;
 import uk.gov.pay.connector.charge.dao.ChargeDao;
+import uk.gov.pay.connector.charge.model.FrontendChargeVersion;
 import uk.gov.pay.connector.charge.model.ServicePaymentReference;
+import uk.gov.pay.connector.charge.model.domain.ChargeAwaitingCapture;
 import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
 import uk.gov.pay.connector.charge.model.domain.ChargeStatus;
 import uk.gov.pay.connector.charge.model.domain.ParityCheckStatus;
@@ -20,7 +22,6 @@ import uk.gov.pay.connector.util.DateTimeUtils;
 import uk.gov.pay.connector.util.RandomIdGenerator;
 
 import javax.validation.ConstraintViolationException;
-import java.time.Duration;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
@@ -30,6 +31,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 
 import static java.time.ZonedDateTime.now;
 import static junit.framework.TestCase.assertTrue;
@@ -42,6 +44,7 @@ import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasProperty;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertEquals;
@@ -435,6 +438,40 @@ public class ChargeDaoIT extends DaoITestBase {
         assertThat(chargeForAccount.isPresent(), is(false));
     }
 
+    @Test
+    public void findFrontendChargeVersion_shouldChangeWhenTheChargeChanges() {
+        insertTestCharge();
+        String externalId = defaultTestCharge.getExternalChargeId();
+        FrontendChargeVersion before = chargeDao.findFrontendChargeVersion(externalId).get();
+
+        ChargeEntity charge = chargeDao.findByExternalId(externalId).get();
+        charge.setStatus(ENTERING_CARD_DETAILS);
+        chargeDao.merge(charge);
+
+        FrontendChargeVersion after = chargeDao.findFrontendChargeVersion(externalId).get();
+        assertThat(after.toEntityTag(), is(not(before.toEntityTag())));
+        assertThat(chargeDao.findFrontendChargeVersion(externalId).get().toEntityTag(), is(after.toEntityTag()));
+    }
+
+    @Test
+    public void findFrontendChargeVersion_shouldChangeWhenTheAccountsAcceptedCardTypesChange() {
+        insertTestCharge();
+        String externalId = defaultTestCharge.getExternalChargeId();
+        FrontendChargeVersion before = chargeDao.findFrontendChargeVersion(externalId).get();
+
+        databaseTestHelper.addAcceptedCardType(defaultTestAccount.getAccountId(),
+                UUID.fromString(databaseTestHelper.getCardTypeId("visa", "CREDIT")));
+
+        FrontendChargeVersion after = chargeDao.findFrontendChargeVersion(externalId).get();
+        assertThat(after.toEntityTag(), is(not(before.toEntityTag())));
+        assertThat(chargeDao.findFrontendChargeVersion(externalId).get().toEntityTag(), is(after.toEntityTag()));
+    }
+
+    @Test
+    public void findFrontendChargeVersion_shouldNotFindAVersionForAMissingCharge() {
+        assertThat(chargeDao.findFrontendChargeVersion("abcdefg123").isPresent(), is(false));
+    }
+
     @Test
     public void testFindByDate_status_findsValidChargeForStatus() {
         TestCharge charge = DatabaseFixtures
@@ -527,43 +564,47 @@ public class ChargeDaoIT extends DaoITestBase {
     }
 
     @Test
-    public void countChargesForCapture_shouldReturnNumberOfChargesInCaptureApprovedState() {
-        DatabaseFixtures
+    public void findChargesAwaitingCapture_shouldReturnChargesInCaptureApprovedStatesWithWaitingTimes() {
+        ZonedDateTime approvedDate = now(ZoneId.of("UTC")).minusHours(3).truncatedTo(ChronoUnit.SECONDS);
+        ZonedDateTime retryDate = approvedDate.plusHours(1);
+        TestCharge retriedCharge = DatabaseFixtures
                 .withDatabaseTestHelper(databaseTestHelper)
                 .aTestCharge()
                 .withTestAccount(defaultTestAccount)
                 .withChargeId(nextLong())
                 .withExternalChargeId(RandomIdGenerator.newId())
-                .withCreatedDate(now().minusHours(2))
+                .withChargeStatus(CAPTURE_APPROVED_RETRY)
+                .insert();
+        DatabaseFixtures
+                .withDatabaseTestHelper(databaseTestHelper)
+                .aTestChargeEvent()
+                .withChargeId(retriedCharge.getChargeId())
+                .withDate(approvedDate)
                 .withChargeStatus(CAPTURE_APPROVED)
                 .insert();
         DatabaseFixtures
                 .withDatabaseTestHelper(databaseTestHelper)
-                .aTestCharge()
-                .withTestAccount(defaultTestAccount)
-                .withChargeId(nextLong())
-                .withExternalChargeId(RandomIdGenerator.newId())
-                .withCreatedDate(now().minusHours(2))
+                .aTestChargeEvent()
+                .withChargeId(retriedCharge.getChargeId())
+                .withDate(retryDate)
                 .withChargeStatus(CAPTURE_APPROVED_RETRY)
                 .insert();
-        TestCharge charge = DatabaseFixtures
+        DatabaseFixtures
                 .withDatabaseTestHelper(databaseTestHelper)
                 .aTestCharge()
                 .withTestAccount(defaultTestAccount)
                 .withChargeId(nextLong())
                 .withExternalChargeId(RandomIdGenerator.newId())
-                .withCreatedDate(now())
-                .withChargeStatus(CAPTURE_APPROVED_RETRY)
-                .insert();
-        DatabaseFixtures
-                .withDatabaseTestHelper(databaseTestHelper)
-                .aTestChargeEvent()
-                .withChargeId(charge.getChargeId())
-                .withDate(now())
-                .withChargeStatus(CAPTURE_APPROVED_RETRY)
+                .withChargeStatus(CAPTURE_READY)
                 .insert();
 
-        assertThat(chargeDao.countChargesForImmediateCapture(Duration.ofHours(1)), is(2));
+        List<ChargeAwaitingCapture> chargesAwaitingCapture = chargeDao.findChargesAwaitingCapture();
+
+        assertThat(chargesAwaitingCapture, hasSize(1));
+        ChargeAwaitingCapture chargeAwaitingCapture = chargesAwaitingCapture.get(0);
+        assertThat(chargeAwaitingCapture.getExternalId(), is(retriedCharge.getExternalChargeId()));
+        assertThat(chargeAwaitingCapture.getWaitingSince(), is(approvedDate.toInstant()));
+        assertThat(chargeAwaitingCapture.getLastCaptureAttempt(), is(Optional.of(retryDate.toInstant())));
     }
 
     @Test
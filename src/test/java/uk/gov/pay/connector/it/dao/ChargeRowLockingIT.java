@@ -0,0 +1,307 @@
+package uk.gov.pay.connector.it.dao;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.inject.AbstractModule;
+import com.google.inject.Injector;
+import io.dropwizard.setup.Environment;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.pay.connector.charge.dao.ChargeDao;
+import uk.gov.pay.connector.charge.exception.ChargeLockedRuntimeException;
+import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
+import uk.gov.pay.connector.charge.model.domain.ChargeStatus;
+import uk.gov.pay.connector.charge.service.ChargeExpiryLocker;
+import uk.gov.pay.connector.charge.service.ChargeService;
+import uk.gov.pay.connector.charge.service.EpdqAuthorisationErrorChargeCleaner;
+import uk.gov.pay.connector.charge.service.EpdqAuthorisationErrorGatewayCleanupService;
+import uk.gov.pay.connector.common.exception.OperationAlreadyInProgressRuntimeException;
+import uk.gov.pay.connector.gateway.ChargeQueryResponse;
+import uk.gov.pay.connector.gateway.PaymentProviders;
+import uk.gov.pay.connector.gateway.model.response.BaseInquiryResponse;
+import uk.gov.pay.connector.it.dao.DatabaseFixtures.TestCharge;
+import uk.gov.pay.connector.paymentprocessor.service.QueryService;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.apache.commons.lang.math.RandomUtils.nextLong;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_ERROR;
+import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_ERROR_CLEANUP_READY;
+import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_ERROR_REJECTED;
+import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_REJECTED;
+import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_SUCCESS;
+
+/**
+ * Exercises the row locks taken by the background processors through their Guice-created services, so that the
+ * locks are held for exactly the transactions the services open, against a real Postgres.
+ */
+public class ChargeRowLockingIT extends DaoITestBase {
+
+    private static final int CONCURRENT_WORKERS = 8;
+
+    private final QueryService mockQueryService = mock(QueryService.class);
+    private final ChargeService mockChargeService = mock(ChargeService.class);
+    private final BaseInquiryResponse mockInquiryResponse = mock(BaseInquiryResponse.class);
+    private final Environment environment = mock(Environment.class);
+
+    private Jdbi jdbi;
+    private DatabaseFixtures.TestAccount testAccount;
+    private EpdqAuthorisationErrorGatewayCleanupService cleanupService;
+    private EpdqAuthorisationErrorChargeCleaner chargeCleaner;
+    private ChargeExpiryLocker chargeExpiryLocker;
+
+    @Before
+    public void setUp() {
+        jdbi = Jdbi.create(postgres.getConnectionUrl(), postgres.getUsername(), postgres.getPassword());
+        when(environment.metrics()).thenReturn(new MetricRegistry());
+        databaseTestHelper.truncateAllData();
+        testAccount = DatabaseFixtures
+                .withDatabaseTestHelper(databaseTestHelper)
+                .aTestAccount()
+                .withAccountId(nextLong())
+                .withPaymentProvider("epdq")
+                .insert();
+
+        Injector injector = env.createChildInjector(new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(QueryService.class).toInstance(mockQueryService);
+                bind(ChargeService.class).toInstance(mockChargeService);
+                bind(PaymentProviders.class).toInstance(mock(PaymentProviders.class));
+                bind(Environment.class).toInstance(environment);
+            }
+        });
+        cleanupService = injector.getInstance(EpdqAuthorisationErrorGatewayCleanupService.class);
+        chargeCleaner = injector.getInstance(EpdqAuthorisationErrorChargeCleaner.class);
+        chargeExpiryLocker = injector.getInstance(ChargeExpiryLocker.class);
+
+        // the charge service only changes the status of the charge it is given, within the caller's transaction or,
+        // when looking the charge up by its external id, in a transaction of its own
+        ChargeDao chargeDao = env.getInstance(ChargeDao.class);
+        doAnswer(invocation -> {
+            ChargeEntity charge = invocation.getArgument(0);
+            charge.setStatusIgnoringValidTransitions(invocation.getArgument(1));
+            return charge;
+        }).when(mockChargeService).transitionChargeState(any(ChargeEntity.class), any(ChargeStatus.class));
+        doAnswer(invocation -> {
+            EntityManager entityManager = injector.getInstance(EntityManager.class);
+            entityManager.getTransaction().begin();
+            ChargeEntity charge = chargeDao.findByExternalId(invocation.getArgument(0)).orElseThrow();
+            charge.setStatusIgnoringValidTransitions(invocation.getArgument(1));
+            entityManager.getTransaction().commit();
+            return charge;
+        }).when(mockChargeService).transitionChargeState(anyString(), any(ChargeStatus.class));
+        when(mockChargeService.findChargeByExternalId(anyString()))
+                .thenAnswer(invocation -> chargeDao.findByExternalId(invocation.getArgument(0)).orElseThrow());
+        when(mockInquiryResponse.getTransactionId()).thenReturn("order-code");
+    }
+
+    @Test
+    public void epdqChargeCleaner_shouldFailFastWhenChargeIsLockedByAnotherTransaction() throws Exception {
+        TestCharge charge = insertCharge(AUTHORISATION_ERROR);
+
+        try (Handle handle = jdbi.open()) {
+            handle.begin();
+            lockCharge(handle, charge.getExternalChargeId());
+
+            long start = System.nanoTime();
+            try {
+                chargeCleaner.cleanUp(charge.getExternalChargeId());
+                fail("expecting ChargeLockedRuntimeException");
+            } catch (ChargeLockedRuntimeException e) {
+                assertThat(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5, is(true));
+            } finally {
+                handle.rollback();
+            }
+        }
+
+        when(mockQueryService.getChargeGatewayStatus(any())).thenReturn(new ChargeQueryResponse(AUTHORISATION_REJECTED, mockInquiryResponse));
+        assertThat(chargeCleaner.cleanUp(charge.getExternalChargeId()).orElseThrow(), is(true));
+        assertThat(databaseTestHelper.getChargeStatusByExternalId(charge.getExternalChargeId()), is(AUTHORISATION_ERROR_REJECTED.getValue()));
+    }
+
+    @Test
+    public void epdqChargeCleaner_shouldHoldOnlyTheLockingStateWhileQueryingTheGateway() throws Exception {
+        TestCharge charge = insertCharge(AUTHORISATION_ERROR);
+        AtomicBoolean lockableDuringGatewayQuery = new AtomicBoolean();
+        AtomicReference<String> statusDuringGatewayQuery = new AtomicReference<>();
+
+        when(mockQueryService.getChargeGatewayStatus(any())).thenAnswer(invocation -> {
+            lockableDuringGatewayQuery.set(canLockCharge(charge.getExternalChargeId()));
+            statusDuringGatewayQuery.set(databaseTestHelper.getChargeStatusByExternalId(charge.getExternalChargeId()));
+            return new ChargeQueryResponse(AUTHORISATION_REJECTED, mockInquiryResponse);
+        });
+
+        chargeCleaner.cleanUp(charge.getExternalChargeId());
+
+        assertThat(lockableDuringGatewayQuery.get(), is(true));
+        assertThat(statusDuringGatewayQuery.get(), is(AUTHORISATION_ERROR_CLEANUP_READY.getValue()));
+        assertThat(databaseTestHelper.getChargeStatusByExternalId(charge.getExternalChargeId()), is(AUTHORISATION_ERROR_REJECTED.getValue()));
+    }
+
+    @Test
+    public void epdqChargeCleaner_shouldLetExactlyOneOfManyConcurrentWorkersCleanUpTheCharge() throws Exception {
+        TestCharge charge = insertCharge(AUTHORISATION_ERROR);
+
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_WORKERS);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch allAttempted = new CountDownLatch(CONCURRENT_WORKERS);
+        AtomicInteger cleanedUp = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+
+        // keep the charge in its locking state until every worker has tried to take it
+        when(mockQueryService.getChargeGatewayStatus(any())).thenAnswer(invocation -> {
+            allAttempted.countDown();
+            allAttempted.await(30, TimeUnit.SECONDS);
+            return new ChargeQueryResponse(AUTHORISATION_REJECTED, mockInquiryResponse);
+        });
+
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_WORKERS; i++) {
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        chargeCleaner.cleanUp(charge.getExternalChargeId()).ifPresent(success -> cleanedUp.incrementAndGet());
+                    } catch (ChargeLockedRuntimeException | OperationAlreadyInProgressRuntimeException e) {
+                        conflicts.incrementAndGet();
+                        allAttempted.countDown();
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(cleanedUp.get(), is(1));
+        assertThat(conflicts.get(), is(CONCURRENT_WORKERS - 1));
+    }
+
+    @Test
+    public void concurrentEpdqSweepsShouldCleanUpEachChargeExactlyOnce() throws Exception {
+        int numberOfCharges = CONCURRENT_WORKERS * 3;
+        for (int i = 0; i < numberOfCharges; i++) {
+            insertCharge(AUTHORISATION_ERROR);
+        }
+
+        Map<String, AtomicInteger> gatewayQueriesPerCharge = new ConcurrentHashMap<>();
+        when(mockQueryService.getChargeGatewayStatus(any())).thenAnswer(invocation -> {
+            ChargeEntity charge = invocation.getArgument(0);
+            gatewayQueriesPerCharge.computeIfAbsent(charge.getExternalId(), key -> new AtomicInteger()).incrementAndGet();
+            return new ChargeQueryResponse(AUTHORISATION_REJECTED, mockInquiryResponse);
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_WORKERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger cleanedUp = new AtomicInteger();
+
+        try {
+            List<Future<?>> sweeps = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_WORKERS; i++) {
+                sweeps.add(executor.submit(() -> {
+                    start.await();
+                    cleanedUp.addAndGet(cleanupService.sweepAndCleanupAuthorisationErrors(numberOfCharges).get("cleanup-success"));
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> sweep : sweeps) {
+                sweep.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(cleanedUp.get(), is(numberOfCharges));
+        assertThat(gatewayQueriesPerCharge.size(), is(numberOfCharges));
+        assertThat(gatewayQueriesPerCharge.values().stream().map(AtomicInteger::get).collect(Collectors.toList()),
+                everyItem(is(1)));
+    }
+
+    @Test
+    public void chargeExpiryLocker_shouldFailFastWhenChargeIsLockedByAnotherTransaction() {
+        TestCharge charge = insertCharge(AUTHORISATION_SUCCESS);
+
+        try (Handle handle = jdbi.open()) {
+            handle.begin();
+            lockCharge(handle, charge.getExternalChargeId());
+
+            long start = System.nanoTime();
+            try {
+                chargeExpiryLocker.prepareForTermination(charge.getExternalChargeId());
+                fail("expecting ChargeLockedRuntimeException");
+            } catch (ChargeLockedRuntimeException e) {
+                assertThat(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5, is(true));
+            } finally {
+                handle.rollback();
+            }
+        }
+
+        assertThat(chargeExpiryLocker.prepareForTermination(charge.getExternalChargeId()).getExternalId(),
+                is(charge.getExternalChargeId()));
+    }
+
+    private void lockCharge(Handle handle, String externalId) {
+        handle.createQuery("SELECT id FROM charges WHERE external_id = :externalId FOR UPDATE")
+                .bind("externalId", externalId)
+                .mapTo(Long.class)
+                .one();
+    }
+
+    private boolean canLockCharge(String externalId) {
+        try (Handle handle = jdbi.open()) {
+            handle.begin();
+            try {
+                handle.createQuery("SELECT id FROM charges WHERE external_id = :externalId FOR UPDATE NOWAIT")
+                        .bind("externalId", externalId)
+                        .mapTo(Long.class)
+                        .one();
+                return true;
+            } catch (RuntimeException e) {
+                return false;
+            } finally {
+                handle.rollback();
+            }
+        }
+    }
+
+    private TestCharge insertCharge(ChargeStatus status) {
+        return DatabaseFixtures
+                .withDatabaseTestHelper(databaseTestHelper)
+                .aTestCharge()
+                .withTestAccount(testAccount)
+                .withChargeId(nextLong())
+                .withChargeStatus(status)
+                .insert();
+    }
+}
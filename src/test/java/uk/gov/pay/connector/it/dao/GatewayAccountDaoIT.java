@@ -8,7 +8,10 @@ import uk.gov.pay.connector.cardtype.model.domain.CardTypeEntity;
 import uk.gov.pay.connector.common.model.api.CommaDelimitedSetParameter;
 import uk.gov.pay.connector.gatewayaccount.dao.GatewayAccountDao;
 import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
+import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountResourceDTO;
 import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountSearchParams;
+import uk.gov.pay.connector.usernotification.model.domain.EmailNotificationEntity;
+import uk.gov.pay.connector.usernotification.model.domain.EmailNotificationType;
 import uk.gov.pay.connector.usernotification.model.domain.NotificationCredentials;
 
 import java.util.Arrays;
@@ -16,6 +19,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import static java.util.Collections.emptyMap;
 import static org.apache.commons.lang.math.RandomUtils.nextLong;
@@ -33,6 +38,8 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity.Type.LIVE;
 import static uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity.Type.TEST;
+import static uk.gov.pay.connector.usernotification.model.domain.EmailNotificationType.PAYMENT_CONFIRMED;
+import static uk.gov.pay.connector.usernotification.model.domain.EmailNotificationType.REFUND_ISSUED;
 import static uk.gov.pay.connector.util.AddGatewayAccountParams.AddGatewayAccountParamsBuilder.anAddGatewayAccountParams;
 
 public class GatewayAccountDaoIT extends DaoITestBase {
@@ -135,19 +142,15 @@ public class GatewayAccountDaoIT extends DaoITestBase {
     }
 
     @Test
-    public void findByCredentialsKeyValue_shouldFindGatewayAccount() {
-        var credMap = Map.of("some_payment_provider_account_id", "accountid");
+    public void findIdByStripeAccountId_shouldFindStripeGatewayAccountId() {
         databaseTestHelper.addGatewayAccount(anAddGatewayAccountParams()
                 .withAccountId(String.valueOf(gatewayAccountId))
-                .withPaymentGateway("test provider")
-                .withServiceName("service name")
-                .withCredentials(credMap)
+                .withPaymentGateway("stripe")
+                .withCredentials(Map.of("stripe_account_id", "acct_123"))
                 .build());
-        
-        Optional<GatewayAccountEntity> maybeGatewayAccount = gatewayAccountDao.findByCredentialsKeyValue("some_payment_provider_account_id", "accountid");
-        assertThat(maybeGatewayAccount.isPresent(), is(true));
-        Map<String, String> credentialsMap = maybeGatewayAccount.get().getCredentials();
-        assertThat(credentialsMap, hasEntry("some_payment_provider_account_id", "accountid"));
+
+        assertThat(gatewayAccountDao.findIdByStripeAccountId("acct_123"), is(Optional.of(gatewayAccountId)));
+        assertThat(gatewayAccountDao.findIdByStripeAccountId("acct_456"), is(Optional.empty()));
     }
 
     @Test
@@ -342,10 +345,10 @@ public class GatewayAccountDaoIT extends DaoITestBase {
 
         var params = new GatewayAccountSearchParams();
 
-        List<GatewayAccountEntity> gatewayAccounts = gatewayAccountDao.search(params);
+        List<GatewayAccountResourceDTO> gatewayAccounts = gatewayAccountDao.search(params);
         assertThat(gatewayAccounts, hasSize(2));
-        assertThat(gatewayAccounts.get(0).getId(), is(gatewayAccountId_1));
-        assertThat(gatewayAccounts.get(1).getId(), is(gatewayAccountId_2));
+        assertThat(gatewayAccounts.get(0).getAccountId(), is(gatewayAccountId_1));
+        assertThat(gatewayAccounts.get(1).getAccountId(), is(gatewayAccountId_2));
     }
     
     @Test
@@ -366,10 +369,10 @@ public class GatewayAccountDaoIT extends DaoITestBase {
         var params = new GatewayAccountSearchParams();
         params.setAccountIds(new CommaDelimitedSetParameter(gatewayAccountId_1 + "," + gatewayAccountId_2));
 
-        List<GatewayAccountEntity> gatewayAccounts = gatewayAccountDao.search(params);
+        List<GatewayAccountResourceDTO> gatewayAccounts = gatewayAccountDao.search(params);
         assertThat(gatewayAccounts, hasSize(2));
-        assertThat(gatewayAccounts.get(0).getId(), is(gatewayAccountId_1));
-        assertThat(gatewayAccounts.get(1).getId(), is(gatewayAccountId_2));
+        assertThat(gatewayAccounts.get(0).getAccountId(), is(gatewayAccountId_1));
+        assertThat(gatewayAccounts.get(1).getAccountId(), is(gatewayAccountId_2));
     }
 
     @Test
@@ -388,9 +391,9 @@ public class GatewayAccountDaoIT extends DaoITestBase {
         var params = new GatewayAccountSearchParams();
         params.setMotoEnabled("true");
 
-        List<GatewayAccountEntity> gatewayAccounts = gatewayAccountDao.search(params);
+        List<GatewayAccountResourceDTO> gatewayAccounts = gatewayAccountDao.search(params);
         assertThat(gatewayAccounts, hasSize(1));
-        assertThat(gatewayAccounts.get(0).getId(), is(gatewayAccountId_2));
+        assertThat(gatewayAccounts.get(0).getAccountId(), is(gatewayAccountId_2));
     }
 
     @Test
@@ -409,9 +412,9 @@ public class GatewayAccountDaoIT extends DaoITestBase {
         var params = new GatewayAccountSearchParams();
         params.setApplePayEnabled("true");
 
-        List<GatewayAccountEntity> gatewayAccounts = gatewayAccountDao.search(params);
+        List<GatewayAccountResourceDTO> gatewayAccounts = gatewayAccountDao.search(params);
         assertThat(gatewayAccounts, hasSize(1));
-        assertThat(gatewayAccounts.get(0).getId(), is(gatewayAccountId_2));
+        assertThat(gatewayAccounts.get(0).getAccountId(), is(gatewayAccountId_2));
     }
 
     @Test
@@ -430,9 +433,9 @@ public class GatewayAccountDaoIT extends DaoITestBase {
         var params = new GatewayAccountSearchParams();
         params.setGooglePayEnabled("true");
 
-        List<GatewayAccountEntity> gatewayAccounts = gatewayAccountDao.search(params);
+        List<GatewayAccountResourceDTO> gatewayAccounts = gatewayAccountDao.search(params);
         assertThat(gatewayAccounts, hasSize(1));
-        assertThat(gatewayAccounts.get(0).getId(), is(gatewayAccountId_2));
+        assertThat(gatewayAccounts.get(0).getAccountId(), is(gatewayAccountId_2));
     }
 
     @Test
@@ -451,9 +454,9 @@ public class GatewayAccountDaoIT extends DaoITestBase {
         var params = new GatewayAccountSearchParams();
         params.setRequires3ds("true");
 
-        List<GatewayAccountEntity> gatewayAccounts = gatewayAccountDao.search(params);
+        List<GatewayAccountResourceDTO> gatewayAccounts = gatewayAccountDao.search(params);
         assertThat(gatewayAccounts, hasSize(1));
-        assertThat(gatewayAccounts.get(0).getId(), is(gatewayAccountId_2));
+        assertThat(gatewayAccounts.get(0).getAccountId(), is(gatewayAccountId_2));
     }
 
     @Test
@@ -472,9 +475,9 @@ public class GatewayAccountDaoIT extends DaoITestBase {
         var params = new GatewayAccountSearchParams();
         params.setType("live");
 
-        List<GatewayAccountEntity> gatewayAccounts = gatewayAccountDao.search(params);
+        List<GatewayAccountResourceDTO> gatewayAccounts = gatewayAccountDao.search(params);
         assertThat(gatewayAccounts, hasSize(1));
-        assertThat(gatewayAccounts.get(0).getId(), is(gatewayAccountId_2));
+        assertThat(gatewayAccounts.get(0).getAccountId(), is(gatewayAccountId_2));
     }
 
     @Test
@@ -493,9 +496,89 @@ public class GatewayAccountDaoIT extends DaoITestBase {
         var params = new GatewayAccountSearchParams();
         params.setPaymentProvider("stripe");
 
-        List<GatewayAccountEntity> gatewayAccounts = gatewayAccountDao.search(params);
+        List<GatewayAccountResourceDTO> gatewayAccounts = gatewayAccountDao.search(params);
         assertThat(gatewayAccounts, hasSize(1));
-        assertThat(gatewayAccounts.get(0).getId(), is(gatewayAccountId_2));
+        assertThat(gatewayAccounts.get(0).getAccountId(), is(gatewayAccountId_2));
+    }
+
+    @Test
+    public void shouldReturnPageOfAccountsAfterId() {
+        long gatewayAccountId_1 = nextLong();
+        long gatewayAccountId_2 = gatewayAccountId_1 + 1;
+        long gatewayAccountId_3 = gatewayAccountId_2 + 1;
+        long gatewayAccountId_4 = gatewayAccountId_3 + 1;
+        List.of(gatewayAccountId_1, gatewayAccountId_2, gatewayAccountId_3, gatewayAccountId_4)
+                .forEach(id -> databaseTestHelper.addGatewayAccount(anAddGatewayAccountParams()
+                        .withAccountId(String.valueOf(id))
+                        .build()));
+
+        var params = new GatewayAccountSearchParams();
+        params.setPageSize(2);
+        params.setAfterId(gatewayAccountId_1);
+
+        List<GatewayAccountResourceDTO> gatewayAccounts = gatewayAccountDao.search(params);
+        assertThat(gatewayAccounts, hasSize(2));
+        assertThat(gatewayAccounts.get(0).getAccountId(), is(gatewayAccountId_2));
+        assertThat(gatewayAccounts.get(1).getAccountId(), is(gatewayAccountId_3));
+        assertThat(gatewayAccountDao.count(params), is(4L));
+    }
+
+    @Test
+    public void shouldCountAccountsMatchingFilters() {
+        long gatewayAccountId_1 = nextLong();
+        databaseTestHelper.addGatewayAccount(anAddGatewayAccountParams()
+                .withAccountId(String.valueOf(gatewayAccountId_1))
+                .withPaymentGateway("sandbox")
+                .build());
+        long gatewayAccountId_2 = gatewayAccountId_1 + 1;
+        databaseTestHelper.addGatewayAccount(anAddGatewayAccountParams()
+                .withAccountId(String.valueOf(gatewayAccountId_2))
+                .withPaymentGateway("stripe")
+                .build());
+
+        var params = new GatewayAccountSearchParams();
+        params.setPaymentProvider("stripe");
+
+        assertThat(gatewayAccountDao.count(params), is(1L));
+    }
+
+    @Test
+    public void shouldFindEmailNotificationsOfAccounts() {
+        long gatewayAccountId_1 = nextLong();
+        databaseTestHelper.addGatewayAccount(anAddGatewayAccountParams()
+                .withAccountId(String.valueOf(gatewayAccountId_1))
+                .build());
+        long gatewayAccountId_2 = gatewayAccountId_1 + 1;
+        databaseTestHelper.addGatewayAccount(anAddGatewayAccountParams()
+                .withAccountId(String.valueOf(gatewayAccountId_2))
+                .build());
+        databaseTestHelper.addEmailNotification(gatewayAccountId_1, "confirmation template", true, PAYMENT_CONFIRMED);
+        databaseTestHelper.addEmailNotification(gatewayAccountId_1, "refund template", false, REFUND_ISSUED);
+
+        Map<Long, Map<EmailNotificationType, EmailNotificationEntity>> emailNotifications =
+                gatewayAccountDao.findEmailNotificationsByAccountIds(List.of(gatewayAccountId_1, gatewayAccountId_2));
+
+        assertThat(emailNotifications.size(), is(1));
+        assertThat(emailNotifications.get(gatewayAccountId_1).get(PAYMENT_CONFIRMED).getTemplateBody(), is("confirmation template"));
+        assertThat(emailNotifications.get(gatewayAccountId_1).get(PAYMENT_CONFIRMED).isEnabled(), is(true));
+        assertThat(emailNotifications.get(gatewayAccountId_1).get(REFUND_ISSUED).getTemplateBody(), is("refund template"));
+        assertThat(emailNotifications.get(gatewayAccountId_1).get(REFUND_ISSUED).isEnabled(), is(false));
+    }
+
+    @Test
+    public void shouldFindEmailNotificationsOfMoreAccountsThanAStatementCanHaveParameters() {
+        long gatewayAccountId_1 = nextLong();
+        databaseTestHelper.addGatewayAccount(anAddGatewayAccountParams()
+                .withAccountId(String.valueOf(gatewayAccountId_1))
+                .build());
+        databaseTestHelper.addEmailNotification(gatewayAccountId_1, "confirmation template", true, PAYMENT_CONFIRMED);
+        List<Long> accountIds = LongStream.range(1, 40_000).boxed().collect(Collectors.toList());
+        accountIds.add(gatewayAccountId_1);
+
+        Map<Long, Map<EmailNotificationType, EmailNotificationEntity>> emailNotifications =
+                gatewayAccountDao.findEmailNotificationsByAccountIds(accountIds);
+
+        assertThat(emailNotifications.get(gatewayAccountId_1).get(PAYMENT_CONFIRMED).getTemplateBody(), is("confirmation template"));
     }
 
     @Test
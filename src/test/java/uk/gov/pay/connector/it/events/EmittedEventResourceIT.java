@@ -20,6 +20,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+import static javax.ws.rs.core.Response.Status.ACCEPTED;
 import static javax.ws.rs.core.Response.Status.OK;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -54,7 +55,7 @@ public class EmittedEventResourceIT extends ChargingITestBase {
     }
 
     @Test
-    public void shouldSweepEmittedEventsIfDoNotRetryEmitUntilIsNull() {
+    public void shouldSweepEmittedEventsIfDoNotRetryEmitUntilIsNull() throws InterruptedException {
         long chargeId = addCharge();
         databaseTestHelper.addEvent(chargeId, CREATED.toString());
 
@@ -63,7 +64,8 @@ public class EmittedEventResourceIT extends ChargingITestBase {
 
         connectorRestApiClient
                 .postEmittedEventsSweepTask()
-                .statusCode(OK.getStatusCode());
+                .statusCode(ACCEPTED.getStatusCode());
+        waitForSweepToFinish();
 
         assertThat(stateTransitionQueue.size(), is(1));
 
@@ -76,7 +78,7 @@ public class EmittedEventResourceIT extends ChargingITestBase {
     }
 
     @Test
-    public void shouldSweepEmittedEventsIfDoNotRetryEmitUntilValueIsInThePast() {
+    public void shouldSweepEmittedEventsIfDoNotRetryEmitUntilValueIsInThePast() throws InterruptedException {
         long chargeId = addCharge();
         databaseTestHelper.addEvent(chargeId, CREATED.toString());
 
@@ -86,7 +88,8 @@ public class EmittedEventResourceIT extends ChargingITestBase {
 
         connectorRestApiClient
                 .postEmittedEventsSweepTask()
-                .statusCode(OK.getStatusCode());
+                .statusCode(ACCEPTED.getStatusCode());
+        waitForSweepToFinish();
 
         assertThat(stateTransitionQueue.size(), is(1));
 
@@ -100,7 +103,7 @@ public class EmittedEventResourceIT extends ChargingITestBase {
     }
 
     @Test
-    public void shouldNotSweepEmittedEventsIfDoNotRetryEmitUntilValueIsInTheFuture() {
+    public void shouldNotSweepEmittedEventsIfDoNotRetryEmitUntilValueIsInTheFuture() throws InterruptedException {
         long chargeId = addCharge();
         databaseTestHelper.addEvent(chargeId, CREATED.toString());
 
@@ -110,7 +113,8 @@ public class EmittedEventResourceIT extends ChargingITestBase {
 
         connectorRestApiClient
                 .postEmittedEventsSweepTask()
-                .statusCode(OK.getStatusCode());
+                .statusCode(ACCEPTED.getStatusCode());
+        waitForSweepToFinish();
 
         assertThat(stateTransitionQueue.size(), is(0));
 
@@ -120,6 +124,20 @@ public class EmittedEventResourceIT extends ChargingITestBase {
         assertEmittedEvent(emittedEvents.get(0), doNotRetryEmitUntil);
     }
 
+    private void waitForSweepToFinish() throws InterruptedException {
+        for (int attempt = 0; attempt < 50; attempt++) {
+            boolean running = connectorRestApiClient
+                    .getEmittedEventsSweepTask()
+                    .statusCode(OK.getStatusCode())
+                    .extract().path("running");
+            if (!running) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Emitted events sweep did not finish");
+    }
+
     private long addCharge() {
         long chargeId = RandomUtils.nextInt();
         externalChargeId = "charge" + chargeId;
@@ -27,7 +27,10 @@ import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
 import static java.lang.String.format;
+import static org.glassfish.jersey.apache.connector.ApacheClientProperties.CONNECTION_MANAGER;
 import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.hamcrest.core.IsInstanceOf.instanceOf;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
@@ -35,6 +38,7 @@ import static org.junit.Assert.fail;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.when;
 import static uk.gov.pay.connector.gateway.GatewayOperation.AUTHORISE;
+import static uk.gov.pay.connector.gateway.GatewayOperation.CAPTURE;
 import static uk.gov.pay.connector.gateway.PaymentGatewayName.SMARTPAY;
 import static uk.gov.pay.connector.gateway.PaymentGatewayName.WORLDPAY;
 
@@ -212,6 +216,24 @@ public class ClientFactoryIT {
         assertGatewayFailure(request, authOverriddenTimeout);
     }
 
+    @Test
+    public void shouldShareConnectionPoolBetweenOperationsOnSameGateway() {
+        app = startApp("config/client-factory-test-config-with-worldpay-timeout-override.yaml", false);
+
+        when(mockMetricRegistry.register(any(), any())).thenReturn(null);
+
+        ClientFactory clientFactory = new ClientFactory(app.getEnvironment(), app.getConfiguration());
+        Client authoriseClient = clientFactory.createWithDropwizardClient(WORLDPAY, AUTHORISE, mockMetricRegistry);
+        Client captureClient = clientFactory.createWithDropwizardClient(WORLDPAY, CAPTURE, mockMetricRegistry);
+        Client smartpayClient = clientFactory.createWithDropwizardClient(SMARTPAY, AUTHORISE, mockMetricRegistry);
+
+        Object connectionManager = authoriseClient.getConfiguration().getProperty(CONNECTION_MANAGER);
+        assertThat(captureClient.getConfiguration().getProperty(CONNECTION_MANAGER), sameInstance(connectionManager));
+        assertThat(smartpayClient.getConfiguration().getProperty(CONNECTION_MANAGER), not(sameInstance(connectionManager)));
+        assertThat(captureClient.getConfiguration().getProperty(ClientProperties.READ_TIMEOUT),
+                not(authoriseClient.getConfiguration().getProperty(ClientProperties.READ_TIMEOUT)));
+    }
+
     private void assertGatewayFailure(Invocation.Builder request, Long authOverriddenTimeout) {
         long startTime = System.currentTimeMillis();
 
@@ -239,6 +239,43 @@ public class GatewayAccountFrontendResourceIT extends GatewayAccountResourceTest
         assertThat(currentCredentials, is(gatewayAccountPayload.getCredentials()));
     }
 
+    @Test
+    public void updateCredentials_shouldSetAConfiguredSandboxProfileForASandboxAccount() {
+        String accountId = createAGatewayAccountFor("sandbox");
+
+        updateGatewayAccountCredentialsWith(accountId, Map.of("credentials", Map.of("sandbox_profile", "realistic")))
+                .then()
+                .statusCode(200);
+
+        Map<String, String> currentCredentials = databaseTestHelper.getAccountCredentials(Long.valueOf(accountId));
+        assertThat(currentCredentials, is(Map.of("sandbox_profile", "realistic")));
+    }
+
+    @Test
+    public void updateCredentials_shouldNotSetASandboxProfileThatIsNotConfigured() {
+        String accountId = createAGatewayAccountFor("sandbox");
+
+        updateGatewayAccountCredentialsWith(accountId, Map.of("credentials", Map.of("sandbox_profile", "unknown")))
+                .then()
+                .statusCode(400)
+                .body("message", contains("Field [sandbox_profile] must be one of the configured sandbox profiles [degraded, realistic]"));
+    }
+
+    @Test
+    public void updateCredentials_shouldNotSetASandboxProfileForANonSandboxAccount() {
+        String accountId = createAGatewayAccountFor("worldpay");
+
+        Map<String, String> credentialsWithProfile = new HashMap<>(GatewayAccountPayload.createDefault()
+                .withMerchantId("a-merchant-id")
+                .getCredentials());
+        credentialsWithProfile.put("sandbox_profile", "realistic");
+
+        updateGatewayAccountCredentialsWith(accountId, Map.of("credentials", credentialsWithProfile))
+                .then()
+                .statusCode(400)
+                .body("message", contains("Field [sandbox_profile] can only be set for sandbox accounts"));
+    }
+
     @Test
     public void updateCredentials_shouldNotUpdateGatewayAccountCredentialsIfMissingCredentials() {
         String accountId = createAGatewayAccountFor("worldpay");
@@ -19,6 +19,7 @@ import static javax.ws.rs.core.Response.Status.CONFLICT;
 import static javax.ws.rs.core.Response.Status.NOT_FOUND;
 import static javax.ws.rs.core.Response.Status.OK;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
@@ -290,6 +291,32 @@ public class GatewayAccountResourceIT extends GatewayAccountResourceTestBase {
                 .body("accounts[0].gateway_account_id", is(Integer.valueOf(gatewayAccountId1)));
     }
 
+    @Test
+    public void shouldGetPageOfGatewayAccountsWithTotalCountAndNextLink() {
+        String gatewayAccountId1 = createAGatewayAccountFor("sandbox");
+        String gatewayAccountId2 = createAGatewayAccountFor("sandbox");
+        String gatewayAccountId3 = createAGatewayAccountFor("sandbox");
+        String accountIds = gatewayAccountId1 + "," + gatewayAccountId2 + "," + gatewayAccountId3;
+
+        givenSetup()
+                .get("/v1/api/accounts?accountIds=" + accountIds + "&page_size=1&after_id=" + gatewayAccountId1)
+                .then()
+                .statusCode(OK.getStatusCode())
+                .header("X-Total-Count", "3")
+                .header("Link", containsString("after_id=" + gatewayAccountId2))
+                .body("accounts", hasSize(1))
+                .body("accounts[0].gateway_account_id", is(Integer.valueOf(gatewayAccountId2)));
+    }
+
+    @Test
+    public void shouldReturn422ForPageSizeLessThanOne() {
+        givenSetup()
+                .get("/v1/api/accounts?page_size=0")
+                .then()
+                .statusCode(422)
+                .body("message[0]", is("Parameter [page_size] must be at least 1"));
+    }
+
     @Test
     public void shouldReturn422ForMotoEnabledNotBooleanValue() {
         givenSetup()
@@ -1,5 +1,6 @@
 package uk.gov.pay.connector.it.resources;
 
+import io.dropwizard.jackson.Jackson;
 import io.dropwizard.testing.junit.ResourceTestRule;
 import org.junit.After;
 import org.junit.Before;
@@ -9,8 +10,11 @@ import uk.gov.pay.connector.cardtype.dao.CardTypeDao;
 import uk.gov.pay.connector.cardtype.dao.CardTypeEntityBuilder;
 import uk.gov.pay.connector.cardtype.model.domain.CardTypeEntity;
 import uk.gov.pay.connector.cardtype.resource.CardTypesResource;
+import uk.gov.pay.connector.util.ConditionalResponses;
 
 import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -18,6 +22,7 @@ import java.util.Map;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.when;
@@ -25,7 +30,7 @@ import static org.mockito.Mockito.when;
 public class PayersCardTypesResourceITest {
     private static final CardTypeDao mockedDao = mock(CardTypeDao.class);
     @ClassRule
-    public static ResourceTestRule resources = ResourceTestRule.builder().addResource(new CardTypesResource(mockedDao)).build();
+    public static ResourceTestRule resources = ResourceTestRule.builder().addResource(new CardTypesResource(mockedDao, new ConditionalResponses(Jackson.newObjectMapper()))).build();
     private CardTypeEntity cardTypeEntity;
 
     @Before
@@ -50,4 +55,32 @@ public class PayersCardTypesResourceITest {
         CardTypeEntity visaCard = cardTypeEntities.get(0);
         assertThat(visaCard, is(cardTypeEntity));
     }
+
+    @Test
+    public void shouldReturnNotModifiedWhenCardTypesHaveNotChanged() {
+        Response response = resources.target("/v1/api/card-types").request().get();
+        String etag = response.getHeaderString(HttpHeaders.ETAG);
+        assertThat(etag, is(notNullValue()));
+
+        Response conditionalResponse = resources.target("/v1/api/card-types")
+                .request()
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .get();
+
+        assertThat(conditionalResponse.getStatus(), is(304));
+    }
+
+    @Test
+    public void shouldReturnCardTypesWhenTheyHaveChanged() {
+        Response response = resources.target("/v1/api/card-types").request().get();
+        String etag = response.getHeaderString(HttpHeaders.ETAG);
+        when(mockedDao.findAll()).thenReturn(Collections.emptyList());
+
+        Response conditionalResponse = resources.target("/v1/api/card-types")
+                .request()
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .get();
+
+        assertThat(conditionalResponse.getStatus(), is(200));
+    }
 }
@@ -20,6 +20,7 @@ import uk.gov.pay.connector.util.DatabaseTestHelper;
 import uk.gov.pay.connector.util.RestAssuredClient;
 import uk.gov.pay.connector.util.TestTemplateResourceLoader;
 
+import java.time.Instant;
 import java.util.Map;
 
 import static io.restassured.RestAssured.given;
@@ -116,6 +117,23 @@ public class StripeNotificationResourceIT {
         assertFrontendChargeStatusIs(externalChargeId, AUTHORISATION_REJECTED.getValue());
     }
 
+    @Test
+    public void shouldAskStripeToRetryANotificationForAChargeThatIsNot3dsReadyYet() {
+        String transactionId = "transaction-id" + nextInt();
+        String externalChargeId = createNewChargeWith(AUTHORISATION_3DS_REQUIRED, transactionId);
+
+        // created is in whole seconds, so round up to make sure the notification3dsWaitDelay has not already run out
+        long created = Instant.now().getEpochSecond() + 1;
+        String payload = sampleStripeNotification(STRIPE_NOTIFICATION_3DS_SOURCE,
+                transactionId, SOURCE_FAILED)
+                .replace("\"created\": 1543339552", "\"created\": " + created);
+        notifyConnector(payload)
+                .then()
+                .statusCode(409);
+
+        assertFrontendChargeStatusIs(externalChargeId, AUTHORISATION_3DS_REQUIRED.getValue());
+    }
+
     @Test
     public void shouldHandleASourceCanceledNotification() {
         String transactionId = "transaction-id" + nextInt();
@@ -0,0 +1,243 @@
+package uk.gov.pay.connector.loadtest;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.PurgeQueueRequest;
+import io.restassured.response.Response;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.connector.app.ConnectorApp;
+import uk.gov.pay.connector.it.base.ChargingITestBase;
+import uk.gov.pay.connector.junit.ConfigOverride;
+import uk.gov.pay.connector.junit.DropwizardConfig;
+import uk.gov.pay.connector.junit.DropwizardJUnitRunner;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import static io.restassured.RestAssured.given;
+import static io.restassured.http.ContentType.JSON;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static uk.gov.pay.connector.gateway.sandbox.SandboxFaultInjector.SANDBOX_PROFILE_KEY;
+import static uk.gov.pay.connector.util.JsonEncoder.toJson;
+
+/**
+ * Drives the whole charge lifecycle — create, the frontend token and card details steps, authorise and capture —
+ * through the REST API of a locally started connector, against the Postgres and SQS containers of the integration
+ * tests and the sandbox gateway, optionally with one of the configured sandbox latency profiles.
+ * <p>
+ * It records throughput and latency percentiles per endpoint, database activity per request, how fast the capture
+ * queue drains and how many events reach the event queue, writes them to target/load-test-results.json and fails if
+ * anything regressed beyond the tolerance compared with the saved baseline. Run it with
+ * <pre>mvn test -DrunLoadTests [-DloadTest.charges=200] [-DloadTest.concurrency=10]
+ *     [-DloadTest.sandboxProfile=realistic] [-DloadTest.saveBaseline=true]</pre>
+ * The results depend on the machine, so no baseline is committed: see "Load tests" in the README.
+ */
+@RunWith(DropwizardJUnitRunner.class)
+@DropwizardConfig(
+        app = ConnectorApp.class,
+        config = "config/test-it-config.yaml",
+        withDockerSQS = true,
+        configOverrides = {
+                @ConfigOverride(key = "captureProcessConfig.backgroundProcessingEnabled", value = "true"),
+                @ConfigOverride(key = "eventQueue.eventQueueEnabled", value = "true")
+        }
+)
+public class ChargeLifecycleLoadTest extends ChargingITestBase {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChargeLifecycleLoadTest.class);
+
+    private static final int CHARGES = Integer.getInteger("loadTest.charges", 200);
+    private static final int CONCURRENCY = Integer.getInteger("loadTest.concurrency", 10);
+    private static final String SANDBOX_PROFILE = System.getProperty("loadTest.sandboxProfile", "");
+    private static final Path RESULTS = Paths.get(System.getProperty("loadTest.results", "target/load-test-results.json"));
+    private static final Path BASELINE = Paths.get(System.getProperty("loadTest.baseline", "load-test-baseline.json"));
+    private static final double TOLERANCE = Double.parseDouble(System.getProperty("loadTest.tolerance", "0.2"));
+    private static final boolean SAVE_BASELINE = Boolean.getBoolean("loadTest.saveBaseline");
+    private static final long CAPTURE_DRAIN_TIMEOUT_MILLIS = MINUTES.toMillis(10);
+
+    private final LoadTestReport report = new LoadTestReport(CHARGES, CONCURRENCY, SANDBOX_PROFILE);
+
+    public ChargeLifecycleLoadTest() {
+        super("sandbox");
+    }
+
+    @Override
+    @Before
+    public void setUp() {
+        super.setUp();
+        if (!SANDBOX_PROFILE.isBlank()) {
+            Map<String, String> credentialsWithProfile = new HashMap<>(credentials);
+            credentialsWithProfile.put(SANDBOX_PROFILE_KEY, SANDBOX_PROFILE);
+            databaseTestHelper.updateCredentialsFor(Long.parseLong(accountId), toJson(credentialsWithProfile));
+        }
+        AmazonSQS sqsClient = testContext.getInstanceFromGuiceContainer(AmazonSQS.class);
+        sqsClient.purgeQueue(new PurgeQueueRequest(testContext.getEventQueueUrl()));
+    }
+
+    @Test
+    public void chargeLifecycleUnderLoad() throws Exception {
+        long lifecycleStart = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENCY);
+        try {
+            List<Map<String, String>> charges = new ArrayList<>();
+            for (int i = 0; i < CHARGES; i++) {
+                charges.add(new HashMap<>());
+            }
+
+            runPhase(executor, charges, "create_charge", charge -> {
+                Response response = given().port(testContext.getPort())
+                        .contentType(JSON)
+                        .body(toJson(Map.of(
+                                "amount", AMOUNT,
+                                "reference", "load-test",
+                                "description", "Load test charge",
+                                "return_url", RETURN_URL)))
+                        .post("/v1/api/accounts/{accountId}/charges", accountId);
+                if (response.statusCode() == 201) {
+                    charge.put("chargeId", response.path("charge_id"));
+                    charge.put("tokenId", response.path("links.find { it.rel == 'next_url_post' }.params.chargeTokenId"));
+                }
+                return response.statusCode() == 201;
+            });
+
+            runPhase(executor, charges, "get_charge_by_token", charge ->
+                    given().port(testContext.getPort())
+                            .get("/v1/frontend/tokens/{chargeTokenId}/charge", charge.get("tokenId"))
+                            .statusCode() == 200);
+
+            runPhase(executor, charges, "mark_token_used", charge ->
+                    given().port(testContext.getPort())
+                            .post("/v1/frontend/tokens/{chargeTokenId}/used", charge.get("tokenId"))
+                            .statusCode() == 204);
+
+            runPhase(executor, charges, "set_entering_card_details", charge ->
+                    given().port(testContext.getPort())
+                            .contentType(JSON)
+                            .body(toJson(Map.of("new_status", "ENTERING CARD DETAILS")))
+                            .put("/v1/frontend/charges/{chargeId}/status", charge.get("chargeId"))
+                            .statusCode() == 204);
+
+            String cardDetails = authorisationDetailsWithMinimalAddress("4242424242424242", "visa", "CREDIT");
+            runPhase(executor, charges, "authorise", charge -> {
+                Response response = given().port(testContext.getPort())
+                        .contentType(JSON)
+                        .body(cardDetails)
+                        .post("/v1/frontend/charges/{chargeId}/cards", charge.get("chargeId"));
+                return response.statusCode() == 200 && "AUTHORISATION SUCCESS".equals(response.path("status"));
+            });
+
+            long captureRequestsFinished = runPhase(executor, charges, "capture", charge ->
+                    given().port(testContext.getPort())
+                            .post("/v1/frontend/charges/{chargeId}/capture", charge.get("chargeId"))
+                            .statusCode() == 204);
+
+            long captured = waitForCaptureQueueToDrain(charges.stream().filter(charge -> !charge.containsKey("failed")).count());
+            report.captureQueueDrained(captured, System.nanoTime() - captureRequestsFinished);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        report.eventsEmitted(countEventQueueMessages(), CHARGES, System.nanoTime() - lifecycleStart);
+        report.write(RESULTS);
+        LOGGER.info("Load test results written to {}", RESULTS.toAbsolutePath());
+
+        if (SAVE_BASELINE) {
+            Files.copy(RESULTS, BASELINE, REPLACE_EXISTING);
+            LOGGER.info("Load test baseline saved to {}", BASELINE.toAbsolutePath());
+        } else if (Files.exists(BASELINE)) {
+            assertThat("Regressions against " + BASELINE, report.regressionsAgainst(BASELINE, TOLERANCE), empty());
+        } else {
+            LOGGER.info("No load test baseline at {}, run with -DloadTest.saveBaseline=true to save one", BASELINE.toAbsolutePath());
+        }
+    }
+
+    /**
+     * Runs one request per charge that got through the previous phases, CONCURRENCY at a time, and reports it as one
+     * endpoint. A charge whose request fails is left out of the later phases. Returns the {@link System#nanoTime()} at
+     * which the last request finished.
+     */
+    private long runPhase(ExecutorService executor, List<Map<String, String>> charges, String endpoint,
+                          Function<Map<String, String>, Boolean> request) throws Exception {
+        Map<String, Object> databaseActivityBefore = settledDatabaseActivity();
+        Queue<Map<String, String>> failed = new ConcurrentLinkedQueue<>();
+        List<Future<?>> futures = new ArrayList<>();
+
+        long phaseStart = System.nanoTime();
+        for (Map<String, String> charge : charges) {
+            if (charge.containsKey("failed") || (!endpoint.equals("create_charge") && !charge.containsKey("chargeId"))) {
+                continue;
+            }
+            futures.add(executor.submit(() -> {
+                long start = System.nanoTime();
+                boolean successful;
+                try {
+                    successful = request.apply(charge);
+                } catch (RuntimeException e) {
+                    successful = false;
+                }
+                report.record(endpoint, System.nanoTime() - start, successful);
+                if (!successful) {
+                    failed.add(charge);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long phaseEnd = System.nanoTime();
+
+        failed.forEach(charge -> charge.put("failed", endpoint));
+        report.endpointFinished(endpoint, phaseEnd - phaseStart, databaseActivityBefore, settledDatabaseActivity());
+        return phaseEnd;
+    }
+
+    /**
+     * Polls until every charge whose capture was approved has been captured or has given up with a capture error, or
+     * until the drain timeout passes. Returns the number captured.
+     */
+    private long waitForCaptureQueueToDrain(long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + CAPTURE_DRAIN_TIMEOUT_MILLIS;
+        long captured = databaseTestHelper.countChargesWithStatus("CAPTURED");
+        while (captured + databaseTestHelper.countChargesWithStatus("CAPTURE ERROR") < expected) {
+            if (System.currentTimeMillis() >= deadline) {
+                LOGGER.warn("Capture queue not drained after {} minutes, {} of {} charges captured",
+                        MILLISECONDS.toMinutes(CAPTURE_DRAIN_TIMEOUT_MILLIS), captured, expected);
+                break;
+            }
+            Thread.sleep(100);
+            captured = databaseTestHelper.countChargesWithStatus("CAPTURED");
+        }
+        return captured;
+    }
+
+    private long countEventQueueMessages() {
+        AmazonSQS sqsClient = testContext.getInstanceFromGuiceContainer(AmazonSQS.class);
+        return Long.parseLong(sqsClient.getQueueAttributes(testContext.getEventQueueUrl(), List.of("ApproximateNumberOfMessages"))
+                .getAttributes()
+                .getOrDefault("ApproximateNumberOfMessages", "0"));
+    }
+
+    private Map<String, Object> settledDatabaseActivity() throws InterruptedException {
+        Thread.sleep(SECONDS.toMillis(1));
+        return databaseTestHelper.getDatabaseActivity();
+    }
+}
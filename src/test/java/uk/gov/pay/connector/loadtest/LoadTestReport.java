@@ -0,0 +1,140 @@
+package uk.gov.pay.connector.loadtest;
+
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.UniformSnapshot;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.String.format;
+
+/**
+ * Collects what a load test run measured — latencies and throughput per endpoint, database activity per operation,
+ * capture queue drain rate and events emitted — writes it out as JSON and compares it with a saved baseline.
+ */
+class LoadTestReport {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final Map<String, Queue<Long>> latenciesNanos = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> errors = new ConcurrentHashMap<>();
+    private final Map<String, Object> report = new LinkedHashMap<>();
+    private final Map<String, Map<String, Object>> endpoints = new LinkedHashMap<>();
+
+    LoadTestReport(int charges, int concurrency, String sandboxProfile) {
+        report.put("charges", charges);
+        report.put("concurrency", concurrency);
+        report.put("sandbox_profile", sandboxProfile);
+        report.put("endpoints", endpoints);
+    }
+
+    void record(String endpoint, long elapsedNanos, boolean successful) {
+        latenciesNanos.computeIfAbsent(endpoint, key -> new ConcurrentLinkedQueue<>()).add(elapsedNanos);
+        if (!successful) {
+            errors.computeIfAbsent(endpoint, key -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    void endpointFinished(String endpoint, long elapsedNanos, Map<String, Object> databaseActivityBefore,
+                          Map<String, Object> databaseActivityAfter) {
+        Queue<Long> latencies = latenciesNanos.getOrDefault(endpoint, new ConcurrentLinkedQueue<>());
+        Snapshot snapshot = new UniformSnapshot(latencies);
+        int operations = latencies.size();
+
+        Map<String, Object> endpointReport = new LinkedHashMap<>();
+        endpointReport.put("requests", operations);
+        endpointReport.put("errors", errors.getOrDefault(endpoint, new AtomicLong()).get());
+        endpointReport.put("throughput_per_second", perSecond(operations, elapsedNanos));
+        endpointReport.put("p50_ms", millis(snapshot.getMedian()));
+        endpointReport.put("p95_ms", millis(snapshot.get95thPercentile()));
+        endpointReport.put("p99_ms", millis(snapshot.get99thPercentile()));
+        endpointReport.put("max_ms", millis(snapshot.getMax()));
+        for (String counter : databaseActivityAfter.keySet()) {
+            long delta = ((Number) databaseActivityAfter.get(counter)).longValue() - ((Number) databaseActivityBefore.get(counter)).longValue();
+            endpointReport.put(counter + "_per_request", operations == 0 ? 0 : round((double) delta / operations));
+        }
+        endpoints.put(endpoint, endpointReport);
+    }
+
+    void captureQueueDrained(long captured, long elapsedNanos) {
+        report.put("capture_queue", Map.of(
+                "captured", captured,
+                "drain_seconds", round(elapsedNanos / 1e9),
+                "drain_rate_per_second", perSecond(captured, elapsedNanos)));
+    }
+
+    void eventsEmitted(long events, long charges, long elapsedNanos) {
+        report.put("event_queue", Map.of(
+                "events", events,
+                "events_per_charge", charges == 0 ? 0 : round((double) events / charges),
+                "emission_rate_per_second", perSecond(events, elapsedNanos)));
+    }
+
+    void write(Path path) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        OBJECT_MAPPER.writeValue(path.toFile(), report);
+    }
+
+    /**
+     * Lists the endpoints whose throughput dropped, or whose 99th percentile latency grew, by more than the given
+     * fraction compared with the baseline, plus a slower capture queue drain.
+     */
+    List<String> regressionsAgainst(Path baselinePath, double tolerance) throws IOException {
+        JsonNode baseline = OBJECT_MAPPER.readTree(baselinePath.toFile());
+        JsonNode current = OBJECT_MAPPER.valueToTree(report);
+        List<String> regressions = new ArrayList<>();
+
+        baseline.path("endpoints").fields().forEachRemaining(entry -> {
+            JsonNode now = current.path("endpoints").path(entry.getKey());
+            if (now.isMissingNode()) {
+                return;
+            }
+            checkNotLower(regressions, entry.getKey() + " throughput_per_second",
+                    entry.getValue().path("throughput_per_second").asDouble(), now.path("throughput_per_second").asDouble(), tolerance);
+            checkNotHigher(regressions, entry.getKey() + " p99_ms",
+                    entry.getValue().path("p99_ms").asDouble(), now.path("p99_ms").asDouble(), tolerance);
+        });
+        checkNotLower(regressions, "capture_queue drain_rate_per_second",
+                baseline.path("capture_queue").path("drain_rate_per_second").asDouble(),
+                current.path("capture_queue").path("drain_rate_per_second").asDouble(), tolerance);
+
+        return regressions;
+    }
+
+    private static void checkNotLower(List<String> regressions, String measure, double baseline, double now, double tolerance) {
+        if (baseline > 0 && now < baseline * (1 - tolerance)) {
+            regressions.add(format("%s fell from %s to %s", measure, baseline, now));
+        }
+    }
+
+    private static void checkNotHigher(List<String> regressions, String measure, double baseline, double now, double tolerance) {
+        if (baseline > 0 && now > baseline * (1 + tolerance)) {
+            regressions.add(format("%s rose from %s to %s", measure, baseline, now));
+        }
+    }
+
+    private static double perSecond(long count, long elapsedNanos) {
+        return elapsedNanos == 0 ? 0 : round(count / (elapsedNanos / 1e9));
+    }
+
+    private static double millis(double nanos) {
+        return round(nanos / TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
@@ -0,0 +1,138 @@
+package uk.gov.pay.connector.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import io.prometheus.client.CollectorRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.pay.connector.app.config.AuthorisationStageTimingConfig;
+import uk.gov.pay.connector.metrics.prometheus.LatencyHistograms;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static uk.gov.pay.connector.metrics.AuthorisationStage.CHARGE_UPDATE;
+import static uk.gov.pay.connector.metrics.AuthorisationStage.EVENT_OFFER;
+import static uk.gov.pay.connector.metrics.AuthorisationStage.GATEWAY_CALL;
+import static uk.gov.pay.connector.metrics.AuthorisationStage.LOCK_CHARGE;
+import static uk.gov.pay.connector.metrics.AuthorisationStage.PAYLOAD_BUILD;
+
+public class AuthorisationStageTimingsTest {
+
+    private final AtomicLong nanoTime = new AtomicLong();
+    private MetricRegistry metricRegistry;
+    private AuthorisationStageTimings authorisationStageTimings;
+
+    @Before
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        authorisationStageTimings = new AuthorisationStageTimings(new AuthorisationStageTimingConfig(), metricRegistry, nanoTime::get);
+    }
+
+    @Test
+    public void shouldTimeEachStageOfAnAuthorisationPerGateway() {
+        try (AuthorisationStageTimings.Recording recording = authorisationStageTimings.startRecording("charge-id")) {
+            try (StageTiming ignored = AuthorisationStageTimings.time(LOCK_CHARGE)) {
+                advanceMillis(3);
+            }
+            recording.setGatewayName("worldpay");
+            try (StageTiming ignored = AuthorisationStageTimings.time(PAYLOAD_BUILD)) {
+                advanceMillis(1);
+            }
+            try (StageTiming ignored = AuthorisationStageTimings.time(GATEWAY_CALL)) {
+                advanceMillis(200);
+            }
+            advanceMillis(6);
+        }
+
+        assertThat(maxMillis("authorisation-stages.worldpay.lock-charge"), is(3L));
+        assertThat(maxMillis("authorisation-stages.worldpay.payload-build"), is(1L));
+        assertThat(maxMillis("authorisation-stages.worldpay.gateway-call"), is(200L));
+        assertThat(maxMillis("authorisation-stages.worldpay.total"), is(210L));
+        assertThat(maxMillis("authorisation-stages.worldpay.connector-owned"), is(10L));
+        assertThat(metricRegistry.timer("authorisation-stages.worldpay.charge-update").getCount(), is(0L));
+    }
+
+    @Test
+    public void shouldTimeNestedStagesExclusiveOfEachOther() {
+        try (AuthorisationStageTimings.Recording recording = authorisationStageTimings.startRecording("charge-id")) {
+            recording.setGatewayName("sandbox");
+            try (StageTiming ignored = AuthorisationStageTimings.time(CHARGE_UPDATE)) {
+                advanceMillis(5);
+                try (StageTiming offer = AuthorisationStageTimings.time(EVENT_OFFER)) {
+                    advanceMillis(2);
+                }
+                try (StageTiming offer = AuthorisationStageTimings.time(EVENT_OFFER)) {
+                    advanceMillis(4);
+                }
+            }
+        }
+
+        assertThat(maxMillis("authorisation-stages.sandbox.charge-update"), is(5L));
+        assertThat(maxMillis("authorisation-stages.sandbox.event-offer"), is(6L));
+        assertThat(metricRegistry.timer("authorisation-stages.sandbox.event-offer").getCount(), is(1L));
+        assertThat(maxMillis("authorisation-stages.sandbox.total"), is(11L));
+    }
+
+    @Test
+    public void shouldNotTimeStagesOutsideARecording() {
+        try (StageTiming ignored = AuthorisationStageTimings.time(GATEWAY_CALL)) {
+            advanceMillis(200);
+        }
+
+        assertThat(metricRegistry.getNames().isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldStopTimingStagesOnceTheRecordingIsClosed() {
+        authorisationStageTimings.startRecording("charge-id").close();
+
+        try (StageTiming ignored = AuthorisationStageTimings.time(GATEWAY_CALL)) {
+            advanceMillis(200);
+        }
+
+        assertThat(metricRegistry.timer("authorisation-stages.unknown.total").getCount(), is(1L));
+        assertThat(metricRegistry.timer("authorisation-stages.unknown.gateway-call").getCount(), is(0L));
+    }
+
+    @Test
+    public void shouldCountEachStageIntoLatencyBucketsInSeconds() {
+        CollectorRegistry collectorRegistry = new CollectorRegistry();
+        authorisationStageTimings = new AuthorisationStageTimings(new AuthorisationStageTimingConfig(), metricRegistry,
+                nanoTime::get, new LatencyHistograms(collectorRegistry, List.of(100L, 250L)));
+
+        try (AuthorisationStageTimings.Recording recording = authorisationStageTimings.startRecording("charge-id")) {
+            recording.setGatewayName("worldpay");
+            try (StageTiming ignored = AuthorisationStageTimings.time(GATEWAY_CALL)) {
+                advanceMillis(200);
+            }
+            advanceMillis(50);
+        }
+
+        assertThat(stageSample(collectorRegistry, "gateway-call", "_bucket", "0.1"), is(0.0));
+        assertThat(stageSample(collectorRegistry, "gateway-call", "_bucket", "0.25"), is(1.0));
+        assertThat(stageSample(collectorRegistry, "gateway-call", "_sum", null), is(0.2));
+        assertThat(stageSample(collectorRegistry, "total", "_bucket", "+Inf"), is(1.0));
+        assertThat(stageSample(collectorRegistry, "total", "_count", null), is(1.0));
+        assertThat(stageSample(collectorRegistry, "connector-owned", "_sum", null), is(0.05));
+    }
+
+    private void advanceMillis(long millis) {
+        nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private long maxMillis(String timerName) {
+        return TimeUnit.NANOSECONDS.toMillis(metricRegistry.timer(timerName).getSnapshot().getMax());
+    }
+
+    private static Double stageSample(CollectorRegistry collectorRegistry, String stage, String suffix, String upperBound) {
+        String name = "authorisation_stage_duration_seconds" + suffix;
+        if (upperBound == null) {
+            return collectorRegistry.getSampleValue(name, new String[]{"gateway", "stage"}, new String[]{"worldpay", stage});
+        }
+        return collectorRegistry.getSampleValue(name, new String[]{"gateway", "stage", "le"},
+                new String[]{"worldpay", stage, upperBound});
+    }
+}
@@ -0,0 +1,121 @@
+package uk.gov.pay.connector.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import io.prometheus.client.CollectorRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
+import uk.gov.pay.connector.metrics.prometheus.LatencyHistograms;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static uk.gov.pay.connector.gateway.model.OrderRequestType.AUTHORISE;
+import static uk.gov.pay.connector.gateway.model.OrderRequestType.CAPTURE;
+import static uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity.Type.LIVE;
+import static uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity.Type.TEST;
+import static uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntityFixture.aGatewayAccountEntity;
+
+public class ConnectorMetricsTest {
+
+    private MetricRegistry metricRegistry;
+    private ConnectorMetrics connectorMetrics;
+    private GatewayAccountEntity worldpayTestAccount;
+
+    @Before
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        connectorMetrics = new ConnectorMetrics(metricRegistry);
+        worldpayTestAccount = aGatewayAccountEntity().withId(1L).withGatewayName("worldpay").withType(TEST).build();
+    }
+
+    @Test
+    public void shouldNameGatewayMetricsByGatewayAccountTypeAndOrderRequestType() {
+        connectorMetrics.gatewayResponseTime(worldpayTestAccount, AUTHORISE, 120);
+        connectorMetrics.gatewayFailures(worldpayTestAccount, CAPTURE).inc();
+
+        assertThat(metricRegistry.histogram("gateway-operations.worldpay.test.authorise.response_time").getCount(), is(1L));
+        assertThat(metricRegistry.counter("gateway-operations.worldpay.test.capture.failures").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldCountGatewayResponseTimesIntoLatencyBucketsInSeconds() {
+        CollectorRegistry collectorRegistry = new CollectorRegistry();
+        connectorMetrics = new ConnectorMetrics(metricRegistry, null,
+                new LatencyHistograms(collectorRegistry, List.of(100L, 1000L)));
+
+        connectorMetrics.gatewayResponseTime(worldpayTestAccount, AUTHORISE, 80);
+        connectorMetrics.gatewayResponseTime(worldpayTestAccount, AUTHORISE, 120);
+
+        assertThat(responseTimeBucket(collectorRegistry, "0.1"), is(1.0));
+        assertThat(responseTimeBucket(collectorRegistry, "1.0"), is(2.0));
+        assertThat(responseTimeBucket(collectorRegistry, "+Inf"), is(2.0));
+        assertThat(responseTimeSample(collectorRegistry, "_count"), is(2.0));
+        assertThat(responseTimeSample(collectorRegistry, "_sum"), is(0.2));
+        assertThat(metricRegistry.histogram("gateway-operations.worldpay.test.authorise.response_time").getCount(), is(2L));
+    }
+
+    @Test
+    public void shouldNotIncludeGatewayAccountIdInOperationResultOrStateTransitionNames() {
+        GatewayAccountEntity anotherWorldpayTestAccount = aGatewayAccountEntity().withId(2L).withGatewayName("worldpay").withType(TEST).build();
+
+        connectorMetrics.operationResult(worldpayTestAccount, "capture", "CAPTURE SUBMITTED");
+        connectorMetrics.operationResult(anotherWorldpayTestAccount, "capture", "CAPTURE SUBMITTED");
+        connectorMetrics.stateTransition(worldpayTestAccount, "AUTHORISATION SUCCESS");
+        connectorMetrics.stateTransition(anotherWorldpayTestAccount, "AUTHORISATION SUCCESS");
+
+        assertThat(metricRegistry.counter("gateway-operations.worldpay.test.capture.result.CAPTURE SUBMITTED").getCount(), is(2L));
+        assertThat(metricRegistry.counter("state-transition.test.worldpay.to.AUTHORISATION SUCCESS").getCount(), is(2L));
+        assertThat(metricRegistry.meter("state-transition.test.worldpay.to.AUTHORISATION SUCCESS.rate").getCount(), is(2L));
+        assertThat(metricRegistry.getNames().size(), is(3));
+    }
+
+    @Test
+    public void shouldRecordResponseTimesForTheSameGatewayAccountTypeAndOperationTogether() {
+        GatewayAccountEntity worldpayLiveAccount = aGatewayAccountEntity().withGatewayName("worldpay").withType(LIVE).build();
+
+        connectorMetrics.gatewayResponseTime(worldpayTestAccount, AUTHORISE, 120);
+        connectorMetrics.gatewayResponseTime(worldpayTestAccount, AUTHORISE, 130);
+        connectorMetrics.gatewayResponseTime(worldpayLiveAccount, AUTHORISE, 140);
+
+        assertThat(metricRegistry.histogram("gateway-operations.worldpay.test.authorise.response_time").getCount(), is(2L));
+        assertThat(metricRegistry.histogram("gateway-operations.worldpay.live.authorise.response_time").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldRecordGatewayAccountActivityWhenAReporterIsGiven() {
+        GatewayAccountActivityReporter activityReporter = mock(GatewayAccountActivityReporter.class);
+        connectorMetrics = new ConnectorMetrics(metricRegistry, activityReporter);
+
+        connectorMetrics.operationResult(worldpayTestAccount, "authorise", "AUTHORISATION SUCCESS");
+        connectorMetrics.gatewayResponseTime(worldpayTestAccount, AUTHORISE, 120);
+
+        verify(activityReporter).record(1L);
+    }
+
+    @Test
+    public void shouldNotRecordGatewayAccountActivityForGatewayCallTimings() {
+        GatewayAccountActivityReporter activityReporter = mock(GatewayAccountActivityReporter.class);
+        connectorMetrics = new ConnectorMetrics(metricRegistry, activityReporter);
+
+        connectorMetrics.gatewayFailures(worldpayTestAccount, AUTHORISE).inc();
+
+        verifyNoInteractions(activityReporter);
+    }
+
+    private static Double responseTimeBucket(CollectorRegistry collectorRegistry, String upperBound) {
+        return collectorRegistry.getSampleValue("gateway_operation_duration_seconds_bucket",
+                new String[]{"gateway", "account_type", "operation", "le"},
+                new String[]{"worldpay", "test", "authorise", upperBound});
+    }
+
+    private static Double responseTimeSample(CollectorRegistry collectorRegistry, String suffix) {
+        return collectorRegistry.getSampleValue("gateway_operation_duration_seconds" + suffix,
+                new String[]{"gateway", "account_type", "operation"},
+                new String[]{"worldpay", "test", "authorise"});
+    }
+}
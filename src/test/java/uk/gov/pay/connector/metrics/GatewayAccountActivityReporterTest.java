@@ -0,0 +1,121 @@
+package uk.gov.pay.connector.metrics;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.pay.connector.app.config.GatewayAccountActivityConfig;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class GatewayAccountActivityReporterTest {
+
+    private GatewayAccountActivityConfig config;
+    private ScheduledExecutorService executorService;
+    private MetricRegistry metricRegistry;
+
+    @Before
+    public void setUp() {
+        config = mock(GatewayAccountActivityConfig.class);
+        when(config.isEnabled()).thenReturn(true);
+        when(config.getTopAccounts()).thenReturn(2);
+        when(config.getMaximumTrackedAccounts()).thenReturn(3);
+        when(config.getReportingIntervalInSeconds()).thenReturn(60);
+        executorService = mock(ScheduledExecutorService.class);
+        metricRegistry = new MetricRegistry();
+    }
+
+    @Test
+    public void shouldPublishOnlyTheBusiestAccountsAsRankedGauges() {
+        GatewayAccountActivityReporter reporter = new GatewayAccountActivityReporter(config, executorService, metricRegistry);
+        record(reporter, 1L, 2);
+        record(reporter, 2L, 5);
+        record(reporter, 3L, 3);
+
+        reporter.report();
+
+        assertThat(gauge("gateway-account-activity.top.1.gateway-account-id"), is(2L));
+        assertThat(gauge("gateway-account-activity.top.1.operations"), is(5L));
+        assertThat(gauge("gateway-account-activity.top.2.gateway-account-id"), is(3L));
+        assertThat(gauge("gateway-account-activity.top.2.operations"), is(3L));
+        assertThat(metricRegistry.getGauges().size(), is(5));
+    }
+
+    @Test
+    public void shouldCountOperationsForAccountsBeyondTheTrackingLimitAsUntracked() {
+        GatewayAccountActivityReporter reporter = new GatewayAccountActivityReporter(config, executorService, metricRegistry);
+        LongStream.rangeClosed(1, 5).forEach(reporter::record);
+        reporter.record(1L);
+
+        reporter.report();
+
+        assertThat(gauge("gateway-account-activity.untracked-operations"), is(2L));
+        assertThat(gauge("gateway-account-activity.top.1.gateway-account-id"), is(1L));
+        assertThat(gauge("gateway-account-activity.top.1.operations"), is(2L));
+    }
+
+    @Test
+    public void shouldStartEachReportingIntervalAfresh() {
+        GatewayAccountActivityReporter reporter = new GatewayAccountActivityReporter(config, executorService, metricRegistry);
+        record(reporter, 1L, 4);
+        reporter.report();
+
+        reporter.report();
+
+        assertThat(reporter.getTopAccounts(), is(empty()));
+        assertThat(gauge("gateway-account-activity.top.1.operations"), is(0L));
+    }
+
+    @Test
+    public void shouldNotCountOrRegisterGaugesWhenDisabled() {
+        when(config.isEnabled()).thenReturn(false);
+        GatewayAccountActivityReporter reporter = new GatewayAccountActivityReporter(config, executorService, metricRegistry);
+        record(reporter, 1L, 4);
+
+        reporter.start();
+        reporter.report();
+
+        assertThat(reporter.getTopAccounts(), is(empty()));
+        assertThat(metricRegistry.getNames(), is(empty()));
+        verify(executorService, never()).scheduleAtFixedRate(any(Runnable.class), anyLong(), anyLong(), any(TimeUnit.class));
+    }
+
+    @Test
+    public void shouldScheduleReportsEveryReportingIntervalWhenEnabled() {
+        GatewayAccountActivityReporter reporter = new GatewayAccountActivityReporter(config, executorService, metricRegistry);
+
+        reporter.start();
+
+        verify(executorService).scheduleAtFixedRate(any(Runnable.class), anyLong(), anyLong(), any(TimeUnit.class));
+        assertThat(metricRegistry.getNames(), contains(
+                "gateway-account-activity.top.1.gateway-account-id",
+                "gateway-account-activity.top.1.operations",
+                "gateway-account-activity.top.2.gateway-account-id",
+                "gateway-account-activity.top.2.operations",
+                "gateway-account-activity.untracked-operations"));
+    }
+
+    private static void record(GatewayAccountActivityReporter reporter, long gatewayAccountId, int operations) {
+        for (int i = 0; i < operations; i++) {
+            reporter.record(gatewayAccountId);
+        }
+    }
+
+    private long gauge(String name) {
+        Gauge<?> gauge = metricRegistry.getGauges().get(name);
+        return (Long) gauge.getValue();
+    }
+}
@@ -0,0 +1,77 @@
+package uk.gov.pay.connector.metrics.prometheus;
+
+import com.codahale.metrics.MetricRegistry;
+import io.prometheus.client.Collector.MetricFamilySamples.Sample;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.dropwizard.DropwizardExports;
+import io.prometheus.client.dropwizard.samplebuilder.CustomMappingSampleBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.pay.connector.app.config.PrometheusConfig;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class DropwizardExportsMappingTest {
+
+    private MetricRegistry metricRegistry;
+    private CollectorRegistry collectorRegistry;
+
+    @Before
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        collectorRegistry = new CollectorRegistry();
+        collectorRegistry.register(new DropwizardExports(metricRegistry,
+                new CustomMappingSampleBuilder(new PrometheusConfig().getMappings())));
+    }
+
+    @Test
+    public void shouldExportGatewayOperationMetricsWithLabels() {
+        metricRegistry.counter("gateway-operations.worldpay.test.authorise-3ds.result.AUTHORISATION SUCCESS").inc(2);
+        metricRegistry.counter("gateway-operations.epdq.live.capture.failures").inc();
+
+        assertThat(sampleValue("gateway_operation_results", Map.of("gateway", "worldpay", "account_type", "test",
+                "operation", "authorise-3ds", "outcome", "AUTHORISATION SUCCESS")), is(Optional.of(2.0)));
+        assertThat(sampleValue("gateway_operation_failures", Map.of("gateway", "epdq", "account_type", "live",
+                "operation", "capture")), is(Optional.of(1.0)));
+    }
+
+    @Test
+    public void shouldExportStateTransitionCountsAndRatesUnderSeparateNames() {
+        metricRegistry.counter("state-transition.test.sandbox.to.CAPTURED").inc(3);
+        metricRegistry.meter("state-transition.test.sandbox.to.CAPTURED.rate").mark(3);
+
+        Map<String, String> labels = Map.of("account_type", "test", "gateway", "sandbox", "status", "CAPTURED");
+        assertThat(sampleValue("state_transitions", labels), is(Optional.of(3.0)));
+        assertThat(sampleValue("state_transition_events_total", labels), is(Optional.of(3.0)));
+    }
+
+    @Test
+    public void shouldExportMetricsNoMappingMatchesUnderTheirSanitisedName() {
+        metricRegistry.counter("gateway-operations.capture.row-lock-conflicts").inc();
+
+        assertThat(sampleValue("gateway_operations_capture_row_lock_conflicts", Collections.emptyMap()),
+                is(Optional.of(1.0)));
+    }
+
+    private Optional<Double> sampleValue(String name, Map<String, String> labels) {
+        return Collections.list(collectorRegistry.metricFamilySamples()).stream()
+                .flatMap(family -> family.samples.stream())
+                .filter(sample -> sample.name.equals(name) && labelsOf(sample).equals(labels))
+                .map(sample -> sample.value)
+                .findFirst();
+    }
+
+    private static Map<String, String> labelsOf(Sample sample) {
+        Map<String, String> labels = new HashMap<>();
+        for (int i = 0; i < sample.labelNames.size(); i++) {
+            labels.put(sample.labelNames.get(i), sample.labelValues.get(i));
+        }
+        return labels;
+    }
+}
@@ -1,7 +1,7 @@
 package uk.gov.pay.connector.paymentprocessor.service;
 
 import com.codahale.metrics.Counter;
-import io.dropwizard.setup.Environment;
+import com.codahale.metrics.MetricRegistry;
 import org.apache.commons.lang3.tuple.Pair;
 import org.junit.Before;
 import org.junit.Test;
@@ -10,15 +10,17 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.config.AuthorisationStageTimingConfig;
 import uk.gov.pay.connector.cardtype.model.domain.CardType;
 import uk.gov.pay.connector.cardtype.model.domain.CardTypeEntity;
+import uk.gov.pay.connector.charge.CaptureBacklogTracker;
 import uk.gov.pay.connector.charge.exception.ChargeNotFoundRuntimeException;
 import uk.gov.pay.connector.charge.model.CardDetailsEntity;
 import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
 import uk.gov.pay.connector.charge.model.domain.ChargeEntityFixture;
 import uk.gov.pay.connector.charge.model.domain.ChargeStatus;
 import uk.gov.pay.connector.charge.service.ChargeService;
-import uk.gov.pay.connector.client.ledger.service.LedgerService;
+import uk.gov.pay.connector.charge.service.LedgerChargeLookup;
 import uk.gov.pay.connector.common.exception.IllegalStateRuntimeException;
 import uk.gov.pay.connector.common.exception.OperationAlreadyInProgressRuntimeException;
 import uk.gov.pay.connector.common.model.api.ErrorResponse;
@@ -40,6 +42,8 @@ import uk.gov.pay.connector.gateway.worldpay.Worldpay3dsFlexRequiredParams;
 import uk.gov.pay.connector.gateway.worldpay.Worldpay3dsRequiredParams;
 import uk.gov.pay.connector.gateway.worldpay.WorldpayOrderStatusResponse;
 import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
+import uk.gov.pay.connector.metrics.AuthorisationStageTimings;
+import uk.gov.pay.connector.metrics.ConnectorMetrics;
 import uk.gov.pay.connector.model.domain.AddressFixture;
 import uk.gov.pay.connector.model.domain.AuthCardDetailsFixture;
 import uk.gov.pay.connector.northamericaregion.NorthAmericanRegionMapper;
@@ -96,9 +100,6 @@ public class CardAuthoriseServiceTest extends CardServiceTest {
     @Mock
     private CardExecutorService mockExecutorService;
 
-    @Mock
-    private Environment mockEnvironment;
-
     @Mock
     private Counter mockCounter;
 
@@ -106,7 +107,7 @@ public class CardAuthoriseServiceTest extends CardServiceTest {
     private StateTransitionService stateTransitionService;
 
     @Mock
-    private LedgerService ledgerService;
+    private LedgerChargeLookup ledgerChargeLookup;
 
     @Mock
     private EventQueue eventQueue;
@@ -122,23 +123,28 @@ public class CardAuthoriseServiceTest extends CardServiceTest {
 
     private CardAuthoriseService cardAuthorisationService;
 
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    private AuthorisationStageTimings authorisationStageTimings;
+
     @Before
     public void setUpCardAuthorisationService() {
         when(mockMetricRegistry.counter(anyString())).thenReturn(mockCounter);
-        when(mockEnvironment.metrics()).thenReturn(mockMetricRegistry);
 
         ConnectorConfiguration mockConfiguration = mock(ConnectorConfiguration.class);
         ChargeService chargeService = new ChargeService(null, mockedChargeDao, mockedChargeEventDao,
                 null, null, mockConfiguration, null,
-                stateTransitionService, ledgerService, mockRefundService, mockEventService, mockNorthAmericanRegionMapper);
+                stateTransitionService, ledgerChargeLookup, mockRefundService, mockEventService, mockNorthAmericanRegionMapper,
+                mock(CaptureBacklogTracker.class));
 
-        CardAuthoriseBaseService cardAuthoriseBaseService = new CardAuthoriseBaseService(mockExecutorService, mockEnvironment);
+        CardAuthoriseBaseService cardAuthoriseBaseService = new CardAuthoriseBaseService(mockExecutorService, new ConnectorMetrics(mockMetricRegistry));
+        authorisationStageTimings = new AuthorisationStageTimings(new AuthorisationStageTimingConfig(), metricRegistry);
         cardAuthorisationService = new CardAuthoriseService(
                 mockedCardTypeDao,
                 mockedProviders,
                 cardAuthoriseBaseService,
                 chargeService,
-                mockEnvironment);
+                authorisationStageTimings);
     }
 
     @Before
@@ -187,6 +193,21 @@ public class CardAuthoriseServiceTest extends CardServiceTest {
         assertThat(eventCaptor.getValue().getEventType(), is("PAYMENT_DETAILS_ENTERED"));
     }
 
+    @Test
+    public void doAuthorise_shouldRecordTimingsForTheAuthorisationStages() throws Exception {
+        providerWillAuthorise();
+        AuthCardDetails authCardDetails = AuthCardDetailsFixture.anAuthCardDetails().build();
+
+        cardAuthorisationService.doAuthorise(charge.getExternalId(), authCardDetails);
+
+        String prefix = "authorisation-stages." + charge.getPaymentGatewayName().getName();
+        assertThat(metricRegistry.timer(prefix + ".lock-charge").getCount(), is(1L));
+        assertThat(metricRegistry.timer(prefix + ".3ds-brand-check").getCount(), is(1L));
+        assertThat(metricRegistry.timer(prefix + ".charge-update").getCount(), is(1L));
+        assertThat(metricRegistry.timer(prefix + ".total").getCount(), is(1L));
+        assertThat(metricRegistry.timer(prefix + ".connector-owned").getCount(), is(1L));
+    }
+
     @Test
     public void doAuthoriseWithNonCorporateCard_shouldRespondAuthorisationSuccess() throws Exception {
 
@@ -6,7 +6,6 @@ import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.classic.spi.LoggingEvent;
 import ch.qos.logback.core.Appender;
 import com.codahale.metrics.Counter;
-import io.dropwizard.setup.Environment;
 import org.hamcrest.Description;
 import org.hamcrest.TypeSafeMatcher;
 import org.junit.Before;
@@ -23,11 +22,13 @@ import org.mockito.internal.hamcrest.HamcrestArgumentMatcher;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.slf4j.LoggerFactory;
 import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.charge.CaptureBacklogTracker;
 import uk.gov.pay.connector.charge.exception.ChargeNotFoundRuntimeException;
+import uk.gov.pay.connector.charge.exception.ChargeLockedRuntimeException;
 import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
 import uk.gov.pay.connector.charge.model.domain.ChargeStatus;
 import uk.gov.pay.connector.charge.service.ChargeService;
-import uk.gov.pay.connector.client.ledger.service.LedgerService;
+import uk.gov.pay.connector.charge.service.LedgerChargeLookup;
 import uk.gov.pay.connector.common.exception.ConflictRuntimeException;
 import uk.gov.pay.connector.common.exception.IllegalStateRuntimeException;
 import uk.gov.pay.connector.common.exception.OperationAlreadyInProgressRuntimeException;
@@ -36,6 +37,7 @@ import uk.gov.pay.connector.fee.dao.FeeDao;
 import uk.gov.pay.connector.gateway.CaptureResponse;
 import uk.gov.pay.connector.gateway.model.request.CaptureGatewayRequest;
 import uk.gov.pay.connector.gateway.model.response.BaseCaptureResponse;
+import uk.gov.pay.connector.metrics.ConnectorMetrics;
 import uk.gov.pay.connector.northamericaregion.NorthAmericanRegionMapper;
 import uk.gov.pay.connector.queue.QueueException;
 import uk.gov.pay.connector.queue.capture.CaptureQueue;
@@ -93,6 +95,7 @@ public class CardCaptureServiceTest extends CardServiceTest {
     @Mock
     private UserNotificationService mockUserNotificationService;
     private CardCaptureService cardCaptureService;
+    private ConnectorMetrics connectorMetrics;
     @Mock
     private FeeDao feeDao;
     @Mock
@@ -101,14 +104,12 @@ public class CardCaptureServiceTest extends CardServiceTest {
     private CaptureQueue mockCaptureQueue;
     @Mock
     private ConnectorConfiguration mockConfiguration;
-    @Mock
-    private Environment mockEnvironment;
     @Captor
     ArgumentCaptor<LoggingEvent> loggingEventArgumentCaptor;
     @Mock
     private StateTransitionService mockStateTransitionService;
     @Mock
-    private LedgerService ledgerService;
+    private LedgerChargeLookup ledgerChargeLookup;
     @Mock
     private EventService mockEventService;
     @Mock 
@@ -119,14 +120,14 @@ public class CardCaptureServiceTest extends CardServiceTest {
     @Before
     public void beforeTest() {
         Counter mockCounter = mock(Counter.class);
-        when(mockEnvironment.metrics()).thenReturn(mockMetricRegistry);
         when(mockMetricRegistry.counter(anyString())).thenReturn(mockCounter);
 
         chargeService = new ChargeService(null, mockedChargeDao, mockedChargeEventDao,
                 null, null, mockConfiguration, null,
-                mockStateTransitionService, ledgerService, mockedRefundService, mockEventService, mockNorthAmericanRegionMapper);
+                mockStateTransitionService, ledgerChargeLookup, mockedRefundService, mockEventService, mockNorthAmericanRegionMapper, mock(CaptureBacklogTracker.class));
 
-        cardCaptureService = new CardCaptureService(chargeService, feeDao, mockedProviders, mockUserNotificationService, mockEnvironment,
+        connectorMetrics = new ConnectorMetrics(mockMetricRegistry);
+        cardCaptureService = new CardCaptureService(chargeService, feeDao, mockedProviders, mockUserNotificationService, connectorMetrics,
                 mockCaptureQueue);
 
         Logger root = (Logger) LoggerFactory.getLogger(CardCaptureService.class);
@@ -229,6 +230,8 @@ public class CardCaptureServiceTest extends CardServiceTest {
 
 
     private void mockChargeDaoOperations(ChargeEntity charge) {
+        when(mockedChargeDao.findByExternalIdForUpdate(charge.getExternalId()))
+                .thenReturn(Optional.of(charge));
         when(mockedChargeDao.findByExternalId(charge.getExternalId()))
                 .thenReturn(Optional.of(charge));
     }
@@ -236,7 +239,7 @@ public class CardCaptureServiceTest extends CardServiceTest {
     @Test(expected = ChargeNotFoundRuntimeException.class)
     public void doCapture_shouldGetAChargeNotFound_whenChargeDoesNotExist() {
         String chargeId = "jgk3erq5sv2i4cds6qqa9f1a8a";
-        when(mockedChargeDao.findByExternalId(chargeId))
+        when(mockedChargeDao.findByExternalIdForUpdate(chargeId))
                 .thenReturn(Optional.empty());
         cardCaptureService.doCapture(chargeId);
         // verify an email notification is not sent when an unsuccessful capture
@@ -247,7 +250,7 @@ public class CardCaptureServiceTest extends CardServiceTest {
     public void doCapture_shouldGetAOperationAlreadyInProgress_whenStatusIsCaptureReady() {
         Long chargeId = 1234L;
         ChargeEntity charge = createNewChargeWith(chargeId, ChargeStatus.CAPTURE_READY);
-        when(mockedChargeDao.findByExternalId(charge.getExternalId()))
+        when(mockedChargeDao.findByExternalIdForUpdate(charge.getExternalId()))
                 .thenReturn(Optional.of(charge));
         exception.expect(OperationAlreadyInProgressRuntimeException.class);
         cardCaptureService.doCapture(charge.getExternalId());
@@ -260,7 +263,7 @@ public class CardCaptureServiceTest extends CardServiceTest {
     public void doCapture_shouldGetAnIllegalError_whenChargeHasInvalidStatus() {
         Long chargeId = 1234L;
         ChargeEntity charge = createNewChargeWith(chargeId, ChargeStatus.ENTERING_CARD_DETAILS);
-        when(mockedChargeDao.findByExternalId(charge.getExternalId()))
+        when(mockedChargeDao.findByExternalIdForUpdate(charge.getExternalId()))
                 .thenReturn(Optional.of(charge));
 
         exception.expect(IllegalStateRuntimeException.class);
@@ -283,7 +286,7 @@ public class CardCaptureServiceTest extends CardServiceTest {
          * will be in place since there are not evidence (through any test or current logging)
          * that is in reality a subject of a real scenario.
          */
-        when(mockedChargeDao.findByExternalId(charge.getExternalId()))
+        when(mockedChargeDao.findByExternalIdForUpdate(charge.getExternalId()))
                 .thenThrow(new OptimisticLockException());
         exception.expect(ConflictRuntimeException.class);
         cardCaptureService.doCapture(charge.getExternalId());
@@ -292,6 +295,26 @@ public class CardCaptureServiceTest extends CardServiceTest {
         verifyNoInteractions(mockUserNotificationService);
     }
 
+    @Test
+    public void doCapture_shouldCountRowLockConflict_whenChargeIsLockedByAnotherOperation() {
+        Counter mockConflictCounter = mock(Counter.class);
+        when(mockMetricRegistry.counter("gateway-operations.capture.row-lock-conflicts")).thenReturn(mockConflictCounter);
+        String chargeId = "jgk3erq5sv2i4cds6qqa9f1a8a";
+        when(mockedChargeDao.findByExternalIdForUpdate(chargeId))
+                .thenThrow(new ChargeLockedRuntimeException(chargeId));
+
+        try {
+            cardCaptureService.doCapture(chargeId);
+            fail("expecting ChargeLockedRuntimeException");
+        } catch (ChargeLockedRuntimeException e) {
+            // ignore
+        }
+
+        verify(mockConflictCounter).inc();
+        verifyNoInteractions(mockedProviders);
+        verifyNoInteractions(mockedChargeEventDao);
+    }
+
     @Test
     public void doCapture_shouldSetChargeStatusToCaptureApprovedRetryOnError_whenProviderReturnsErrorResponse() {
         String gatewayTxId = "theTxId";
@@ -479,7 +502,7 @@ public class CardCaptureServiceTest extends CardServiceTest {
         doThrow(new QueueException()).when(mockCaptureQueue).sendForCapture(any());
 
         CardCaptureService cardCaptureService = new CardCaptureService(chargeService, feeDao, mockedProviders, mockUserNotificationService,
-                mockEnvironment, mockCaptureQueue
+                connectorMetrics, mockCaptureQueue
         );
 
         String externalId = "external-id";
@@ -503,7 +526,7 @@ public class CardCaptureServiceTest extends CardServiceTest {
         when(mockedChargeDao.findByExternalId(chargeEntity.getExternalId())).thenReturn(Optional.of(chargeEntity));
 
         CardCaptureService cardCaptureService = new CardCaptureService(chargeService, feeDao, mockedProviders, mockUserNotificationService,
-                mockEnvironment, mockCaptureQueue
+                connectorMetrics, mockCaptureQueue
         );
 
         try {
@@ -0,0 +1,114 @@
+package uk.gov.pay.connector.paymentprocessor.service;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
+import uk.gov.pay.connector.common.exception.Charge3dsNotReadyRuntimeException;
+import uk.gov.pay.connector.common.exception.OperationAlreadyInProgressRuntimeException;
+import uk.gov.pay.connector.gateway.model.Auth3dsResult;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_3DS_READY;
+import static uk.gov.pay.connector.charge.model.domain.ChargeStatus.AUTHORISATION_3DS_REQUIRED;
+
+public class Deferred3dsAuthorisationServiceTest {
+
+    private static final String CHARGE_EXTERNAL_ID = "charge-external-id";
+    private static final Duration MAXIMUM_WAIT = Duration.ofSeconds(1);
+    private static final ZonedDateTime NOW = ZonedDateTime.parse("2020-09-01T10:00:00Z");
+
+    private final Card3dsResponseAuthService card3dsResponseAuthService = mock(Card3dsResponseAuthService.class);
+    private final ChargeEntity charge = mock(ChargeEntity.class);
+    private final Auth3dsResult auth3dsResult = new Auth3dsResult();
+
+    private MetricRegistry metricRegistry;
+    private Deferred3dsAuthorisationService deferred3dsAuthorisationService;
+
+    @Before
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        Clock clock = Clock.fixed(Instant.from(NOW), ZoneOffset.UTC);
+        deferred3dsAuthorisationService = new Deferred3dsAuthorisationService(() -> card3dsResponseAuthService, metricRegistry, clock);
+        when(charge.getExternalId()).thenReturn(CHARGE_EXTERNAL_ID);
+        when(charge.getStatus()).thenReturn(AUTHORISATION_3DS_REQUIRED.getValue());
+        auth3dsResult.setAuth3dsResult(Auth3dsResult.Auth3dsResultOutcome.AUTHORISED.toString());
+    }
+
+    @Test
+    public void shouldAuthoriseStraightAwayWhenChargeIsAlready3dsReady() {
+        when(charge.getStatus()).thenReturn(AUTHORISATION_3DS_READY.getValue());
+
+        deferred3dsAuthorisationService.authoriseWhen3dsReady(charge, auth3dsResult, NOW, MAXIMUM_WAIT);
+
+        verify(card3dsResponseAuthService).process3DSecureAuthorisationWithoutLocking(CHARGE_EXTERNAL_ID, auth3dsResult);
+        assertThat(metricRegistry.counter("gateway-operations.authorise-3ds.deferred.authorised-when-3ds-ready").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldDeferWithoutAuthorisingWhenChargeIsNot3dsReadyYet() {
+        try {
+            deferred3dsAuthorisationService.authoriseWhen3dsReady(charge, auth3dsResult, NOW.minusNanos(1), MAXIMUM_WAIT);
+            fail("Expected the notification to be deferred");
+        } catch (Charge3dsNotReadyRuntimeException e) {
+            assertThat(e.getResponse().getStatus(), is(409));
+            assertThat(e.getRetryDate(), is(NOW.plus(Deferred3dsAuthorisationService.RECHECK_INTERVAL)));
+        }
+
+        verify(card3dsResponseAuthService, never()).process3DSecureAuthorisationWithoutLocking(any(), any());
+        assertThat(metricRegistry.counter("gateway-operations.authorise-3ds.deferred.deferred").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldNotDeferPastTheMaximumWait() {
+        ZonedDateTime notificationCreated = NOW.minus(MAXIMUM_WAIT).plusMillis(50);
+
+        try {
+            deferred3dsAuthorisationService.authoriseWhen3dsReady(charge, auth3dsResult, notificationCreated, MAXIMUM_WAIT);
+            fail("Expected the notification to be deferred");
+        } catch (Charge3dsNotReadyRuntimeException e) {
+            assertThat(e.getRetryDate(), is(NOW.plusMillis(50)));
+        }
+    }
+
+    @Test
+    public void shouldAuthoriseOnceMaximumWaitHasPassedIfChargeNever3dsReady() {
+        deferred3dsAuthorisationService.authoriseWhen3dsReady(charge, auth3dsResult, NOW.minus(MAXIMUM_WAIT), MAXIMUM_WAIT);
+
+        verify(card3dsResponseAuthService).process3DSecureAuthorisationWithoutLocking(CHARGE_EXTERNAL_ID, auth3dsResult);
+        assertThat(metricRegistry.counter("gateway-operations.authorise-3ds.deferred.authorised-after-maximum-wait").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldSwallowAuthorisationAlreadyInProgress() {
+        when(charge.getStatus()).thenReturn(AUTHORISATION_3DS_READY.getValue());
+        when(card3dsResponseAuthService.process3DSecureAuthorisationWithoutLocking(CHARGE_EXTERNAL_ID, auth3dsResult))
+                .thenThrow(new OperationAlreadyInProgressRuntimeException("authorisation", CHARGE_EXTERNAL_ID));
+
+        deferred3dsAuthorisationService.authoriseWhen3dsReady(charge, auth3dsResult, NOW, MAXIMUM_WAIT);
+
+        verify(card3dsResponseAuthService).process3DSecureAuthorisationWithoutLocking(CHARGE_EXTERNAL_ID, auth3dsResult);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldPropagateAuthorisationFailureToTheNotification() {
+        when(charge.getStatus()).thenReturn(AUTHORISATION_3DS_READY.getValue());
+        when(card3dsResponseAuthService.process3DSecureAuthorisationWithoutLocking(CHARGE_EXTERNAL_ID, auth3dsResult))
+                .thenThrow(new IllegalStateException("gateway unavailable"));
+
+        deferred3dsAuthorisationService.authoriseWhen3dsReady(charge, auth3dsResult, NOW, MAXIMUM_WAIT);
+    }
+}
@@ -19,9 +19,7 @@ import uk.gov.pay.connector.events.model.payout.PayoutFailed;
 import uk.gov.pay.connector.events.model.payout.PayoutPaid;
 import uk.gov.pay.connector.events.model.payout.PayoutUpdated;
 import uk.gov.pay.connector.gateway.stripe.json.StripePayout;
-import uk.gov.pay.connector.gatewayaccount.dao.GatewayAccountDao;
-import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
-import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntityFixture;
+import uk.gov.pay.connector.gatewayaccount.service.StripeAccountIdCache;
 import uk.gov.pay.connector.queue.QueueException;
 
 import javax.ws.rs.WebApplicationException;
@@ -37,7 +35,6 @@ import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static uk.gov.pay.connector.events.model.ResourceType.PAYOUT;
-import static uk.gov.pay.connector.gatewayaccount.model.StripeCredentials.STRIPE_ACCOUNT_ID_KEY;
 
 @RunWith(MockitoJUnitRunner.class)
 public class PayoutEmitterServiceTest {
@@ -47,25 +44,21 @@ public class PayoutEmitterServiceTest {
     @Mock
     ConnectorConfiguration mockConnectorConfiguration;
     @Mock
-    GatewayAccountDao mockGatewayAccountDao;
+    StripeAccountIdCache mockStripeAccountIdCache;
 
     private PayoutEmitterService payoutEmitterService;
     private StripePayout payout;
     private ZonedDateTime eventDate = parse("2019-09-04T18:43:23Z");
-    private GatewayAccountEntity gatewayAccountEntity;
     @Captor
     private ArgumentCaptor<PayoutEvent> payoutArgumentCaptor;
 
     @Before
     public void setUp() {
-        gatewayAccountEntity = GatewayAccountEntityFixture.aGatewayAccountEntity()
-                .withId(1234L)
-                .build();
         when(mockConnectorConfiguration.getEmitPayoutEvents()).thenReturn(true);
-        when(mockGatewayAccountDao.findByCredentialsKeyValue(STRIPE_ACCOUNT_ID_KEY, "connect-account"))
-                .thenReturn(Optional.of(gatewayAccountEntity));
+        when(mockStripeAccountIdCache.getGatewayAccountId("connect-account"))
+                .thenReturn(Optional.of(1234L));
 
-        payoutEmitterService = new PayoutEmitterService(mockEventService, mockConnectorConfiguration, mockGatewayAccountDao);
+        payoutEmitterService = new PayoutEmitterService(mockEventService, mockConnectorConfiguration, mockStripeAccountIdCache);
         payout = new StripePayout("po_123", 1213L, 1589846400L,
                 null, "pending", "card", null);
     }
@@ -144,9 +137,9 @@ public class PayoutEmitterServiceTest {
     @Test
     public void emitPayoutEventShouldNotEmitEventIfFeatureFlagToEmitEventsIsDisabled() throws QueueException {
         when(mockConnectorConfiguration.getEmitPayoutEvents()).thenReturn(false);
-        when(mockGatewayAccountDao.findByCredentialsKeyValue(STRIPE_ACCOUNT_ID_KEY, "connect-account"))
-                .thenReturn(Optional.of(gatewayAccountEntity));
-        payoutEmitterService = new PayoutEmitterService(mockEventService, mockConnectorConfiguration, mockGatewayAccountDao);
+        when(mockStripeAccountIdCache.getGatewayAccountId("connect-account"))
+                .thenReturn(Optional.of(1234L));
+        payoutEmitterService = new PayoutEmitterService(mockEventService, mockConnectorConfiguration, mockStripeAccountIdCache);
 
         payoutEmitterService.emitPayoutEvent(PayoutCreated.class, eventDate, "connect-account", payout);
         verify(mockEventService, never()).emitEvent(any(), anyBoolean());
@@ -160,9 +153,9 @@ public class PayoutEmitterServiceTest {
 
     @Test(expected = WebApplicationException.class)
     public void emitPayoutEventShouldNotEmitPayoutCreatedEventIfGatewayAccountNotFound() {
-        when(mockGatewayAccountDao.findByCredentialsKeyValue(STRIPE_ACCOUNT_ID_KEY, "connect-account"))
+        when(mockStripeAccountIdCache.getGatewayAccountId("connect-account"))
                 .thenReturn(Optional.empty());
-        payoutEmitterService = new PayoutEmitterService(mockEventService, mockConnectorConfiguration, mockGatewayAccountDao);
+        payoutEmitterService = new PayoutEmitterService(mockEventService, mockConnectorConfiguration, mockStripeAccountIdCache);
 
         payoutEmitterService.emitPayoutEvent(PayoutCreated.class, eventDate, "connect-account", payout);
     }
@@ -5,8 +5,10 @@ import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.classic.spi.LoggingEvent;
 import ch.qos.logback.core.Appender;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.stripe.exception.StripeException;
 import com.stripe.model.BalanceTransaction;
+import com.stripe.model.BalanceTransactionCollection;
 import com.stripe.model.Charge;
 import com.stripe.model.Transfer;
 import org.junit.Before;
@@ -14,13 +16,14 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.slf4j.LoggerFactory;
 import uk.gov.pay.connector.app.ConnectorConfiguration;
 import uk.gov.pay.connector.app.StripeAuthTokens;
 import uk.gov.pay.connector.app.StripeGatewayConfig;
+import uk.gov.pay.connector.app.config.PayoutReconcileProcessConfig;
 import uk.gov.pay.connector.events.EventService;
 import uk.gov.pay.connector.events.model.charge.PaymentIncludedInPayout;
 import uk.gov.pay.connector.events.model.payout.PayoutCreated;
@@ -31,25 +34,34 @@ import uk.gov.pay.connector.events.model.refund.RefundIncludedInPayout;
 import uk.gov.pay.connector.gateway.stripe.json.StripePayout;
 import uk.gov.pay.connector.gatewayaccount.dao.GatewayAccountDao;
 import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
-import uk.gov.pay.connector.gatewayaccount.model.StripeCredentials;
+import uk.gov.pay.connector.gatewayaccount.service.StripeAccountIdCache;
+import uk.gov.pay.connector.payout.dao.PayoutReconcileCheckpointDao;
+import uk.gov.pay.connector.payout.model.PayoutReconcileCheckpointEntity;
 import uk.gov.pay.connector.queue.QueueException;
 import uk.gov.pay.connector.queue.QueueMessage;
 import uk.gov.pay.connector.queue.payout.Payout;
 import uk.gov.pay.connector.queue.payout.PayoutReconcileMessage;
 import uk.gov.pay.connector.queue.payout.PayoutReconcileQueue;
 
+import javax.persistence.OptimisticLockException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -79,6 +91,9 @@ public class PayoutReconcileProcessTest {
     @Mock
     private GatewayAccountDao gatewayAccountDao;
 
+    @Mock
+    private StripeAccountIdCache stripeAccountIdCache;
+
     @Mock
     private EventService eventService;
 
@@ -88,12 +103,20 @@ public class PayoutReconcileProcessTest {
     @Mock
     private Appender<ILoggingEvent> logAppender;
 
-    @InjectMocks
+    @Mock
+    private PayoutReconcileCheckpointDao payoutReconcileCheckpointDao;
+
+    @Mock
+    private PayoutReconcileProcessConfig payoutReconcileProcessConfig;
+
     private PayoutReconcileProcess payoutReconcileProcess;
 
     @Captor
     private ArgumentCaptor<LoggingEvent> loggingEventArgumentCaptor;
 
+    private static final int PAGE_SIZE = 100;
+    private static final int VISIBILITY_TIMEOUT_IN_SECONDS = 300;
+
     private final String stripeAccountId = "acct_2RDpWRLXEC2XwBWp";
     private final String stripeApiKey = "a-fake-api-key";
     private final String payoutId = "po_123dv3RPEC2XwBWpqiQfnJGQ";
@@ -103,9 +126,20 @@ public class PayoutReconcileProcessTest {
 
     @Before
     public void setUp() throws Exception {
-        GatewayAccountEntity gatewayAccountEntity = aGatewayAccountEntity().withType(GatewayAccountEntity.Type.TEST).build();
-        when(gatewayAccountDao.findByCredentialsKeyValue(StripeCredentials.STRIPE_ACCOUNT_ID_KEY, stripeAccountId))
-                .thenReturn(Optional.of(gatewayAccountEntity));
+        when(connectorConfiguration.getPayoutReconcileProcessConfig()).thenReturn(payoutReconcileProcessConfig);
+        when(payoutReconcileProcessConfig.getBalanceTransactionPageSize()).thenReturn(PAGE_SIZE);
+        when(payoutReconcileProcessConfig.getMaximumConcurrentPayouts()).thenReturn(1);
+        when(payoutReconcileProcessConfig.getInFlightPayoutVisibilityTimeoutInSeconds()).thenReturn(VISIBILITY_TIMEOUT_IN_SECONDS);
+        lenient().when(payoutReconcileCheckpointDao.merge(any(PayoutReconcileCheckpointEntity.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        payoutReconcileProcess = new PayoutReconcileProcess(payoutReconcileQueue, stripeClientWrapper, stripeGatewayConfig,
+                connectorConfiguration, gatewayAccountDao, stripeAccountIdCache, eventService, payoutEmitterService,
+                payoutReconcileCheckpointDao, MoreExecutors.newDirectExecutorService(),
+                Clock.fixed(Instant.parse("2020-05-02T10:30:00Z"), ZoneOffset.UTC));
+
+        GatewayAccountEntity gatewayAccountEntity = aGatewayAccountEntity().withId(1L).withType(GatewayAccountEntity.Type.TEST).build();
+        when(stripeAccountIdCache.getGatewayAccountId(stripeAccountId)).thenReturn(Optional.of(1L));
+        when(gatewayAccountDao.findById(1L)).thenReturn(Optional.of(gatewayAccountEntity));
         when(stripeGatewayConfig.getAuthTokens()).thenReturn(stripeAuthTokens);
         when(stripeAuthTokens.getTest()).thenReturn(stripeApiKey);
 
@@ -129,8 +163,7 @@ public class PayoutReconcileProcessTest {
         StripePayout stripePayout = new StripePayout("po_123", 1213L, 1589395533L,
                 1589395500L, "pending", "card", "statement_desc");
 
-        verify(eventService).emitEvent(eq(paymentEvent), eq(false));
-        verify(eventService).emitEvent(eq(refundEvent), eq(false));
+        verify(eventService).emitEvents(List.of(paymentEvent, refundEvent));
         verify(payoutEmitterService).emitPayoutEvent(PayoutCreated.class, stripePayout.getCreated(),
                 stripeAccountId, stripePayout);
 
@@ -187,7 +220,7 @@ public class PayoutReconcileProcessTest {
 
         payoutReconcileProcess.processPayouts();
 
-        verify(eventService, never()).emitEvent(any(), anyBoolean());
+        verify(eventService, never()).emitEvents(any());
         verify(payoutReconcileQueue).markMessageAsProcessed(payoutReconcileMessage.getQueueMessage());
     }
 
@@ -195,8 +228,8 @@ public class PayoutReconcileProcessTest {
     public void shouldNotMarkMessageAsSuccessfullyProcessedIfNoPaymentsOrRefundsFound() throws Exception {
         PayoutReconcileMessage payoutReconcileMessage = setupQueueMessage(stripeAccountId);
 
-        when(stripeClientWrapper.getBalanceTransactionsForPayout(eq(payoutId), eq(stripeAccountId), eq(stripeApiKey)))
-                .thenReturn(List.of());
+        when(stripeClientWrapper.getBalanceTransactionsPageForPayout(eq(payoutId), eq(stripeAccountId), eq(stripeApiKey), isNull(), eq(PAGE_SIZE)))
+                .thenReturn(page(false));
 
         payoutReconcileProcess.processPayouts();
 
@@ -221,12 +254,12 @@ public class PayoutReconcileProcessTest {
 
         PayoutReconcileMessage payoutReconcileMessage = setupQueueMessage(stripeAccountId);
 
-        doThrow(new QueueException()).when(eventService).emitEvent(any(), anyBoolean());
+        doThrow(new QueueException()).when(eventService).emitEvents(any());
 
         payoutReconcileProcess.processPayouts();
 
         verify(logAppender).doAppend(loggingEventArgumentCaptor.capture());
-        assertThat(loggingEventArgumentCaptor.getValue().getFormattedMessage(), containsString("Error sending PAYMENT_INCLUDED_IN_PAYOUT event"));
+        assertThat(loggingEventArgumentCaptor.getValue().getFormattedMessage(), containsString("Error sending batch of 2 events"));
 
         verify(payoutReconcileQueue, never()).markMessageAsProcessed(payoutReconcileMessage.getQueueMessage());
     }
@@ -241,8 +274,8 @@ public class PayoutReconcileProcessTest {
         when(refundBalanceTransaction.getSourceObject()).thenReturn(refundTransferSource);
         when(refundTransferSource.getMetadata()).thenReturn(Map.of());
 
-        when(stripeClientWrapper.getBalanceTransactionsForPayout(eq(payoutId), eq(stripeAccountId), eq(stripeApiKey)))
-                .thenReturn(List.of(refundBalanceTransaction));
+        when(stripeClientWrapper.getBalanceTransactionsPageForPayout(eq(payoutId), eq(stripeAccountId), eq(stripeApiKey), isNull(), eq(PAGE_SIZE)))
+                .thenReturn(page(false, refundBalanceTransaction));
 
         payoutReconcileProcess.processPayouts();
 
@@ -252,6 +285,147 @@ public class PayoutReconcileProcessTest {
         verify(payoutReconcileQueue, never()).markMessageAsProcessed(payoutReconcileMessage.getQueueMessage());
     }
 
+    @Test
+    public void shouldFetchEveryPageAndCheckpointAfterEach() throws Exception {
+        when(connectorConfiguration.getEmitPayoutEvents()).thenReturn(true);
+        PayoutReconcileMessage payoutReconcileMessage = setupQueueMessage(stripeAccountId);
+        when(stripeClientWrapper.getBalanceTransactionsPageForPayout(eq(payoutId), eq(stripeAccountId), eq(stripeApiKey), isNull(), eq(PAGE_SIZE)))
+                .thenReturn(page(true, paymentBalanceTransaction("txn_1", "payment-1")));
+        when(stripeClientWrapper.getBalanceTransactionsPageForPayout(payoutId, stripeAccountId, stripeApiKey, "txn_1", PAGE_SIZE))
+                .thenReturn(page(false, paymentBalanceTransaction("txn_2", "payment-2")));
+
+        payoutReconcileProcess.processPayouts();
+
+        verify(eventService).emitEvents(List.of(new PaymentIncludedInPayout("payment-1", payoutId, payoutCreatedDate)));
+        verify(eventService).emitEvents(List.of(new PaymentIncludedInPayout("payment-2", payoutId, payoutCreatedDate)));
+        verify(payoutReconcileCheckpointDao, times(2)).merge(any(PayoutReconcileCheckpointEntity.class));
+        verify(payoutReconcileQueue).markMessageAsProcessed(payoutReconcileMessage.getQueueMessage());
+        verify(payoutReconcileCheckpointDao).deleteByGatewayPayoutId(payoutId);
+    }
+
+    @Test
+    public void shouldExtendTheMessageVisibilityTimeoutBeforeFetchingEachPage() throws Exception {
+        when(connectorConfiguration.getEmitPayoutEvents()).thenReturn(true);
+        PayoutReconcileMessage payoutReconcileMessage = setupQueueMessage(stripeAccountId);
+        when(stripeClientWrapper.getBalanceTransactionsPageForPayout(eq(payoutId), eq(stripeAccountId), eq(stripeApiKey), isNull(), eq(PAGE_SIZE)))
+                .thenReturn(page(true, paymentBalanceTransaction("txn_1", "payment-1")));
+        when(stripeClientWrapper.getBalanceTransactionsPageForPayout(payoutId, stripeAccountId, stripeApiKey, "txn_1", PAGE_SIZE))
+                .thenReturn(page(false, paymentBalanceTransaction("txn_2", "payment-2")));
+
+        payoutReconcileProcess.processPayouts();
+
+        InOrder inOrder = inOrder(payoutReconcileQueue, stripeClientWrapper);
+        inOrder.verify(payoutReconcileQueue).extendVisibilityTimeout(payoutReconcileMessage.getQueueMessage(), VISIBILITY_TIMEOUT_IN_SECONDS);
+        inOrder.verify(stripeClientWrapper).getBalanceTransactionsPageForPayout(payoutId, stripeAccountId, stripeApiKey, null, PAGE_SIZE);
+        inOrder.verify(payoutReconcileQueue).extendVisibilityTimeout(payoutReconcileMessage.getQueueMessage(), VISIBILITY_TIMEOUT_IN_SECONDS);
+        inOrder.verify(stripeClientWrapper).getBalanceTransactionsPageForPayout(payoutId, stripeAccountId, stripeApiKey, "txn_1", PAGE_SIZE);
+    }
+
+    @Test
+    public void shouldCarryOnFromTheMergedCheckpointSoItsVersionIsUsedForTheNextPage() throws Exception {
+        when(connectorConfiguration.getEmitPayoutEvents()).thenReturn(true);
+        setupQueueMessage(stripeAccountId);
+        when(stripeClientWrapper.getBalanceTransactionsPageForPayout(eq(payoutId), eq(stripeAccountId), eq(stripeApiKey), isNull(), eq(PAGE_SIZE)))
+                .thenReturn(page(true, paymentBalanceTransaction("txn_1", "payment-1")));
+        when(stripeClientWrapper.getBalanceTransactionsPageForPayout(payoutId, stripeAccountId, stripeApiKey, "txn_1", PAGE_SIZE))
+                .thenReturn(page(false, paymentBalanceTransaction("txn_2", "payment-2")));
+        when(payoutReconcileCheckpointDao.merge(any(PayoutReconcileCheckpointEntity.class))).thenAnswer(invocation -> {
+            PayoutReconcileCheckpointEntity checkpoint = invocation.getArgument(0);
+            var merged = new PayoutReconcileCheckpointEntity(payoutId);
+            merged.advance(checkpoint.getLastBalanceTransactionId(), checkpoint.getPaymentsEmitted(),
+                    checkpoint.getRefundsEmitted(), checkpoint.getUpdatedDate());
+            merged.setVersion(checkpoint.getVersion() == null ? 1L : checkpoint.getVersion() + 1);
+            return merged;
+        });
+        ArgumentCaptor<PayoutReconcileCheckpointEntity> checkpointCaptor = ArgumentCaptor.forClass(PayoutReconcileCheckpointEntity.class);
+
+        payoutReconcileProcess.processPayouts();
+
+        verify(payoutReconcileCheckpointDao, times(2)).merge(checkpointCaptor.capture());
+        assertThat(checkpointCaptor.getAllValues().get(1).getVersion(), is(1L));
+        assertThat(checkpointCaptor.getAllValues().get(1).getLastBalanceTransactionId(), is("txn_2"));
+    }
+
+    @Test
+    public void shouldLeaveTheMessageForTheOtherReceiptWhenTheCheckpointWasAdvancedConcurrently() throws Exception {
+        PayoutReconcileMessage payoutReconcileMessage = setupQueueMessage(stripeAccountId);
+        when(payoutReconcileCheckpointDao.merge(any(PayoutReconcileCheckpointEntity.class)))
+                .thenThrow(new OptimisticLockException());
+
+        payoutReconcileProcess.processPayouts();
+
+        verify(payoutReconcileQueue, never()).markMessageAsProcessed(payoutReconcileMessage.getQueueMessage());
+        verify(payoutReconcileCheckpointDao, never()).deleteByGatewayPayoutId(payoutId);
+        verify(logAppender, never()).doAppend(any());
+    }
+
+    @Test
+    public void shouldResumeAfterCheckpointedBalanceTransaction() throws Exception {
+        when(connectorConfiguration.getEmitPayoutEvents()).thenReturn(true);
+        PayoutReconcileMessage payoutReconcileMessage = setupQueueMessage(stripeAccountId);
+        var checkpoint = new PayoutReconcileCheckpointEntity(payoutId);
+        checkpoint.advance("txn_1", 1, 0, payoutCreatedDate);
+        when(payoutReconcileCheckpointDao.findByGatewayPayoutId(payoutId)).thenReturn(Optional.of(checkpoint));
+        when(stripeClientWrapper.getBalanceTransactionsPageForPayout(payoutId, stripeAccountId, stripeApiKey, "txn_1", PAGE_SIZE))
+                .thenReturn(page(false));
+
+        payoutReconcileProcess.processPayouts();
+
+        verify(eventService, never()).emitEvents(any());
+        verify(payoutReconcileQueue).markMessageAsProcessed(payoutReconcileMessage.getQueueMessage());
+    }
+
+    @Test
+    public void shouldNotEmitPayoutEventsAgainWhenPageIsRetried() throws Exception {
+        when(connectorConfiguration.getEmitPayoutEvents()).thenReturn(true);
+        PayoutReconcileMessage payoutReconcileMessage = setupQueueMessage(stripeAccountId);
+        var checkpoint = new PayoutReconcileCheckpointEntity(payoutId);
+        checkpoint.payoutEventsEmitted(payoutCreatedDate);
+        when(payoutReconcileCheckpointDao.findByGatewayPayoutId(payoutId)).thenReturn(Optional.of(checkpoint));
+
+        payoutReconcileProcess.processPayouts();
+
+        verify(payoutEmitterService, never()).emitPayoutEvent(any(), any(), any(), any());
+        verify(eventService).emitEvents(List.of(new PaymentIncludedInPayout(paymentExternalId, payoutId, payoutCreatedDate),
+                new RefundIncludedInPayout(refundExternalId, payoutId, payoutCreatedDate)));
+        verify(payoutReconcileQueue).markMessageAsProcessed(payoutReconcileMessage.getQueueMessage());
+    }
+
+    @Test
+    public void shouldCheckpointPayoutEventsBeforeEmittingThePagesEvents() throws Exception {
+        when(connectorConfiguration.getEmitPayoutEvents()).thenReturn(true);
+        setupQueueMessage(stripeAccountId);
+        doThrow(new QueueException()).when(eventService).emitEvents(any());
+        ArgumentCaptor<PayoutReconcileCheckpointEntity> checkpointCaptor = ArgumentCaptor.forClass(PayoutReconcileCheckpointEntity.class);
+
+        payoutReconcileProcess.processPayouts();
+
+        verify(payoutEmitterService).emitPayoutEvent(eq(PayoutCreated.class), any(), eq(stripeAccountId), any());
+        verify(payoutReconcileCheckpointDao).merge(checkpointCaptor.capture());
+        assertThat(checkpointCaptor.getValue().isPayoutEventsEmitted(), is(true));
+    }
+
+    @Test
+    public void shouldReturnWithoutWaitingForPayoutsAndReceiveNoMoreWhileAtTheLimit() throws Exception {
+        ExecutorService payoutExecutor = mock(ExecutorService.class);
+        payoutReconcileProcess = new PayoutReconcileProcess(payoutReconcileQueue, stripeClientWrapper, stripeGatewayConfig,
+                connectorConfiguration, gatewayAccountDao, stripeAccountIdCache, eventService, payoutEmitterService,
+                payoutReconcileCheckpointDao, payoutExecutor, Clock.systemUTC());
+        setupQueueMessage(stripeAccountId);
+        ArgumentCaptor<Runnable> payoutCaptor = ArgumentCaptor.forClass(Runnable.class);
+
+        payoutReconcileProcess.processPayouts();
+        payoutReconcileProcess.processPayouts();
+
+        verify(payoutReconcileQueue, times(1)).retrievePayoutMessages();
+        verify(payoutExecutor).execute(payoutCaptor.capture());
+
+        payoutCaptor.getValue().run();
+        payoutReconcileProcess.processPayouts();
+
+        verify(payoutReconcileQueue, times(2)).retrievePayoutMessages();
+    }
+
     private PayoutReconcileMessage setupQueueMessage(String stripeAccountId) throws QueueException {
         Payout payout = new Payout(payoutId, stripeAccountId, payoutCreatedDate);
         QueueMessage mockQueueMessage = mock(QueueMessage.class);
@@ -294,7 +468,26 @@ public class PayoutReconcileProcessTest {
         when(payoutBalanceTransaction.getType()).thenReturn("payout");
         when(payoutBalanceTransaction.getSourceObject()).thenReturn(payoutSource);
 
-        when(stripeClientWrapper.getBalanceTransactionsForPayout(eq(payoutId), eq(stripeAccountId), eq(stripeApiKey)))
-                .thenReturn(List.of(paymentBalanceTransaction, refundBalanceTransaction, payoutBalanceTransaction));
+        when(stripeClientWrapper.getBalanceTransactionsPageForPayout(eq(payoutId), eq(stripeAccountId), eq(stripeApiKey), isNull(), eq(PAGE_SIZE)))
+                .thenReturn(page(false, paymentBalanceTransaction, refundBalanceTransaction, payoutBalanceTransaction));
+    }
+
+    private static BalanceTransactionCollection page(boolean hasMore, BalanceTransaction... balanceTransactions) {
+        var page = new BalanceTransactionCollection();
+        page.setData(List.of(balanceTransactions));
+        page.setHasMore(hasMore);
+        return page;
+    }
+
+    private BalanceTransaction paymentBalanceTransaction(String id, String externalId) {
+        BalanceTransaction paymentBalanceTransaction = mock(BalanceTransaction.class);
+        Charge paymentSource = mock(Charge.class);
+        Transfer paymentTransferSource = mock(Transfer.class);
+        when(paymentBalanceTransaction.getId()).thenReturn(id);
+        when(paymentBalanceTransaction.getType()).thenReturn("payment");
+        when(paymentBalanceTransaction.getSourceObject()).thenReturn(paymentSource);
+        when(paymentSource.getSourceTransferObject()).thenReturn(paymentTransferSource);
+        when(paymentTransferSource.getMetadata()).thenReturn(Map.of(GOVUK_PAY_TRANSACTION_EXTERNAL_ID, externalId));
+        return paymentBalanceTransaction;
     }
 }
@@ -0,0 +1,98 @@
+package uk.gov.pay.connector.payout;
+
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.stripe.Stripe;
+import com.stripe.model.BalanceTransaction;
+import com.stripe.model.BalanceTransactionCollection;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import uk.gov.pay.connector.app.StripeGatewayConfig;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.absent;
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static java.util.stream.Collectors.toList;
+import static javax.ws.rs.core.HttpHeaders.CONTENT_TYPE;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static uk.gov.pay.connector.util.JsonEncoder.toJson;
+
+public class StripeClientWrapperTest {
+
+    private static final String BALANCE_TRANSACTIONS_PATH = "/v1/balance_transactions";
+    private static final String PAYOUT_ID = "po_123dv3RPEC2XwBWpqiQfnJGQ";
+    private static final String STRIPE_ACCOUNT_ID = "acct_2RDpWRLXEC2XwBWp";
+    private static final String API_KEY = "a-fake-api-key";
+
+    @Rule
+    public WireMockRule stripeStub = new WireMockRule(options().dynamicPort());
+
+    private StripeClientWrapper stripeClientWrapper;
+
+    @Before
+    public void setUp() {
+        StripeGatewayConfig stripeGatewayConfig = mock(StripeGatewayConfig.class);
+        when(stripeGatewayConfig.getUrl()).thenReturn(stripeStub.baseUrl());
+        stripeClientWrapper = new StripeClientWrapper(stripeGatewayConfig);
+    }
+
+    @Test
+    public void shouldFetchEachPageAfterTheLastBalanceTransactionOfThePreviousPage() throws Exception {
+        stripeStub.stubFor(get(urlPathEqualTo(BALANCE_TRANSACTIONS_PATH))
+                .withQueryParam("payout", equalTo(PAYOUT_ID))
+                .withQueryParam("starting_after", absent())
+                .willReturn(aPage(true, "txn_1", "txn_2")));
+        stripeStub.stubFor(get(urlPathEqualTo(BALANCE_TRANSACTIONS_PATH))
+                .withQueryParam("payout", equalTo(PAYOUT_ID))
+                .withQueryParam("starting_after", equalTo("txn_2"))
+                .willReturn(aPage(false, "txn_3")));
+
+        List<String> balanceTransactionIds = new ArrayList<>();
+        String startingAfter = null;
+        BalanceTransactionCollection page;
+        do {
+            page = stripeClientWrapper.getBalanceTransactionsPageForPayout(PAYOUT_ID, STRIPE_ACCOUNT_ID, API_KEY, startingAfter, 2);
+            page.getData().stream().map(BalanceTransaction::getId).forEach(balanceTransactionIds::add);
+            startingAfter = balanceTransactionIds.get(balanceTransactionIds.size() - 1);
+        } while (page.getHasMore());
+
+        assertThat(balanceTransactionIds, contains("txn_1", "txn_2", "txn_3"));
+        stripeStub.verify(2, getRequestedFor(urlPathEqualTo(BALANCE_TRANSACTIONS_PATH))
+                .withQueryParam("limit", equalTo("2"))
+                .withHeader("Stripe-Account", equalTo(STRIPE_ACCOUNT_ID))
+                .withHeader("Authorization", equalTo("Bearer " + API_KEY)));
+    }
+
+    @Test
+    public void shouldNotChangeTheStripeLibrarysApiBase() {
+        assertThat(Stripe.getApiBase(), is(Stripe.LIVE_API_BASE));
+    }
+
+    private static ResponseDefinitionBuilder aPage(boolean hasMore, String... balanceTransactionIds) {
+        List<Map<String, Object>> data = Arrays.stream(balanceTransactionIds)
+                .map(id -> Map.<String, Object>of("id", id, "object", "balance_transaction", "type", "payment"))
+                .collect(toList());
+        return aResponse()
+                .withHeader(CONTENT_TYPE, APPLICATION_JSON)
+                .withBody(toJson(Map.of(
+                        "object", "list",
+                        "url", BALANCE_TRANSACTIONS_PATH,
+                        "has_more", hasMore,
+                        "data", data)));
+    }
+}
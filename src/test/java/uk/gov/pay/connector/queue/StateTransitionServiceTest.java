@@ -3,7 +3,6 @@ package uk.gov.pay.connector.queue;
 import com.codahale.metrics.Counter;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
-import io.dropwizard.setup.Environment;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -16,6 +15,7 @@ import uk.gov.pay.connector.events.EventService;
 import uk.gov.pay.connector.events.model.ResourceType;
 import uk.gov.pay.connector.events.model.charge.PaymentStarted;
 import uk.gov.pay.connector.events.model.refund.RefundCreatedByUser;
+import uk.gov.pay.connector.metrics.ConnectorMetrics;
 import uk.gov.pay.connector.queue.statetransition.PaymentStateTransition;
 import uk.gov.pay.connector.queue.statetransition.RefundStateTransition;
 import uk.gov.pay.connector.queue.statetransition.StateTransitionQueue;
@@ -55,8 +55,6 @@ public class StateTransitionServiceTest {
     @Mock
     EventService mockEventService;
     @Mock
-    Environment environment;
-    @Mock
     MetricRegistry metricRegistry;
     @Mock
     Counter counter;
@@ -65,10 +63,9 @@ public class StateTransitionServiceTest {
 
     @Before
     public void setUp() {
-        when(environment.metrics()).thenReturn(metricRegistry);
         when(metricRegistry.counter(anyString())).thenReturn(counter);
         when(metricRegistry.meter(anyString())).thenReturn(meter);
-        stateTransitionService = new StateTransitionService(mockStateTransitionQueue, mockEventService, environment);
+        stateTransitionService = new StateTransitionService(mockStateTransitionQueue, mockEventService, new ConnectorMetrics(metricRegistry));
     }
 
     @Test
@@ -20,6 +20,7 @@ import uk.gov.pay.connector.app.SqsConfig;
 import uk.gov.pay.connector.queue.QueueException;
 import uk.gov.pay.connector.queue.QueueMessage;
 
+import java.util.Collections;
 import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -27,7 +28,9 @@ import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -119,4 +122,25 @@ public class SqsQueueServiceTest {
 
         sqsQueueService.receiveMessages(QUEUE_URL, MESSAGE_ATTRIBUTE_NAME);
     }
+
+    @Test
+    public void shouldSendMessagesInBatchesOfTen() throws QueueException {
+        when(mockSqsClient.sendMessageBatch(eq(QUEUE_URL), anyList())).thenReturn(new SendMessageBatchResult());
+
+        sqsQueueService.sendMessages(QUEUE_URL, Collections.nCopies(11, MESSAGE));
+
+        ArgumentCaptor<List<SendMessageBatchRequestEntry>> entriesCaptor = ArgumentCaptor.forClass(List.class);
+        verify(mockSqsClient, times(2)).sendMessageBatch(eq(QUEUE_URL), entriesCaptor.capture());
+        assertThat(entriesCaptor.getAllValues().get(0).size(), is(10));
+        assertThat(entriesCaptor.getAllValues().get(1).size(), is(1));
+    }
+
+    @Test(expected = QueueException.class)
+    public void shouldThrowExceptionIfAnyMessageInBatchFails() throws QueueException {
+        SendMessageBatchResult sendMessageBatchResult = new SendMessageBatchResult()
+                .withFailed(new BatchResultErrorEntry().withId("0").withCode("InternalError"));
+        when(mockSqsClient.sendMessageBatch(eq(QUEUE_URL), anyList())).thenReturn(sendMessageBatchResult);
+
+        sqsQueueService.sendMessages(QUEUE_URL, List.of(MESSAGE));
+    }
 }
@@ -0,0 +1,52 @@
+package uk.gov.pay.connector.refund.resource;
+
+import io.dropwizard.testing.junit.ResourceTestRule;
+import org.junit.ClassRule;
+import org.junit.Test;
+import uk.gov.pay.connector.charge.dao.ChargeDao;
+import uk.gov.pay.connector.charge.service.ChargeService;
+import uk.gov.pay.connector.client.ledger.exception.LedgerException;
+import uk.gov.pay.connector.refund.model.RefundRequest;
+import uk.gov.pay.connector.refund.service.RefundService;
+import uk.gov.pay.connector.rules.ResourceTestRuleWithCustomExceptionMappersBuilder;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Response;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RefundsResourceTest {
+
+    private static final RefundService refundService = mock(RefundService.class);
+    private static final ChargeService chargeService = mock(ChargeService.class);
+
+    @ClassRule
+    public static ResourceTestRule resources = ResourceTestRuleWithCustomExceptionMappersBuilder.getBuilder()
+            .addResource(new RefundsResource(refundService, chargeService, mock(ChargeDao.class)))
+            .build();
+
+    @Test
+    public void shouldReturn503_whenLedgerIsUnavailableToLookUpTheCharge() {
+        when(chargeService.findCharge("a-charge-id"))
+                .thenThrow(new LedgerException(new RuntimeException("ledger unavailable")));
+
+        Response response = resources.client()
+                .target("/v1/api/accounts/1/charges/a-charge-id/refunds")
+                .request()
+                .post(Entity.json(new RefundRequest(100L, 1000L, "a-user")));
+
+        assertThat(response.getStatus(), is(503));
+        List<String> messages = (List<String>) response.readEntity(Map.class).get("message");
+        assertThat(messages, hasItem("Ledger is unavailable, try again later"));
+        verify(refundService, never()).doRefund(any(), any(), any());
+    }
+}
@@ -0,0 +1,69 @@
+package uk.gov.pay.connector.refund.service;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.pay.connector.client.ledger.model.RefundTransactionsForPayment;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.mock;
+
+public class LedgerRefundCacheTest {
+
+    private MetricRegistry metricRegistry;
+    private LedgerRefundCache cache;
+    private AtomicInteger ledgerCalls;
+    private Supplier<RefundTransactionsForPayment> ledgerCall;
+
+    @Before
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        cache = new LedgerRefundCache(metricRegistry);
+        ledgerCalls = new AtomicInteger();
+        ledgerCall = () -> {
+            ledgerCalls.incrementAndGet();
+            return mock(RefundTransactionsForPayment.class);
+        };
+    }
+
+    @Test
+    public void shouldAskLedgerEveryTimeWhenNoScopeIsOpen() {
+        cache.getRefundsForPayment("charge-1", ledgerCall);
+        cache.getRefundsForPayment("charge-1", ledgerCall);
+
+        assertThat(ledgerCalls.get(), is(2));
+        assertThat(metricRegistry.histogram("refunds.ledger-lookups.ledger-calls-per-operation").getCount(), is(0L));
+    }
+
+    @Test
+    public void shouldAskLedgerOncePerChargeWithinAScope() {
+        try (LedgerRefundCache.Scope ignored = cache.openScope()) {
+            RefundTransactionsForPayment first = cache.getRefundsForPayment("charge-1", ledgerCall);
+            assertThat(cache.getRefundsForPayment("charge-1", ledgerCall), is(sameInstance(first)));
+            cache.getRefundsForPayment("charge-2", ledgerCall);
+        }
+
+        assertThat(ledgerCalls.get(), is(2));
+        assertThat(metricRegistry.counter("refunds.ledger-lookups.reused").getCount(), is(1L));
+        assertThat(metricRegistry.histogram("refunds.ledger-lookups.ledger-calls-per-operation").getSnapshot().getMax(), is(2L));
+    }
+
+    @Test
+    public void shouldKeepResultsUntilTheOutermostScopeIsClosed() {
+        try (LedgerRefundCache.Scope ignored = cache.openScope()) {
+            try (LedgerRefundCache.Scope nested = cache.openScope()) {
+                cache.getRefundsForPayment("charge-1", ledgerCall);
+            }
+            cache.getRefundsForPayment("charge-1", ledgerCall);
+        }
+        cache.getRefundsForPayment("charge-1", ledgerCall);
+
+        assertThat(ledgerCalls.get(), is(2));
+        assertThat(metricRegistry.histogram("refunds.ledger-lookups.ledger-calls-per-operation").getCount(), is(1L));
+    }
+}
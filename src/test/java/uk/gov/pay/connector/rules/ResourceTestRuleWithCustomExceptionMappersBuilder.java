@@ -3,6 +3,7 @@ package uk.gov.pay.connector.rules;
 import io.dropwizard.jersey.errors.EarlyEofExceptionMapper;
 import io.dropwizard.jersey.jackson.JsonProcessingExceptionMapper;
 import io.dropwizard.testing.junit.ResourceTestRule;
+import uk.gov.pay.connector.client.ledger.exception.LedgerExceptionMapper;
 import uk.gov.pay.connector.common.exception.ConstraintViolationExceptionMapper;
 import uk.gov.pay.connector.common.exception.ValidationExceptionMapper;
 
@@ -13,6 +14,7 @@ public class ResourceTestRuleWithCustomExceptionMappersBuilder {
                 .addProvider(ConstraintViolationExceptionMapper.class)
                 .addProvider(ValidationExceptionMapper.class)
                 .addProvider(JsonProcessingExceptionMapper.class)
-                .addProvider(EarlyEofExceptionMapper.class);
+                .addProvider(EarlyEofExceptionMapper.class)
+                .addProvider(LedgerExceptionMapper.class);
     }
 }
@@ -18,8 +18,9 @@ import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
 import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountResourceDTO;
 import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountSearchParams;
 import uk.gov.pay.connector.gatewayaccount.service.GatewayAccountService;
+import uk.gov.pay.connector.usernotification.model.domain.EmailNotificationEntity;
+import uk.gov.pay.connector.usernotification.model.domain.EmailNotificationType;
 
-import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -41,12 +42,6 @@ public class GatewayAccountServiceTest {
     
     @Mock
     private GatewayAccountEntity mockGatewayAccountEntity;
-    
-    @Mock
-    private GatewayAccountEntity getMockGatewayAccountEntity1;
-    
-    @Mock
-    private GatewayAccountEntity getMockGatewayAccountEntity2;
 
     private GatewayAccountService gatewayAccountService;
     
@@ -55,10 +50,6 @@ public class GatewayAccountServiceTest {
     @Before
     public void setUp() {
         gatewayAccountService = new GatewayAccountService(mockGatewayAccountDao, mockCardTypeDao);
-        when(getMockGatewayAccountEntity1.getType()).thenReturn("test");
-        when(getMockGatewayAccountEntity1.getServiceName()).thenReturn("service one");
-        when(getMockGatewayAccountEntity2.getType()).thenReturn("test");
-        when(getMockGatewayAccountEntity2.getServiceName()).thenReturn("service two");
     }
 
     @Test
@@ -71,16 +62,28 @@ public class GatewayAccountServiceTest {
     }
 
     @Test
-    public void shouldSearchGatewayAccounts() {
+    public void shouldSearchGatewayAccountsAndAddTheirEmailNotifications() {
         GatewayAccountSearchParams gatewayAccountSearchParams = new GatewayAccountSearchParams();
-        when(mockGatewayAccountDao.search(gatewayAccountSearchParams))
-                .thenReturn(Arrays.asList(getMockGatewayAccountEntity1, getMockGatewayAccountEntity2));
+        GatewayAccountResourceDTO account1 = searchResult(1L, "service one");
+        GatewayAccountResourceDTO account2 = searchResult(2L, "service two");
+        EmailNotificationEntity paymentConfirmed = new EmailNotificationEntity(null, "template", true);
+        when(mockGatewayAccountDao.search(gatewayAccountSearchParams)).thenReturn(List.of(account1, account2));
+        when(mockGatewayAccountDao.findEmailNotificationsByAccountIds(List.of(1L, 2L)))
+                .thenReturn(Map.of(1L, Map.of(EmailNotificationType.PAYMENT_CONFIRMED, paymentConfirmed)));
 
         List<GatewayAccountResourceDTO> gatewayAccounts = gatewayAccountService.searchGatewayAccounts(gatewayAccountSearchParams);
 
         assertThat(gatewayAccounts, hasSize(2));
         assertThat(gatewayAccounts.get(0).getServiceName(), is("service one"));
+        assertThat(gatewayAccounts.get(0).getEmailNotifications(), is(Map.of(EmailNotificationType.PAYMENT_CONFIRMED, paymentConfirmed)));
         assertThat(gatewayAccounts.get(1).getServiceName(), is("service two"));
+        assertThat(gatewayAccounts.get(1).getEmailNotifications(), is(Map.of()));
+    }
+
+    private static GatewayAccountResourceDTO searchResult(Long accountId, String serviceName) {
+        return new GatewayAccountResourceDTO(accountId, "sandbox", GatewayAccountEntity.Type.TEST, "description",
+                serviceName, null, 0L, 0L, false, false, false, 0L, 0L, EmailCollectionMode.MANDATORY, false, false, 2,
+                false, false, false);
     }
 
     @Test
@@ -16,6 +16,7 @@ import uk.gov.pay.connector.gateway.GatewayException;
 import uk.gov.pay.connector.gateway.GatewayOrder;
 import uk.gov.pay.connector.gateway.model.OrderRequestType;
 import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
+import uk.gov.pay.connector.metrics.ConnectorMetrics;
 
 import javax.ws.rs.ProcessingException;
 import javax.ws.rs.client.Client;
@@ -68,7 +69,7 @@ public class GatewayClientTest {
     @Before
     public void setup() {
         gatewayClient = new GatewayClient(mockClient,
-                mockMetricRegistry);
+                new ConnectorMetrics(mockMetricRegistry));
         when(mockMetricRegistry.histogram(anyString())).thenReturn(mockHistogram);
         when(mockMetricRegistry.counter(anyString())).thenReturn(mockCounter);
         doAnswer(invocationOnMock -> null).when(mockCounter).inc();
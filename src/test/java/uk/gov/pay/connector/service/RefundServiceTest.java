@@ -1,5 +1,7 @@
 package uk.gov.pay.connector.service;
 
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.setup.Environment;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -36,6 +38,7 @@ import uk.gov.pay.connector.refund.model.domain.Refund;
 import uk.gov.pay.connector.refund.model.domain.RefundEntity;
 import uk.gov.pay.connector.refund.model.domain.RefundStatus;
 import uk.gov.pay.connector.refund.service.ChargeRefundResponse;
+import uk.gov.pay.connector.refund.service.LedgerRefundCache;
 import uk.gov.pay.connector.refund.service.RefundService;
 import uk.gov.pay.connector.usernotification.service.UserNotificationService;
 
@@ -80,6 +83,7 @@ public class RefundServiceTest {
 
     private RefundService refundService;
     private Long refundId;
+    private MetricRegistry metricRegistry;
 
     @Rule
     public ExpectedException expectedException = ExpectedException.none();
@@ -108,8 +112,12 @@ public class RefundServiceTest {
         refundId = ThreadLocalRandom.current().nextLong();
         when(mockProviders.byName(any(PaymentGatewayName.class))).thenReturn(mockProvider);
         when(mockProvider.getExternalChargeRefundAvailability(any(Charge.class), any(List.class))).thenReturn(EXTERNAL_AVAILABLE);
+        metricRegistry = new MetricRegistry();
+        Environment environment = mock(Environment.class);
+        when(environment.metrics()).thenReturn(metricRegistry);
         refundService = new RefundService(
-                mockRefundDao, mockGatewayAccountDao, mockProviders, mockUserNotificationService, mockStateTransitionService, mockLedgerService
+                mockRefundDao, mockGatewayAccountDao, mockProviders, mockUserNotificationService, mockStateTransitionService, mockLedgerService,
+                new LedgerRefundCache(environment)
         );
     }
 
@@ -224,6 +232,8 @@ public class RefundServiceTest {
         verify(mockRefundDao, times(1)).findById(refundId);
         verify(spiedRefundEntity).setStatus(RefundStatus.REFUND_SUBMITTED);
         verify(spiedRefundEntity).setGatewayTransactionId(refundEntity.getExternalId());
+        verify(mockLedgerService, times(1)).getRefundsForPayment(accountId, externalChargeId);
+        assertThat(metricRegistry.histogram("refunds.ledger-lookups.ledger-calls-per-operation").getSnapshot().getMax(), is(1L));
 
         verifyNoMoreInteractions(mockChargeService);
     }
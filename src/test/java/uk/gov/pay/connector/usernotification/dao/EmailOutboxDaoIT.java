@@ -0,0 +1,81 @@
+package uk.gov.pay.connector.usernotification.dao;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.pay.connector.it.dao.DaoITestBase;
+import uk.gov.pay.connector.usernotification.model.domain.EmailOutboxEntity;
+import uk.gov.pay.connector.usernotification.model.domain.EmailOutboxStatistics;
+
+import java.sql.Timestamp;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.is;
+import static uk.gov.pay.connector.usernotification.model.domain.EmailNotificationType.PAYMENT_CONFIRMED;
+
+public class EmailOutboxDaoIT extends DaoITestBase {
+
+    private static final ZonedDateTime NOW = ZonedDateTime.parse("2020-06-01T12:00:00Z");
+
+    private EmailOutboxDao emailOutboxDao;
+
+    @Before
+    public void setUp() {
+        emailOutboxDao = env.getInstance(EmailOutboxDao.class);
+        databaseTestHelper.truncateAllData();
+    }
+
+    @Test
+    public void claimDue_shouldClaimOnlyDueEmailsOldestFirst() {
+        EmailOutboxEntity older = insert(NOW.minusMinutes(5));
+        EmailOutboxEntity newer = insert(NOW.minusMinutes(1));
+        insert(NOW.plusMinutes(1));
+
+        List<EmailOutboxEntity> claimed = emailOutboxDao.claimDue(NOW, NOW.plusMinutes(2), 10);
+
+        assertThat(claimed, contains(hasProperty("id", is(older.getId())), hasProperty("id", is(newer.getId()))));
+        assertThat(claimed.get(0).getPersonalisation(), is(Map.of("serviceReference", "ref-1")));
+
+        Map<String, Object> row = databaseTestHelper.readEmailOutbox(older.getId());
+        assertThat(row.get("status"), is("PROCESSING"));
+        assertThat(row.get("attempts"), is(1));
+        assertThat(row.get("next_attempt_date"), is(Timestamp.from(NOW.plusMinutes(2).toInstant())));
+    }
+
+    @Test
+    public void claimDue_shouldNotClaimEmailAgainUntilItsLeaseHasExpired() {
+        insert(NOW.minusMinutes(1));
+        emailOutboxDao.claimDue(NOW, NOW.plusMinutes(2), 10);
+
+        assertThat(emailOutboxDao.claimDue(NOW.plusMinutes(1), NOW.plusMinutes(3), 10).size(), is(0));
+        assertThat(emailOutboxDao.claimDue(NOW.plusMinutes(3), NOW.plusMinutes(5), 10).size(), is(1));
+    }
+
+    @Test
+    public void getStatistics_shouldReportDepthAndOldestEmailExcludingDeadLetters() {
+        insert(NOW.minusHours(2));
+        insert(NOW.minusMinutes(10));
+        insert(NOW.minusMinutes(1));
+
+        EmailOutboxEntity deadLetter = emailOutboxDao.claimDue(NOW.minusHours(1), NOW, 1).get(0);
+        deadLetter.deadLetter("gave up");
+        emailOutboxDao.merge(deadLetter);
+
+        EmailOutboxStatistics statistics = emailOutboxDao.getStatistics();
+
+        assertThat(statistics.getDepth(), is(2L));
+        assertThat(statistics.getDeadLettered(), is(1L));
+        assertThat(statistics.getOldestCreatedDate().get().toInstant(), is(NOW.minusMinutes(10).toInstant()));
+    }
+
+    private EmailOutboxEntity insert(ZonedDateTime createdDate) {
+        EmailOutboxEntity email = new EmailOutboxEntity(PAYMENT_CONFIRMED, "charge-external-id-0000001", 1L,
+                "someone@example.com", Map.of("serviceReference", "ref-1"), createdDate);
+        emailOutboxDao.persist(email);
+        return email;
+    }
+}
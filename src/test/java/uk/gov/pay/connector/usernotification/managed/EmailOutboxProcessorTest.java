@@ -0,0 +1,171 @@
+package uk.gov.pay.connector.usernotification.managed;
+
+import com.codahale.metrics.MetricRegistry;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import io.dropwizard.setup.Environment;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.NotifyConfiguration;
+import uk.gov.pay.connector.app.config.EmailOutboxConfig;
+import uk.gov.pay.connector.charge.model.domain.ChargeEntityFixture;
+import uk.gov.pay.connector.gatewayaccount.dao.GatewayAccountDao;
+import uk.gov.pay.connector.gatewayaccount.model.GatewayAccountEntity;
+import uk.gov.pay.connector.usernotification.govuknotify.NotifyClientFactory;
+import uk.gov.pay.connector.usernotification.model.domain.EmailOutboxEntity;
+import uk.gov.pay.connector.usernotification.service.EmailOutboxService;
+import uk.gov.pay.connector.usernotification.service.UserNotificationService;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.matchingJsonPath;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.pay.connector.usernotification.model.domain.EmailNotificationType.PAYMENT_CONFIRMED;
+
+public class EmailOutboxProcessorTest {
+
+    private static final String SEND_EMAIL_PATH = "/v2/notifications/email";
+    private static final String API_KEY = "test_key-" + UUID.randomUUID() + "-" + UUID.randomUUID();
+    private static final Long EMAIL_ID = 1L;
+    private static final Long GATEWAY_ACCOUNT_ID = 10L;
+
+    @Rule
+    public WireMockRule notifyStub = new WireMockRule(options().dynamicPort());
+
+    private EmailOutboxService emailOutboxService;
+    private GatewayAccountDao gatewayAccountDao;
+    private MetricRegistry metricRegistry;
+    private EmailOutboxProcessor processor;
+
+    @Before
+    public void setUp() {
+        NotifyConfiguration notifyConfiguration = mock(NotifyConfiguration.class);
+        when(notifyConfiguration.isEmailNotifyEnabled()).thenReturn(true);
+        when(notifyConfiguration.getEmailTemplateId()).thenReturn("payment-confirmed-template");
+        when(notifyConfiguration.getRefundIssuedEmailTemplateId()).thenReturn("refund-issued-template");
+        when(notifyConfiguration.getApiKey()).thenReturn(API_KEY);
+        when(notifyConfiguration.getNotificationBaseURL()).thenReturn("http://localhost:" + notifyStub.port());
+
+        ConnectorConfiguration configuration = mock(ConnectorConfiguration.class);
+        when(configuration.getNotifyConfiguration()).thenReturn(notifyConfiguration);
+        when(configuration.getEmailOutboxConfig()).thenReturn(new EmailOutboxConfig());
+
+        metricRegistry = new MetricRegistry();
+        Environment environment = mock(Environment.class);
+        when(environment.metrics()).thenReturn(metricRegistry);
+
+        emailOutboxService = mock(EmailOutboxService.class);
+        gatewayAccountDao = mock(GatewayAccountDao.class);
+        GatewayAccountEntity gatewayAccount = ChargeEntityFixture.defaultGatewayAccountEntity();
+        when(gatewayAccountDao.findById(GATEWAY_ACCOUNT_ID)).thenReturn(Optional.of(gatewayAccount));
+
+        UserNotificationService userNotificationService = new UserNotificationService(
+                new NotifyClientFactory(configuration), configuration, environment, emailOutboxService);
+
+        processor = new EmailOutboxProcessor(emailOutboxService, userNotificationService, gatewayAccountDao,
+                new EmailOutboxConfig(), true, mock(ScheduledExecutorService.class), metricRegistry, Clock.systemUTC());
+    }
+
+    @Test
+    public void shouldSendDueEmailThroughNotifyAndRemoveItFromTheOutbox() {
+        notifyStub.stubFor(post(urlPathEqualTo(SEND_EMAIL_PATH)).willReturn(aResponse()
+                .withStatus(201)
+                .withHeader("Content-Type", "application/json")
+                .withBody(sendEmailResponse())));
+        when(emailOutboxService.claimDueEmails()).thenReturn(List.of(anEmail()));
+
+        processor.sendDueEmails();
+
+        notifyStub.verify(postRequestedFor(urlPathEqualTo(SEND_EMAIL_PATH))
+                .withHeader("Authorization", containing("Bearer "))
+                .withRequestBody(matchingJsonPath("$.email_address", containing("someone@example.com")))
+                .withRequestBody(matchingJsonPath("$.template_id", containing("payment-confirmed-template")))
+                .withRequestBody(matchingJsonPath("$.reference", equalTo(String.valueOf(EMAIL_ID)))));
+        verify(emailOutboxService).markSent(EMAIL_ID);
+        assertThat(metricRegistry.counter("email-outbox.sent").getCount(), is(1L));
+        assertThat(metricRegistry.timer("email-outbox.send-time").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldRetryEmailWhenNotifyFailsWithServerError() {
+        notifyStub.stubFor(post(urlPathEqualTo(SEND_EMAIL_PATH)).willReturn(aResponse().withStatus(500)));
+        when(emailOutboxService.claimDueEmails()).thenReturn(List.of(anEmail()));
+        when(emailOutboxService.markFailed(eq(EMAIL_ID), anyString(), eq(true))).thenReturn(false);
+
+        processor.sendDueEmails();
+
+        verify(emailOutboxService, never()).markSent(EMAIL_ID);
+        verify(emailOutboxService).markFailed(eq(EMAIL_ID), anyString(), eq(true));
+        assertThat(metricRegistry.counter("email-outbox.retried").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldDeadLetterEmailWhenNotifyRejectsIt() {
+        notifyStub.stubFor(post(urlPathEqualTo(SEND_EMAIL_PATH)).willReturn(aResponse()
+                .withStatus(400)
+                .withHeader("Content-Type", "application/json")
+                .withBody("{\"errors\":[{\"error\":\"ValidationError\",\"message\":\"email_address Not a valid email address\"}],\"status_code\":400}")));
+        when(emailOutboxService.claimDueEmails()).thenReturn(List.of(anEmail()));
+        when(emailOutboxService.markFailed(eq(EMAIL_ID), anyString(), eq(false))).thenReturn(true);
+
+        processor.sendDueEmails();
+
+        verify(emailOutboxService).markFailed(eq(EMAIL_ID), anyString(), eq(false));
+        assertThat(metricRegistry.counter("email-outbox.dead-lettered").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldDeadLetterEmailWithoutCallingNotifyWhenGatewayAccountNoLongerExists() {
+        EmailOutboxEntity email = anEmail();
+        when(email.getGatewayAccountId()).thenReturn(99L);
+        when(gatewayAccountDao.findById(99L)).thenReturn(Optional.empty());
+        when(emailOutboxService.claimDueEmails()).thenReturn(List.of(email));
+        when(emailOutboxService.markFailed(eq(EMAIL_ID), anyString(), anyBoolean())).thenReturn(true);
+
+        processor.sendDueEmails();
+
+        verify(emailOutboxService).markFailed(eq(EMAIL_ID), anyString(), eq(false));
+        assertThat(notifyStub.getAllServeEvents().size(), is(0));
+    }
+
+    private EmailOutboxEntity anEmail() {
+        EmailOutboxEntity email = mock(EmailOutboxEntity.class);
+        when(email.getId()).thenReturn(EMAIL_ID);
+        when(email.getEmailType()).thenReturn(PAYMENT_CONFIRMED);
+        when(email.getChargeExternalId()).thenReturn("charge-external-id");
+        when(email.getGatewayAccountId()).thenReturn(GATEWAY_ACCOUNT_ID);
+        when(email.getEmailAddress()).thenReturn("someone@example.com");
+        when(email.getPersonalisation()).thenReturn(Map.of("serviceReference", "ref-1"));
+        return email;
+    }
+
+    private static String sendEmailResponse() {
+        return "{" +
+                "\"id\":\"" + UUID.randomUUID() + "\"," +
+                "\"reference\":null," +
+                "\"content\":{\"body\":\"Your payment\",\"from_email\":\"pay@example.com\",\"subject\":\"Payment received\"}," +
+                "\"template\":{\"id\":\"" + UUID.randomUUID() + "\",\"version\":1,\"uri\":\"http://localhost/template\"}" +
+                "}";
+    }
+}
@@ -14,8 +14,8 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 import uk.gov.pay.connector.app.ConnectorConfiguration;
-import uk.gov.pay.connector.app.ExecutorServiceConfig;
 import uk.gov.pay.connector.app.NotifyConfiguration;
+import uk.gov.pay.connector.app.config.EmailOutboxConfig;
 import uk.gov.pay.connector.gatewayaccount.model.EmailCollectionMode;
 import uk.gov.pay.connector.usernotification.govuknotify.NotifyClientFactory;
 import uk.gov.service.notify.NotificationClient;
@@ -59,7 +59,7 @@ public class UserNotificationServiceEmailCollectionModeTest {
     private MetricRegistry metricRegistry;
 
     @Mock
-    private ExecutorServiceConfig mockExecutorConfiguration;
+    private EmailOutboxService emailOutboxService;
 
     @Mock
     private NotifyConfiguration notifyConfiguration;
@@ -73,12 +73,11 @@ public class UserNotificationServiceEmailCollectionModeTest {
         when(notifyConfiguration.getRefundIssuedEmailTemplateId()).thenReturn("another-template");
         when(notifyConfiguration.isEmailNotifyEnabled()).thenReturn(true);
 
-        when(connectorConfig.getExecutorServiceConfig()).thenReturn(mockExecutorConfiguration);
-        when(mockExecutorConfiguration.getThreadsPerCpu()).thenReturn(2);
+        when(connectorConfig.getEmailOutboxConfig()).thenReturn(new EmailOutboxConfig());
 
         when(environment.metrics()).thenReturn(metricRegistry);
 
-        userNotificationService = new UserNotificationService(notifyClientFactory, connectorConfig, environment);
+        userNotificationService = new UserNotificationService(notifyClientFactory, connectorConfig, environment, emailOutboxService);
 
     }
     
@@ -11,8 +11,8 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import uk.gov.pay.connector.app.ConnectorConfiguration;
-import uk.gov.pay.connector.app.ExecutorServiceConfig;
 import uk.gov.pay.connector.app.NotifyConfiguration;
+import uk.gov.pay.connector.app.config.EmailOutboxConfig;
 import uk.gov.pay.connector.charge.model.ServicePaymentReference;
 import uk.gov.pay.connector.charge.model.domain.Charge;
 import uk.gov.pay.connector.charge.model.domain.ChargeEntity;
@@ -34,6 +34,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
@@ -46,8 +47,10 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.Mockito.anyLong;
 import static org.mockito.Mockito.anyString;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -66,7 +69,7 @@ public class UserNotificationServiceTest {
     @Mock
     private NotifyConfiguration mockNotifyConfiguration;
     @Mock
-    private ExecutorServiceConfig mockExecutorConfiguration;
+    private EmailOutboxService mockEmailOutboxService;
     @Mock
     private MetricRegistry mockMetricRegistry;
     @Mock
@@ -103,14 +106,13 @@ public class UserNotificationServiceTest {
         when(mockNotifyClientFactory.getInstance()).thenReturn(mockNotifyClient);
         when(mockNotificationCreatedResponse.getNotificationId()).thenReturn(notificationId);
 
-        when(mockConfig.getExecutorServiceConfig()).thenReturn(mockExecutorConfiguration);
-        when(mockExecutorConfiguration.getThreadsPerCpu()).thenReturn(2);
+        when(mockConfig.getEmailOutboxConfig()).thenReturn(new EmailOutboxConfig());
 
         when(mockEnvironment.metrics()).thenReturn(mockMetricRegistry);
         when(mockMetricRegistry.histogram(anyString())).thenReturn(mockHistogram);
         when(mockMetricRegistry.counter(anyString())).thenReturn(mockCounter);
 
-        userNotificationService = new UserNotificationService(mockNotifyClientFactory, mockConfig, mockEnvironment);
+        userNotificationService = new UserNotificationService(mockNotifyClientFactory, mockConfig, mockEnvironment, mockEmailOutboxService);
     }
 
     @Test
@@ -185,7 +187,7 @@ public class UserNotificationServiceTest {
         try {
             reset(mockNotifyConfiguration);
             when(mockNotifyConfiguration.isEmailNotifyEnabled()).thenReturn(true);
-            userNotificationService = new UserNotificationService(mockNotifyClientFactory, mockConfig, mockEnvironment);
+            userNotificationService = new UserNotificationService(mockNotifyClientFactory, mockConfig, mockEnvironment, mockEmailOutboxService);
             fail("this method should throw an ex");
         } catch (Exception e) {
             assertEquals("Check notify config, need to set 'emailTemplateId' (payment confirmation email) and 'refundIssuedEmailTemplateId' properties", e.getMessage());
@@ -198,7 +200,7 @@ public class UserNotificationServiceTest {
             reset(mockNotifyConfiguration);
             when(mockNotifyConfiguration.isEmailNotifyEnabled()).thenReturn(true);
             when(mockNotifyConfiguration.getEmailTemplateId()).thenReturn("template");
-            userNotificationService = new UserNotificationService(mockNotifyClientFactory, mockConfig, mockEnvironment);
+            userNotificationService = new UserNotificationService(mockNotifyClientFactory, mockConfig, mockEnvironment, mockEmailOutboxService);
             fail("this method should throw an ex");
         } catch (Exception e) {
             assertEquals("Check notify config, need to set 'emailTemplateId' (payment confirmation email) and 'refundIssuedEmailTemplateId' properties", e.getMessage());
@@ -209,7 +211,7 @@ public class UserNotificationServiceTest {
     public void shouldNotSendPaymentConfirmedEmail_IfNotifyIsDisabled() throws Exception {
         when(mockNotifyConfiguration.isEmailNotifyEnabled()).thenReturn(false);
         ChargeEntity chargeEntity = ChargeEntityFixture.aValidChargeEntity().build();
-        userNotificationService = new UserNotificationService(mockNotifyClientFactory, mockConfig, mockEnvironment);
+        userNotificationService = new UserNotificationService(mockNotifyClientFactory, mockConfig, mockEnvironment, mockEmailOutboxService);
         Future<Optional<String>> idF = userNotificationService.sendPaymentConfirmedEmail(chargeEntity, chargeEntity.getGatewayAccount());
         idF.get(1000, TimeUnit.SECONDS);
 
@@ -221,7 +223,7 @@ public class UserNotificationServiceTest {
         when(mockNotifyConfiguration.isEmailNotifyEnabled()).thenReturn(false);
         ChargeEntity chargeEntity = ChargeEntityFixture.aValidChargeEntity().build();
         RefundEntity refundEntity = RefundEntityFixture.aValidRefundEntity().build();
-        userNotificationService = new UserNotificationService(mockNotifyClientFactory, mockConfig, mockEnvironment);
+        userNotificationService = new UserNotificationService(mockNotifyClientFactory, mockConfig, mockEnvironment, mockEmailOutboxService);
         Future<Optional<String>> idF = userNotificationService.sendRefundIssuedEmail(refundEntity, charge, gatewayAccountEntity);
         idF.get(1000, TimeUnit.SECONDS);
 
@@ -235,7 +237,7 @@ public class UserNotificationServiceTest {
                 .get(EmailNotificationType.PAYMENT_CONFIRMED)
                 .setEnabled(false);
 
-        userNotificationService = new UserNotificationService(mockNotifyClientFactory, mockConfig, mockEnvironment);
+        userNotificationService = new UserNotificationService(mockNotifyClientFactory, mockConfig, mockEnvironment, mockEmailOutboxService);
         userNotificationService.sendPaymentConfirmedEmail(chargeEntity, chargeEntity.getGatewayAccount());
         verifyNoInteractions(mockNotifyClient);
     }
@@ -371,7 +373,7 @@ public class UserNotificationServiceTest {
                 .withNotifySettings(ImmutableMap.of("api_token", "my-api-key", "template_id", "my-template-id"))
                 .build();
 
-        userNotificationService = new UserNotificationService(mockNotifyClientFactory, mockConfig, mockEnvironment);
+        userNotificationService = new UserNotificationService(mockNotifyClientFactory, mockConfig, mockEnvironment, mockEmailOutboxService);
 
         Future<Optional<String>> idF = userNotificationService.sendPaymentConfirmedEmail(charge, charge.getGatewayAccount());
         idF.get(1000, TimeUnit.SECONDS);
@@ -468,4 +470,45 @@ public class UserNotificationServiceTest {
         verify(mockNotifyClientFactory).getInstance();
         verify(mockNotifyClient).sendEmail(eq("another-template"), anyString(), anyMap(), any());
     }
+
+    @Test
+    public void shouldStoreEmailInOutboxInsteadOfSendingItWhenOutboxIsEnabled() throws Exception {
+        when(mockEmailOutboxService.isEnabled()).thenReturn(true);
+
+        Future<Optional<String>> idF = userNotificationService.sendPaymentConfirmedEmail(chargeEntity, chargeEntity.getGatewayAccount());
+
+        assertThat(idF.get(1000, TimeUnit.SECONDS).isPresent(), is(false));
+        verify(mockEmailOutboxService).enqueue(eq(EmailNotificationType.PAYMENT_CONFIRMED), eq(chargeEntity.getExternalId()),
+                eq(gatewayAccountEntity.getId()), eq(chargeEntity.getEmail()), anyMap());
+        verifyNoInteractions(mockNotifyClient);
+    }
+
+    @Test
+    public void shouldNotQueueMoreEmailsThanTheDirectSendQueueHolds() throws Exception {
+        EmailOutboxConfig emailOutboxConfig = spy(new EmailOutboxConfig());
+        doReturn(1).when(emailOutboxConfig).getSenderThreads();
+        doReturn(1).when(emailOutboxConfig).getDirectSendQueueSize();
+        when(mockConfig.getEmailOutboxConfig()).thenReturn(emailOutboxConfig);
+        userNotificationService = new UserNotificationService(mockNotifyClientFactory, mockConfig, mockEnvironment, mockEmailOutboxService);
+
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch notifyAnswers = new CountDownLatch(1);
+        when(mockNotifyClient.sendEmail(any(), any(), any(), any())).thenAnswer(invocation -> {
+            sending.countDown();
+            notifyAnswers.await();
+            return mockNotificationCreatedResponse;
+        });
+
+        Future<Optional<String>> beingSent = userNotificationService.sendPaymentConfirmedEmail(chargeEntity, gatewayAccountEntity);
+        assertThat(sending.await(1, TimeUnit.SECONDS), is(true));
+        Future<Optional<String>> queued = userNotificationService.sendPaymentConfirmedEmail(chargeEntity, gatewayAccountEntity);
+        Future<Optional<String>> rejected = userNotificationService.sendPaymentConfirmedEmail(chargeEntity, gatewayAccountEntity);
+
+        assertThat(rejected.get(1, TimeUnit.SECONDS).isPresent(), is(false));
+        verify(mockMetricRegistry).counter("notify-operations.rejected");
+
+        notifyAnswers.countDown();
+        assertThat(beingSent.get(1, TimeUnit.SECONDS).isPresent(), is(true));
+        assertThat(queued.get(1, TimeUnit.SECONDS).isPresent(), is(true));
+    }
 }
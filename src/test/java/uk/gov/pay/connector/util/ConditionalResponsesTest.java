@@ -0,0 +1,96 @@
+package uk.gov.pay.connector.util;
+
+import com.fasterxml.jackson.annotation.JsonView;
+import io.dropwizard.jackson.Jackson;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ConditionalResponsesTest {
+
+    @Mock
+    private Request request;
+
+    private final ConditionalResponses conditionalResponses = new ConditionalResponses(Jackson.newObjectMapper());
+
+    @Test
+    public void shouldMakeWeakTagFromVersions() {
+        EntityTag tag = ConditionalResponses.versionTag("charge", 3L, 2L, null);
+
+        assertThat(tag.getValue(), is("charge-3-2-null"));
+        assertThat(tag.isWeak(), is(true));
+    }
+
+    @Test
+    public void shouldReturnSerialisedEntityWithContentTag_whenPreconditionsDoNotMatch() {
+        when(request.evaluatePreconditions(any(EntityTag.class))).thenReturn(null);
+
+        Response response = conditionalResponses.okWithContentTag(request, Map.of("card_types", "visa"));
+
+        assertThat(response.getStatus(), is(200));
+        assertThat(new String((byte[]) response.getEntity(), UTF_8), is("{\"card_types\":\"visa\"}"));
+        assertThat(response.getEntityTag().isWeak(), is(false));
+    }
+
+    @Test
+    public void shouldReturnNotModified_whenPreconditionsMatch() {
+        when(request.evaluatePreconditions(any(EntityTag.class))).thenReturn(Response.notModified());
+
+        Response response = conditionalResponses.okWithContentTag(request, Map.of("card_types", "visa"));
+
+        assertThat(response.getStatus(), is(304));
+    }
+
+    @Test
+    public void shouldTagDifferentContentDifferently() {
+        when(request.evaluatePreconditions(any(EntityTag.class))).thenReturn(null);
+
+        EntityTag visaTag = conditionalResponses.okWithContentTag(request, Map.of("card_types", "visa")).getEntityTag();
+        EntityTag sameVisaTag = conditionalResponses.okWithContentTag(request, Map.of("card_types", "visa")).getEntityTag();
+        EntityTag maestroTag = conditionalResponses.okWithContentTag(request, Map.of("card_types", "maestro")).getEntityTag();
+
+        assertThat(visaTag, is(sameVisaTag));
+        assertThat(visaTag, is(not(maestroTag)));
+    }
+
+    @Test
+    public void shouldSerialiseWithView() {
+        when(request.evaluatePreconditions(any(EntityTag.class))).thenReturn(null);
+
+        Response response = conditionalResponses.okWithContentTag(request, new Viewed(), Viewed.Public.class);
+
+        assertThat(new String((byte[]) response.getEntity(), UTF_8), is("{\"shown\":\"shown\"}"));
+    }
+
+    private static class Viewed {
+        private static class Public {
+        }
+
+        private static class Private {
+        }
+
+        @JsonView(Public.class)
+        public String getShown() {
+            return "shown";
+        }
+
+        @JsonView(Private.class)
+        public String getHidden() {
+            return "hidden";
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.google.gson.Gson;
 import org.apache.commons.lang.math.RandomUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.statement.Query;
 import org.postgresql.util.PGobject;
 import uk.gov.pay.commons.model.charge.ExternalMetadata;
 import uk.gov.pay.connector.cardtype.model.domain.CardType;
@@ -778,6 +779,45 @@ public class DatabaseTestHelper {
         jdbi.withHandle(h -> h.createUpdate("TRUNCATE TABLE tokens").execute());
         jdbi.withHandle(h -> h.createUpdate("TRUNCATE TABLE refunds").execute());
         jdbi.withHandle(h -> h.createUpdate("TRUNCATE TABLE refunds_history").execute());
+        jdbi.withHandle(h -> h.createUpdate("TRUNCATE TABLE notification_inbox").execute());
+        jdbi.withHandle(h -> h.createUpdate("TRUNCATE TABLE email_outbox").execute());
+        jdbi.withHandle(h -> h.createUpdate("TRUNCATE TABLE processed_notifications").execute());
+    }
+
+    public Map<String, Object> readNotificationInbox(Long id) {
+        return jdbi.withHandle(h ->
+                h.createQuery("SELECT * FROM notification_inbox WHERE id = :id")
+                        .bind("id", id)
+                        .mapToMap()
+                        .findFirst()
+                        .orElse(null)
+        );
+    }
+
+    public Map<String, Object> readEmailOutbox(Long id) {
+        return jdbi.withHandle(h ->
+                h.createQuery("SELECT * FROM email_outbox WHERE id = :id")
+                        .bind("id", id)
+                        .mapToMap()
+                        .findFirst()
+                        .orElse(null)
+        );
+    }
+
+    /**
+     * Explains a native DAO query with its parameters bound. Positional parameters (?1, ?2, ...) must each appear once,
+     * in order. Sequential scans are disabled only for this transaction, so the pooled connection is left as it was.
+     */
+    public List<String> explainWithoutSequentialScans(String query, Object... parameters) {
+        return jdbi.inTransaction(h -> {
+            h.execute("ANALYZE");
+            h.execute("SET LOCAL enable_seqscan = off");
+            Query explain = h.createQuery("EXPLAIN " + query.replaceAll("\\?\\d+", "?"));
+            for (int i = 0; i < parameters.length; i++) {
+                explain.bind(i, parameters[i]);
+            }
+            return explain.mapTo(String.class).list();
+        });
     }
 
     public Long getChargeIdByExternalId(String externalChargeId) {
@@ -878,4 +918,26 @@ public class DatabaseTestHelper {
                         .mapToMap()
                         .first());
     }
+
+    public long countChargesWithStatus(String status) {
+        return jdbi.withHandle(handle ->
+                handle.createQuery("SELECT count(*) FROM charges WHERE status = :status")
+                        .bind("status", status)
+                        .mapTo(Long.class)
+                        .one());
+    }
+
+    /**
+     * Cumulative activity counters from the Postgres statistics views. They are updated asynchronously, about every
+     * half a second, so callers comparing two readings should let activity settle first.
+     */
+    public Map<String, Object> getDatabaseActivity() {
+        return jdbi.withHandle(handle ->
+                handle.createQuery("SELECT " +
+                        "(SELECT coalesce(sum(seq_scan), 0) + coalesce(sum(idx_scan), 0) FROM pg_stat_user_tables) AS table_scans, " +
+                        "(SELECT coalesce(sum(n_tup_ins + n_tup_upd + n_tup_del), 0) FROM pg_stat_user_tables) AS rows_written, " +
+                        "(SELECT xact_commit FROM pg_stat_database WHERE datname = current_database()) AS transactions")
+                        .mapToMap()
+                        .one());
+    }
 }
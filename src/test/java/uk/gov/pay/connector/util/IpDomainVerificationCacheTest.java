@@ -0,0 +1,120 @@
+package uk.gov.pay.connector.util;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.pay.connector.app.NotificationDnsVerificationConfig;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class IpDomainVerificationCacheTest {
+
+    private static final Instant NOW = Instant.parse("2020-01-01T12:00:00Z");
+    private static final String WORLDPAY_IP = "195.35.90.1";
+    private static final String OTHER_IP = "10.0.0.1";
+
+    private StubDnsServer dnsServer;
+    private ExecutorService executor;
+    private MetricRegistry metricRegistry;
+    private Clock clock;
+    private NotificationDnsVerificationConfig config;
+    private IpDomainVerificationCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        dnsServer = new StubDnsServer()
+                .withPtrRecord(WORLDPAY_IP, "hello.worldpay.com")
+                .withARecord("hello.worldpay.com", WORLDPAY_IP);
+        executor = Executors.newFixedThreadPool(2);
+        metricRegistry = new MetricRegistry();
+        clock = mock(Clock.class);
+        when(clock.instant()).thenReturn(NOW);
+        config = mock(NotificationDnsVerificationConfig.class);
+        when(config.getVerifiedTtlInSeconds()).thenReturn(3600);
+        when(config.getRejectedTtlInSeconds()).thenReturn(300);
+        when(config.getLookupTimeoutInMillis()).thenReturn(2000);
+        when(config.getMaximumCacheSize()).thenReturn(100);
+        cache = new IpDomainVerificationCache(new DnsUtils(dnsServer.getProviderUrl()), config, executor, metricRegistry, clock);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        dnsServer.close();
+    }
+
+    @Test
+    public void shouldVerifyIpOnceAndServeRepeatedChecksFromCache() {
+        assertThat(cache.ipMatchesDomain(WORLDPAY_IP + ", 8.8.8.8", "worldpay.com"), is(true));
+        int queriesAfterFirstCheck = dnsServer.getQueryCount();
+
+        assertThat(cache.ipMatchesDomain(WORLDPAY_IP, "worldpay.com"), is(true));
+        assertThat(cache.ipMatchesDomain(WORLDPAY_IP + ", 1.1.1.1", "worldpay.com"), is(true));
+
+        assertThat(dnsServer.getQueryCount(), is(queriesAfterFirstCheck));
+        assertThat(metricRegistry.counter("notifications.dns-verification.cache.misses").getCount(), is(1L));
+        assertThat(metricRegistry.counter("notifications.dns-verification.cache.hits").getCount(), is(2L));
+        assertThat(metricRegistry.timer("notifications.dns-verification.lookup").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldRejectIpWhosePtrRecordIsNotConfirmedByForwardLookup() {
+        dnsServer.withPtrRecord(OTHER_IP, "spoofed.worldpay.com");
+
+        assertThat(cache.ipMatchesDomain(OTHER_IP, "worldpay.com"), is(false));
+    }
+
+    @Test
+    public void shouldRejectIpWithoutPtrRecord() {
+        assertThat(cache.ipMatchesDomain(OTHER_IP, "worldpay.com"), is(false));
+    }
+
+    @Test
+    public void shouldRejectMissingForwardedAddressWithoutLookup() {
+        assertThat(cache.ipMatchesDomain(null, "worldpay.com"), is(false));
+        assertThat(dnsServer.getQueryCount(), is(0));
+    }
+
+    @Test
+    public void shouldLookUpRejectedIpAgainOnceRejectionHasExpired() {
+        assertThat(cache.ipMatchesDomain(OTHER_IP, "worldpay.com"), is(false));
+
+        dnsServer.withPtrRecord(OTHER_IP, "new.worldpay.com").withARecord("new.worldpay.com", OTHER_IP);
+        assertThat(cache.ipMatchesDomain(OTHER_IP, "worldpay.com"), is(false));
+
+        when(clock.instant()).thenReturn(NOW.plus(Duration.ofMinutes(6)));
+        assertThat(cache.ipMatchesDomain(OTHER_IP, "worldpay.com"), is(true));
+    }
+
+    @Test
+    public void shouldRejectWhenLookupTimesOutAndUseTheLateResultForTheNextCheck() throws Exception {
+        when(config.getLookupTimeoutInMillis()).thenReturn(50);
+        cache = new IpDomainVerificationCache(new DnsUtils(dnsServer.getProviderUrl()), config, executor, new MetricRegistry(), clock);
+        dnsServer.delayResponsesBy(200);
+
+        assertThat(cache.ipMatchesDomain(WORLDPAY_IP, "worldpay.com"), is(false));
+
+        Thread.sleep(1000);
+        assertThat(cache.ipMatchesDomain(WORLDPAY_IP, "worldpay.com"), is(true));
+    }
+
+    @Test
+    public void shouldNotCacheLookupsThatFailed() {
+        dnsServer.failResponses(true);
+        assertThat(cache.ipMatchesDomain(WORLDPAY_IP, "worldpay.com"), is(false));
+
+        dnsServer.failResponses(false);
+        assertThat(cache.ipMatchesDomain(WORLDPAY_IP, "worldpay.com"), is(true));
+        assertThat(metricRegistry.counter("notifications.dns-verification.cache.misses").getCount(), is(2L));
+    }
+}
@@ -117,6 +117,12 @@ public class RestAssuredClient {
                 .then();
     }
 
+    public ValidatableResponse getEmittedEventsSweepTask() {
+        return given().port(port)
+                .get("/v1/tasks/emitted-events-sweep")
+                .then();
+    }
+
     public ValidatableResponse putChargeStatus(String putBody) {
         String requestPath = "/v1/frontend/charges/{chargeId}"
                 .replace("{accountId}", accountId)
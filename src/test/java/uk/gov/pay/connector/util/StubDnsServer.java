@@ -0,0 +1,176 @@
+package uk.gov.pay.connector.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal UDP DNS server answering A and PTR queries from a fixed set of records, so that DNS verification can be
+ * tested without depending on real DNS.
+ */
+public class StubDnsServer implements AutoCloseable {
+
+    private static final int TYPE_A = 1;
+    private static final int TYPE_PTR = 12;
+
+    private final DatagramSocket socket;
+    private final Map<String, List<String>> aRecords = new ConcurrentHashMap<>();
+    private final Map<String, String> ptrRecords = new ConcurrentHashMap<>();
+    private final AtomicInteger queryCount = new AtomicInteger();
+    private volatile long responseDelayMillis;
+    private volatile boolean failing;
+
+    public StubDnsServer() throws SocketException {
+        socket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        Thread thread = new Thread(this::serve, "stub-dns-server");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public String getProviderUrl() {
+        return "dns://127.0.0.1:" + socket.getLocalPort();
+    }
+
+    public StubDnsServer withARecord(String host, String... ipAddresses) {
+        aRecords.put(normalise(host), List.of(ipAddresses));
+        return this;
+    }
+
+    public StubDnsServer withPtrRecord(String ipAddress, String host) {
+        String[] octets = ipAddress.split("\\.");
+        ptrRecords.put(String.format("%s.%s.%s.%s.in-addr.arpa", octets[3], octets[2], octets[1], octets[0]), host);
+        return this;
+    }
+
+    public void delayResponsesBy(long millis) {
+        this.responseDelayMillis = millis;
+    }
+
+    /**
+     * Answers every query with SERVFAIL, as an overloaded or broken DNS server would, until turned off again.
+     */
+    public void failResponses(boolean failing) {
+        this.failing = failing;
+    }
+
+    public int getQueryCount() {
+        return queryCount.get();
+    }
+
+    @Override
+    public void close() {
+        socket.close();
+    }
+
+    private void serve() {
+        byte[] buffer = new byte[512];
+        while (!socket.isClosed()) {
+            try {
+                DatagramPacket request = new DatagramPacket(buffer, buffer.length);
+                socket.receive(request);
+                queryCount.incrementAndGet();
+                byte[] response = answer(ByteBuffer.wrap(request.getData(), 0, request.getLength()));
+                if (responseDelayMillis > 0) {
+                    Thread.sleep(responseDelayMillis);
+                }
+                socket.send(new DatagramPacket(response, response.length, request.getSocketAddress()));
+            } catch (IOException | InterruptedException e) {
+                // socket closed or a malformed query; keep serving until closed
+            }
+        }
+    }
+
+    private byte[] answer(ByteBuffer query) throws IOException {
+        short id = query.getShort();
+        query.position(12);
+        int questionStart = query.position();
+        String name = readName(query);
+        int type = query.getShort() & 0xffff;
+        query.getShort();
+        int questionEnd = query.position();
+
+        ByteArrayOutputStream answers = new ByteArrayOutputStream();
+        int answerCount = 0;
+        if (type == TYPE_A) {
+            for (String ip : aRecords.getOrDefault(name, List.of())) {
+                writeAnswerHeader(answers, TYPE_A, 4);
+                answers.write(InetAddress.getByName(ip).getAddress());
+                answerCount++;
+            }
+        } else if (type == TYPE_PTR && ptrRecords.containsKey(name)) {
+            byte[] host = encodeName(ptrRecords.get(name));
+            writeAnswerHeader(answers, TYPE_PTR, host.length);
+            answers.write(host);
+            answerCount++;
+        }
+
+        if (failing) {
+            answers.reset();
+            answerCount = 0;
+        }
+
+        ByteBuffer response = ByteBuffer.allocate(12 + (questionEnd - questionStart) + answers.size());
+        response.putShort(id);
+        response.putShort((short) (failing ? 0x8182 : answerCount > 0 ? 0x8180 : 0x8183));
+        response.putShort((short) 1);
+        response.putShort((short) answerCount);
+        response.putShort((short) 0);
+        response.putShort((short) 0);
+        response.put(query.array(), query.arrayOffset() + questionStart, questionEnd - questionStart);
+        response.put(answers.toByteArray());
+        return response.array();
+    }
+
+    private static void writeAnswerHeader(ByteArrayOutputStream out, int type, int dataLength) {
+        // pointer to the name in the question section
+        out.write(0xc0);
+        out.write(0x0c);
+        writeShort(out, type);
+        writeShort(out, 1);
+        writeShort(out, 0);
+        writeShort(out, 60);
+        writeShort(out, dataLength);
+    }
+
+    private static void writeShort(ByteArrayOutputStream out, int value) {
+        out.write((value >> 8) & 0xff);
+        out.write(value & 0xff);
+    }
+
+    private static String readName(ByteBuffer buffer) {
+        StringBuilder name = new StringBuilder();
+        int length;
+        while ((length = buffer.get() & 0xff) > 0) {
+            byte[] label = new byte[length];
+            buffer.get(label);
+            if (name.length() > 0) {
+                name.append('.');
+            }
+            name.append(new String(label));
+        }
+        return normalise(name.toString());
+    }
+
+    private static byte[] encodeName(String name) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (String label : normalise(name).split("\\.")) {
+            out.write(label.length());
+            out.write(label.getBytes());
+        }
+        out.write(0);
+        return out.toByteArray();
+    }
+
+    private static String normalise(String name) {
+        String lowerCase = name.toLowerCase();
+        return lowerCase.endsWith(".") ? lowerCase.substring(0, lowerCase.length() - 1) : lowerCase;
+    }
+}
@@ -0,0 +1,139 @@
+package uk.gov.pay.connector.webhook.dao;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.pay.connector.it.dao.DaoITestBase;
+import uk.gov.pay.connector.webhook.model.NotificationInboxEntity;
+import uk.gov.pay.connector.webhook.model.NotificationInboxStatistics;
+
+import javax.persistence.EntityManager;
+import java.sql.Timestamp;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.is;
+
+public class NotificationInboxDaoIT extends DaoITestBase {
+
+    private static final ZonedDateTime NOW = ZonedDateTime.parse("2020-06-01T12:00:00Z");
+    private static final int CONCURRENT_WORKERS = 4;
+
+    private NotificationInboxDao notificationInboxDao;
+
+    @Before
+    public void setUp() {
+        notificationInboxDao = env.getInstance(NotificationInboxDao.class);
+        databaseTestHelper.truncateAllData();
+    }
+
+    @Test
+    public void claimDue_shouldClaimOnlyDueNotificationsOldestFirst() {
+        NotificationInboxEntity older = insert(NOW.minusMinutes(5));
+        NotificationInboxEntity newer = insert(NOW.minusMinutes(1));
+        insert(NOW.plusMinutes(1));
+
+        List<NotificationInboxEntity> claimed = notificationInboxDao.claimDue(NOW, NOW.plusMinutes(5), 10);
+
+        assertThat(claimed, contains(hasProperty("id", is(older.getId())), hasProperty("id", is(newer.getId()))));
+
+        Map<String, Object> row = databaseTestHelper.readNotificationInbox(older.getId());
+        assertThat(row.get("status"), is("PROCESSING"));
+        assertThat(row.get("attempts"), is(1));
+        assertThat(row.get("next_attempt_date"), is(Timestamp.from(NOW.plusMinutes(5).toInstant())));
+    }
+
+    @Test
+    public void claimDue_shouldNotClaimNotificationAgainUntilItsLeaseHasExpired() {
+        insert(NOW.minusMinutes(1));
+        notificationInboxDao.claimDue(NOW, NOW.plusMinutes(5), 10);
+
+        assertThat(notificationInboxDao.claimDue(NOW.plusMinutes(1), NOW.plusMinutes(6), 10).size(), is(0));
+        assertThat(notificationInboxDao.claimDue(NOW.plusMinutes(6), NOW.plusMinutes(11), 10).size(), is(1));
+    }
+
+    @Test
+    public void claimDue_concurrentWorkersShouldNeverClaimTheSameNotification() throws Exception {
+        for (int i = 0; i < CONCURRENT_WORKERS * 3; i++) {
+            insert(NOW.minusMinutes(1));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_WORKERS);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch allClaimed = new CountDownLatch(CONCURRENT_WORKERS);
+
+        List<Long> claimedIds = new ArrayList<>();
+        try {
+            List<Future<List<NotificationInboxEntity>>> workers = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_WORKERS; i++) {
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    return inTransaction(() -> {
+                        List<NotificationInboxEntity> claimed = notificationInboxDao.claimDue(NOW, NOW.plusMinutes(5), 3);
+                        allClaimed.countDown();
+                        allClaimed.await(30, TimeUnit.SECONDS);
+                        return claimed;
+                    });
+                }));
+            }
+
+            start.countDown();
+            for (Future<List<NotificationInboxEntity>> worker : workers) {
+                worker.get(30, TimeUnit.SECONDS).forEach(notification -> claimedIds.add(notification.getId()));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(claimedIds.stream().distinct().count(), is((long) claimedIds.size()));
+    }
+
+    @Test
+    public void getStatistics_shouldReportDepthAndOldestNotificationExcludingDeadLetters() {
+        NotificationInboxEntity deadLetter = insert(NOW.minusHours(2));
+        insert(NOW.minusMinutes(10));
+        insert(NOW.minusMinutes(1));
+
+        deadLetter = notificationInboxDao.claimDue(NOW.minusHours(1), NOW, 1).get(0);
+        deadLetter.deadLetter("gave up");
+        notificationInboxDao.merge(deadLetter);
+
+        NotificationInboxStatistics statistics = notificationInboxDao.getStatistics();
+
+        assertThat(statistics.getDepth(), is(2L));
+        assertThat(statistics.getDeadLettered(), is(1L));
+        assertThat(statistics.getOldestReceivedDate().get().toInstant(), is(NOW.minusMinutes(10).toInstant()));
+    }
+
+    private NotificationInboxEntity insert(ZonedDateTime receivedDate) {
+        NotificationInboxEntity notification = new NotificationInboxEntity("worldpay", "<xml/>", receivedDate);
+        notificationInboxDao.persist(notification);
+        return notification;
+    }
+
+    private <T> T inTransaction(Callable<T> work) throws Exception {
+        // the entity manager is per thread, so each worker runs in its own transaction
+        EntityManager entityManager = env.getInstance(EntityManager.class);
+        entityManager.getTransaction().begin();
+        try {
+            T result = work.call();
+            entityManager.getTransaction().commit();
+            return result;
+        } finally {
+            if (entityManager.getTransaction().isActive()) {
+                entityManager.getTransaction().rollback();
+            }
+            entityManager.clear();
+        }
+    }
+}
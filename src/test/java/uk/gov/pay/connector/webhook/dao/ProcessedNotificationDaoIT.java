@@ -0,0 +1,60 @@
+package uk.gov.pay.connector.webhook.dao;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.pay.connector.it.dao.DaoITestBase;
+import uk.gov.pay.connector.webhook.model.NotificationKey;
+
+import java.time.ZonedDateTime;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static uk.gov.pay.connector.gateway.PaymentGatewayName.WORLDPAY;
+
+public class ProcessedNotificationDaoIT extends DaoITestBase {
+
+    private static final ZonedDateTime NOW = ZonedDateTime.parse("2020-06-01T12:00:00Z");
+
+    private ProcessedNotificationDao processedNotificationDao;
+
+    @Before
+    public void setUp() {
+        processedNotificationDao = env.getInstance(ProcessedNotificationDao.class);
+        databaseTestHelper.truncateAllData();
+    }
+
+    @Test
+    public void shouldFindRecordedNotificationOnly() {
+        NotificationKey recorded = NotificationKey.of(WORLDPAY, "transaction-id", "reference", "CAPTURED", NOW);
+        NotificationKey other = NotificationKey.of(WORLDPAY, "transaction-id", "reference", "REFUNDED", NOW);
+
+        processedNotificationDao.recordProcessed(recorded, NOW);
+
+        assertThat(processedNotificationDao.hasBeenProcessed(recorded), is(true));
+        assertThat(processedNotificationDao.hasBeenProcessed(other), is(false));
+    }
+
+    @Test
+    public void shouldIgnoreRecordingTheSameNotificationTwice() {
+        NotificationKey notificationKey = NotificationKey.of(WORLDPAY, "transaction-id", "reference", "CAPTURED", NOW);
+
+        processedNotificationDao.recordProcessed(notificationKey, NOW);
+        processedNotificationDao.recordProcessed(notificationKey, NOW.plusMinutes(1));
+
+        assertThat(processedNotificationDao.hasBeenProcessed(notificationKey), is(true));
+        assertThat(processedNotificationDao.deleteProcessedBefore(NOW.plusMinutes(2)), is(1));
+    }
+
+    @Test
+    public void shouldDeleteOnlyRecordsProcessedBeforeTheCutOffDate() {
+        NotificationKey old = NotificationKey.of(WORLDPAY, "old-transaction-id", "reference", "CAPTURED", NOW);
+        NotificationKey recent = NotificationKey.of(WORLDPAY, "recent-transaction-id", "reference", "CAPTURED", NOW);
+        processedNotificationDao.recordProcessed(old, NOW.minusDays(31));
+        processedNotificationDao.recordProcessed(recent, NOW.minusDays(1));
+
+        assertThat(processedNotificationDao.deleteProcessedBefore(NOW.minusDays(30)), is(1));
+
+        assertThat(processedNotificationDao.hasBeenProcessed(old), is(false));
+        assertThat(processedNotificationDao.hasBeenProcessed(recent), is(true));
+    }
+}
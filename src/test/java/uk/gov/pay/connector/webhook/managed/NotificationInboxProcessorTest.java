@@ -0,0 +1,184 @@
+package uk.gov.pay.connector.webhook.managed;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.connector.app.config.NotificationInboxConfig;
+import uk.gov.pay.connector.common.exception.Charge3dsNotReadyRuntimeException;
+import uk.gov.pay.connector.gateway.epdq.EpdqNotificationService;
+import uk.gov.pay.connector.gateway.smartpay.SmartpayNotificationService;
+import uk.gov.pay.connector.gateway.stripe.StripeNotificationService;
+import uk.gov.pay.connector.gateway.worldpay.WorldpayNotificationService;
+import uk.gov.pay.connector.webhook.model.NotificationInboxEntity;
+import uk.gov.pay.connector.webhook.model.NotificationInboxStatistics;
+import uk.gov.pay.connector.webhook.service.NotificationInboxService;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class NotificationInboxProcessorTest {
+
+    private static final Instant NOW = Instant.parse("2020-06-01T12:00:00Z");
+
+    @Mock
+    private NotificationInboxService notificationInboxService;
+    @Mock
+    private WorldpayNotificationService worldpayNotificationService;
+    @Mock
+    private EpdqNotificationService epdqNotificationService;
+    @Mock
+    private SmartpayNotificationService smartpayNotificationService;
+    @Mock
+    private StripeNotificationService stripeNotificationService;
+    @Mock
+    private NotificationInboxConfig config;
+    @Mock
+    private ScheduledExecutorService executorService;
+
+    private MetricRegistry metricRegistry;
+    private NotificationInboxProcessor processor;
+
+    @Before
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        processor = new NotificationInboxProcessor(notificationInboxService, worldpayNotificationService,
+                epdqNotificationService, smartpayNotificationService, stripeNotificationService, config,
+                executorService, metricRegistry, Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @Test
+    public void shouldRemoveNotificationFromInboxOnceProcessed() {
+        NotificationInboxEntity notification = aNotification(1L, "stripe", "{}");
+        givenClaimedBatches(List.of(notification));
+
+        processor.processDueNotifications();
+
+        verify(stripeNotificationService).processNotification("{}");
+        verify(notificationInboxService).markProcessed(1L);
+        verify(notificationInboxService, never()).markFailed(eq(1L), anyString());
+        assertThat(metricRegistry.counter("notification-inbox.processed").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldRetryNotificationTheServiceDidNotAccept() {
+        NotificationInboxEntity notification = aNotification(2L, "worldpay", "<xml/>");
+        givenClaimedBatches(List.of(notification));
+        when(worldpayNotificationService.handleNotificationFor("<xml/>")).thenReturn(false);
+
+        processor.processDueNotifications();
+
+        verify(notificationInboxService, never()).markProcessed(2L);
+        verify(notificationInboxService).markFailed(eq(2L), startsWith("Notification was not accepted"));
+        assertThat(metricRegistry.counter("notification-inbox.retried").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldCountDeadLetteredNotificationAndCarryOnWithTheRestOfTheBatch() {
+        NotificationInboxEntity failing = aNotification(3L, "epdq", "bad");
+        NotificationInboxEntity succeeding = aNotification(4L, "smartpay", "good");
+        givenClaimedBatches(List.of(failing, succeeding));
+        doThrow(new RuntimeException("database unavailable")).when(epdqNotificationService).handleNotificationFor("bad");
+        when(notificationInboxService.markFailed(3L, "RuntimeException: database unavailable")).thenReturn(true);
+        when(smartpayNotificationService.handleNotificationFor("good")).thenReturn(true);
+
+        processor.processDueNotifications();
+
+        verify(notificationInboxService).markProcessed(4L);
+        assertThat(metricRegistry.counter("notification-inbox.dead-lettered").getCount(), is(1L));
+        assertThat(metricRegistry.counter("notification-inbox.processed").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldDeferStripeNotificationForChargeThatIsNot3dsReadyYet() {
+        NotificationInboxEntity notification = aNotification(7L, "stripe", "3ds");
+        givenClaimedBatches(List.of(notification));
+        ZonedDateTime retryDate = ZonedDateTime.ofInstant(NOW.plusMillis(200), ZoneOffset.UTC);
+        doThrow(new Charge3dsNotReadyRuntimeException("charge-id", retryDate))
+                .when(stripeNotificationService).processNotification("3ds");
+
+        processor.processDueNotifications();
+
+        verify(notificationInboxService).defer(7L, retryDate);
+        verify(notificationInboxService, never()).markFailed(eq(7L), anyString());
+        verify(notificationInboxService, never()).markProcessed(7L);
+        assertThat(metricRegistry.counter("notification-inbox.deferred").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldKeepClaimingWhileBatchesAreFull() {
+        when(config.getBatchSize()).thenReturn(1);
+        NotificationInboxEntity first = aNotification(5L, "stripe", "first");
+        NotificationInboxEntity second = aNotification(6L, "stripe", "second");
+        when(notificationInboxService.claimDueNotifications())
+                .thenReturn(List.of(first))
+                .thenReturn(List.of(second))
+                .thenReturn(List.of());
+
+        processor.processDueNotifications();
+
+        verify(notificationInboxService, times(3)).claimDueNotifications();
+        verify(notificationInboxService).markProcessed(5L);
+        verify(notificationInboxService).markProcessed(6L);
+    }
+
+    @Test
+    public void shouldExposeInboxDepthAndAgeOfOldestNotification() {
+        when(notificationInboxService.getStatistics()).thenReturn(
+                new NotificationInboxStatistics(7, 2, ZonedDateTime.ofInstant(NOW.minusSeconds(90), ZoneOffset.UTC)));
+
+        processor.refreshStatistics();
+
+        assertThat(gauge("notification-inbox.depth"), is(7L));
+        assertThat(gauge("notification-inbox.dead-letter-depth"), is(2L));
+        assertThat(gauge("notification-inbox.oldest-age-seconds"), is(90L));
+    }
+
+    @Test
+    public void shouldNotScheduleWorkersWhenInboxIsDisabled() {
+        when(config.isEnabled()).thenReturn(false);
+
+        processor.start();
+
+        verifyNoInteractions(executorService);
+    }
+
+    private void givenClaimedBatches(List<NotificationInboxEntity> batch) {
+        when(config.getBatchSize()).thenReturn(10);
+        when(notificationInboxService.claimDueNotifications()).thenReturn(batch);
+    }
+
+    private Object gauge(String name) {
+        Gauge<?> gauge = metricRegistry.getGauges().get(name);
+        return gauge.getValue();
+    }
+
+    private static NotificationInboxEntity aNotification(Long id, String paymentProvider, String payload) {
+        NotificationInboxEntity notification = mock(NotificationInboxEntity.class);
+        when(notification.getId()).thenReturn(id);
+        when(notification.getPaymentProvider()).thenReturn(paymentProvider);
+        when(notification.getPayload()).thenReturn(payload);
+        return notification;
+    }
+}
@@ -0,0 +1,109 @@
+package uk.gov.pay.connector.webhook.service;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.connector.common.dao.AfterCommitActions;
+import uk.gov.pay.connector.webhook.dao.ProcessedNotificationDao;
+import uk.gov.pay.connector.webhook.model.NotificationKey;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.pay.connector.gateway.PaymentGatewayName.EPDQ;
+import static uk.gov.pay.connector.gateway.PaymentGatewayName.WORLDPAY;
+
+@RunWith(MockitoJUnitRunner.class)
+public class NotificationDeduplicationServiceTest {
+
+    private static final Instant NOW = Instant.parse("2020-06-01T12:00:00Z");
+    private static final ZonedDateTime EVENT_DATE = ZonedDateTime.parse("2020-06-01T11:00:00Z");
+
+    @Mock
+    private ProcessedNotificationDao processedNotificationDao;
+
+    @Mock
+    private AfterCommitActions afterCommitActions;
+
+    private MetricRegistry metricRegistry;
+    private NotificationDeduplicationService notificationDeduplicationService;
+
+    @Before
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        notificationDeduplicationService = new NotificationDeduplicationService(processedNotificationDao,
+                afterCommitActions, metricRegistry, Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @Test
+    public void shouldTreatNotificationRecordedByAnotherNodeAsDuplicate() {
+        NotificationKey notificationKey = NotificationKey.of(WORLDPAY, "transaction-id", "reference", "CAPTURED", EVENT_DATE);
+        when(processedNotificationDao.hasBeenProcessed(notificationKey)).thenReturn(true);
+
+        assertThat(notificationDeduplicationService.isDuplicate(notificationKey), is(true));
+        assertThat(metricRegistry.counter("notifications.duplicates-suppressed.worldpay").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldRecogniseRecentlyProcessedNotificationWithoutQueryingTheDatabase() {
+        NotificationKey notificationKey = NotificationKey.of(EPDQ, "pay-id", "pay-id/1", "9", null);
+        runAfterCommitActionsStraightAway();
+
+        notificationDeduplicationService.recordProcessed(notificationKey);
+
+        assertThat(notificationDeduplicationService.isDuplicate(notificationKey), is(true));
+        verify(processedNotificationDao).recordProcessed(notificationKey, ZonedDateTime.ofInstant(NOW, ZoneOffset.UTC));
+        verify(processedNotificationDao, never()).hasBeenProcessed(notificationKey);
+        assertThat(metricRegistry.counter("notifications.duplicates-suppressed.epdq").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldNotTreatNotificationForAnotherRefundOfTheSamePaymentAsDuplicate() {
+        NotificationKey firstRefund = NotificationKey.of(EPDQ, "pay-id", "pay-id/1", "8", null);
+        NotificationKey secondRefund = NotificationKey.of(EPDQ, "pay-id", "pay-id/2", "8", null);
+        runAfterCommitActionsStraightAway();
+
+        notificationDeduplicationService.recordProcessed(firstRefund);
+
+        assertThat(notificationDeduplicationService.isDuplicate(secondRefund), is(false));
+        assertThat(metricRegistry.counter("notifications.duplicates-suppressed.epdq").getCount(), is(0L));
+    }
+
+    @Test
+    public void shouldNotRememberNotificationWhoseTransactionHasNotCommitted() {
+        NotificationKey notificationKey = NotificationKey.of(EPDQ, "pay-id", "pay-id/1", "9", null);
+
+        notificationDeduplicationService.recordProcessed(notificationKey);
+
+        assertThat(notificationDeduplicationService.isDuplicate(notificationKey), is(false));
+        verify(processedNotificationDao).hasBeenProcessed(notificationKey);
+    }
+
+    @Test
+    public void shouldExpungeRecordsOlderThanTheRetentionPeriod() {
+        ZonedDateTime cutOffDate = ZonedDateTime.ofInstant(NOW, ZoneOffset.UTC)
+                .minus(NotificationDeduplicationService.PROCESSED_NOTIFICATION_RETENTION);
+        when(processedNotificationDao.deleteProcessedBefore(cutOffDate)).thenReturn(3);
+
+        assertThat(notificationDeduplicationService.expungeProcessedNotifications(), is(3));
+    }
+
+    private void runAfterCommitActionsStraightAway() {
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(afterCommitActions).run(any(Runnable.class));
+    }
+}
@@ -0,0 +1,104 @@
+package uk.gov.pay.connector.webhook.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.connector.app.ConnectorConfiguration;
+import uk.gov.pay.connector.app.config.NotificationInboxConfig;
+import uk.gov.pay.connector.webhook.dao.NotificationInboxDao;
+import uk.gov.pay.connector.webhook.model.NotificationInboxEntity;
+import uk.gov.pay.connector.webhook.model.NotificationInboxStatus;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class NotificationInboxServiceTest {
+
+    private static final Instant NOW = Instant.parse("2020-06-01T12:00:00Z");
+
+    @Mock
+    private NotificationInboxDao notificationInboxDao;
+    @Mock
+    private ConnectorConfiguration connectorConfiguration;
+    @Mock
+    private NotificationInboxConfig config;
+
+    private NotificationInboxService notificationInboxService;
+
+    @Before
+    public void setUp() {
+        when(connectorConfiguration.getNotificationInboxConfig()).thenReturn(config);
+        notificationInboxService = new NotificationInboxService(notificationInboxDao, connectorConfiguration,
+                Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @Test
+    public void shouldBackOffExponentiallyUpToTheMaximumRetryDelay() {
+        when(config.getInitialRetryDelayInSeconds()).thenReturn(30);
+        when(config.getMaximumRetryDelayInSeconds()).thenReturn(300);
+
+        assertThat(notificationInboxService.retryDelay(1), is(Duration.ofSeconds(30)));
+        assertThat(notificationInboxService.retryDelay(2), is(Duration.ofSeconds(60)));
+        assertThat(notificationInboxService.retryDelay(4), is(Duration.ofSeconds(240)));
+        assertThat(notificationInboxService.retryDelay(5), is(Duration.ofSeconds(300)));
+        assertThat(notificationInboxService.retryDelay(100), is(Duration.ofSeconds(300)));
+    }
+
+    @Test
+    public void shouldScheduleRetryWhileAttemptsRemain() {
+        when(config.getMaximumAttempts()).thenReturn(3);
+        when(config.getInitialRetryDelayInSeconds()).thenReturn(30);
+        when(config.getMaximumRetryDelayInSeconds()).thenReturn(3600);
+        NotificationInboxEntity notification = aClaimedNotification(1L, 1);
+
+        assertThat(notificationInboxService.markFailed(1L, "boom"), is(false));
+
+        assertThat(notification.getStatus(), is(NotificationInboxStatus.PENDING));
+        assertThat(notification.getNextAttemptDate(), is(ZonedDateTime.ofInstant(NOW.plusSeconds(30), ZoneOffset.UTC)));
+        assertThat(notification.getLastError(), is("boom"));
+    }
+
+    @Test
+    public void shouldDeadLetterNotificationOnceAttemptsAreUsedUp() {
+        when(config.getMaximumAttempts()).thenReturn(3);
+        NotificationInboxEntity notification = aClaimedNotification(2L, 3);
+
+        assertThat(notificationInboxService.markFailed(2L, "boom"), is(true));
+
+        assertThat(notification.getStatus(), is(NotificationInboxStatus.DEAD_LETTER));
+        assertThat(notification.getLastError(), is("boom"));
+    }
+
+    @Test
+    public void shouldDeferNotificationWithoutUsingUpAnAttempt() {
+        NotificationInboxEntity notification = aClaimedNotification(3L, 2);
+        ZonedDateTime retryDate = ZonedDateTime.ofInstant(NOW.plusMillis(200), ZoneOffset.UTC);
+
+        notificationInboxService.defer(3L, retryDate);
+
+        assertThat(notification.getStatus(), is(NotificationInboxStatus.PENDING));
+        assertThat(notification.getNextAttemptDate(), is(retryDate));
+        assertThat(notification.getAttempts(), is(1));
+    }
+
+    private NotificationInboxEntity aClaimedNotification(Long id, int attempts) {
+        NotificationInboxEntity notification = new NotificationInboxEntity("worldpay", "<xml/>",
+                ZonedDateTime.ofInstant(NOW.minusSeconds(60), ZoneOffset.UTC));
+        for (int i = 0; i < attempts; i++) {
+            notification.claim(ZonedDateTime.ofInstant(NOW.plusSeconds(300), ZoneOffset.UTC));
+        }
+        when(notificationInboxDao.findById(NotificationInboxEntity.class, id)).thenReturn(Optional.of(notification));
+        return notification;
+    }
+}